@@ -17,6 +17,9 @@ import ch.unibas.informatik.hs15.cs203.datarepository.apps.support.Utilities;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.DatasetPortConfiguration;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.DummyProgressListener;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.MetaDataCursor;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.PagedDataRepository;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.RepositorySession;
 import util.logging.Logger;
 
 /**
@@ -35,6 +38,13 @@ class CommandInterpreter {
 	
 	private static final Logger LOG = Logger.getLogger(CommandInterpreter.class);
 
+	private static final String LIST_HEADER = "ID\tName\tTimestamp\tNumber of Files\tSize\tDescription\n";
+
+	/**
+	 * The number of rows fetched and written at once by the list command.
+	 */
+	private static final int LIST_PAGE_SIZE = 1000;
+
 	private ArgumentsAnalyzer analyzer;
 
 	private DataRepositoryFactory factory;
@@ -256,7 +266,9 @@ class CommandInterpreter {
 
 	/**
 	 * Executes the List command of the data repository application.The paramter
-	 * <code>arguments</code> are the arguments without the command itself
+	 * <code>arguments</code> are the arguments without the command itself<br />
+	 * If the repository supports it, the list is fetched page by page instead
+	 * of materializing all meta data at once.
 	 *
 	 * @param arguments
 	 *            arguments in tokenizer list form
@@ -268,26 +280,54 @@ class CommandInterpreter {
 		final CriteriaWrapper crit = CommandParser.parseCriteria(Command.LIST,
 				arguments);
 		validateCriteriaOptions(optVals);
-		final List<MetaData> list = factory.create(new File(repoLoc))
-				.getMetaData(crit.getWrappedObject());
-
-		final StringBuilder out = new StringBuilder(
-				"ID\tName\tTimestamp\tNumber of Files\tSize\tDescription\n");
+		final DataRepository repo = factory.create(new File(repoLoc));
+		final StringBuilder out = new StringBuilder(LIST_HEADER);
+		if (repo instanceof PagedDataRepository) {
+			appendList((PagedDataRepository) repo, crit, out);
+			return out.toString();
+		}
+		final List<MetaData> list = repo.getMetaData(crit.getWrappedObject());
 		for (final MetaData m : list) {
 			out.append(createTabbedInfoLine(m));
 		}
 		return out.toString();
 	}
+
+	/**
+	 * Appends the list of the matching meta data to the given output. Only a
+	 * single page of meta data is held in memory at once.
+	 */
+	private void appendList(final PagedDataRepository repo,
+			final CriteriaWrapper crit, final StringBuilder out) {
+		final MetaDataCursor cursor = repo.getMetaData(
+				crit.getWrappedObject(), LIST_PAGE_SIZE, null,
+				MetaDataCursor.Order.ASCENDING);
+		try {
+			while (cursor.hasNext()) {
+				out.append(createTabbedInfoLine(cursor.next()));
+			}
+		} finally {
+			cursor.close();
+		}
+	}
 	
 	private void executeServer(final LinkedList<String> arguments){
 		final String repoLoc = arguments.getFirst();
 		final String propertiesFile = arguments.getLast();
 		
-		final DataRepository repo = factory.create(new File(repoLoc));
-		
-		DatasetPortConfiguration config  = PropertiesParser.parse(propertiesFile);
-		DatasetPort server = DatasetPort.getDatasetPort(new File(repoLoc).toPath(), config, repo);
-		server.start();
+		final File folder = new File(repoLoc);
+		// The server keeps the repository open for its whole lifetime
+		final DataRepository repo = factory instanceof RepositorySessionFactory ? ((RepositorySessionFactory) factory)
+				.open(folder) : factory.create(folder);
+		try {
+			DatasetPortConfiguration config  = PropertiesParser.parse(propertiesFile);
+			DatasetPort server = DatasetPort.getDatasetPort(folder.toPath(), config, repo);
+			server.start();
+		} finally {
+			if (repo instanceof RepositorySession) {
+				((RepositorySession) repo).close();
+			}
+		}
 	}
 
 	/**
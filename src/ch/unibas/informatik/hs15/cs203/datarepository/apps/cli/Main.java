@@ -9,6 +9,7 @@ import java.text.ParseException;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.api.DataRepository;
 import ch.unibas.informatik.hs15.cs203.datarepository.processing.Factory;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.RepositorySession;
 import util.logging.LevelX;
 import util.logging.Logger;
 
@@ -26,12 +27,17 @@ public class Main {
 
 	private static final Logger LOG = Logger.getLogger(Main.class);
 
-	private static final DataRepositoryFactory FACTORY = new DataRepositoryFactory() {
+	private static final DataRepositoryFactory FACTORY = new RepositorySessionFactory() {
 		@Override
 		public DataRepository create(final File repositoryFolder) {
 			Factory factory = new Factory();
 			return factory.create(repositoryFolder);
 		}
+
+		@Override
+		public RepositorySession open(final File repositoryFolder) {
+			return Factory.open(repositoryFolder);
+		}
 	};
 
 	/**
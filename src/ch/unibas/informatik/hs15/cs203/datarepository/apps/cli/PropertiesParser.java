@@ -46,8 +46,15 @@ class PropertiesParser {
 
 	public static final String INCOMING_DIR_KEY = "incoming-directory";
 	public static final String HTML_OVERVIEW_KEY = "html-overview";
+	public static final String HTML_PAGE_SIZE_KEY = "html-overview-page-size";
 	public static final String LOG_FILE_KEY = "log-file";
+	public static final String LOG_FLUSH_INTERVAL_KEY = "log-flush-interval-in-millis";
+	public static final String LOG_MAX_SIZE_KEY = "log-max-size-in-kb";
+	public static final String LOG_ROTATION_INTERVAL_KEY = "log-rotation-interval-in-hours";
 	public static final String CHECKING_INTERVAL_KEY = "checking-interval-in-seconds";
+	public static final String WATCH_INCOMING_KEY = "watch-incoming-directory";
+	public static final String WORKER_COUNT_KEY = "ingestion-workers";
+	public static final String QUEUE_SIZE_KEY = "ingestion-queue-size";
 
 	public static final String CMPLTNSS_CLASS_KEY = "completeness-detection"
 			+ "." + "class-name";
@@ -64,8 +71,31 @@ class PropertiesParser {
 		final int interval = parseInteger(props, CHECKING_INTERVAL_KEY);
 		final Class<? extends CompletenessDetection> strategy = parseDetection(
 				props);
-		return new DatasetPortConfiguration(inDir, htmlPath, logPath, interval,
-				strategy, props);
+		final DatasetPortConfiguration config = new DatasetPortConfiguration(
+				inDir, htmlPath, logPath, interval, strategy, props);
+		if (props.containsKey(WATCH_INCOMING_KEY)) {
+			config.setWatchIncoming(parseBoolean(props, WATCH_INCOMING_KEY));
+		}
+		if (props.containsKey(LOG_FLUSH_INTERVAL_KEY)) {
+			config.setLogFlushInterval(parseInteger(props, LOG_FLUSH_INTERVAL_KEY, 0));
+		}
+		if (props.containsKey(LOG_MAX_SIZE_KEY)) {
+			config.setLogMaxSize(parseInteger(props, LOG_MAX_SIZE_KEY, 0));
+		}
+		if (props.containsKey(LOG_ROTATION_INTERVAL_KEY)) {
+			config.setLogRotationInterval(parseInteger(props,
+					LOG_ROTATION_INTERVAL_KEY, 0));
+		}
+		if (props.containsKey(HTML_PAGE_SIZE_KEY)) {
+			config.setOverviewPageSize(parseInteger(props, HTML_PAGE_SIZE_KEY, 1));
+		}
+		if (props.containsKey(WORKER_COUNT_KEY)) {
+			config.setWorkerCount(parseInteger(props, WORKER_COUNT_KEY, 1));
+		}
+		if (props.containsKey(QUEUE_SIZE_KEY)) {
+			config.setQueueSize(parseInteger(props, QUEUE_SIZE_KEY, 1));
+		}
+		return config;
 	}
 
 	public static DatasetPortConfiguration parse(final String filepath)
@@ -134,6 +164,32 @@ class PropertiesParser {
 		}
 	}
 
+	private static int parseInteger(final Properties props, final String key,
+			final int min) throws ParseException {
+		final int it = parseInteger(props, key);
+		if (it < min) {
+			throw new ParseException(key, new IllegalArgumentException(
+					"Less than " + min + ": " + it));
+		}
+		return it;
+	}
+
+	private static boolean parseBoolean(final Properties props,
+			final String key) throws ParseException {
+		final String it = props.getProperty(key);
+		if (it == null) {
+			throw new ParseException(key);
+		}
+		if ("true".equalsIgnoreCase(it.trim())) {
+			return true;
+		} else if ("false".equalsIgnoreCase(it.trim())) {
+			return false;
+		} else {
+			throw new ParseException(key, new IllegalArgumentException(
+					"Not a boolean: " + it));
+		}
+	}
+
 	private static Path parsePath(final Properties props, final String key)
 			throws ParseException {
 		try {
@@ -0,0 +1,27 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.cli;
+
+import java.io.File;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.RepositorySession;
+
+/**
+ * A {@link DataRepositoryFactory} which additionally opens long living
+ * {@link RepositorySession}s, as used by the server command. Factories which
+ * do not implement this interface serve the server command with
+ * {@link #create(File)} as well.
+ *
+ */
+public interface RepositorySessionFactory extends DataRepositoryFactory {
+
+	/**
+	 * Opens a {@link RepositorySession} for the specified repository folder.
+	 * The repository folder will be created if it does not exit.
+	 *
+	 * @param repositoryFolder
+	 *            Folder which will contain data sets and meta data.
+	 * @return an open {@link RepositorySession}, which must be closed.
+	 * @throws IllegalArgumentException
+	 *             in the same cases as {@link #create(File)}.
+	 */
+	public RepositorySession open(File repositoryFolder);
+}
@@ -0,0 +1,53 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection.CompletenessException;
+
+/**
+ * A {@link CompletenessDetection} which verifies all pending files of the
+ * incoming directory at once. <br />
+ * The {@link DatasetPort} passes the snapshot of the incoming directory to
+ * {@link #verifyCompleteness(List, List)} once per round, instead of invoking
+ * {@link CompletenessDetection#verifyCompletness(Path)} for each file.
+ * Detections which do not implement this interface are still invoked per
+ * file. <br />
+ * In contrast to {@link CompletenessDetection#verifyCompletness(Path)}, the
+ * batch check has no side effects. These are left to
+ * {@link #consume(Path)}, which is invoked right before a complete file gets
+ * added to the repository.
+ * 
+ */
+public interface BatchCompletenessDetection {
+
+	/**
+	 * Runs a completeness check of all given files, with the same outcome as
+	 * {@link CompletenessDetection#verifyCompletness(Path)} for each of them,
+	 * but without changing any of them.
+	 * 
+	 * @param files
+	 *            The pending files of the incoming directory.
+	 * @param errors
+	 *            Receives the {@link CompletenessException}s by file, which do
+	 *            not abort the check of the other files.
+	 * @return The complete files.
+	 */
+	List<Path> verifyCompleteness(List<Path> files,
+			Map<Path, CompletenessException> errors);
+
+	/**
+	 * Prepares a file reported complete by
+	 * {@link #verifyCompleteness(List, Map)} to be added to the repository,
+	 * e.g. removes its marker. A complete file which does not get added (e.g.
+	 * because the server stops first) thus stays complete.
+	 * 
+	 * @param file
+	 *            The complete file, which is added next.
+	 * @throws CompletenessException
+	 *             If the file cannot be added, it is verified again later.
+	 */
+	void consume(Path file);
+}
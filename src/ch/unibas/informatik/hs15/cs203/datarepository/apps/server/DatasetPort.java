@@ -5,7 +5,22 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import util.logging.Logger;
 import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
@@ -54,7 +69,31 @@ public class DatasetPort {
 
 	private OverviewWriter htmlGen;
 
-	private boolean running;
+	private volatile boolean running;
+
+	/**
+	 * The first failure of an ingestion worker, which stops the server.
+	 */
+	private final AtomicReference<RuntimeException> failure = new AtomicReference<RuntimeException>();
+
+	/**
+	 * The delay of an update of the HTML overview after an ingest.
+	 */
+	private static final long OVERVIEW_DEBOUNCE_MILLIS = 500;
+
+	private ScheduledExecutorService overviewUpdater;
+
+	/**
+	 * The meta data added since the last update of the HTML overview.
+	 */
+	private final List<MetaData> addedToOverview = new ArrayList<MetaData>();
+
+	private boolean overviewScheduled = false;
+
+	/**
+	 * The last reported error of the batch completeness detection per entry.
+	 */
+	private final Map<Path, String> reportedErrors = new HashMap<Path, String>();
 
 	private DatasetPort(final Path repo, final DatasetPortConfiguration config,
 			final DataRepository app) {
@@ -74,6 +113,9 @@ public class DatasetPort {
 	public void start() {
 		try {
 			setup();
+			logger.open(config.getLogFlushInterval(),
+					config.getLogMaxSize() * 1024L,
+					config.getLogRotationInterval() * 3600L * 1000L);
 			run();
 		} catch (final Throwable t) {
 			LOG.error("Server crash", t);
@@ -83,6 +125,8 @@ public class DatasetPort {
 							: "unknown");
 			throw new RuntimeException(out, t);
 
+		} finally {
+			logger.close();
 		}
 	}
 
@@ -105,42 +149,242 @@ public class DatasetPort {
 					e);
 		}
 		System.out.println("Successfully started server mode...");
-		File directory = config.getIncoming().toFile();
-		while (running) {
-			if (directory.listFiles().length != 0) {
-				for (File file : directory.listFiles()) {
+		final IncomingWatcher watcher = new IncomingWatcher(
+				config.getIncoming(), config.isWatchIncoming());
+		logger.info("Detecting incoming data sets by "
+				+ (watcher.isWatching() ? "watching" : "polling")
+				+ " the incoming directory");
+		final ThreadPoolExecutor workers = createWorkers();
+		overviewUpdater = Executors.newSingleThreadScheduledExecutor(
+				new ThreadFactory() {
+					@Override
+					public Thread newThread(Runnable r) {
+						final Thread t = new Thread(r, "overview-writer");
+						t.setDaemon(true);
+						return t;
+					}
+				});
+		final Set<Path> inProgress = Collections
+				.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
+		final BatchCompletenessDetection batch = strategy instanceof BatchCompletenessDetection ? (BatchCompletenessDetection) strategy
+				: null;
+		// entries verified as complete by the batch, but not yet handed over
+		final Set<Path> complete = new LinkedHashSet<Path>();
+		try {
+			while (running) {
+				List<Path> entries = watcher.next(config.getScanInterval() * 1000);// ms
+				if (batch != null) {
+					verifyBatch(batch, entries, inProgress, complete);
+					entries = new ArrayList<Path>(complete);
+				}
+				for (Path entry : entries) {
+					if (!running || failure.get() != null) {
+						break;
+					}
+					if (!entry.toFile().exists()) {
+						// e.g. a marker file deleted by the completeness detection
+						watcher.done(entry);
+						complete.remove(entry);
+						continue;
+					}
+					if (!inProgress.add(entry)) {
+						continue;// already verified or added by a worker
+					}
 					try {
-						LOG.debug("Verifying new file! Filename: "
-								+ file.toString());
-						if (!strategy.verifyCompletness(file.toPath())) {
-							LOG.debug("File incomplete (" + file.toString()
-									+ ")");
-							continue;
-						}
-						LOG.debug("Adding file: " + file.toString());
-						MetaData md = app.add(file, null, true,
-								new DummyProgressListener());
-						logger.info("Successfully added dataset with id: "
-								+ md.getId());
-						htmlGen.createHtmlFile(app.getMetaData(Criteria.all()));
-					} catch (IOException e) {
-						throw new RuntimeException(
-								"Updating of HTML File failed. ", e);
-					} catch (CompletenessException ex) {
-						String s = ex.getLogMessage() == null ? "No message available"
-								: ex.getLogMessage();
-						logger.error("CompletenessDetection error occured: "
-								+ s);
+						workers.execute(new IngestTask(entry,
+								batch != null ? null : strategy, batch,
+								watcher, inProgress));
+						complete.remove(entry);
+					} catch (RejectedExecutionException ex) {
+						// queue is full, the entry stays pending
+						inProgress.remove(entry);
+						break;
 					}
 				}
+				if (failure.get() != null) {
+					throw failure.get();
+				}
 			}
-
+		} catch (InterruptedException e) {
+			throw new RuntimeException("Server execution interrupted", e);
+		} finally {
+			watcher.close();
+			workers.shutdown();
 			try {
-				Thread.sleep(config.getScanInterval() * 1000);// ms
+				// let running ingests commit their meta data
+				workers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+				// a pending overview update still runs after the shutdown
+				overviewUpdater.shutdown();
+				overviewUpdater.awaitTermination(Long.MAX_VALUE,
+						TimeUnit.MILLISECONDS);
 			} catch (InterruptedException e) {
-				throw new RuntimeException("Server execution interrupted", e);
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Verifies the given entries at once with the given batch detection and
+	 * adds the complete ones to <tt>complete</tt>.
+	 */
+	private void verifyBatch(BatchCompletenessDetection batch,
+			List<Path> entries, Set<Path> inProgress, Set<Path> complete) {
+		final List<Path> toVerify = new ArrayList<Path>(entries.size());
+		for (Path entry : entries) {
+			if (!inProgress.contains(entry) && !complete.contains(entry)) {
+				toVerify.add(entry);
 			}
 		}
+		final Map<Path, CompletenessException> errors = new HashMap<Path, CompletenessException>();
+		// the workers consume complete entries meanwhile
+		synchronized (batch) {
+			complete.addAll(batch.verifyCompleteness(toVerify, errors));
+		}
+		// report every error once, not on every round
+		reportedErrors.keySet().retainAll(errors.keySet());
+		for (Map.Entry<Path, CompletenessException> error : errors.entrySet()) {
+			CompletenessException ex = error.getValue();
+			String s = ex.getLogMessage() == null ? "No message available"
+					: ex.getLogMessage();
+			if (s.equals(reportedErrors.put(error.getKey(), s))) {
+				continue;
+			}
+			logger.error("CompletenessDetection error occured: " + s + " ("
+					+ error.getKey().getFileName() + ")");
+		}
+	}
+
+	private ThreadPoolExecutor createWorkers() {
+		final ThreadFactory factory = new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable r) {
+				final Thread t = new Thread(r, "ingest-"
+						+ count.incrementAndGet());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+		return new ThreadPoolExecutor(config.getWorkerCount(),
+				config.getWorkerCount(), 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(config.getQueueSize()),
+				factory);
+	}
+
+	/**
+	 * Schedules the update of the HTML overview with the given new meta data.
+	 * The update is delayed by {@link #OVERVIEW_DEBOUNCE_MILLIS}, thus a burst
+	 * of ingests results in a single update.
+	 */
+	private synchronized void scheduleOverview(MetaData added) {
+		addedToOverview.add(added);
+		if (!overviewScheduled) {
+			overviewScheduled = true;
+			overviewUpdater.schedule(new Runnable() {
+				@Override
+				public void run() {
+					updateOverview();
+				}
+			}, OVERVIEW_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void updateOverview() {
+		final List<MetaData> added;
+		synchronized (this) {
+			added = new ArrayList<MetaData>(addedToOverview);
+			addedToOverview.clear();
+			overviewScheduled = false;
+		}
+		try {
+			if (!htmlGen.add(added)) {
+				LOG.debug("Recreating the complete HTML overview");
+				htmlGen.createHtmlFile(app.getMetaData(Criteria.all()));
+			}
+		} catch (IOException e) {
+			failure.compareAndSet(null, new RuntimeException(
+					"Updating of HTML File failed. ", e));
+		} catch (RuntimeException ex) {
+			failure.compareAndSet(null, ex);
+		}
+	}
+
+	/**
+	 * Verifies the completeness of a single entry of the incoming directory
+	 * and adds it to the repository once it is complete. Runs on one of the
+	 * ingestion workers, thus data sets are copied concurrently. The meta data
+	 * commits get serialized by the repository. <br />
+	 * Without a strategy the entry has been verified already, by the given
+	 * batch detection if any.
+	 */
+	private class IngestTask implements Runnable {
+
+		private final Path entry;
+		private final CompletenessDetection strategy;
+		private final BatchCompletenessDetection batch;
+		private final IncomingWatcher watcher;
+		private final Set<Path> inProgress;
+
+		private IngestTask(Path entry, CompletenessDetection strategy,
+				BatchCompletenessDetection batch, IncomingWatcher watcher,
+				Set<Path> inProgress) {
+			this.entry = entry;
+			this.strategy = strategy;
+			this.batch = batch;
+			this.watcher = watcher;
+			this.inProgress = inProgress;
+		}
+
+		@Override
+		public void run() {
+			File file = entry.toFile();
+			try {
+				LOG.debug("Verifying new file! Filename: {0}", file);
+				if (strategy != null && !verify()) {
+					LOG.debug("File incomplete ({0})", file);
+					return;
+				}
+				if (batch != null) {
+					synchronized (batch) {
+						batch.consume(entry);
+					}
+				}
+				LOG.debug("Adding file: {0}", file);
+				MetaData md = app.add(file, null, true,
+						new DummyProgressListener());
+				watcher.done(entry);
+				logger.info("Successfully added dataset with id: "
+						+ md.getId());
+				scheduleOverview(md);
+			} catch (CompletenessException ex) {
+				String s = ex.getLogMessage() == null ? "No message available"
+						: ex.getLogMessage();
+				logger.error("CompletenessDetection error occured: " + s);
+			} catch (RuntimeException ex) {
+				failure.compareAndSet(null, ex);
+			} finally {
+				inProgress.remove(entry);
+			}
+		}
+
+		/**
+		 * Verifies the entry with the strategy and defers an incomplete one.
+		 * The {@link CompletenessDetection} contract does not promise thread
+		 * safety, thus the workers invoke the shared strategy one at a time.
+		 */
+		private boolean verify() {
+			final long recheck;
+			synchronized (strategy) {
+				if (strategy.verifyCompletness(entry)) {
+					return true;
+				}
+				recheck = strategy instanceof RecheckingCompletenessDetection ? ((RecheckingCompletenessDetection) strategy)
+						.getRecheckTime(entry) : -1;
+			}
+			watcher.defer(entry, recheck);
+			return false;
+		}
 	}
 
 	private void logProperties() {
@@ -164,7 +408,25 @@ public class DatasetPort {
 			throw new IllegalArgumentException(
 					"Error while starting Server. Invalid Scan Interval");
 		}
-		htmlGen = new OverviewWriter(config.getHtmlOverview());
+		if (config.getWorkerCount() <= 0) {
+			throw new IllegalArgumentException(
+					"Error while starting Server. Invalid number of ingestion workers");
+		}
+		if (config.getQueueSize() <= 0) {
+			throw new IllegalArgumentException(
+					"Error while starting Server. Invalid ingestion queue size");
+		}
+		if (config.getLogFlushInterval() < 0 || config.getLogMaxSize() < 0
+				|| config.getLogRotationInterval() < 0) {
+			throw new IllegalArgumentException(
+					"Error while starting Server. Invalid log settings");
+		}
+		if (config.getOverviewPageSize() <= 0) {
+			throw new IllegalArgumentException(
+					"Error while starting Server. Invalid html-overview page size");
+		}
+		htmlGen = new OverviewWriter(config.getHtmlOverview(),
+				config.getOverviewPageSize());
 
 	}
 
@@ -2,6 +2,7 @@ package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
@@ -9,10 +10,20 @@ import java.nio.file.AccessDeniedException;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.common.DatasetPortConfiguration;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.PrintUtils;
@@ -21,9 +32,19 @@ import util.logging.Logger;
 
 /**
  * Logs messages to a specified file.
- * 
- * @author Loris
- *
+ * <p>
+ * Once {@link #open(long, long, long)}, the lines are handed over to a single
+ * writer thread through a bounded queue, thus logging does neither open the
+ * file nor wait for the disk. The writer keeps the file open, flushes it
+ * according to the configured flush interval and rotates it by size or time
+ * into compressed archives.
+ * </p>
+ * <p>
+ * The writer is stopped by a final record behind all queued lines, never by
+ * an interrupt, which would close the file channel in the middle of a write.
+ * A single shutdown hook closes the loggers which are still open when the JVM
+ * exits.
+ * </p>
  */
 class DatasetPortLogger {
 
@@ -31,6 +52,61 @@ class DatasetPortLogger {
 
 	private Path path;
 
+	/**
+	 * The lines waiting for the {@link Writer}.
+	 */
+	private final BlockingQueue<Record> queue = new ArrayBlockingQueue<Record>(
+			QUEUE_SIZE);
+
+	/**
+	 * The writer thread, <tt>null</tt> if the log is not open.
+	 */
+	private Writer writer = null;
+
+	/**
+	 * The record which stops the {@link Writer}.
+	 */
+	private static final Record STOP = new Record(0, null, null);
+
+	/**
+	 * The loggers which are open, closed by {@link #SHUTDOWN_HOOK}.
+	 */
+	private static final Set<DatasetPortLogger> OPEN = new HashSet<DatasetPortLogger>();
+
+	/**
+	 * Closes the open loggers, such that the queued lines do not get lost on
+	 * e.g. Ctrl-C.
+	 */
+	private static final Thread SHUTDOWN_HOOK = new Thread(
+			"server-log-shutdown") {
+		@Override
+		public void run() {
+			final List<DatasetPortLogger> loggers;
+			synchronized (OPEN) {
+				loggers = new ArrayList<DatasetPortLogger>(OPEN);
+			}
+			for (final DatasetPortLogger logger : loggers) {
+				logger.close();
+			}
+		}
+	};
+
+	private static boolean hooked = false;
+
+	private static final int QUEUE_SIZE = 8192;
+
+	/**
+	 * The time in milliseconds to wait for a free slot in the queue before
+	 * checking whether the writer is still alive.
+	 */
+	private static final long OFFER_TIMEOUT = 100;
+
+	private static final int LINE_SEPARATOR_LENGTH = System.lineSeparator()
+			.length();
+
+	private static final DateFormat ARCHIVE_FORMAT = new SimpleDateFormat(
+			"yyyyMMdd-HHmmss");
+
 	private static final String TEMPLATE = "%1$s %2$s %3$s";
 
 	public static final String INFO_LVL = "[INFO]";
@@ -153,8 +229,16 @@ class DatasetPortLogger {
 		info("Configuration:");
 		info(createPathEntry("incoming-directory", config.getIncoming()));
 		info(createPathEntry("html-overview", config.getHtmlOverview()));
+		info("html-overview-page-size: " + config.getOverviewPageSize());
 		info(createPathEntry("log-file", config.getLogFile()));
 		info("checking-interval-in-seconds: " + config.getScanInterval());
+		info("watch-incoming-directory: " + config.isWatchIncoming());
+		info("ingestion-workers: " + config.getWorkerCount());
+		info("ingestion-queue-size: " + config.getQueueSize());
+		info("log-flush-interval-in-millis: " + config.getLogFlushInterval());
+		info("log-max-size-in-kb: " + config.getLogMaxSize());
+		info("log-rotation-interval-in-hours: "
+				+ config.getLogRotationInterval());
 		info(createClassEntry("completeness-detection",
 				config.getCompletenessDetection()));
 	}
@@ -193,11 +277,58 @@ class DatasetPortLogger {
 	}
 
 	private void log(String lvl, String msg) {
-		String log = createLog(lvl, msg);
-		writeLog(log);
+		final Record record = new Record(System.currentTimeMillis(), lvl, msg);
+		synchronized (this) {
+			if (writer != null) {
+				try {
+					// blocks if the writer falls behind, no line gets lost
+					if (enqueue(record)) {
+						return;
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				writeQueued();
+			}
+			writeLog(createLog(record, PrintUtils.DATE_TIME_FORMAT));
+		}
 	}
 
-	private void writeLog(String log) {
+	/**
+	 * Hands the record over to the writer, waiting for a free slot as long as
+	 * the writer is alive. Since the caller holds this logger's monitor, a
+	 * writer which died with a full queue would block every logging thread
+	 * forever otherwise.
+	 * 
+	 * @return <tt>false</tt> if the writer died and did not take the record.
+	 */
+	private boolean enqueue(Record record) throws InterruptedException {
+		while (writer.isAlive()) {
+			if (queue.offer(record, OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the lines left in the queue by a writer which died synchronously,
+	 * such that they are not lost and keep their order.
+	 */
+	private void writeQueued() {
+		final List<Record> records = new ArrayList<Record>();
+		queue.drainTo(records);
+		for (final Record record : records) {
+			if (record != STOP) {
+				writeLog(createLog(record, PrintUtils.DATE_TIME_FORMAT));
+			}
+		}
+	}
+
+	/**
+	 * Writes a single line synchronously, used only if the log is not open.
+	 */
+	private synchronized void writeLog(String log) {
 		BufferedWriter bw = null;
 		try {
 			bw = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
@@ -221,8 +352,274 @@ class DatasetPortLogger {
 
 	}
 
-	private String createLog(String lvl, String msg) {
-		return String.format(TEMPLATE,
-				PrintUtils.DATE_TIME_FORMAT.format(new Date()), lvl, msg);
+	private static String createLog(Record record, DateFormat format) {
+		return String.format(TEMPLATE, format.format(new Date(record.time)),
+				record.level, record.message);
+	}
+
+	/**
+	 * Opens the log file for the asynchronous writer thread. Until then and
+	 * after {@link #close()}, every line is written synchronously.
+	 * 
+	 * @param flushInterval
+	 *            The maximal time in milliseconds until a written line gets
+	 *            flushed, <tt>0</tt> to flush every line.
+	 * @param maxSize
+	 *            The size in bytes at which the log gets rotated, <tt>0</tt>
+	 *            for no size based rotation.
+	 * @param rotationInterval
+	 *            The time in milliseconds after which the log gets rotated,
+	 *            <tt>0</tt> for no time based rotation.
+	 */
+	public synchronized void open(long flushInterval, long maxSize,
+			long rotationInterval) {
+		if (writer != null) {
+			return;
+		}
+		writer = new Writer(flushInterval, maxSize, rotationInterval);
+		writer.start();
+		synchronized (OPEN) {
+			OPEN.add(this);
+			if (!hooked) {
+				Runtime.getRuntime().addShutdownHook(SHUTDOWN_HOOK);
+				hooked = true;
+			}
+		}
+	}
+
+	/**
+	 * Writes all queued lines and closes the log file. Later lines are
+	 * written synchronously, but only once the queued ones are written.
+	 */
+	public synchronized void close() {
+		if (writer == null) {
+			return;
+		}
+		boolean interrupted = false;
+		// the writer has to drain the queue, thus wait uninterruptibly
+		while (true) {
+			try {
+				enqueue(STOP);
+				break;
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		writeQueued();
+		writer = null;
+		synchronized (OPEN) {
+			OPEN.remove(this);
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static class Record {
+		private final long time;
+		private final String level;
+		private final String message;
+
+		private Record(long time, String level, String message) {
+			this.time = time;
+			this.level = level;
+			this.message = message;
+		}
+	}
+
+	/**
+	 * Returns the number of bytes of the given string encoded in UTF-8, as
+	 * written by the {@link Writer}.
+	 */
+	static int utf8Length(CharSequence str) {
+		int length = 0;
+		for (int i = 0; i < str.length(); i++) {
+			final char c = str.charAt(i);
+			if (c < 0x80) {
+				length++;
+			} else if (c < 0x800) {
+				length += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < str.length()
+					&& Character.isLowSurrogate(str.charAt(i + 1))) {
+				length += 4;
+				i++;
+			} else if (Character.isSurrogate(c)) {
+				// an unpaired surrogate is replaced by '?'
+				length++;
+			} else {
+				length += 3;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * The single thread writing the queued lines to the log file, which is
+	 * kept open. The writer also rotates the log file: The current file gets
+	 * renamed with the rotation time appended and compressed with gzip.
+	 * <p>
+	 * The size of the log is counted in bytes and its age from the creation
+	 * of the file, thus a log which is continued after a restart gets rotated
+	 * in time as well.
+	 * </p>
+	 */
+	private class Writer extends Thread {
+
+		private final long flushInterval;
+		private final long maxSize;
+		private final long rotationInterval;
+
+		/**
+		 * A private copy of {@link PrintUtils#DATE_TIME_FORMAT}, which is not
+		 * thread-safe.
+		 */
+		private final DateFormat format = (DateFormat) PrintUtils.DATE_TIME_FORMAT
+				.clone();
+
+		private BufferedWriter out = null;
+
+		/**
+		 * The size of the log file in bytes.
+		 */
+		private long size;
+
+		/**
+		 * The time the log file was started.
+		 */
+		private long startedAt;
+
+		private Writer(long flushInterval, long maxSize, long rotationInterval) {
+			super("server-log");
+			setDaemon(true);
+			this.flushInterval = flushInterval;
+			this.maxSize = maxSize;
+			this.rotationInterval = rotationInterval;
+		}
+
+		@Override
+		public void run() {
+			long flushAt = Long.MAX_VALUE;
+			while (true) {
+				try {
+					Record record = null;
+					try {
+						record = queue.poll(Math.max(1, flushAt
+								- System.currentTimeMillis()),
+								TimeUnit.MILLISECONDS);
+					} catch (InterruptedException e) {
+						// not used to stop, see STOP
+					}
+					if (record == STOP) {
+						break;
+					}
+					if (record != null) {
+						write(createLog(record, format));
+						if (flushAt == Long.MAX_VALUE) {
+							flushAt = System.currentTimeMillis()
+									+ flushInterval;
+						}
+					}
+					if (out != null && System.currentTimeMillis() >= flushAt) {
+						out.flush();
+						flushAt = Long.MAX_VALUE;
+					}
+				} catch (IOException ex) {
+					LOG.error("Could not write the server log", ex);
+					closeQuietly();
+				}
+			}
+			closeQuietly();
+		}
+
+		private void write(String line) throws IOException {
+			if (out == null) {
+				open();
+			}
+			out.write(line);
+			out.newLine();
+			size += utf8Length(line) + LINE_SEPARATOR_LENGTH;
+			if ((maxSize > 0 && size >= maxSize) || isRotationDue()) {
+				rotate();
+			}
+		}
+
+		/**
+		 * Opens the log file for appending. An existing log is continued,
+		 * unless it is due for rotation already.
+		 */
+		private void open() throws IOException {
+			size = 0;
+			startedAt = System.currentTimeMillis();
+			if (Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+				final BasicFileAttributes attributes = Files.readAttributes(
+						path, BasicFileAttributes.class);
+				if (attributes.size() > 0) {
+					size = attributes.size();
+					// the creation time is the last modification time on
+					// platforms which do not record it
+					startedAt = Math.min(attributes.creationTime().toMillis(),
+							attributes.lastModifiedTime().toMillis());
+					if (isRotationDue()) {
+						rotate();
+						size = 0;
+						startedAt = System.currentTimeMillis();
+					}
+				}
+			}
+			out = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+					StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+		}
+
+		private boolean isRotationDue() {
+			return rotationInterval > 0
+					&& System.currentTimeMillis() - startedAt >= rotationInterval;
+		}
+
+		private void rotate() throws IOException {
+			if (out != null) {
+				out.close();
+				out = null;
+			}
+			final String stamp;
+			synchronized (ARCHIVE_FORMAT) {
+				stamp = ARCHIVE_FORMAT.format(new Date());
+			}
+			Path archive = path.resolveSibling(path.getFileName() + "." + stamp
+					+ ".gz");
+			for (int i = 1; Files.exists(archive, LinkOption.NOFOLLOW_LINKS); i++) {
+				archive = path.resolveSibling(path.getFileName() + "." + stamp
+						+ "-" + i + ".gz");
+			}
+			final Path rotated = path.resolveSibling(path.getFileName() + "."
+					+ stamp + ".tmp");
+			Files.move(path, rotated, StandardCopyOption.REPLACE_EXISTING);
+			final OutputStream gz = new GZIPOutputStream(
+					Files.newOutputStream(archive));
+			try {
+				Files.copy(rotated, gz);
+			} finally {
+				gz.close();
+			}
+			Files.delete(rotated);
+		}
+
+		private void closeQuietly() {
+			try {
+				if (out != null) {
+					out.close();
+				}
+			} catch (IOException ex) {
+				LOG.error("Could not close the server log", ex);
+			} finally {
+				out = null;
+			}
+		}
 	}
 }
@@ -0,0 +1,305 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import util.logging.Logger;
+
+/**
+ * The {@link IncomingWatcher} keeps track of the entries of the incoming
+ * directory which still have to be verified by the completeness detection.
+ * <br />
+ * In <i>watch mode</i> the incoming directory is registered with a
+ * {@link WatchService}: The directory is listed once on startup and from then
+ * on only the entries reported as created or modified get queued. Thus
+ * {@link #next(long)} returns as soon as something happened, instead of after
+ * the full scan interval. Entries which have not been returned yet (e.g. those
+ * found on startup) are returned without waiting at all. The pending entries
+ * are re-verified after every batch of events and, for completeness
+ * detections which depend on time, once per scan interval if nothing happened
+ * at all.
+ * <p>
+ * In <i>polling mode</i> the directory is listed every scan interval, as the
+ * server always did. Polling mode is used if it is configured explicitly (e.g.
+ * for network file systems which do not report remote changes) or if the file
+ * system does not support watching.
+ * </p>
+ */
+class IncomingWatcher implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(IncomingWatcher.class);
+
+	/**
+	 * The maximal time to wait without checking for newly deferred entries.
+	 */
+	private static final long SLICE = 250;
+
+	private final Path directory;
+
+	/**
+	 * The watch service or <tt>null</tt> if in polling mode.
+	 */
+	private WatchService watchService = null;
+
+	/**
+	 * The entries which have not been ingested yet, in order of their
+	 * appearance.
+	 */
+	private final Set<Path> pending = new LinkedHashSet<Path>();
+
+	/**
+	 * The pending entries which are not to be verified before the given time,
+	 * see {@link #defer(Path, long)}. Guarded by {@link #pending}.
+	 */
+	private final Map<Path, Long> deferred = new HashMap<Path, Long>();
+
+	/**
+	 * The pending entries which are new or changed since {@link #next(long)}
+	 * returned them last. Guarded by {@link #pending}.
+	 */
+	private final Set<Path> undispatched = new HashSet<Path>();
+
+	/**
+	 * Creates a new {@link IncomingWatcher} for the given directory.
+	 *
+	 * @param directory
+	 *            The incoming directory.
+	 * @param watch
+	 *            Whether to watch the directory or to poll it.
+	 * @throws IOException
+	 *             If the directory could not be listed.
+	 */
+	public IncomingWatcher(final Path directory, final boolean watch)
+			throws IOException {
+		this.directory = directory;
+		if (watch) {
+			try {
+				watchService = directory.getFileSystem().newWatchService();
+				directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY,
+						ENTRY_DELETE);
+			} catch (IOException | UnsupportedOperationException ex) {
+				LOG.warn("Cannot watch " + directory
+						+ ", falling back to polling: " + ex.getMessage());
+				close();
+			}
+		}
+		// events only cover what happens from now on
+		rescan();
+	}
+
+	/**
+	 * Returns whether the directory is watched or polled.
+	 *
+	 * @return <tt>true</tt> if the directory is watched, <tt>false</tt> if it
+	 *         is polled.
+	 */
+	public boolean isWatching() {
+		return watchService != null;
+	}
+
+	/**
+	 * Waits for changes in the incoming directory and returns the entries to
+	 * verify. <br />
+	 * If there are entries which are new or changed since they were returned
+	 * last, this method returns immediately. Otherwise, in watch mode it
+	 * returns as soon as an event arrives, at the latest after the given
+	 * timeout, and in polling mode it waits for the given timeout. In both
+	 * modes the timeout is shortened if a deferred entry becomes due earlier.
+	 *
+	 * @param timeout
+	 *            The maximal time to wait in milliseconds.
+	 * @return The entries to verify, which might be empty.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 * @throws IOException
+	 *             If the directory could not be listed.
+	 */
+	public List<Path> next(final long timeout) throws InterruptedException,
+			IOException {
+		final long deadline = System.currentTimeMillis() + timeout;
+		long wait;
+		// entries might get deferred meanwhile, thus wait in slices
+		while (!hasUndispatched()
+				&& (wait = Math.min(deadline, earliestDue())
+						- System.currentTimeMillis()) > 0) {
+			if (watchService == null) {
+				Thread.sleep(Math.min(wait, SLICE));
+				continue;
+			}
+			WatchKey key = watchService.poll(Math.min(wait, SLICE),
+					TimeUnit.MILLISECONDS);
+			if (key != null) {
+				// drain everything that arrived meanwhile as one batch
+				while (key != null) {
+					handle(key);
+					key = watchService == null ? null : watchService.poll();
+				}
+				break;
+			}
+		}
+		if (watchService == null) {
+			rescan();
+		}
+		synchronized (pending) {
+			final long now = System.currentTimeMillis();
+			final List<Path> out = new ArrayList<Path>(pending.size());
+			final Iterator<Path> it = pending.iterator();
+			while (it.hasNext()) {
+				final Path entry = it.next();
+				if (!Files.exists(entry, LinkOption.NOFOLLOW_LINKS)) {
+					it.remove();
+					deferred.remove(entry);
+					undispatched.remove(entry);
+					continue;
+				}
+				final Long due = deferred.get(entry);
+				if (due == null || due <= now) {
+					deferred.remove(entry);
+					undispatched.remove(entry);
+					out.add(entry);
+				}
+			}
+			return out;
+		}
+	}
+
+	/**
+	 * Marks the given entry as done, i.e. it will not be returned by
+	 * {@link #next(long)} anymore unless it changes again. <br />
+	 * This method may be invoked by any thread.
+	 *
+	 * @param entry
+	 *            The ingested entry.
+	 */
+	public void done(final Path entry) {
+		synchronized (pending) {
+			pending.remove(entry);
+			deferred.remove(entry);
+			undispatched.remove(entry);
+		}
+	}
+
+	/**
+	 * Defers the verification of the given pending entry until the given
+	 * time, unless it changes before. <br />
+	 * This method may be invoked by any thread.
+	 *
+	 * @param entry
+	 *            The pending entry.
+	 * @param time
+	 *            The time in milliseconds since the epoch, a negative time is
+	 *            ignored.
+	 */
+	public void defer(final Path entry, final long time) {
+		synchronized (pending) {
+			if (time >= 0 && pending.contains(entry)) {
+				deferred.put(entry, time);
+			}
+		}
+	}
+
+	/**
+	 * Closes the underlying watch service, if any.
+	 */
+	@Override
+	public void close() {
+		if (watchService != null) {
+			try {
+				watchService.close();
+			} catch (final IOException ex) {
+				LOG.warn("Could not close watch service: " + ex.getMessage());
+			} finally {
+				watchService = null;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether there is an entry to return without waiting.
+	 */
+	private boolean hasUndispatched() {
+		synchronized (pending) {
+			final long now = System.currentTimeMillis();
+			for (final Path entry : undispatched) {
+				final Long due = deferred.get(entry);
+				if (due == null || due <= now) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	private long earliestDue() {
+		long out = Long.MAX_VALUE;
+		synchronized (pending) {
+			for (final long due : deferred.values()) {
+				out = Math.min(out, due);
+			}
+		}
+		return out;
+	}
+
+	private void handle(final WatchKey key) throws IOException {
+		for (final WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == OVERFLOW) {
+				LOG.debug("Watch events lost, rescanning {0}", directory);
+				rescan();
+				continue;
+			}
+			final Path entry = directory.resolve((Path) event.context());
+			synchronized (pending) {
+				if (event.kind() == ENTRY_DELETE) {
+					pending.remove(entry);
+					undispatched.remove(entry);
+				} else {
+					pending.add(entry);
+					undispatched.add(entry);
+				}
+				deferred.remove(entry);
+			}
+		}
+		if (!key.reset()) {
+			LOG.warn("Watching " + directory
+					+ " is no longer possible, falling back to polling");
+			close();
+		}
+	}
+
+	private void rescan() throws IOException {
+		final DirectoryStream<Path> entries = Files
+				.newDirectoryStream(directory);
+		try {
+			for (final Path entry : entries) {
+				synchronized (pending) {
+					if (pending.add(entry)) {
+						undispatched.add(entry);
+					}
+				}
+			}
+		} finally {
+			entries.close();
+		}
+	}
+}
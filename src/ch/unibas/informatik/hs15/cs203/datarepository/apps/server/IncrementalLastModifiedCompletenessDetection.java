@@ -0,0 +1,235 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
+import util.logging.Logger;
+
+/**
+ * A stateful variant of the {@link LastModifiedCompletenessDetection}, with
+ * the same <tt>completeness-detection.quiet-period-in-seconds</tt> property.
+ * <br />
+ * Instead of walking the whole tree of an incoming directory on every check,
+ * the tree is walked once and remembered. Subsequent checks only list the
+ * directories whose own modification time changed (i.e. files were added,
+ * removed or renamed in it) or is still within the quiet period, and only
+ * stat the files which were modified within the quiet period at the last
+ * check.
+ * <p>
+ * <b>Note: A file which was not modified for a whole quiet period is assumed
+ * to stay as it is, unless its directory changes. Files appended to after
+ * such a pause are not noticed.</b>
+ * </p>
+ * <p>
+ * The time when an incomplete file becomes complete at the earliest is
+ * reported through {@link RecheckingCompletenessDetection}, thus the server
+ * verifies it again exactly then.
+ * </p>
+ *
+ */
+public class IncrementalLastModifiedCompletenessDetection extends
+		LastModifiedCompletenessDetection implements CompletenessDetection,
+		RecheckingCompletenessDetection {
+
+	private static final Logger LOG = Logger
+			.getLogger(IncrementalLastModifiedCompletenessDetection.class);
+
+	/**
+	 * The state of every incomplete file. Different files may be verified
+	 * concurrently.
+	 */
+	private final Map<Path, Tree> trees = new ConcurrentHashMap<Path, Tree>();
+
+	@Override
+	public boolean verifyCompletness(Path file) {
+		final long now = System.currentTimeMillis();
+		final long quiet = quietPeriod * 1000L;
+		Tree tree = trees.get(file);
+		try {
+			if (tree == null) {
+				forgetRemoved();
+				tree = new Tree();
+				tree.walk(file, now - quiet);
+				trees.put(file, tree);
+			} else {
+				tree.update(file, now - quiet);
+			}
+		} catch (IOException ex) {
+			// e.g. (parts of) the file got removed meanwhile
+			LOG.debug("Could not check {0}: {1}", file, ex);
+			trees.remove(file);
+			return false;
+		}
+		if (now - tree.lastModified > quiet) {
+			trees.remove(file);
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public long getRecheckTime(Path file) {
+		final Tree tree = trees.get(file);
+		return tree != null ? tree.lastModified + quietPeriod * 1000L + 1 : -1;
+	}
+
+	/**
+	 * Forgets the state of files which got removed without being complete.
+	 */
+	private void forgetRemoved() {
+		final Iterator<Path> it = trees.keySet().iterator();
+		while (it.hasNext()) {
+			if (!Files.exists(it.next())) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * The remembered state of a file or directory tree.
+	 */
+	private static class Tree {
+
+		/**
+		 * The latest modification time found in the tree.
+		 */
+		private long lastModified = Long.MIN_VALUE;
+
+		/**
+		 * The directories of the tree, empty if the tree is a single file.
+		 */
+		private final Map<Path, Directory> directories = new HashMap<Path, Directory>();
+
+		/**
+		 * The files which were modified within the quiet period, with their
+		 * modification time.
+		 */
+		private final Map<Path, Long> hotFiles = new HashMap<Path, Long>();
+
+		private void walk(Path root, long hotSince) throws IOException {
+			final BasicFileAttributes attrs = Files.readAttributes(root,
+					BasicFileAttributes.class);
+			if (attrs.isDirectory()) {
+				list(root, attrs, hotSince);
+			} else {
+				file(root, attrs, hotSince);
+			}
+		}
+
+		private void update(Path root, long hotSince) throws IOException {
+			if (directories.isEmpty()) {
+				walk(root, hotSince);
+				return;
+			}
+			for (Path dir : new ArrayList<Path>(directories.keySet())) {
+				final Directory known = directories.get(dir);
+				if (known == null) {
+					continue;// removed along with its parent
+				}
+				final BasicFileAttributes attrs;
+				try {
+					attrs = Files.readAttributes(dir, BasicFileAttributes.class);
+				} catch (NoSuchFileException ex) {
+					if (dir.equals(root)) {
+						throw ex;
+					}
+					remove(dir);
+					continue;
+				}
+				final long modified = attrs.lastModifiedTime().toMillis();
+				if (modified != known.modified || modified > hotSince) {
+					list(dir, attrs, hotSince);
+					for (Path sub : known.subdirectories) {
+						if (!directories.get(dir).subdirectories.contains(sub)) {
+							remove(sub);
+						}
+					}
+				}
+			}
+			final Iterator<Map.Entry<Path, Long>> it = hotFiles.entrySet()
+					.iterator();
+			while (it.hasNext()) {
+				final Map.Entry<Path, Long> hot = it.next();
+				final long modified;
+				try {
+					modified = Files
+							.readAttributes(hot.getKey(),
+									BasicFileAttributes.class)
+							.lastModifiedTime().toMillis();
+				} catch (NoSuchFileException ex) {
+					it.remove();
+					continue;
+				}
+				lastModified = Math.max(lastModified, modified);
+				if (modified <= hotSince) {
+					it.remove();
+				}
+			}
+		}
+
+		private void list(Path dir, BasicFileAttributes attrs, long hotSince)
+				throws IOException {
+			final Directory directory = new Directory(attrs.lastModifiedTime()
+					.toMillis());
+			lastModified = Math.max(lastModified, directory.modified);
+			directories.put(dir, directory);
+			final DirectoryStream<Path> children = Files.newDirectoryStream(dir);
+			try {
+				for (Path child : children) {
+					final BasicFileAttributes childAttrs = Files
+							.readAttributes(child, BasicFileAttributes.class);
+					if (!childAttrs.isDirectory()) {
+						file(child, childAttrs, hotSince);
+						continue;
+					}
+					directory.subdirectories.add(child);
+					// known subdirectories are checked on their own
+					if (!directories.containsKey(child)) {
+						list(child, childAttrs, hotSince);
+					}
+				}
+			} finally {
+				children.close();
+			}
+		}
+
+		private void file(Path file, BasicFileAttributes attrs, long hotSince) {
+			final long modified = attrs.lastModifiedTime().toMillis();
+			lastModified = Math.max(lastModified, modified);
+			if (modified > hotSince) {
+				hotFiles.put(file, modified);
+			}
+		}
+
+		private void remove(Path dir) {
+			final Directory removed = directories.remove(dir);
+			if (removed != null) {
+				for (Path sub : removed.subdirectories) {
+					remove(sub);
+				}
+			}
+		}
+	}
+
+	private static class Directory {
+
+		private final long modified;
+
+		private final List<Path> subdirectories = new ArrayList<Path>();
+
+		private Directory(long modified) {
+			this.modified = modified;
+		}
+	}
+}
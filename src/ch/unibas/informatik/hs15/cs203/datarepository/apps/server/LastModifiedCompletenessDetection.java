@@ -8,7 +8,7 @@ import java.util.Properties;
 import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
 
 public class LastModifiedCompletenessDetection implements CompletenessDetection {
-	private int quietPeriod;
+	protected int quietPeriod;
 
 	@Override
 	public void initializeDetection(Properties properties) {
@@ -1,12 +1,19 @@
 package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
 
-import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
 
-public class MarkerFileCompletenessDetection implements CompletenessDetection {
+public class MarkerFileCompletenessDetection implements CompletenessDetection,
+		BatchCompletenessDetection {
 
 	private String marker;
 	private String key = "completeness-detection.prefix";
@@ -26,26 +33,14 @@ public class MarkerFileCompletenessDetection implements CompletenessDetection {
 			throw new RuntimeException(
 					"The given file to verify does not have a parent folder");
 		}
-		for (File child : parent.toFile().listFiles()) {
-			if (child.getName().startsWith(marker)) {
-				String fileNameWithoutPrefix = child.getName().substring(
-						marker.length());
-				if (fileNameWithoutPrefix.equals(file.getFileName().toString())) {
-					if (!child.delete()) {
-						throw new RuntimeException(
-								"Error while deleting marker file.");
-					}
-					return true;
-				}
-			}
+		if (Files.exists(markerOf(file), LinkOption.NOFOLLOW_LINKS)) {
+			deleteMarker(file);
+			return true;
 		}
-		if (file.toFile().getName().startsWith(marker)) {
-			for (File child : parent.toFile().listFiles()) {
-				String fileNameWithoutPrefix = file.toFile().getName()
-						.substring(marker.length());
-				if (fileNameWithoutPrefix.equals(child.getName().toString())) {
-					return false;
-				}
+		if (isMarker(file)) {
+			Path marked = markedBy(file);
+			if (marked != null && Files.exists(marked, LinkOption.NOFOLLOW_LINKS)) {
+				return false;
 			}
 			throw new CompletenessException(
 					"A marker file without corresponding file was found");
@@ -53,4 +48,61 @@ public class MarkerFileCompletenessDetection implements CompletenessDetection {
 		return false;
 	}
 
+	/**
+	 * Looks up the markers in the names of the given files, which are
+	 * collected once, instead of listing the incoming directory per file.
+	 * The markers are kept until {@link #consume(Path)}.
+	 */
+	@Override
+	public List<Path> verifyCompleteness(List<Path> files,
+			Map<Path, CompletenessException> errors) {
+		Set<Path> names = new HashSet<Path>(files);
+		List<Path> out = new ArrayList<Path>();
+		for (Path file : files) {
+			if (file.getParent() == null) {
+				errors.put(file, new CompletenessException(
+						"The given file to verify does not have a parent folder"));
+			} else if (names.contains(markerOf(file))) {
+				out.add(file);
+			} else if (isMarker(file) && !names.contains(markedBy(file))) {
+				errors.put(file, new CompletenessException(
+						"A marker file without corresponding file was found"));
+			}
+		}
+		return out;
+	}
+
+	@Override
+	public void consume(Path file) {
+		try {
+			deleteMarker(file);
+		} catch (RuntimeException ex) {
+			throw new CompletenessException("Could not delete the marker of "
+					+ file.getFileName(), ex);
+		}
+	}
+
+	private boolean isMarker(Path file) {
+		return file.getFileName().toString().startsWith(marker);
+	}
+
+	private Path markerOf(Path file) {
+		return file.resolveSibling(marker + file.getFileName().toString());
+	}
+
+	/**
+	 * Returns the file marked by the given marker file, <tt>null</tt> if the
+	 * marker file is named like the prefix only.
+	 */
+	private Path markedBy(Path markerFile) {
+		String name = markerFile.getFileName().toString()
+				.substring(marker.length());
+		return name.isEmpty() ? null : markerFile.resolveSibling(name);
+	}
+
+	private void deleteMarker(Path file) {
+		if (!markerOf(file).toFile().delete()) {
+			throw new RuntimeException("Error while deleting marker file.");
+		}
+	}
 }
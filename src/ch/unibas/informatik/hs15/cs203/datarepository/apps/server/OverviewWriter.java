@@ -5,12 +5,34 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.DateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.api.MetaData;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.PrintUtils;
 
+/**
+ * Writes the HTML overview of the repository's data sets.
+ * <p>
+ * The overview is split into static pages of at most <tt>pageSize</tt> rows,
+ * in the order of the list command. The first page is the configured overview
+ * file, the following pages are written next to it with the page number
+ * appended to the file name (e.g. <tt>table-2.html</tt>). As long as all data
+ * sets fit on one page, the overview is a single page without navigation.
+ * </p>
+ * <p>
+ * Since new data sets are the newest ones, they almost always belong to the
+ * last page. Thus {@link #add(List)} only rewrites the last page (and the one
+ * before, if the last page overflowed), instead of the whole overview. Every
+ * page is written to a temporary file first and then renamed, so readers never
+ * see a partially written page.
+ * </p>
+ *
+ */
 class OverviewWriter {
 	private static final String LF = System.getProperty("line.separator");
 
@@ -18,8 +40,6 @@ class OverviewWriter {
 
 	private static final String TABLE_HEADER = "<th>ID</th><th>Name</th><th>Timestamp</th><th>Number of Files</th><th>Size</th><th>Description</th>";
 
-	private final static String ROW_CONTENT_TEMPLATE = "<td>%1$s</td><td>%2$s</td><td>%3$s</td><td>%4$s</td><td>%5$s</td><td>%6$s</td>";
-
 	private static final String HTML_OPEN = "<html>";
 
 	private static final String HTML_CLOSE = "</html>";
@@ -37,120 +57,237 @@ class OverviewWriter {
 	private static final String TABLE_CLOSE = "</table>";
 
 	private static final String DOCTYPE = "<!DOCTYPE html>";
-	
-	private static final String createBody(final String body) {
-		return wrapWithTag(body, BODY_OPEN, BODY_CLOSE);
-	}
 
-	private static final String createHead(final String head) {
-		return wrapWithTag(head, HEAD_OPEN, HEAD_CLOSE);
-	}
-
-	private static final String createHeader(final String header) {
-		return wrapWithTag(header, "<h1>", "</h1>");
-	}
+	/**
+	 * Everything in front of the first table row, which is the same on every
+	 * page.
+	 */
+	private static final String PAGE_HEAD = DOCTYPE + LF + HTML_OPEN + LF
+			+ HEAD_OPEN + LF + META_CHARSET + LF + createStyle() + LF
+			+ HEAD_CLOSE + LF + BODY_OPEN + LF + "<h1>" + LF
+			+ "Datasets Overview" + LF + "</h1>" + LF;
 
-	private static final String createPage(final String content) {
-		return wrapWithTag(content, HTML_OPEN, HTML_CLOSE);
-	}
+	/**
+	 * The order of the list command: By time stamp, ties by ID.
+	 */
+	private static final Comparator<MetaData> ORDER = new Comparator<MetaData>() {
+		@Override
+		public int compare(MetaData md1, MetaData md2) {
+			final int out = md1.getTimestamp().compareTo(md2.getTimestamp());
+			return out != 0 ? out : md1.getId().compareTo(md2.getId());
+		}
+	};
 
-	private static final String createRow(final MetaData meta) {
-		final String cnt = createRowContent(meta);
-		return createRow(cnt);
-	}
-	
-	private static final String createRow(final String content){
-		return wrapWithTag(content, "<tr>", "</tr>");
-	}
+	public static final int DEFAULT_PAGE_SIZE = 1000;
 
-	private static final String createRowContent(final MetaData meta) {
-		final String desc = meta.getDescription() != null
-				? meta.getDescription() : "";
-		return String.format(ROW_CONTENT_TEMPLATE, meta.getId(), meta.getName(),
-				PrintUtils.DATE_TIME_FORMAT.format(meta.getTimestamp()), meta.getNumberOfFiles(),
-				meta.getSize(), desc);
-	}
-	
-	private static final String createStyle(List<String> rules){
-		StringBuilder sb = new StringBuilder();
-		for(String s : rules){
+	private static final String createStyle() {
+		final StringBuilder sb = new StringBuilder("<style>");
+		sb.append(LF);
+		for (String s : getDefaultStyleRules()) {
 			sb.append(s);
 			sb.append(LF);
 		}
-		return wrapWithTag(sb.toString(), "<style>", "</style>");
+		sb.append(LF);
+		sb.append("</style>");
+		return sb.toString();
 	}
 
-	private static final String createTable(final String tableBody) {
-		return wrapWithTag(tableBody, TABLE_OPEN, TABLE_CLOSE);
+	private final void appendRow(final StringBuilder sb,
+			final MetaData meta) {
+		final String desc = meta.getDescription() != null
+				? meta.getDescription() : "";
+		sb.append("<tr>").append(LF);
+		sb.append("<td>").append(meta.getId()).append("</td><td>")
+				.append(meta.getName()).append("</td><td>");
+		sb.append(dateFormat.format(meta.getTimestamp()));
+		sb.append("</td><td>").append(meta.getNumberOfFiles())
+				.append("</td><td>").append(meta.getSize())
+				.append("</td><td>").append(desc).append("</td>");
+		sb.append(LF).append("</tr>").append(LF);
 	}
 
-	private static final String wrapWithTag(final String toWrap,
-			final String openTag, final String closeTag) {
-		final StringBuilder sb = new StringBuilder(openTag);
-		sb.append(LF);
-		sb.append(toWrap);
-		sb.append(LF);
-		sb.append(closeTag);
-		return sb.toString();
+	private static final List<String> getDefaultStyleRules() {
+		ArrayList<String> out = new ArrayList<String>();
+		out.add("body {font-family: sans-serif; padding: 10px;}");
+		out.add("table {border-collapse: collapse;}");
+		out.add("td,th {padding: 4px 8px 2px 8px;"+LF+"font-size: 1em;"+LF+"border: 1px solid black;}");
+		out.add("th {text-align: left;"+LF+"padding-top: 6px; padding-bottom: 4px;"+LF+"font-size: 1.1em;"+LF+"background-color: #BBBBBB}");
+		out.add("tr:nth-child(odd) td {background-color: #E4E4E4}");
+		return out;
 	}
-	
+
 	private Path overview = null;
 	private boolean enabled = true;
-	
-	public OverviewWriter(Path overview){
+	private final int pageSize;
+	/**
+	 * A private copy of {@link PrintUtils#DATE_TIME_FORMAT}, which is not
+	 * thread-safe.
+	 */
+	private final DateFormat dateFormat = (DateFormat) PrintUtils.DATE_TIME_FORMAT
+			.clone();
+
+	/**
+	 * The number of the last page, starting at 1.
+	 */
+	private int lastPage = 1;
+	/**
+	 * The rows of the last page, <tt>null</tt> until the overview was written
+	 * completely once.
+	 */
+	private List<MetaData> lastRows = null;
+
+	public OverviewWriter(Path overview) {
+		this(overview, DEFAULT_PAGE_SIZE);
+	}
+
+	public OverviewWriter(Path overview, int pageSize){
+		if(pageSize <= 0){
+			throw new IllegalArgumentException("Invalid html-overview page size: "+pageSize);
+		}
+		this.pageSize = pageSize;
 		if(overview == null){
 			enabled = false;
+			return;
 		}
-		this.overview = overview;
+		this.overview = overview.toAbsolutePath();
 		try {
-			if(overview.getParent()!=null){
-				Files.createDirectories(overview.getParent());
-			}
+			Files.createDirectories(this.overview.getParent());
 		} catch (IOException e) {
 			throw new RuntimeException("Could not create unexistent directories within overview path. ("+overview.toString()+")", e);
 		}
 	}
-	
+
 	public boolean isEnabled(){
 		return enabled;
 	}
-	
-	public void createHtmlFile(List<MetaData> metas) throws IOException{
+
+	/**
+	 * Writes the complete overview of the given meta data, which have to be
+	 * in the order of the list command. Pages of a former, larger overview
+	 * get deleted.
+	 *
+	 * @param metas
+	 *            All meta data of the repository.
+	 * @throws IOException
+	 *             If a page could not be written.
+	 */
+	public synchronized void createHtmlFile(List<MetaData> metas) throws IOException{
 		if(!enabled){
 			return;
 		}
-		StringBuilder sb = new StringBuilder();
-		for(MetaData meta : metas){
-			sb.append(createRow(meta));
-			sb.append(LF);
+		lastRows = null;
+		lastPage = Math.max(1, (metas.size() + pageSize - 1) / pageSize);
+		for (int page = 1; page < lastPage; page++) {
+			writePage(page, metas.subList((page - 1) * pageSize, page
+					* pageSize));
+		}
+		lastRows = new ArrayList<MetaData>(metas.subList((lastPage - 1)
+				* pageSize, metas.size()));
+		writePage(lastPage, lastRows);
+		// remove the pages of a former overview, which might have been larger
+		int stale = lastPage + 1;
+		while (Files.deleteIfExists(pagePath(stale))) {
+			stale++;
 		}
-		sb.insert(0, createRow(TABLE_HEADER));
-		String table = createTable(sb.toString() );
-		String style = createStyle(getDefaultStyleRules() );
-		String head = createHead(META_CHARSET+LF+style);
-		String header = createHeader("Datasets Overview");
-		String body = createBody(header+LF+table);
-		String page = createPage(head+LF+body);
-		writeFile(DOCTYPE+LF+page);
 	}
-	
-	private List<String> getDefaultStyleRules(){
-		ArrayList<String> out = new ArrayList<String>();
-		out.add("body {font-family: sans-serif; padding: 10px;}");
-		out.add("table {border-collapse: collapse;}");
-		out.add("td,th {padding: 4px 8px 2px 8px;"+LF+"font-size: 1em;"+LF+"border: 1px solid black;}");
-		out.add("th {text-align: left;"+LF+"padding-top: 6px; padding-bottom: 4px;"+LF+"font-size: 1.1em;"+LF+"background-color: #BBBBBB}");
-		out.add("tr:nth-child(odd) td {background-color: #E4E4E4}");
-		return out;
+
+	/**
+	 * Adds the given new meta data to the overview, by rewriting only the
+	 * pages they belong to. <br />
+	 * This is only possible if every given meta data belongs to the last
+	 * page, which is the case for data sets added just now. Otherwise nothing
+	 * is written and the overview has to be created anew with
+	 * {@link #createHtmlFile(List)}.
+	 *
+	 * @param added
+	 *            The meta data added to the repository.
+	 * @return <tt>true</tt> if the overview was updated, <tt>false</tt> if it
+	 *         has to be created anew.
+	 * @throws IOException
+	 *             If a page could not be written.
+	 */
+	public synchronized boolean add(List<MetaData> added) throws IOException {
+		if(!enabled){
+			return true;
+		}
+		if (lastRows == null) {
+			return false;
+		}
+		for (MetaData meta : added) {
+			if (lastPage > 1 && ORDER.compare(meta, lastRows.get(0)) < 0) {
+				return false;// belongs to a former page
+			}
+		}
+		for (MetaData meta : added) {
+			final int pos = Collections.binarySearch(lastRows, meta, ORDER);
+			lastRows.add(pos < 0 ? -pos - 1 : pos, meta);
+		}
+		while (lastRows.size() > pageSize) {
+			// the last page overflowed, it gets a successor
+			lastPage++;
+			writePage(lastPage - 1, lastRows.subList(0, pageSize));
+			lastRows = new ArrayList<MetaData>(lastRows.subList(pageSize,
+					lastRows.size()));
+		}
+		writePage(lastPage, lastRows);
+		return true;
+	}
+
+	/**
+	 * Returns the path of the given page. The first page is the overview file
+	 * itself.
+	 */
+	private Path pagePath(int page) {
+		if (page == 1) {
+			return overview;
+		}
+		final String name = overview.getFileName().toString();
+		final int dot = name.lastIndexOf('.');
+		final String pageName = dot > 0 ? name.substring(0, dot) + "-" + page
+				+ name.substring(dot) : name + "-" + page;
+		return overview.resolveSibling(pageName);
+	}
+
+	private void writePage(int page, List<MetaData> rows) throws IOException {
+		final StringBuilder sb = new StringBuilder(PAGE_HEAD.length()
+				+ (rows.size() + 1) * 256);
+		sb.append(PAGE_HEAD);
+		if (lastPage > 1) {
+			appendNavigation(sb, page);
+		}
+		sb.append(TABLE_OPEN).append(LF);
+		sb.append("<tr>").append(LF).append(TABLE_HEADER).append(LF)
+				.append("</tr>").append(LF);
+		for (MetaData meta : rows) {
+			appendRow(sb, meta);
+		}
+		sb.append(LF).append(TABLE_CLOSE);
+		sb.append(LF).append(BODY_CLOSE).append(LF).append(HTML_CLOSE);
+		writeFile(pagePath(page), sb);
+	}
+
+	private void appendNavigation(StringBuilder sb, int page) {
+		sb.append("<p>");
+		if (page > 1) {
+			sb.append("<a href=\"").append(pagePath(1).getFileName())
+					.append("\">First</a> <a href=\"")
+					.append(pagePath(page - 1).getFileName())
+					.append("\">Previous</a> ");
+		}
+		sb.append("Page ").append(page);
+		if (page < lastPage) {
+			sb.append(" <a href=\"").append(pagePath(page + 1).getFileName())
+					.append("\">Next</a>");
+		}
+		sb.append("</p>").append(LF);
 	}
-	
-	private void writeFile(String contents){
+
+	private void writeFile(Path file, CharSequence contents) throws IOException {
+		final Path tmp = file.resolveSibling("." + file.getFileName() + ".tmp");
 		BufferedWriter bw = null;
 		try{
-			overview.toFile().delete();
-			overview.toFile().createNewFile();
-			bw = Files.newBufferedWriter(overview, StandardCharsets.UTF_8);
-			bw.write(contents);
+			bw = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8);
+			bw.append(contents);
 			bw.flush();
 		}catch(Exception ex){
 			throw new RuntimeException("Cannot write to html-overview. This is a serious problem!",ex);
@@ -163,7 +300,7 @@ class OverviewWriter {
 				}
 			}
 		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
 	}
-	
-	
 }
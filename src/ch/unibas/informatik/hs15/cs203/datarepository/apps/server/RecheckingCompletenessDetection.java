@@ -0,0 +1,26 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import java.nio.file.Path;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection;
+
+/**
+ * A {@link CompletenessDetection} which knows when an incomplete file becomes
+ * complete at the earliest. The {@link DatasetPort} does not verify such a
+ * file again before that time, unless the file changes in the meantime.
+ * 
+ */
+public interface RecheckingCompletenessDetection {
+
+	/**
+	 * Returns the time when the given file, found incomplete by the last
+	 * {@link CompletenessDetection#verifyCompletness(Path)}, has to be
+	 * verified again.
+	 * 
+	 * @param file
+	 *            The incomplete file.
+	 * @return The time in milliseconds since the epoch or a negative value if
+	 *         unknown.
+	 */
+	long getRecheckTime(Path file);
+}
@@ -1,6 +1,5 @@
 package ch.unibas.informatik.hs15.cs203.datarepository.apps.support;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -97,33 +96,14 @@ class HelpParser {
 
 	public void readFile() throws IOException {
 		final JsonParser parser = new JsonParser();
-		file = parser.parseJson(readFileToString() );
+		final InputStream in = getClass().getClassLoader()
+				.getResourceAsStream(FOLDER + PREFIX + command + SUFFIX);
+		file = parser.parse(new InputStreamReader(in));
 		if (!validateJson()) {
 			throw new IllegalArgumentException("Invalid json");
 		}
 	}
 
-	private String readFileToString() throws IOException {
-		InputStream in = getClass().getClassLoader()
-				.getResourceAsStream(FOLDER + PREFIX + command + SUFFIX);
-		BufferedReader reader = new BufferedReader(new InputStreamReader(in));
-		String line = null;
-		StringBuilder stringBuilder = new StringBuilder();
-		String ls = System.getProperty("line.separator");
-		try {
-			while ((line = reader.readLine()) != null) {
-				stringBuilder.append(line);
-				stringBuilder.append(ls);
-			}
-		} catch (IOException ex) {
-			throw ex;
-		} finally {
-			reader.close();
-		}
-
-		return stringBuilder.toString();
-	}
-
 	private boolean validateJson() {
 		boolean err = false;
 		final String rawMsg = "Validation failure: Key <%s> does not exist.";
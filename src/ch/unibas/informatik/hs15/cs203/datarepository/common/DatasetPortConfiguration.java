@@ -22,6 +22,31 @@ public class DatasetPortConfiguration {
 	
 	private int scanInterval; //in seconds
 	
+	private boolean watchIncoming = true;
+	
+	private int workerCount = DEFAULT_WORKER_COUNT;
+	
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	
+	/**
+	 * By default data sets are ingested one after the other.
+	 */
+	public static final int DEFAULT_WORKER_COUNT = 1;
+	
+	public static final int DEFAULT_QUEUE_SIZE = 16;
+	
+	private int overviewPageSize = DEFAULT_OVERVIEW_PAGE_SIZE;
+	
+	public static final int DEFAULT_OVERVIEW_PAGE_SIZE = 1000;
+	
+	private int logFlushInterval = DEFAULT_LOG_FLUSH_INTERVAL; //in milliseconds
+	
+	private int logMaxSize = 0; //in kilobytes
+	
+	private int logRotationInterval = 0; //in hours
+	
+	public static final int DEFAULT_LOG_FLUSH_INTERVAL = 1000;
+	
 	private Properties properties;
 	
 	/**
@@ -57,10 +82,92 @@ public class DatasetPortConfiguration {
 		return logFile;
 	}
 
+	/**
+	 * The maximal time in milliseconds until a log entry is flushed to the log file.
+	 * With 0 every log entry is flushed immediately.
+	 */
+	public int getLogFlushInterval() {
+		return logFlushInterval;
+	}
+
+	public void setLogFlushInterval(int logFlushInterval) {
+		this.logFlushInterval = logFlushInterval;
+	}
+
+	/**
+	 * The size in kilobytes at which the log file is rotated, 0 for no size based rotation.
+	 */
+	public int getLogMaxSize() {
+		return logMaxSize;
+	}
+
+	public void setLogMaxSize(int logMaxSize) {
+		this.logMaxSize = logMaxSize;
+	}
+
+	/**
+	 * The time in hours after which the log file is rotated, 0 for no time based rotation.
+	 */
+	public int getLogRotationInterval() {
+		return logRotationInterval;
+	}
+
+	public void setLogRotationInterval(int logRotationInterval) {
+		this.logRotationInterval = logRotationInterval;
+	}
+
 	public int getScanInterval() {
 		return scanInterval;
 	}
 
+	/**
+	 * Whether the incoming directory is watched for changes or polled every scan interval.
+	 * Watching is the default, polling is only needed for file systems which do not
+	 * report changes, e.g. network file systems written by other hosts.
+	 */
+	public boolean isWatchIncoming() {
+		return watchIncoming;
+	}
+
+	public void setWatchIncoming(boolean watchIncoming) {
+		this.watchIncoming = watchIncoming;
+	}
+
+	/**
+	 * The number of ingestion workers, which verify and add data sets concurrently.
+	 */
+	public int getWorkerCount() {
+		return workerCount;
+	}
+
+	public void setWorkerCount(int workerCount) {
+		this.workerCount = workerCount;
+	}
+
+	/**
+	 * The maximal number of incoming entries waiting for a free ingestion worker.
+	 * Further entries stay in the incoming directory until the queue has space again.
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * The maximal number of data sets per page of the HTML overview. Further data sets
+	 * are listed on additional pages next to the overview file.
+	 */
+	public int getOverviewPageSize() {
+		return overviewPageSize;
+	}
+
+	public void setOverviewPageSize(int overviewPageSize) {
+		this.overviewPageSize = overviewPageSize;
+	}
+
 	public Class<? extends CompletenessDetection> getCompletenessDetection() {
 		return completenessDetection;
 	}
@@ -71,8 +178,8 @@ public class DatasetPortConfiguration {
 	@Override
 	public String toString() {
 		return "DatasetPortConfiguration [incoming=" + (incoming!=null?incoming:"null")
-				+ ", htmlOverview=" + (htmlOverview!=null?htmlOverview:"null") + ", logFile=" + (logFile!=null?logFile:"null")
-				+ ", scanInterval=" + scanInterval + ", completenessDetection="
+				+ ", htmlOverview=" + (htmlOverview!=null?htmlOverview:"null") + ", overviewPageSize=" + overviewPageSize + ", logFile=" + (logFile!=null?logFile:"null") + ", logFlushInterval=" + logFlushInterval + ", logMaxSize=" + logMaxSize + ", logRotationInterval=" + logRotationInterval
+				+ ", scanInterval=" + scanInterval + ", watchIncoming=" + watchIncoming + ", workerCount=" + workerCount + ", queueSize=" + queueSize + ", completenessDetection="
 				+ (completenessDetection!=null?completenessDetection:"null") + "]";
 	}
 }
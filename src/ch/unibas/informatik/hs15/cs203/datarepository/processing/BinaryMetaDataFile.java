@@ -0,0 +1,362 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+/**
+ * The {@link BinaryMetaDataFile} is the compact binary representation of a
+ * meta data file, see {@link MetaDataFormat#BINARY}. It is read through a
+ * memory-mapped {@link FileChannel}, thus opening it costs (almost) nothing and
+ * single records are decoded on demand only.
+ * <p>
+ * The file consists of the following sections (all numbers big-endian):
+ * <ol>
+ * <li>The header: <tt>int</tt> magic number ({@value #MAGIC}), <tt>int</tt>
+ * format version, <tt>long</tt> repository timestamp, <tt>int</tt> number of
+ * records, <tt>int</tt> string reference of the application version,
+ * <tt>long</tt> offset of the records section and <tt>long</tt> offset of the
+ * string table.</li>
+ * <li>The offset table: One <tt>int</tt> per record, pointing to the record
+ * relative to the records section.</li>
+ * <li>The records, sorted by id. Each record is length-prefixed (<tt>int</tt>)
+ * and contains the fixed-width fields <tt>long</tt> timestamp, <tt>long</tt>
+ * size, <tt>int</tt> file count, the id as two <tt>long</tt>s (see
+ * {@link DatasetIds}) followed by the <tt>int</tt> string references of id,
+ * name and description. The id is only stored as string if it is not
+ * canonical, otherwise its reference is <tt>-1</tt>.</li>
+ * <li>The string table: Each string is stored once as <tt>int</tt> length
+ * followed by its UTF-8 bytes. A string reference is the offset of the string
+ * relative to the string table.</li>
+ * </ol>
+ * Since the records are sorted by id, a single record can be found by binary
+ * search without decoding any other record.
+ * </p>
+ * <p>
+ * Files of version 1, whose records lack the two <tt>long</tt>s and always
+ * refer to the id as string, are still read.
+ * </p>
+ * <p>
+ * <b>Note: A single mapping is limited to 2GB, which is far beyond the size of
+ * any realistic meta data file.</b>
+ * </p>
+ */
+class BinaryMetaDataFile implements MetaDataSnapshot {
+
+	/**
+	 * The magic number, the ASCII characters <tt>DRMD</tt>.
+	 */
+	static final int MAGIC = 0x44524D44;
+
+	private static final int FORMAT_VERSION = 2;
+
+	/**
+	 * The first version with the ids as two <tt>long</tt>s.
+	 */
+	private static final int NUMERIC_ID_VERSION = 2;
+
+	private static final int HEADER_SIZE = 40;
+
+	/**
+	 * The length of a record, without its length prefix.
+	 */
+	private static final int RECORD_LENGTH = 8 + 8 + 4 + 8 + 8 + 4 + 4 + 4;
+
+	/**
+	 * Opens the given binary meta data file.
+	 *
+	 * @param file
+	 *            The file to open.
+	 * @return The opened file.
+	 * @throws IOException
+	 *             If the file could not be mapped or is not a valid binary
+	 *             meta data file.
+	 */
+	public static BinaryMetaDataFile open(final Path file) throws IOException {
+		final FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.READ);
+		try {
+			// the mapping stays valid after closing the channel
+			return new BinaryMetaDataFile(channel.map(
+					FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Writes the given meta data as binary meta data file.
+	 *
+	 * @param file
+	 *            The file to write to. Gets overwritten if it exists.
+	 * @param version
+	 *            The application version to store in the header.
+	 * @param timestamp
+	 *            The repository's timestamp.
+	 * @param entries
+	 *            The meta data to write.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public static void write(final Path file, final String version,
+			final Date timestamp, final MetaDataWrapper[] entries)
+			throws IOException {
+		final MetaDataWrapper[] sorted = Arrays.copyOf(entries,
+				entries.length);
+		Arrays.sort(sorted, new Comparator<MetaDataWrapper>() {
+			@Override
+			public int compare(final MetaDataWrapper o1,
+					final MetaDataWrapper o2) {
+				return o1.getId().compareTo(o2.getId());
+			}
+		});
+		final StringTable strings = new StringTable();
+		final int versionRef = strings.add(version);
+		final long recordsOffset = HEADER_SIZE + 4L * sorted.length;
+		final long stringsOffset = recordsOffset + (4L + RECORD_LENGTH)
+				* sorted.length;
+
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(timestamp.getTime());
+			out.writeInt(sorted.length);
+			out.writeInt(versionRef);
+			out.writeLong(recordsOffset);
+			out.writeLong(stringsOffset);
+			for (int i = 0; i < sorted.length; i++) {
+				out.writeInt(i * (4 + RECORD_LENGTH));
+			}
+			for (final MetaDataWrapper meta : sorted) {
+				out.writeInt(RECORD_LENGTH);
+				out.writeLong(meta.getTimestamp().getTime());
+				out.writeLong(meta.getSize());
+				out.writeInt(meta.getNumberOfFiles());
+				final String id = meta.getId();
+				if (DatasetIds.isCanonical(id)) {
+					out.writeLong(DatasetIds.high(id));
+					out.writeLong(DatasetIds.low(id));
+					out.writeInt(-1);
+				} else {
+					out.writeLong(0);
+					out.writeLong(0);
+					out.writeInt(strings.add(id));
+				}
+				out.writeInt(strings.add(meta.getName()));
+				out.writeInt(strings.add(meta.getDescription()));
+			}
+			strings.writeTo(out);
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * The mapped file.
+	 */
+	private final ByteBuffer buffer;
+
+	private final int recordCount;
+
+	private final int recordsOffset;
+
+	private final int stringsOffset;
+
+	/**
+	 * Whether the records hold the ids as two <tt>long</tt>s.
+	 */
+	private final boolean numericIds;
+
+	/**
+	 * The offset of the id's string reference within a record.
+	 */
+	private final int idField;
+
+	private BinaryMetaDataFile(final ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a binary meta data file.");
+		}
+		final int version = buffer.getInt(4);
+		if (version < 1 || version > FORMAT_VERSION) {
+			throw new IOException("Unsupported binary meta data version: "
+					+ version);
+		}
+		numericIds = version >= NUMERIC_ID_VERSION;
+		idField = numericIds ? 36 : 20;
+		recordCount = buffer.getInt(16);
+		recordsOffset = (int) buffer.getLong(24);
+		stringsOffset = (int) buffer.getLong(32);
+	}
+
+	/**
+	 * Returns the application version stored in the header.
+	 *
+	 * @return The application version of the file.
+	 */
+	public String getVersion() {
+		return readString(buffer.getInt(20));
+	}
+
+	/**
+	 * Returns the repository's timestamp stored in the header.
+	 *
+	 * @return The repository's timestamp.
+	 */
+	public Date getTimestamp() {
+		return new Date(buffer.getLong(8));
+	}
+
+	/**
+	 * Returns the number of records in this file.
+	 *
+	 * @return The number of records.
+	 */
+	@Override
+	public int size() {
+		return recordCount;
+	}
+
+	/**
+	 * Decodes the record at the given position.
+	 *
+	 * @param index
+	 *            The position of the record, between <tt>0</tt> and
+	 *            <tt>size()-1</tt>.
+	 * @return The decoded meta data.
+	 */
+	@Override
+	public MetaDataWrapper get(final int index) {
+		final int record = recordOffset(index);
+		final Date timestamp = new Date(buffer.getLong(record));
+		final long size = buffer.getLong(record + 8);
+		final int numberOfFiles = buffer.getInt(record + 16);
+		final String id = readId(record);
+		final String name = readString(buffer.getInt(record + idField + 4));
+		final String description = readString(buffer.getInt(record
+				+ idField + 8));
+		return new MetaDataWrapper(id, name, description, numberOfFiles, size,
+				timestamp);
+	}
+
+	/**
+	 * Finds the record with the given id. Only the ids visited by the binary
+	 * search get decoded, canonical ones are compared as numbers.
+	 *
+	 * @param id
+	 *            The id to look for.
+	 * @return The meta data with the given id or <tt>null</tt> if there is
+	 *         none.
+	 */
+	@Override
+	public MetaDataWrapper find(final String id) {
+		final boolean canonical = numericIds && DatasetIds.isCanonical(id);
+		final long idHigh = canonical ? DatasetIds.high(id) : 0;
+		final long idLow = canonical ? DatasetIds.low(id) : 0;
+		int low = 0;
+		int high = recordCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final int record = recordOffset(mid);
+			final int cmp;
+			if (canonical && buffer.getInt(record + idField) < 0) {
+				cmp = DatasetIds.compare(buffer.getLong(record + 20),
+						buffer.getLong(record + 28), idHigh, idLow);
+			} else {
+				cmp = readId(record).compareTo(id);
+			}
+			if (cmp < 0) {
+				low = mid + 1;
+			} else if (cmp > 0) {
+				high = mid - 1;
+			} else {
+				return get(mid);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Decodes every record of this file.
+	 *
+	 * @return All records, sorted by id.
+	 */
+	@Override
+	public MetaDataWrapper[] readAll() {
+		final MetaDataWrapper[] out = new MetaDataWrapper[recordCount];
+		for (int i = 0; i < recordCount; i++) {
+			out[i] = get(i);
+		}
+		return out;
+	}
+
+	/**
+	 * Returns the absolute offset of the given record's fields, behind the
+	 * length prefix.
+	 */
+	private int recordOffset(final int index) {
+		return recordsOffset + buffer.getInt(HEADER_SIZE + 4 * index) + 4;
+	}
+
+	private String readId(final int record) {
+		final int ref = buffer.getInt(record + idField);
+		if (ref < 0) {
+			return DatasetIds.toString(buffer.getLong(record + 20),
+					buffer.getLong(record + 28));
+		}
+		return readString(ref);
+	}
+
+	private String readString(final int ref) {
+		final int position = stringsOffset + ref;
+		final byte[] bytes = new byte[buffer.getInt(position)];
+		final ByteBuffer view = buffer.duplicate();
+		view.position(position + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Collects the strings of a file, storing equal strings only once.
+	 */
+	private static class StringTable {
+		private final HashMap<String, Integer> refs = new HashMap<String, Integer>();
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		private final DataOutputStream out = new DataOutputStream(bytes);
+
+		int add(final String str) throws IOException {
+			final Integer existing = refs.get(str);
+			if (existing != null) {
+				return existing;
+			}
+			final int ref = out.size();
+			final byte[] encoded = str.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(encoded.length);
+			out.write(encoded);
+			refs.put(str, ref);
+			return ref;
+		}
+
+		void writeTo(final OutputStream target) throws IOException {
+			out.flush();
+			bytes.writeTo(target);
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.ProgressListener;
+
+/**
+ * The {@link CopyProgress} aggregates the progress of one copy operation,
+ * which may be performed by several threads at once, and reports it to a
+ * {@link ProgressListener}. <br />
+ * All invocations of the listener are serialized, thus the listener sees
+ * monotonically increasing progress and, once a cancel has been requested,
+ * exactly one invocation of {@link ProgressListener#canceled()} and nothing
+ * else.
+ */
+class CopyProgress {
+
+	private final ProgressListener listener;
+	private final long totalSize;
+	private long processed;
+	private volatile boolean canceled = false;
+
+	/**
+	 * @param listener
+	 *            The listener to report to.
+	 * @param alreadyProcessed
+	 *            The number of bytes processed before this copy operation.
+	 * @param totalSize
+	 *            The total number of bytes of the whole operation.
+	 */
+	CopyProgress(ProgressListener listener, long alreadyProcessed,
+			long totalSize) {
+		this.listener = listener;
+		this.processed = alreadyProcessed;
+		this.totalSize = totalSize;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if a cancel has been requested. The first time the
+	 * listener requests a cancel, it gets notified by
+	 * {@link ProgressListener#canceled()}.
+	 * 
+	 * @return <tt>true</tt> if the copy operation has to stop.
+	 */
+	synchronized boolean isCanceled() {
+		if (!canceled && listener.hasCancelBeenRequested()) {
+			canceled = true;
+			listener.canceled();
+		}
+		return canceled;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if a cancel has already been detected, without
+	 * asking the listener.
+	 * 
+	 * @return <tt>true</tt> if the copy operation got canceled.
+	 */
+	boolean wasCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Adds the given number of bytes to the progress and reports it, unless
+	 * the copy operation got canceled.
+	 * 
+	 * @param bytes
+	 *            The number of bytes copied.
+	 */
+	synchronized void advance(long bytes) {
+		processed += bytes;
+		if (!canceled) {
+			listener.progress(processed, totalSize);
+		}
+	}
+}
@@ -5,13 +5,11 @@ import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.api.Criteria;
-import ch.unibas.informatik.hs15.cs203.datarepository.api.DataRepository;
 import ch.unibas.informatik.hs15.cs203.datarepository.api.MetaData;
 import ch.unibas.informatik.hs15.cs203.datarepository.api.ProgressListener;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
@@ -20,7 +18,7 @@ import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
 import util.jsontools.Json;
 import util.logging.Logger;
 
-class DataRepositoryImpl implements DataRepository {
+class DataRepositoryImpl implements PagedDataRepository {
 	/**
 	 * Path to the Repository Folder
 	 */
@@ -53,7 +51,7 @@ class DataRepositoryImpl implements DataRepository {
 	@Override
 	public List<MetaData> delete(Criteria deletionCriteria) {
 		CriteriaWrapper deletionTests = new CriteriaWrapper(deletionCriteria);
-		LOG.info("Deleting Files with Criteria: " + deletionTests.toString());
+		LOG.info("Deleting Files with Criteria: {0}", deletionTests);
 		if (deletionTests.equals(CriteriaWrapper.all())) {
 			throw new IllegalArgumentException("Invalid parameters");
 		}
@@ -73,9 +71,11 @@ class DataRepositoryImpl implements DataRepository {
 			for (MetaDataWrapper md : wholeMetadata) {
 				File source = new File(repositoryFolder.getAbsolutePath() + "/"
 						+ md.getId());
+				// before the folder is gone, otherwise loading the storage
+				// would already clean the meta data up
+				mdm.remove(md);
 				RepoFileUtils.deleteRecursively(source.getAbsoluteFile()
 						.toPath());
-				mdm.remove(md);
 			}
 		} catch (Exception e) {
 			LOG.error("Something went wrong while deleting files", e);
@@ -99,7 +99,7 @@ class DataRepositoryImpl implements DataRepository {
 			totalNumberOfBytes += md.getSize();
 		}
 
-		LOG.info("Starting export. target:" + target.toString());
+		LOG.info("Starting export. target:{0}", target);
 		long copiedBytes = 0;
 		progressListener.start();
 		if (progressListener.hasCancelBeenRequested()) {
@@ -113,25 +113,23 @@ class DataRepositoryImpl implements DataRepository {
 			File source = new File(repositoryFolder.getAbsolutePath() + "/"
 					+ md.getId() + "/" + md.getName());
 			File fullTarget = new File(target.getAbsolutePath());
-			LOG.debug("Copying file: " + source.toString());
+			LOG.debug("Copying file: {0}", source);
 			if (!RepoFileUtils.copyRecursively(source.getAbsoluteFile()
 					.toPath(), fullTarget.getAbsoluteFile().toPath(),
 					progressListener, copiedBytes, totalNumberOfBytes)) {
-				LOG.info("Cancel while copying \nTarget: " + target.toString()
-						+ " | Source: " + source.toString());
+				LOG.info("Cancel while copying \nTarget: {0} | Source: {1}",
+						target, source);
 				Path joinedPath = Paths.get(target.toString(), md.getName());
-				LOG.info("Deleting partially copied files at "
-						+ joinedPath.toString());
+				LOG.info("Deleting partially copied files at {0}", joinedPath);
 				RepoFileUtils.deleteRecursively(joinedPath);
 				return unwrap(returnMetadata);
 			}
 			copiedBytes += md.getSize();
 			returnMetadata.add(md);
-			LOG.info("File " + md.getName() + " has been exported");
+			LOG.info("File {0} has been exported", md.getName());
 		}
 		if (progressListener.hasCancelBeenRequested()) {
-			LOG.info("Cancel after everything is done \nTarget: "
-					+ target.toString());
+			LOG.info("Cancel after everything is done \nTarget: {0}", target);
 			progressListener.canceled();
 			return null;
 		} else {
@@ -188,45 +186,48 @@ class DataRepositoryImpl implements DataRepository {
 	@Override
 	public MetaData replace(String id, File file, String description,
 			boolean move, ProgressListener progressListener) {
-		LOG.info("Replacing " + id + " with " + file.toString());
+		LOG.info("Replacing {0} with {1}", id, file);
 		// TODO Care about System crashes between delete and add
 		MetaDataManager mdm = MetaDataManager
 				.getMetaDataManager(repositoryFolder.getAbsolutePath());
-		String oldDescription = mdm.getMeta(id).getDescription();
-		if (description == null || description == "") {
-			description = mdm.getMeta(id).getDescription();
-		}
-		String oldID = mdm.getMeta(id).getId();
-		String oldFileName = mdm.getMeta(id).getName();
-		LOG.info("Copying original contents to "
-				+ System.getProperty("java.io.tmpdir"));
-		Path tmpPath = Paths.get(System.getProperty("java.io.tmpdir"));
-		if (Paths.get(tmpPath.toString(), oldFileName).toFile().exists()) {
-			RepoFileUtils.deleteRecursively(Paths.get(tmpPath.toString(),
-					oldFileName));
-		}
+		try {
+			String oldDescription = mdm.getMeta(id).getDescription();
+			if (description == null || description == "") {
+				description = mdm.getMeta(id).getDescription();
+			}
+			String oldID = mdm.getMeta(id).getId();
+			String oldFileName = mdm.getMeta(id).getName();
+			LOG.info("Copying original contents to {0}",
+					System.getProperty("java.io.tmpdir"));
+			Path tmpPath = Paths.get(System.getProperty("java.io.tmpdir"));
+			if (Paths.get(tmpPath.toString(), oldFileName).toFile().exists()) {
+				RepoFileUtils.deleteRecursively(Paths.get(tmpPath.toString(),
+						oldFileName));
+			}
 
-		Path sourcePath = Paths.get(this.repositoryFolder.toString(), oldID,
-				mdm.getMeta(id).getName());
-		RepoFileUtils.copyRecursively(sourcePath, tmpPath,
-				new DummyProgressListener(), 0, mdm.getMeta(id).getSize());
-		LOG.info("Successfully copied contents to tmp-folder");
-		this.delete(Criteria.forId(id));
+			Path sourcePath = Paths.get(this.repositoryFolder.toString(), oldID,
+					mdm.getMeta(id).getName());
+			RepoFileUtils.copyRecursively(sourcePath, tmpPath,
+					new DummyProgressListener(), 0, mdm.getMeta(id).getSize());
+			LOG.info("Successfully copied contents to tmp-folder");
+			this.delete(Criteria.forId(id));
 
-		MetaData md = this.add(file, id, description, move, progressListener);
-		if (md == null) {
-			// Add has been canceled
-			Path tmpFilePath = Paths.get(tmpPath.toString(), oldFileName);
-			this.add(tmpFilePath.toFile(), id, oldDescription, true,
-					new DummyProgressListener());
-			// TODO Restore the original Dataset
-		}
-		if (Paths.get(tmpPath.toString(), oldFileName).toFile().exists()) {
-			RepoFileUtils.deleteRecursively(Paths.get(tmpPath.toString(),
-					oldFileName));
+			MetaData md = this.add(file, id, description, move, progressListener);
+			if (md == null) {
+				// Add has been canceled
+				Path tmpFilePath = Paths.get(tmpPath.toString(), oldFileName);
+				this.add(tmpFilePath.toFile(), id, oldDescription, true,
+						new DummyProgressListener());
+				// TODO Restore the original Dataset
+			}
+			if (Paths.get(tmpPath.toString(), oldFileName).toFile().exists()) {
+				RepoFileUtils.deleteRecursively(Paths.get(tmpPath.toString(),
+						oldFileName));
+			}
+			return md;
+		} finally {
+			mdm.close();
 		}
-		mdm.close();
-		return md;
 	}
 
 	/**
@@ -238,55 +239,56 @@ class DataRepositoryImpl implements DataRepository {
 			boolean move, ProgressListener progressListener) {
 		Verification.verifyAdd(file, description, progressListener,
 				repositoryFolder);
-		LOG.info("Adding a new File: " + file.toString());
+		LOG.info("Adding a new File: {0}", file);
 
 		id = parseID(id);
+		// a single walk provides the numbers and the copy plan
+		FileManifest manifest = FileManifest.scan(file.getAbsoluteFile()
+				.toPath());
 		Path joinedPath = createNewDatasetFolder(id);
 		MetaDataWrapper _ret = new MetaDataWrapper(id, file.getName(),
-				description, RepoFileUtils.getFileCount(file),
-				RepoFileUtils.getFileSize(file), Json.iso8601ToDate(Json
+				description, manifest.getFileCount(),
+				manifest.getSize(), Json.iso8601ToDate(Json
 						.dateToISO8601(new Date())));
 		MetaDataManager mdm = MetaDataManager
 				.getMetaDataManager(repositoryFolder.getAbsolutePath());
-		progressListener.start(); // This ordering is based on the Unittest.
-									// Yeah, it doesn't make sense to start
-									// the progressListener.
-		if (progressListener.hasCancelBeenRequested()) {
-			progressListener.canceled();
-			mdm.close();
-			return null;
-		}
-		progressListener.progress(0, _ret.getSize());
-		if (move) {
-			RepoFileUtils.move(file.getAbsoluteFile().toPath(), joinedPath);
+		try {
+			progressListener.start(); // This ordering is based on the
+										// Unittest. Yeah, it doesn't make
+										// sense to start the
+										// progressListener.
 			if (progressListener.hasCancelBeenRequested()) {
 				progressListener.canceled();
-				mdm.close();
 				return null;
-			} else {
-				progressListener.progress(_ret.getSize(), _ret.getSize());
-				progressListener.finish();
 			}
-		} else {
-			if (!RepoFileUtils.copyRecursively(file.getAbsoluteFile().toPath(),
-					joinedPath, progressListener, 0, _ret.getSize())) {
-				mdm.close();
-				return null;
+			progressListener.progress(0, _ret.getSize());
+			if (move) {
+				RepoFileUtils.move(file.getAbsoluteFile().toPath(), joinedPath);
+				if (progressListener.hasCancelBeenRequested()) {
+					progressListener.canceled();
+					return null;
+				} else {
+					progressListener.progress(_ret.getSize(), _ret.getSize());
+					progressListener.finish();
+				}
 			} else {
-				progressListener.finish();
+				if (!RepoFileUtils.copyRecursively(manifest, joinedPath,
+						progressListener, 0, _ret.getSize())) {
+					return null;
+				} else {
+					progressListener.finish();
+				}
 			}
-		}
-		try {
-			mdm.add(_ret);
-		} catch (IOException e) {
-			if (mdm != null) {
-				mdm.close();
+			try {
+				mdm.add(_ret);
+			} catch (IOException e) {
+				throw new IllegalArgumentException(
+						"An error happened while writing metadata", e);
 			}
-			throw new IllegalArgumentException(
-					"An error happened while writing metadata", e);
+			return _ret.getWrappedObject();
+		} finally {
+			mdm.close();
 		}
-		mdm.close();
-		return _ret.getWrappedObject();
 	}
 
 	private String parseID(String id) {
@@ -308,11 +310,6 @@ class DataRepositoryImpl implements DataRepository {
 		try {
 			mdm = MetaDataManager.getMetaDataManager(repositoryFolder
 					.getAbsolutePath());
-			if (searchCriteria.equals(Criteria.all())) {
-				_res = mdm.getAllMetaData();
-				Collections.sort(_res, new MetaDataComparator());
-				return unwrap(_res);
-			}
 			if (wrapperCrit.getId() != null && !wrapperCrit.onlyID()) {
 				throw new IllegalArgumentException(
 						"If you specify an ID, no other criteria can be specified");
@@ -324,9 +321,8 @@ class DataRepositoryImpl implements DataRepository {
 				}
 				return unwrap(_res);
 			}
-			_res.addAll(mdm
-					.getMatchingMeta(new CriteriaWrapper(searchCriteria)));
-			Collections.sort(_res, new MetaDataComparator());
+			// already ordered by time stamp
+			_res.addAll(mdm.getMatchingMeta(wrapperCrit));
 			return unwrap(_res);
 		} catch (Exception e) {
 			throw new IllegalArgumentException(e.getMessage());
@@ -337,6 +333,30 @@ class DataRepositoryImpl implements DataRepository {
 		}
 	}
 
+	@Override
+	public MetaDataCursor getMetaData(Criteria searchCriteria, int pageSize,
+			String resumeToken, MetaDataCursor.Order order) {
+		if (searchCriteria == null) {
+			throw new IllegalArgumentException(
+					"Search Criteria must not be null");
+		}
+		if (pageSize <= 0) {
+			throw new IllegalArgumentException("The page size must be positive");
+		}
+		if (order == null) {
+			throw new IllegalArgumentException("The order must not be null");
+		}
+		CriteriaWrapper wrapperCrit = new CriteriaWrapper(searchCriteria);
+		if (wrapperCrit.getId() != null && !wrapperCrit.onlyID()) {
+			throw new IllegalArgumentException(
+					"If you specify an ID, no other criteria can be specified");
+		}
+		return new PagedMetaDataCursor(
+				MetaDataManager.getMetaDataManager(repositoryFolder
+						.getAbsolutePath()), wrapperCrit, pageSize,
+				resumeToken, order);
+	}
+
 	private List<MetaData> unwrap(List<MetaDataWrapper> wrappedList) {
 		ArrayList<MetaData> out = new ArrayList<MetaData>();
 		for (MetaDataWrapper w : wrappedList) {
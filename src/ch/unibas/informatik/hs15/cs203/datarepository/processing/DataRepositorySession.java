@@ -0,0 +1,37 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The implementation of a {@link RepositorySession}. <br />
+ * The session holds a reference to the repository's {@link MetaDataManager}
+ * until it is closed. Since {@link MetaDataManager} instances are shared per
+ * repository, every operation of the session reuses the already loaded meta
+ * data instead of reading the meta data file again.
+ */
+class DataRepositorySession extends DataRepositoryImpl implements
+		RepositorySession {
+
+	/**
+	 * The manager held open by this session, <tt>null</tt> once closed.
+	 */
+	private MetaDataManager mdm;
+
+	protected DataRepositorySession(File repositoryFolder) throws IOException {
+		super(repositoryFolder);
+		mdm = MetaDataManager.getMetaDataManager(repositoryFolder
+				.getAbsolutePath());
+	}
+
+	@Override
+	public synchronized void close() throws IllegalArgumentException {
+		if (mdm != null) {
+			try {
+				mdm.close();
+			} finally {
+				mdm = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+/**
+ * Converts data set IDs between their string form and two <tt>long</tt>s.
+ * <br />
+ * The IDs generated by {@link MetaDataManager#generateRandomUUID()} are UUIDs
+ * in their canonical form, i.e. 32 lower case hexadecimal digits in groups of
+ * 8-4-4-4-12. Such an ID is stored as its most and least significant 64 bits,
+ * which is less than a fifth of the memory of the string. The string form is
+ * only created again at the boundary of the storage.
+ * <p>
+ * Comparing two canonical IDs as unsigned 128 bit numbers (see
+ * {@link #compare(long, long, long, long)}) gives the same order as comparing
+ * their strings. Any other ID (e.g. of a hand-edited meta data file) is not
+ * canonical and has to be kept as string, see {@link #isCanonical(String)}.
+ * </p>
+ * <p>
+ * The two <tt>long</tt>s are used by the in-memory storage (the ID columns of
+ * {@link MetaDataColumns} and the {@link IdIndex}) and by binary meta data
+ * files. The JSON meta data file, the {@link MetaDataJournal} and the
+ * {@link TrigramIndex} still key data sets by their ID strings.
+ * </p>
+ */
+final class DatasetIds {
+
+	private static final int LENGTH = 36;
+
+	private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+	private DatasetIds() {
+	}
+
+	/**
+	 * Returns whether the given ID is a UUID in canonical form, thus can be
+	 * converted into two <tt>long</tt>s and back without loss.
+	 *
+	 * @param id
+	 *            The ID.
+	 * @return <tt>true</tt> if the ID is canonical.
+	 */
+	public static boolean isCanonical(final String id) {
+		if (id.length() != LENGTH) {
+			return false;
+		}
+		for (int i = 0; i < LENGTH; i++) {
+			final char c = id.charAt(i);
+			if (i == 8 || i == 13 || i == 18 || i == 23) {
+				if (c != '-') {
+					return false;
+				}
+			} else if (!(c >= '0' && c <= '9') && !(c >= 'a' && c <= 'f')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the most significant 64 bits of a canonical ID.
+	 *
+	 * @param id
+	 *            The canonical ID.
+	 * @return The most significant bits.
+	 */
+	public static long high(final String id) {
+		return hex(id, 0, 8) << 32 | hex(id, 9, 13) << 16 | hex(id, 14, 18);
+	}
+
+	/**
+	 * Returns the least significant 64 bits of a canonical ID.
+	 *
+	 * @param id
+	 *            The canonical ID.
+	 * @return The least significant bits.
+	 */
+	public static long low(final String id) {
+		return hex(id, 19, 23) << 48 | hex(id, 24, 36);
+	}
+
+	/**
+	 * Returns the canonical string form of an ID.
+	 *
+	 * @param high
+	 *            The most significant bits.
+	 * @param low
+	 *            The least significant bits.
+	 * @return The ID as string.
+	 */
+	public static String toString(final long high, final long low) {
+		final char[] out = new char[LENGTH];
+		digits(out, 0, 8, high >>> 32);
+		out[8] = '-';
+		digits(out, 9, 13, high >>> 16);
+		out[13] = '-';
+		digits(out, 14, 18, high);
+		out[18] = '-';
+		digits(out, 19, 23, low >>> 48);
+		out[23] = '-';
+		digits(out, 24, 36, low);
+		return new String(out);
+	}
+
+	/**
+	 * Compares two IDs as unsigned 128 bit numbers.
+	 *
+	 * @return A negative number, zero or a positive number if the first ID is
+	 *         less than, equal to or greater than the second.
+	 */
+	public static int compare(final long high1, final long low1,
+			final long high2, final long low2) {
+		if (high1 != high2) {
+			return high1 + Long.MIN_VALUE < high2 + Long.MIN_VALUE ? -1 : 1;
+		}
+		if (low1 != low2) {
+			return low1 + Long.MIN_VALUE < low2 + Long.MIN_VALUE ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Returns a hash of an ID, with all of its bits mixed into the lower ones.
+	 *
+	 * @return The hash.
+	 */
+	public static int hash(final long high, final long low) {
+		final long mixed = (high ^ Long.rotateLeft(low, 32))
+				* 0x9E3779B97F4A7C15L;
+		return (int) (mixed ^ (mixed >>> 32));
+	}
+
+	private static long hex(final String id, final int from, final int to) {
+		long out = 0;
+		for (int i = from; i < to; i++) {
+			final char c = id.charAt(i);
+			out = out << 4 | (c <= '9' ? c - '0' : c - 'a' + 10);
+		}
+		return out;
+	}
+
+	private static void digits(final char[] out, final int from, final int to,
+			long value) {
+		for (int i = to - 1; i >= from; i--) {
+			out[i] = DIGITS[(int) (value & 0xF)];
+			value >>>= 4;
+		}
+	}
+}
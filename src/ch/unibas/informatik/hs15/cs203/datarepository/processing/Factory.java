@@ -31,6 +31,40 @@ public class Factory {
 	 *             </ul>
 	 */
 	public static DataRepository create(File repositoryFolder) {
+		verifyRepositoryFolder(repositoryFolder);
+		// Create Repo and return it
+		DataRepositoryImpl _ret;
+		try {
+			_ret = new DataRepositoryImpl(repositoryFolder);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getLocalizedMessage());
+		}
+		return _ret;
+	}
+
+	/**
+	 * Opens a {@link RepositorySession} for the specified repository folder.
+	 * The repository folder will be created if it does not exit. <br />
+	 * In contrast to {@link #create(File)}, the repository's meta data is
+	 * loaded once and kept until the session is closed.
+	 * 
+	 * @param repositoryFolder
+	 *            Folder which will contain data sets and meta data.
+	 * @return an open {@link RepositorySession}, which must be closed.
+	 * @throws IllegalArgumentException
+	 *             in the same cases as {@link #create(File)} or if the
+	 *             repository could not be opened.
+	 */
+	public static RepositorySession open(File repositoryFolder) {
+		verifyRepositoryFolder(repositoryFolder);
+		try {
+			return new DataRepositorySession(repositoryFolder);
+		} catch (IOException e) {
+			throw new IllegalArgumentException(e.getLocalizedMessage());
+		}
+	}
+
+	private static void verifyRepositoryFolder(File repositoryFolder) {
 		// Verify File param
 		if (repositoryFolder == null) {
 			throw new IllegalArgumentException("The repository folder is null");
@@ -46,14 +80,6 @@ public class Factory {
 		if (!repositoryFolder.exists()) {
 			repositoryFolder.mkdirs();
 		}
-		// Create Repo and return it
-		DataRepositoryImpl _ret;
-		try {
-			_ret = new DataRepositoryImpl(repositoryFolder);
-		} catch (IOException e) {
-			throw new IllegalArgumentException(e.getLocalizedMessage());
-		}
-		return _ret;
 	}
 
 	public Factory() {
@@ -0,0 +1,159 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.IOException;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+import util.logging.Logger;
+
+/**
+ * The {@link FileManifest} lists every directory and file of a data set,
+ * collected by a single walk of the file tree. <br />
+ * The manifest provides the numbers of the data set's meta data (see
+ * {@link #getFileCount()} and {@link #getSize()}) as well as the plan of
+ * copying it (see {@link TreeCopier}), thus the data set is walked only once.
+ * Paths within the manifest are relative to its root.
+ */
+class FileManifest {
+
+	private static final Logger LOG = Logger.getLogger(FileManifest.class);
+
+	/**
+	 * A regular file of the manifest.
+	 */
+	static class Entry {
+		private final Path path;
+		private final BasicFileAttributes attributes;
+
+		Entry(final Path path, final BasicFileAttributes attributes) {
+			this.path = path;
+			this.attributes = attributes;
+		}
+
+		/**
+		 * @return The path relative to the manifest's root. Empty if the root
+		 *         itself is a file.
+		 */
+		Path getPath() {
+			return path;
+		}
+
+		/**
+		 * @return The attributes read while walking the tree.
+		 */
+		BasicFileAttributes getAttributes() {
+			return attributes;
+		}
+
+		/**
+		 * @return The size in bytes.
+		 */
+		long getSize() {
+			return attributes.size();
+		}
+	}
+
+	/**
+	 * Walks the given file or directory and collects its manifest. Symbolic
+	 * links are followed.
+	 * 
+	 * @param root
+	 *            The file or directory to walk.
+	 * @return The manifest of <tt>root</tt>.
+	 * @throws IllegalArgumentException
+	 *             If the tree could not be walked.
+	 */
+	static FileManifest scan(final Path root) {
+		final FileManifest manifest = new FileManifest(root);
+		try {
+			Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS),
+					Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+						@Override
+						public FileVisitResult preVisitDirectory(Path dir,
+								BasicFileAttributes attrs) {
+							manifest.directories.add(root.relativize(dir));
+							return FileVisitResult.CONTINUE;
+						}
+
+						@Override
+						public FileVisitResult visitFile(Path file,
+								BasicFileAttributes attrs) {
+							manifest.files.add(new Entry(root.relativize(file),
+									attrs));
+							manifest.size += attrs.size();
+							return FileVisitResult.CONTINUE;
+						}
+					});
+		} catch (IOException ex) {
+			LOG.error("Error while scanning " + root, ex);
+			throw new IllegalArgumentException("Could not read " + root
+					+ ": " + ex.getMessage());
+		}
+		return manifest;
+	}
+
+	private final Path root;
+	private final List<Path> directories = new ArrayList<Path>();
+	private final List<Entry> files = new ArrayList<Entry>();
+	private long size = 0;
+
+	private FileManifest(final Path root) {
+		this.root = root;
+	}
+
+	/**
+	 * @return The walked file or directory.
+	 */
+	Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * @return <tt>true</tt> if the root is a directory.
+	 */
+	boolean isDirectory() {
+		return !directories.isEmpty();
+	}
+
+	/**
+	 * Returns the number of directories (including the root) and files.
+	 * 
+	 * @return The number of entries of this manifest.
+	 */
+	int getFileCount() {
+		return directories.size() + files.size();
+	}
+
+	/**
+	 * Returns the total size of all files.
+	 * 
+	 * @return The size in bytes.
+	 */
+	long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns the directories, each before its sub directories.
+	 * 
+	 * @return The relative paths of the directories.
+	 */
+	List<Path> getDirectories() {
+		return Collections.unmodifiableList(directories);
+	}
+
+	/**
+	 * @return The regular files.
+	 */
+	List<Entry> getFiles() {
+		return Collections.unmodifiableList(files);
+	}
+}
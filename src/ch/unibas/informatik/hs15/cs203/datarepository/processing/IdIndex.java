@@ -0,0 +1,204 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.HashMap;
+
+/**
+ * The {@link IdIndex} maps the IDs of a {@link MetaDataColumns} to their rows.
+ * <br />
+ * Canonical IDs (see {@link DatasetIds}) are looked up in an open addressing
+ * table with linear probing, which holds nothing but the rows: The keys are
+ * the two <tt>long</tt>s of the ID columns. Thus neither a lookup nor an entry
+ * creates any object. Other IDs are kept in a plain {@link HashMap}.
+ * <p>
+ * The index has no order, see
+ * {@link MetaDataColumns#compareIds(int, int)}.
+ * </p>
+ */
+class IdIndex {
+
+	private final MetaDataColumns columns;
+
+	/**
+	 * The table, each slot holds a row plus one or <tt>0</tt> if empty.
+	 */
+	private int[] table = new int[128];
+
+	/**
+	 * The number of rows in {@link #table}.
+	 */
+	private int count = 0;
+
+	/**
+	 * The rows of the IDs which are not canonical.
+	 */
+	private final HashMap<String, Integer> others = new HashMap<String, Integer>();
+
+	/**
+	 * Creates an empty index of the given columns.
+	 *
+	 * @param columns
+	 *            The columns holding the IDs.
+	 */
+	public IdIndex(final MetaDataColumns columns) {
+		this.columns = columns;
+	}
+
+	/**
+	 * Returns the row of the given ID.
+	 *
+	 * @param id
+	 *            The ID to look up.
+	 * @return The row or <tt>-1</tt> if the ID is unknown.
+	 */
+	public int get(final String id) {
+		if (!DatasetIds.isCanonical(id)) {
+			final Integer row = others.get(id);
+			return row != null ? row : -1;
+		}
+		final int slot = find(DatasetIds.high(id), DatasetIds.low(id));
+		return slot >= 0 ? table[slot] - 1 : -1;
+	}
+
+	/**
+	 * Adds the given row with the ID it holds in the columns. The ID must not
+	 * be in the index yet.
+	 *
+	 * @param row
+	 *            The row to add.
+	 */
+	public void add(final int row) {
+		if (!columns.hasCanonicalId(row)) {
+			others.put(columns.getId(row), row);
+			return;
+		}
+		if ((count + 1) * 2 > table.length) {
+			resize(table.length * 2);
+		}
+		final int mask = table.length - 1;
+		int slot = home(row, mask);
+		while (table[slot] != 0) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = row + 1;
+		count++;
+	}
+
+	/**
+	 * Removes the given ID.
+	 *
+	 * @param id
+	 *            The ID to remove.
+	 * @return The row of the ID or <tt>-1</tt> if the ID is unknown.
+	 */
+	public int remove(final String id) {
+		if (!DatasetIds.isCanonical(id)) {
+			final Integer row = others.remove(id);
+			return row != null ? row : -1;
+		}
+		int slot = find(DatasetIds.high(id), DatasetIds.low(id));
+		if (slot < 0) {
+			return -1;
+		}
+		final int out = table[slot] - 1;
+		// shift the following rows back instead of leaving a marker
+		final int mask = table.length - 1;
+		for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1)
+				& mask) {
+			final int home = home(table[next] - 1, mask);
+			if (((next - home) & mask) >= ((next - slot) & mask)) {
+				table[slot] = table[next];
+				slot = next;
+			}
+		}
+		table[slot] = 0;
+		count--;
+		return out;
+	}
+
+	/**
+	 * Returns the number of IDs in this index.
+	 *
+	 * @return The number of IDs.
+	 */
+	public int size() {
+		return count + others.size();
+	}
+
+	/**
+	 * Returns all rows of this index, in no particular order.
+	 *
+	 * @return The rows.
+	 */
+	public int[] rows() {
+		final int[] out = new int[size()];
+		int i = 0;
+		for (final int entry : table) {
+			if (entry != 0) {
+				out[i++] = entry - 1;
+			}
+		}
+		for (final int row : others.values()) {
+			out[i++] = row;
+		}
+		return out;
+	}
+
+	/**
+	 * Reserves room for the given number of IDs, e.g. before a bulk load.
+	 *
+	 * @param capacity
+	 *            The number of IDs.
+	 */
+	public void ensureCapacity(final int capacity) {
+		int length = table.length;
+		while (capacity * 2 > length) {
+			length *= 2;
+		}
+		if (length > table.length) {
+			resize(length);
+		}
+	}
+
+	/**
+	 * Returns the slot holding the given ID or <tt>-1</tt>.
+	 */
+	private int find(final long high, final long low) {
+		final int mask = table.length - 1;
+		for (int slot = slot(DatasetIds.hash(high, low), mask);; slot = (slot + 1)
+				& mask) {
+			final int entry = table[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			if (columns.getIdHigh(entry - 1) == high
+					&& columns.getIdLow(entry - 1) == low) {
+				return slot;
+			}
+		}
+	}
+
+	private int home(final int row, final int mask) {
+		return slot(
+				DatasetIds.hash(columns.getIdHigh(row), columns.getIdLow(row)),
+				mask);
+	}
+
+	private static int slot(final int hash, final int mask) {
+		return hash & mask;
+	}
+
+	private void resize(final int length) {
+		final int[] old = table;
+		table = new int[length];
+		final int mask = length - 1;
+		for (final int entry : old) {
+			if (entry != 0) {
+				int slot = home(entry - 1, mask);
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = entry;
+			}
+		}
+	}
+}
@@ -0,0 +1,162 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+import util.jsontools.InexistentKeyException;
+import util.jsontools.InvalidJsonException;
+import util.jsontools.Json;
+import util.jsontools.JsonTape;
+
+/**
+ * The {@link JsonMetaDataFile} is a JSON meta data file opened as
+ * {@link JsonTape}: The file is parsed once into an index of offsets, but no
+ * record is decoded until it is asked for. Thus, like a
+ * {@link BinaryMetaDataFile}, it answers single lookups by ID on a freshly
+ * opened repository without creating the meta data of all the other records.
+ * <p>
+ * Unlike the binary format the records are not sorted, thus
+ * {@link #find(String)} visits every record. The ids are compared in place
+ * though, nothing but the record found gets created.
+ * </p>
+ * <p>
+ * <b>Note: The whole text of the file is held in memory until the snapshot is
+ * released.</b>
+ * </p>
+ */
+class JsonMetaDataFile implements MetaDataSnapshot {
+
+	/**
+	 * Opens the given JSON meta data file.
+	 *
+	 * @param file
+	 *            The file to open.
+	 * @return The opened file.
+	 * @throws IOException
+	 *             If the file could not be read.
+	 * @throws InvalidJsonException
+	 *             If the file is not well formed.
+	 * @throws InexistentKeyException
+	 *             If the file has no repository.
+	 */
+	public static JsonMetaDataFile open(final Path file) throws IOException {
+		return new JsonMetaDataFile(JsonTape.read(new FileReader(file.toFile())));
+	}
+
+	private final JsonTape tape;
+
+	/**
+	 * The node of the repository object.
+	 */
+	private final int repository;
+
+	/**
+	 * The nodes of the data set objects.
+	 */
+	private final int[] records;
+
+	private JsonMetaDataFile(final JsonTape tape) {
+		this.tape = tape;
+		if (!tape.isObject(tape.root())) {
+			throw new InvalidJsonException("Meta data file expected");
+		}
+		repository = tape.get(tape.root(), MetaDataManager.repositoryKey);
+		if (repository < 0) {
+			throw new InexistentKeyException(MetaDataManager.repositoryKey);
+		}
+		if (!tape.isObject(repository)) {
+			throw new InvalidJsonException("Repository expected");
+		}
+		final int datasets = tape.get(repository, MetaDataManager.datasetsKey);
+		records = datasets >= 0 && tape.isArray(datasets)
+				? tape.elements(datasets) : new int[0];
+	}
+
+	/**
+	 * Returns the repository with all its entries but the data sets, which
+	 * are empty.
+	 *
+	 * @return The repository object.
+	 */
+	public Json getRepository() {
+		final Json out = new Json();
+		for (final String key : tape.keys(repository)) {
+			final int value = tape.get(repository, key);
+			if (tape.isArray(value)) {
+				continue;
+			}
+			if (tape.isObject(value)) {
+				out.addEntry(key, tape.toJson(value));
+			} else {
+				out.addEntry(key, tape.getString(value));
+			}
+		}
+		out.addEntry(MetaDataManager.datasetsKey, new Json[0]);
+		return out;
+	}
+
+	@Override
+	public int size() {
+		return records.length;
+	}
+
+	/**
+	 * Decodes the record at the given position.
+	 *
+	 * @param index
+	 *            The position of the record, between <tt>0</tt> and
+	 *            <tt>size()-1</tt>.
+	 * @return The decoded meta data.
+	 * @throws InexistentKeyException
+	 *             If the record is incomplete.
+	 */
+	@Override
+	public MetaDataWrapper get(final int index) {
+		final int record = records[index];
+		if (!tape.isObject(record)) {
+			throw new InvalidJsonException("Data set expected");
+		}
+		final int id = tape.get(record, MetaDataManager.idKey);
+		final int name = tape.get(record, MetaDataManager.nameKey);
+		final int description = tape.get(record,
+				MetaDataManager.descriptionKey);
+		final int numberOfFiles = tape.get(record,
+				MetaDataManager.filecountKey);
+		final int size = tape.get(record, MetaDataManager.sizeKey);
+		final int timestamp = tape.get(record, MetaDataManager.timestampKey);
+		if (id < 0 || name < 0 || numberOfFiles < 0 || size < 0
+				|| timestamp < 0) {
+			throw new InexistentKeyException("Incomplete data set: "
+					+ (id < 0 ? null : tape.getString(id)));
+		}
+		return new MetaDataWrapper(tape.getString(id), tape.getString(name),
+				description < 0 ? "" : tape.getString(description),
+				(int) tape.getDouble(numberOfFiles),
+				(long) tape.getDouble(size), tape.getDate(timestamp));
+	}
+
+	@Override
+	public MetaDataWrapper find(final String id) {
+		for (int i = 0; i < records.length; i++) {
+			if (!tape.isObject(records[i])) {
+				continue;
+			}
+			final int node = tape.get(records[i], MetaDataManager.idKey);
+			if (node >= 0 && tape.textEquals(node, id)) {
+				return get(i);
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public MetaDataWrapper[] readAll() {
+		final MetaDataWrapper[] out = new MetaDataWrapper[records.length];
+		for (int i = 0; i < records.length; i++) {
+			out[i] = get(i);
+		}
+		return out;
+	}
+}
@@ -0,0 +1,268 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+/**
+ * The {@link MetaDataColumns} hold the meta data of a {@link MetaDataStorage}
+ * column by column: One primitive array per field, indexed by a <i>row</i>
+ * number. Names and descriptions are dictionary encoded, see
+ * {@link StringDictionary}. <br />
+ * Thus checking a condition on many rows is a loop over a few arrays, and
+ * {@link MetaDataWrapper} objects are only created for the rows returned, see
+ * {@link #get(int)}.
+ * <p>
+ * The IDs are kept as two <tt>long</tt>s (see {@link DatasetIds}) and only
+ * converted into strings for the rows returned. IDs which are not canonical
+ * are kept as strings aside.
+ * </p>
+ * <p>
+ * The rows of removed meta data are reused by later additions.
+ * </p>
+ */
+class MetaDataColumns {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	/**
+	 * The most significant bits of the canonical IDs.
+	 */
+	private long[] idHighs = new long[INITIAL_CAPACITY];
+
+	/**
+	 * The least significant bits of the canonical IDs.
+	 */
+	private long[] idLows = new long[INITIAL_CAPACITY];
+
+	/**
+	 * The IDs which are not canonical, by row.
+	 */
+	private final HashMap<Integer, String> otherIds = new HashMap<Integer, String>();
+
+	/**
+	 * The time stamps in milliseconds since the epoch.
+	 */
+	private long[] timestamps = new long[INITIAL_CAPACITY];
+
+	private long[] sizes = new long[INITIAL_CAPACITY];
+
+	private int[] fileCounts = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The codes of the names in {@link #strings}.
+	 */
+	private int[] names = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The codes of the descriptions in {@link #strings}.
+	 */
+	private int[] descriptions = new int[INITIAL_CAPACITY];
+
+	/**
+	 * The dictionary of names and descriptions.
+	 */
+	private final StringDictionary strings = new StringDictionary();
+
+	/**
+	 * The rows which were used before, but are free now.
+	 */
+	private int[] free = new int[16];
+
+	private int freeCount = 0;
+
+	/**
+	 * The number of rows ever used.
+	 */
+	private int used = 0;
+
+	/**
+	 * Stores the given meta data in a free row.
+	 *
+	 * @param meta
+	 *            The meta data to store.
+	 * @return The row of the meta data.
+	 */
+	public int add(final MetaDataWrapper meta) {
+		final int row;
+		if (freeCount > 0) {
+			row = free[--freeCount];
+		} else {
+			if (used == timestamps.length) {
+				grow(used * 2);
+			}
+			row = used++;
+		}
+		final String id = meta.getId();
+		if (DatasetIds.isCanonical(id)) {
+			idHighs[row] = DatasetIds.high(id);
+			idLows[row] = DatasetIds.low(id);
+		} else {
+			otherIds.put(row, id);
+		}
+		timestamps[row] = meta.getTimestamp().getTime();
+		sizes[row] = meta.getSize();
+		fileCounts[row] = meta.getNumberOfFiles();
+		names[row] = strings.add(meta.getName());
+		descriptions[row] = strings.add(meta.getDescription());
+		return row;
+	}
+
+	/**
+	 * Frees the given row.
+	 *
+	 * @param row
+	 *            The row to free.
+	 */
+	public void remove(final int row) {
+		if (!otherIds.isEmpty()) {
+			otherIds.remove(row);
+		}
+		strings.release(names[row]);
+		strings.release(descriptions[row]);
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, freeCount * 2);
+		}
+		free[freeCount++] = row;
+	}
+
+	/**
+	 * Creates the meta data of the given row.
+	 *
+	 * @param row
+	 *            The row of the meta data.
+	 * @return The meta data.
+	 */
+	public MetaDataWrapper get(final int row) {
+		return new MetaDataWrapper(getId(row), strings.get(names[row]),
+				strings.get(descriptions[row]), fileCounts[row], sizes[row],
+				new Date(timestamps[row]));
+	}
+
+	/**
+	 * Returns the ID of the given row as string.
+	 *
+	 * @param row
+	 *            The row.
+	 * @return The ID.
+	 */
+	public String getId(final int row) {
+		if (!otherIds.isEmpty()) {
+			final String id = otherIds.get(row);
+			if (id != null) {
+				return id;
+			}
+		}
+		return DatasetIds.toString(idHighs[row], idLows[row]);
+	}
+
+	public long getIdHigh(final int row) {
+		return idHighs[row];
+	}
+
+	public long getIdLow(final int row) {
+		return idLows[row];
+	}
+
+	/**
+	 * Returns whether the ID of the given row is canonical, thus only kept as
+	 * {@link #getIdHigh(int)} and {@link #getIdLow(int)}.
+	 *
+	 * @param row
+	 *            The row.
+	 * @return <tt>true</tt> if the ID is canonical.
+	 */
+	public boolean hasCanonicalId(final int row) {
+		return otherIds.isEmpty() || !otherIds.containsKey(row);
+	}
+
+	/**
+	 * Compares the IDs of two rows in the order of their strings.
+	 *
+	 * @param row1
+	 *            The first row.
+	 * @param row2
+	 *            The second row.
+	 * @return A negative number, zero or a positive number if the first ID is
+	 *         less than, equal to or greater than the second.
+	 */
+	public int compareIds(final int row1, final int row2) {
+		if (hasCanonicalId(row1) && hasCanonicalId(row2)) {
+			return DatasetIds.compare(idHighs[row1], idLows[row1],
+					idHighs[row2], idLows[row2]);
+		}
+		return getId(row1).compareTo(getId(row2));
+	}
+
+	/**
+	 * Compares the ID of a row to the given one in the order of their
+	 * strings.
+	 *
+	 * @param row
+	 *            The row.
+	 * @param id
+	 *            The ID to compare to.
+	 * @return A negative number, zero or a positive number if the ID of the
+	 *         row is less than, equal to or greater than the given one.
+	 */
+	public int compareId(final int row, final String id) {
+		if (hasCanonicalId(row) && DatasetIds.isCanonical(id)) {
+			return DatasetIds.compare(idHighs[row], idLows[row],
+					DatasetIds.high(id), DatasetIds.low(id));
+		}
+		return getId(row).compareTo(id);
+	}
+
+	/**
+	 * Returns the time stamp of the given row.
+	 *
+	 * @param row
+	 *            The row.
+	 * @return The time stamp in milliseconds since the epoch.
+	 */
+	public long getTimestamp(final int row) {
+		return timestamps[row];
+	}
+
+	public int getName(final int row) {
+		return names[row];
+	}
+
+	public int getDescription(final int row) {
+		return descriptions[row];
+	}
+
+	/**
+	 * Returns the dictionary of the names and descriptions.
+	 *
+	 * @return The dictionary.
+	 */
+	public StringDictionary getStrings() {
+		return strings;
+	}
+
+	/**
+	 * Reserves rows for the given number of meta data, e.g. before a bulk
+	 * load.
+	 *
+	 * @param capacity
+	 *            The number of rows needed.
+	 */
+	public void ensureCapacity(final int capacity) {
+		if (capacity > timestamps.length) {
+			grow(capacity);
+		}
+	}
+
+	private void grow(final int capacity) {
+		idHighs = Arrays.copyOf(idHighs, capacity);
+		idLows = Arrays.copyOf(idLows, capacity);
+		timestamps = Arrays.copyOf(timestamps, capacity);
+		sizes = Arrays.copyOf(sizes, capacity);
+		fileCounts = Arrays.copyOf(fileCounts, capacity);
+		names = Arrays.copyOf(names, capacity);
+		descriptions = Arrays.copyOf(descriptions, capacity);
+	}
+}
@@ -7,6 +7,8 @@ import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
 class MetaDataComparator implements Comparator<MetaDataWrapper> {
 	@Override
 	public int compare(MetaDataWrapper md1, MetaDataWrapper md2) {
-		return md1.getTimestamp().compareTo(md2.getTimestamp());
+		final int out = md1.getTimestamp().compareTo(md2.getTimestamp());
+		// ties are ordered by ID, as in the storage's time index
+		return out != 0 ? out : md1.getId().compareTo(md2.getId());
 	}
 }
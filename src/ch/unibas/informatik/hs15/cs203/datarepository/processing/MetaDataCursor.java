@@ -0,0 +1,50 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.MetaData;
+
+/**
+ * A {@link MetaDataCursor} iterates over the meta data matching a query, see
+ * {@link PagedDataRepository#getMetaData(ch.unibas.informatik.hs15.cs203.datarepository.api.Criteria, int, String, Order)}
+ * . <br />
+ * The meta data is fetched page by page, thus only a single page is held in
+ * memory at a time, no matter how many meta data match. The iteration can be
+ * interrupted at any point and resumed later (e.g. by another process) with
+ * the token returned by {@link #getResumeToken()}.
+ * <p>
+ * <b>Note: A cursor keeps the repository open and must be closed.</b>
+ * </p>
+ */
+public interface MetaDataCursor extends Iterator<MetaData>, Closeable {
+
+	/**
+	 * The order in which a cursor returns the meta data.
+	 */
+	public enum Order {
+		/**
+		 * Oldest first, by time stamp.
+		 */
+		ASCENDING,
+		/**
+		 * Newest first, by time stamp.
+		 */
+		DESCENDING
+	}
+
+	/**
+	 * Returns the token to resume the iteration after the meta data returned
+	 * last by {@link #next()}.
+	 * 
+	 * @return The resume token or <tt>null</tt> if {@link #next()} has not
+	 *         been invoked yet.
+	 */
+	public String getResumeToken();
+
+	/**
+	 * Closes this cursor and releases the repository.
+	 */
+	@Override
+	public void close();
+}
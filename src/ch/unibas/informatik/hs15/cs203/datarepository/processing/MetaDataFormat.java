@@ -0,0 +1,106 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * The on-disk formats of the meta data file.
+ * <p>
+ * The format of an existing meta data file is detected by its leading bytes,
+ * see {@link #detect(Path)}. The format written on the next compaction can be
+ * chosen with the system property {@value #FORMAT_PROPERTY_KEY} (values
+ * <tt>json</tt> or <tt>binary</tt>). If the requested format differs from the
+ * one on disk, the repository gets migrated the next time it is closed. Without
+ * such a property the format on disk is kept and new repositories are written
+ * in {@link #JSON}.
+ * </p>
+ * <p>
+ * A JSON meta data file is read completely when the repository is opened,
+ * unless the system property {@value #LAZY_JSON_PROPERTY_KEY} is
+ * <tt>true</tt>: Then it is opened as {@link JsonMetaDataFile} and, like a
+ * binary one, only decoded completely once the whole storage is needed.
+ * </p>
+ */
+enum MetaDataFormat {
+	/**
+	 * The original, human-readable JSON format.
+	 */
+	JSON,
+	/**
+	 * The compact binary format, see {@link BinaryMetaDataFile}.
+	 */
+	BINARY;
+
+	/**
+	 * The system property key to request a meta data format. The value is:
+	 * {@value}
+	 */
+	public static final String FORMAT_PROPERTY_KEY = "datarepository.metadata.format";
+
+	/**
+	 * The system property key to open JSON meta data files lazily. The value
+	 * is: {@value}
+	 */
+	public static final String LAZY_JSON_PROPERTY_KEY = "datarepository.metadata.lazy-json";
+
+	/**
+	 * Returns whether JSON meta data files are to be opened lazily, see
+	 * {@link #LAZY_JSON_PROPERTY_KEY}.
+	 *
+	 * @return <tt>true</tt> if the system property is <tt>true</tt>.
+	 */
+	public static boolean isLazyJson() {
+		return Boolean.getBoolean(LAZY_JSON_PROPERTY_KEY);
+	}
+
+	/**
+	 * Returns the format requested by the system property
+	 * {@value #FORMAT_PROPERTY_KEY} or <tt>null</tt> if none is requested.
+	 *
+	 * @return The requested format or <tt>null</tt>.
+	 * @throws IllegalArgumentException
+	 *             If the property's value is not a known format.
+	 */
+	public static MetaDataFormat requested() {
+		final String value = System.getProperty(FORMAT_PROPERTY_KEY);
+		if (value == null || value.isEmpty()) {
+			return null;
+		}
+		try {
+			return valueOf(value.trim().toUpperCase());
+		} catch (final IllegalArgumentException ex) {
+			throw new IllegalArgumentException(String.format(
+					"Unknown meta data format <%s>. Use json or binary.",
+					value));
+		}
+	}
+
+	/**
+	 * Detects the format of the given, existing meta data file.
+	 *
+	 * @param file
+	 *            The meta data file.
+	 * @return {@link #BINARY} if the file starts with the binary magic number,
+	 *         {@link #JSON} otherwise.
+	 * @throws IOException
+	 *             If the file could not be read.
+	 */
+	public static MetaDataFormat detect(final Path file) throws IOException {
+		final InputStream in = Files.newInputStream(file);
+		try {
+			int magic = 0;
+			for (int i = 0; i < 4; i++) {
+				final int b = in.read();
+				if (b < 0) {
+					return JSON;
+				}
+				magic = (magic << 8) | b;
+			}
+			return magic == BinaryMetaDataFile.MAGIC ? BINARY : JSON;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+import util.logging.Logger;
+
+/**
+ * The {@link MetaDataJournal} is an append-only log of meta data mutations.
+ * <br />
+ * Instead of rewriting the whole meta data file on every single add or
+ * remove, the {@link MetaDataManager} appends one small record per mutation
+ * to the journal. The meta data file itself becomes a snapshot which gets
+ * compacted from time to time. On startup the snapshot is parsed and the
+ * journal replayed on top of it.
+ * <p>
+ * The journal is a sequence of binary records, each of the following form:
+ * <ul>
+ * <li><tt>'A'</tt> id name description filecount size timestamp - for an added
+ * meta data</li>
+ * <li><tt>'R'</tt> id - for a removed meta data</li>
+ * </ul>
+ * Strings are written with {@link DataOutputStream#writeUTF(String)}, the file
+ * count as <tt>int</tt>, the size and the timestamp (epoch milliseconds) as
+ * <tt>long</tt>. The id is written as string, not in the numeric form of
+ * {@link DatasetIds}: The journal only holds the mutations since the last
+ * compaction, and its records are converted when replayed into the storage.
+ * </p>
+ * <p>
+ * Replaying is idempotent: An add record overwrites an existing entry with the
+ * same id and a remove record for an unknown id is ignored. Thus replaying the
+ * journal on top of a snapshot which already contains some of its records
+ * (e.g. after a crash during compaction) results in the very same state.
+ * </p>
+ * <p>
+ * Every record is forced to the disk before the append method returns, thus a
+ * mutation which has been reported as done survives a crash of the machine,
+ * not only of the JVM. This costs one synchronous write per mutation, which is
+ * small compared to copying the data set itself.
+ * </p>
+ */
+class MetaDataJournal implements Closeable {
+
+	private static final Logger LOG = Logger.getLogger(MetaDataJournal.class);
+
+	private static final byte ADD_RECORD = 'A';
+	private static final byte REMOVE_RECORD = 'R';
+
+	/**
+	 * The path to the journal file.
+	 */
+	private final Path path;
+
+	private DataOutputStream out = null;
+
+	/**
+	 * The channel of {@link #out}, to force the records to the disk.
+	 */
+	private FileChannel channel = null;
+
+	/**
+	 * The number of records currently in the journal.
+	 */
+	private int records = 0;
+
+	/**
+	 * Creates a new {@link MetaDataJournal} for the given file. The file is
+	 * not touched until either {@link #load()} or one of the
+	 * append methods is invoked.
+	 *
+	 * @param path
+	 *            The path to the journal file.
+	 */
+	public MetaDataJournal(final Path path) {
+		this.path = path;
+	}
+
+	/**
+	 * Applies the given changes, as returned by {@link #load()}, to the given
+	 * storage.
+	 *
+	 * @param changes
+	 *            The changes to apply.
+	 * @param storage
+	 *            The storage to apply the changes on.
+	 */
+	public static void apply(final Map<String, MetaDataWrapper> changes,
+			final MetaDataStorage storage) {
+		for (final Map.Entry<String, MetaDataWrapper> change : changes
+				.entrySet()) {
+			final MetaDataWrapper existing = storage.get(change.getKey());
+			if (existing != null) {
+				storage.remove(existing);
+			}
+			if (change.getValue() != null) {
+				storage.put(change.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Reads the journal and returns the latest change per id. <br />
+	 * Since every record overwrites the state of its id, only the last record
+	 * per id matters: The returned map contains for every id in the journal
+	 * either the meta data of its last add record or <tt>null</tt> if the
+	 * last record was a remove record. <br />
+	 * A truncated last record (e.g. due to a crash while appending) is
+	 * discarded and cut off the journal file.
+	 *
+	 * @return The latest change per id.
+	 * @throws IOException
+	 *             If the journal could not be read.
+	 */
+	public Map<String, MetaDataWrapper> load() throws IOException {
+		records = 0;
+		final Map<String, MetaDataWrapper> changes = new LinkedHashMap<String, MetaDataWrapper>();
+		if (!Files.exists(path, LinkOption.NOFOLLOW_LINKS)) {
+			return changes;
+		}
+		final byte[] content = Files.readAllBytes(path);
+		final ByteArrayInputStream bytes = new ByteArrayInputStream(content);
+		final DataInputStream in = new DataInputStream(bytes);
+		int valid = 0;
+		try {
+			while (bytes.available() > 0) {
+				final byte type = in.readByte();
+				if (type == ADD_RECORD) {
+					final MetaDataWrapper meta = readMeta(in);
+					changes.put(meta.getId(), meta);
+				} else if (type == REMOVE_RECORD) {
+					changes.put(in.readUTF(), null);
+				} else {
+					LOG.error("Unknown journal record type: " + type);
+					break;
+				}
+				records++;
+				valid = content.length - bytes.available();
+			}
+		} catch (final EOFException ex) {
+			LOG.warn("Discarding truncated journal record at offset "
+					+ valid);
+		}
+		if (valid < content.length) {
+			truncate(valid);
+		}
+		return changes;
+	}
+
+	/**
+	 * Appends an add record for the given meta data.
+	 *
+	 * @param meta
+	 *            The added meta data.
+	 * @throws IOException
+	 *             If the record could not be written.
+	 */
+	public void appendAdd(final MetaDataWrapper meta) throws IOException {
+		final DataOutputStream dos = getOutput();
+		dos.writeByte(ADD_RECORD);
+		dos.writeUTF(meta.getId());
+		dos.writeUTF(meta.getName());
+		dos.writeUTF(meta.getDescription());
+		dos.writeInt(meta.getNumberOfFiles());
+		dos.writeLong(meta.getSize());
+		dos.writeLong(meta.getTimestamp().getTime());
+		sync(dos);
+		records++;
+	}
+
+	/**
+	 * Appends a remove record for the given meta data.
+	 *
+	 * @param meta
+	 *            The removed meta data.
+	 * @throws IOException
+	 *             If the record could not be written.
+	 */
+	public void appendRemove(final MetaDataWrapper meta) throws IOException {
+		final DataOutputStream dos = getOutput();
+		dos.writeByte(REMOVE_RECORD);
+		dos.writeUTF(meta.getId());
+		sync(dos);
+		records++;
+	}
+
+	/**
+	 * Returns the number of records in this journal.
+	 *
+	 * @return The number of records in this journal.
+	 */
+	public int size() {
+		return records;
+	}
+
+	/**
+	 * Discards every record of this journal. Invoke this method only after the
+	 * journal's records have been persisted in a snapshot.
+	 *
+	 * @throws IOException
+	 *             If the journal could not be cleared.
+	 */
+	public void clear() throws IOException {
+		close();
+		Files.deleteIfExists(path);
+		records = 0;
+	}
+
+	/**
+	 * Closes the underlying file, if any was opened.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (out != null) {
+			try {
+				out.close();
+			} finally {
+				out = null;
+				channel = null;
+			}
+		}
+	}
+
+	private DataOutputStream getOutput() throws IOException {
+		if (out == null) {
+			final FileOutputStream file = new FileOutputStream(path.toFile(),
+					true);
+			channel = file.getChannel();
+			out = new DataOutputStream(new BufferedOutputStream(file));
+		}
+		return out;
+	}
+
+	/**
+	 * Writes the buffered record and forces it to the disk. The file's meta
+	 * data (e.g. its modification time) is not forced, only its content and
+	 * length.
+	 */
+	private void sync(final DataOutputStream dos) throws IOException {
+		dos.flush();
+		channel.force(false);
+	}
+
+	private MetaDataWrapper readMeta(final DataInputStream in)
+			throws IOException {
+		final String id = in.readUTF();
+		final String name = in.readUTF();
+		final String description = in.readUTF();
+		final int numberOfFiles = in.readInt();
+		final long size = in.readLong();
+		final Date timestamp = new Date(in.readLong());
+		return new MetaDataWrapper(id, name, description, numberOfFiles, size,
+				timestamp);
+	}
+
+	private void truncate(final long length) throws IOException {
+		final FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.WRITE);
+		try {
+			channel.truncate(length);
+		} finally {
+			channel.close();
+		}
+	}
+}
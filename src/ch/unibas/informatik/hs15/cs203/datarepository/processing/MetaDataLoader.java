@@ -0,0 +1,171 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+/**
+ * The {@link MetaDataLoader} does the expensive parts of loading a large
+ * repository in parallel: Decoding the records of a {@link MetaDataSnapshot}
+ * and sorting them for the indices of the {@link MetaDataStorage}. <br />
+ * Both work on chunks of {@value #CHUNK} records, which are spread across a
+ * fork/join pool with one worker per processor. Smaller inputs are processed
+ * on the calling thread.
+ */
+class MetaDataLoader {
+
+	/**
+	 * The number of records loaded concurrently. Decoding is CPU bound, thus
+	 * this is the number of processors.
+	 */
+	static final int PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The number of records processed by a single task.
+	 */
+	private static final int CHUNK = 4096;
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+	/**
+	 * Decodes every record of the given snapshot.
+	 *
+	 * @param snapshot
+	 *            The snapshot to decode.
+	 * @return All records, in the order of the snapshot.
+	 */
+	static MetaDataWrapper[] decode(final MetaDataSnapshot snapshot) {
+		if (PARALLELISM == 1 || snapshot.size() <= CHUNK) {
+			return snapshot.readAll();
+		}
+		return parallelDecode(snapshot);
+	}
+
+	/**
+	 * Decodes every record of the given snapshot in chunks on the pool,
+	 * whatever the number of processors, see {@link #decode}.
+	 */
+	static MetaDataWrapper[] parallelDecode(final MetaDataSnapshot snapshot) {
+		final int size = snapshot.size();
+		final MetaDataWrapper[] out = new MetaDataWrapper[size];
+		POOL.invoke(new DecodeAction(snapshot, out, 0, size));
+		return out;
+	}
+
+	/**
+	 * Returns a sorted copy of the given entries, e.g. meta data or their
+	 * rows. The chunks are sorted concurrently and merged afterwards.
+	 *
+	 * @param entries
+	 *            The entries to sort.
+	 * @param order
+	 *            The order to sort by.
+	 * @return The sorted copy.
+	 */
+	static <T> T[] sort(final T[] entries, final Comparator<? super T> order) {
+		if (PARALLELISM == 1 || entries.length <= CHUNK) {
+			final T[] out = Arrays.copyOf(entries, entries.length);
+			Arrays.sort(out, order);
+			return out;
+		}
+		return parallelSort(entries, order);
+	}
+
+	/**
+	 * Returns a sorted copy of the given entries, sorting its chunks on the
+	 * pool and merging them whatever the number of processors, see
+	 * {@link #sort}. Like {@link Arrays#sort(Object[], Comparator)}, the sort
+	 * is stable.
+	 */
+	static <T> T[] parallelSort(final T[] entries,
+			final Comparator<? super T> order) {
+		final T[] out = Arrays.copyOf(entries, entries.length);
+		POOL.invoke(new SortAction<T>(out, Arrays.copyOf(entries,
+				entries.length), 0, out.length, order));
+		return out;
+	}
+
+	/**
+	 * Decodes a range of records, splitting it in halves until a single chunk
+	 * remains.
+	 */
+	private static class DecodeAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final MetaDataSnapshot snapshot;
+		private final MetaDataWrapper[] out;
+		private final int from;
+		private final int to;
+
+		DecodeAction(final MetaDataSnapshot snapshot,
+				final MetaDataWrapper[] out, final int from, final int to) {
+			this.snapshot = snapshot;
+			this.out = out;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK) {
+				for (int i = from; i < to; i++) {
+					out[i] = snapshot.get(i);
+				}
+			} else {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new DecodeAction(snapshot, out, from, middle),
+						new DecodeAction(snapshot, out, middle, to));
+			}
+		}
+	}
+
+	/**
+	 * Sorts a range of an array by sorting its halves and merging them, using
+	 * the same range of a second array as buffer.
+	 */
+	private static class SortAction<T> extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final T[] entries;
+		private final T[] buffer;
+		private final int from;
+		private final int to;
+		private final Comparator<? super T> order;
+
+		SortAction(final T[] entries, final T[] buffer, final int from,
+				final int to, final Comparator<? super T> order) {
+			this.entries = entries;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
+			this.order = order;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= CHUNK) {
+				Arrays.sort(entries, from, to, order);
+				return;
+			}
+			final int middle = (from + to) >>> 1;
+			invokeAll(new SortAction<T>(entries, buffer, from, middle, order),
+					new SortAction<T>(entries, buffer, middle, to, order));
+			int left = from;
+			int right = middle;
+			for (int i = from; i < to; i++) {
+				if (right == to || (left < middle && order.compare(
+						entries[left], entries[right]) <= 0)) {
+					buffer[i] = entries[left++];
+				} else {
+					buffer[i] = entries[right++];
+				}
+			}
+			System.arraycopy(buffer, from, entries, from, to - from);
+		}
+	}
+}
@@ -1,10 +1,10 @@
 package ch.unibas.informatik.hs15.cs203.datarepository.processing;
 
 import java.io.Closeable;
-import java.io.FileNotFoundException;
-import java.io.FileWriter;
+import java.io.FileReader;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.nio.channels.FileLock;
 import java.nio.channels.OverlappingFileLockException;
 import java.nio.file.Files;
@@ -13,17 +13,25 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.Version;
+import util.jsontools.InexistentKeyException;
+import util.jsontools.InvalidJsonException;
 import util.jsontools.Json;
-import util.jsontools.JsonParser;
+import util.jsontools.JsonStreamReader;
+import util.jsontools.JsonWriter;
 import util.logging.Logger;
 
 /**
@@ -31,6 +39,35 @@ import util.logging.Logger;
  * meta data file, manipulating meta data during runtime and finally writing
  * meta data to file.
  * <p>
+ * Mutations are not written to the meta data file directly. Each add and remove
+ * appends a single record to the {@link MetaDataJournal}, while the meta data
+ * file serves as snapshot. The snapshot gets compacted (rewritten with the
+ * journal applied) on {@link #close()}, as soon as the journal has grown large
+ * enough compared to the snapshot. Along with the snapshot, the
+ * {@link TrigramIndex} of the stored meta data is persisted.
+ * </p>
+ * <p>
+ * The meta data file is either stored as JSON or in the compact
+ * {@link BinaryMetaDataFile} format, see {@link MetaDataFormat}. A binary
+ * snapshot (and a JSON one, if opened lazily as {@link JsonMetaDataFile}) is
+ * only decoded completely once the whole storage is needed, single meta data
+ * lookups by ID are answered directly from the {@link MetaDataSnapshot}.
+ * Loading the whole storage is spread across all processors by the
+ * {@link MetaDataLoader}.
+ * </p>
+ * <p>
+ * There is at most one instance per repository in this JVM. The instance is
+ * reference counted: It stays loaded as long as any of its users (e.g. a
+ * {@link RepositorySession}) has not closed it yet, thus consecutive
+ * operations on the same repository do not parse the meta data file again.
+ * </p>
+ * <p>
+ * An instance may be shared by several threads, e.g. the ingestion workers of
+ * the server. Every access to the storage and the journal is synchronized on
+ * the instance, thus meta data commits are serialized while the (expensive)
+ * copying of the data sets happens concurrently outside of this class.
+ * </p>
+ * <p>
  * The design of this class and the processing package does <b>not</b> allow two
  * or more processes manipulating the same repository at the same time. Thus
  * this class will fail initialize when the meta data file of the specified
@@ -42,19 +79,32 @@ import util.logging.Logger;
  */
 class MetaDataManager implements Closeable {
 	/**
-	 * Singleton. This is the instance.
+	 * The open instances, by their normalized repository path. There is at
+	 * most one instance per repository, shared by all of its users.
 	 */
-	private static MetaDataManager instance = null;
+	private static final HashMap<String, MetaDataManager> instances = new HashMap<String, MetaDataManager>();
 
 	private static final Logger LOG = Logger.getLogger(MetaDataManager.class);
 
+	/**
+	 * Whether the IDs are time-ordered, see {@link TimeOrderedIds}.
+	 */
+	private static final boolean TIME_ORDERED_IDS = Boolean
+			.getBoolean(TimeOrderedIds.PROPERTY_KEY);
+
 	/**
 	 * Returns a randomly generated {@link UUID}. Use this method to get the the
-	 * ID for a data set.
+	 * ID for a data set.<br />
+	 * If the system property {@value TimeOrderedIds#PROPERTY_KEY} is
+	 * <tt>true</tt>, the UUID is time-ordered instead, see
+	 * {@link TimeOrderedIds}.
 	 * 
 	 * @return A randomly generated UUID.
 	 */
-	public synchronized final static String generateRandomUUID() {
+	public final static String generateRandomUUID() {
+		if (TIME_ORDERED_IDS) {
+			return TimeOrderedIds.next();
+		}
 		return UUID.randomUUID().toString();
 	}
 
@@ -76,18 +126,51 @@ class MetaDataManager implements Closeable {
 	 * The storage of the meta data
 	 */
 	private MetaDataStorage storage = null;
-	private static final String repositoryKey = "repository";
-	private static final String versionKey = "version";
-	private static final String nameKey = "name";
-	private static final String timestampKey = "timestamp";
-	private static final String datasetsKey = "datasets";
-	private static final String idKey = "id";
-	private static final String descriptionKey = "description";
-	private static final String filecountKey = "filecount";
-	private static final String sizeKey = "size";
+	/**
+	 * The key of this instance in {@link #instances}.
+	 */
+	private final String instanceKey;
+	/**
+	 * The number of users of this instance, see
+	 * {@link #getMetaDataManager(String)} and {@link #close()}.
+	 */
+	private int references = 0;
+	/**
+	 * The journal of mutations not yet compacted into the meta data file.
+	 */
+	private final MetaDataJournal journal;
+	/**
+	 * Flag to force a compaction on close, e.g. after a clean up.
+	 */
+	private boolean snapshotOutdated = false;
+	/**
+	 * The format of the meta data file, written on compaction.
+	 */
+	private MetaDataFormat format;
+	/**
+	 * The snapshot as long as the storage is not yet loaded. Is <tt>null</tt>
+	 * for JSON snapshots which are not opened lazily, since these are loaded
+	 * immediately.
+	 */
+	private MetaDataSnapshot snapshot = null;
+	/**
+	 * The journal's changes as long as the storage is not yet loaded.
+	 */
+	private Map<String, MetaDataWrapper> journalChanges = null;
+	static final String repositoryKey = "repository";
+	static final String versionKey = "version";
+	static final String nameKey = "name";
+	static final String timestampKey = "timestamp";
+	static final String datasetsKey = "datasets";
+	static final String idKey = "id";
+	static final String descriptionKey = "description";
+	static final String filecountKey = "filecount";
+	static final String sizeKey = "size";
 
 	@SuppressWarnings("unused")
 	private static final String filetypeKey = "filetype";
+	private static final String[] DATASET_KEYS = datasetKeys(true);
+	private static final String[] DATASET_KEYS_NO_DESCRIPTION = datasetKeys(false);
 	/**
 	 * A prefix for temporary files on the file system.
 	 */
@@ -102,6 +185,30 @@ class MetaDataManager implements Closeable {
 	 */
 	private static final String metaDataFileName = ".metadata";
 
+	/**
+	 * The name of the journal file, next to the meta data file.
+	 */
+	private static final String journalFileName = metaDataFileName
+			+ ".journal";
+
+	/**
+	 * The name of the persisted text index, next to the meta data file.
+	 */
+	private static final String textIndexFileName = metaDataFileName
+			+ ".trigrams";
+
+	/**
+	 * The minimal amount of journal records before a compaction is considered.
+	 */
+	private static final int MIN_COMPACTION_RECORDS = 256;
+
+	/**
+	 * The journal gets compacted as soon as it holds more records than
+	 * <tt>1/COMPACTION_RATIO</tt> of the stored meta data. This keeps the
+	 * amortized costs of a mutation constant.
+	 */
+	private static final int COMPACTION_RATIO = 4;
+
 	/**
 	 * Set this to FALSE to DISABLE file lock!
 	 */
@@ -116,12 +223,14 @@ class MetaDataManager implements Closeable {
 	 */
 
 	/**
-	 * Creates a new {@link MetaDataManager} for the given repository path. If
+	 * Returns the {@link MetaDataManager} for the given repository path. If
 	 * the given path is not yet recognized as repository (has a meta data file
-	 * in it), it will be initialized as one.
+	 * in it), it will be initialized as one. <br />
+	 * If the repository is already open in this JVM, the open instance is
+	 * returned and no file is read.
 	 * 
-	 * <b>Note: The {@link MetaDataManager} must be closed before terminating
-	 * the application</b>.
+	 * <b>Note: Every {@link MetaDataManager} obtained by this method must be
+	 * closed exactly once, before terminating the application</b>.
 	 * 
 	 * In case the given repo path is already a repository and said repository
 	 * is being manipulated by another process of this tool, this method will
@@ -138,57 +247,98 @@ class MetaDataManager implements Closeable {
 	 * @throws IOException
 	 *             If one of the above mentioned cases occurs.
 	 */
-	public static MetaDataManager getMetaDataManager(final String repoPath)
-			throws IllegalArgumentException {
-		try {
-			if (instance == null) {
+	public static synchronized MetaDataManager getMetaDataManager(
+			final String repoPath) throws IllegalArgumentException {
+		final String key = Paths.get(repoPath).toAbsolutePath().normalize()
+				.toString();
+		MetaDataManager mdm = instances.get(key);
+		if (mdm == null) {
+			try {
 				LOG.debug("Created new instance");
-				instance = new MetaDataManager(repoPath);
+				mdm = new MetaDataManager(repoPath, key);
+			} catch (Exception e) {
+				LOG.error("Initialization error: ", e);
+				throw new IllegalArgumentException(
+						"There was an error accessing the metadata Storage. "
+								+ e.getMessage());
 			}
-		} catch (Exception e) {
-			LOG.error("Initialization error: ", e);
-			throw new IllegalArgumentException(
-					"There was an error accessing the metadata Storage. "
-							+ e.getMessage());
+			instances.put(key, mdm);
 		}
-		return instance;
+		mdm.references++;
+		return mdm;
 	}
 
-	private MetaDataManager(final String repoPath) throws IOException {
+	private MetaDataManager(final String repoPath, final String instanceKey)
+			throws IOException {
 		this.repoPath = repoPath;
+		this.instanceKey = instanceKey;
+		this.journal = new MetaDataJournal(Paths.get(repoPath, journalFileName));
 		LOG.config(
 				String.format("Intialicing with repository path %s", repoPath));
 		if (!tryLockMetaDataFile(0)) {
 			throw new RuntimeException(
 					"Could not apply a lock to the metadata. Assuming another data repository accesses it.");
 		}
-		try {
-			metaDataFile = parseMetaDataFile(metaDataFileName);
-		} catch (final FileNotFoundException ex) {
+		final Path metaPath = Paths.get(repoPath, metaDataFileName);
+		final MetaDataFormat requested = MetaDataFormat.requested();
+		if (!Files.exists(metaPath, LinkOption.NOFOLLOW_LINKS)) {
+			format = requested != null ? requested : MetaDataFormat.JSON;
 			metaDataFile = createNewMetaDataFile();
+			snapshotOutdated = true;
+			initStorage(new MetaDataWrapper[0], journal.load());
+		} else {
+			format = MetaDataFormat.detect(metaPath);
+			if (format == MetaDataFormat.BINARY) {
+				final BinaryMetaDataFile binary = BinaryMetaDataFile
+						.open(metaPath);
+				metaDataFile = createMetaDataFile(binary.getVersion(),
+						binary.getTimestamp());
+				snapshot = binary;
+				journalChanges = journal.load();
+				LOG.debug("Mapped binary meta data file, loading deferred");
+			} else if (MetaDataFormat.isLazyJson()) {
+				final JsonMetaDataFile json = JsonMetaDataFile.open(metaPath);
+				metaDataFile = new Json();
+				metaDataFile.addEntry(repositoryKey, json.getRepository());
+				snapshot = json;
+				journalChanges = journal.load();
+				LOG.debug("Indexed JSON meta data file, loading deferred");
+			} else if (MetaDataLoader.PARALLELISM > 1) {
+				// index the file once, then decode its records in parallel
+				final JsonMetaDataFile json = JsonMetaDataFile.open(metaPath);
+				metaDataFile = new Json();
+				metaDataFile.addEntry(repositoryKey, json.getRepository());
+				initStorage(MetaDataLoader.decode(json), journal.load());
+			} else {
+				final List<MetaDataWrapper> entries = new ArrayList<MetaDataWrapper>();
+				metaDataFile = readMetaDataFile(metaPath, entries);
+				initStorage(entries.toArray(new MetaDataWrapper[entries.size()]),
+						journal.load());
+			}
+		}
+		if (requested != null && requested != format) {
+			LOG.info(String.format("Migrating meta data file from %s to %s",
+					format, requested));
+			format = requested;
+			snapshotOutdated = true;
 		}
-		final MetaDataWrapper[] entries = convertCollectionToMeta(Arrays.asList(
-				metaDataFile.getJsonObject(repositoryKey).getSet(datasetsKey)));
-		initStorage(entries);
 	}
 
 	/**
-	 * Adds and writes the specified {@link MetaDataWrapper} to the meta data
-	 * file.<br />
-	 * <b>Note: You <i>will</i> need to call {@link MetaDataManager#close()} to
-	 * write the data persistently</b><br />
+	 * Adds the specified {@link MetaDataWrapper} and appends it to the
+	 * journal.<br />
 	 * This method is a shortcut for
 	 * {@link MetaDataManager#putMeta(MetaDataWrapper)} followed by
-	 * {@link MetaDataManager#writeTempMetaFile()}
+	 * {@link MetaDataJournal#appendAdd(MetaDataWrapper)}
 	 * 
 	 * @param meta
 	 * @return
 	 * @throws IOException
 	 *             If the writing fails.
 	 */
-	public boolean add(final MetaDataWrapper meta) throws IOException {
+	public synchronized boolean add(final MetaDataWrapper meta) throws IOException {
 		if (putMeta(meta)) {
-			writeTempMetaFile();
+			journal.appendAdd(meta);
 			return true;
 		} else {
 			return false;
@@ -196,21 +346,19 @@ class MetaDataManager implements Closeable {
 	}
 
 	/**
-	 * Removes the specified meta data and writes this change to the mea data
-	 * file.<br />
-	 * <b>Note: You <i>will</i> need to call {@link MetaDataManager#close()} to
-	 * write the data persistently</b><br />
+	 * Removes the specified meta data and appends this change to the
+	 * journal.<br />
 	 * This method is a shortcut for
 	 * {@link MetaDataManager#removeMeta(MetaDataWrapper)} followed by
-	 * {@link MetaDataManager#writeTempMetaFile()}
+	 * {@link MetaDataJournal#appendRemove(MetaDataWrapper)}
 	 * 
 	 * @param meta
 	 * @return
 	 * @throws IOException
 	 */
-	public boolean remove(final MetaDataWrapper meta) throws IOException {
+	public synchronized boolean remove(final MetaDataWrapper meta) throws IOException {
 		if (meta.equals(removeMeta(meta))) {
-			writeTempMetaFile();
+			journal.appendRemove(meta);
 			return true;
 		} else {
 			return false;
@@ -222,21 +370,19 @@ class MetaDataManager implements Closeable {
 	 * specified strategy. <br />
 	 * The internal storage is passed to the strategy as well as the repository
 	 * path, with which this {@link MetaDataManager} was initialized.<br />
-	 * <b>Note: After the clean up, the meta data file gets written temporarily
-	 * and thus this manager needs to be {@link #close()}d for a persistent
-	 * cleaned meta data file.</b>
+	 * <b>Note: If the clean up altered the storage, the meta data file gets
+	 * compacted on {@link #close()}.</b>
 	 * 
 	 * @param strategy
 	 *            The cleanup strategy to use.
 	 * @return The amount of altered entries.
-	 * @throws IOException
-	 *             If an error occurred while writing the temporary meta data
-	 *             file.
 	 * @see CleanupStrategy#clean(MetaDataStorage, Path)
 	 */
-	public int runCleanUp(CleanupStrategy strategy) throws IOException {
-		int out = strategy.clean(storage, Paths.get(repoPath));
-		writeTempMetaFile();
+	public synchronized int runCleanUp(CleanupStrategy strategy) {
+		int out = strategy.clean(getStorage(), Paths.get(repoPath));
+		if (out > 0) {
+			snapshotOutdated = true;
+		}
 		return out;
 	}
 
@@ -245,26 +391,38 @@ class MetaDataManager implements Closeable {
 	 * this method before terminating the application</b> Or otherwise the
 	 * repository gets corrupted and will not be accessible for a long time.
 	 * 
-	 * In particular the lock of the meta data file gets released as well as the
-	 * temporary written meta data gets moved to stay permanently.
+	 * As long as other users of this instance have not closed it yet, this
+	 * only releases the caller's reference. The last close releases the lock of
+	 * the meta data file and, if the journal has grown large enough, compacts
+	 * the meta data file.
 	 */
 	@Override
 	public void close() throws IllegalArgumentException {
-		try {
-			releaseLock();
-			if (Files.exists(Paths.get(repoPath, tmpLabel + metaDataFileName),
-					LinkOption.NOFOLLOW_LINKS)) {
-				Files.move(Paths.get(repoPath, tmpLabel + metaDataFileName),
-						Paths.get(repoPath, metaDataFileName),
-						StandardCopyOption.REPLACE_EXISTING,
-						StandardCopyOption.ATOMIC_MOVE);
+		synchronized (MetaDataManager.class) {
+			if (references == 0) {
+				LOG.warn("Closed an already closed instance");
+				return;
+			}
+			if (--references > 0) {
+				return;
+			}
+			instances.remove(instanceKey);
+			// still holding the class lock, so the repository cannot be
+			// reopened before its files are written completely
+			synchronized (this) {
+				try {
+					if (snapshotOutdated || isCompactionDue()) {
+						compact();
+					}
+					journal.close();
+					releaseLock();
+				} catch (Exception e) {
+					LOG.error("Something went wrong", e);
+					throw new IllegalArgumentException(
+							"There was an error while writing Metadata. "
+									+ e.getMessage());
+				}
 			}
-			instance = null;
-		} catch (Exception e) {
-			LOG.error("Something went wrong", e);
-			throw new IllegalArgumentException(
-					"There was an error while writing Metadata. "
-							+ e.getMessage());
 		}
 	}
 
@@ -274,31 +432,63 @@ class MetaDataManager implements Closeable {
 	 * @return
 	 * @see MetaDataStorage#getAll()
 	 */
-	public List<MetaDataWrapper> getAllMetaData() {
-		return Arrays.asList(storage.getAll());
+	public synchronized List<MetaDataWrapper> getAllMetaData() {
+		return Arrays.asList(getStorage().getAll());
 	}
 
 	/**
-	 * Returns the meta data which fulfill the criteria completely.
+	 * Returns the meta data which fulfill the criteria completely, ordered by
+	 * their time stamp.
 	 * 
 	 * @param criteria
 	 * @return
 	 * @see MetaDataStorage#get(CriteriaWrapper)
 	 */
-	public List<MetaDataWrapper> getMatchingMeta(
+	public synchronized List<MetaDataWrapper> getMatchingMeta(
 			final CriteriaWrapper criteria) {
-		return storage.get(criteria);
+		return getStorage().get(criteria);
+	}
+
+	/**
+	 * Returns a page of the meta data which fulfill the criteria completely,
+	 * continuing after the given position.
+	 * 
+	 * @param criteria
+	 * @param fromTime
+	 * @param fromId
+	 * @param descending
+	 * @param limit
+	 * @return
+	 * @see MetaDataStorage#get(CriteriaWrapper, Date, String, boolean, int)
+	 */
+	public synchronized List<MetaDataWrapper> getMatchingMeta(
+			final CriteriaWrapper criteria, final Date fromTime,
+			final String fromId, final boolean descending, final int limit) {
+		return getStorage().get(criteria, fromTime, fromId, descending, limit);
 	}
 
 	/**
-	 * Returns the meta data with matching ID or null.
+	 * Returns the meta data with matching ID or null. <br />
+	 * As long as the storage is not loaded, the meta data is looked up in the
+	 * journal and the snapshot directly. Like the
+	 * {@link SimpleExistsCleanupStrategy}, meta data without data set folder is
+	 * treated as inexistent.
 	 * 
 	 * @param id
 	 * @return
 	 * @see MetaDataStorage#get(String)
 	 */
-	public MetaDataWrapper getMeta(final String id) {
-		return storage.get(id);
+	public synchronized MetaDataWrapper getMeta(final String id) {
+		if (storage != null) {
+			return storage.get(id);
+		}
+		final MetaDataWrapper meta = journalChanges.containsKey(id)
+				? journalChanges.get(id) : snapshot.find(id);
+		if (meta == null || !Files.exists(Paths.get(repoPath, meta.getId()),
+				LinkOption.NOFOLLOW_LINKS)) {
+			return null;
+		}
+		return meta;
 	}
 
 	/**
@@ -309,8 +499,8 @@ class MetaDataManager implements Closeable {
 	 * @return TRUE if successful
 	 * @see MetaDataStorage#put(MetaDataWrapper)
 	 */
-	public boolean putMeta(final MetaDataWrapper meta) {
-		return storage.put(meta);
+	public synchronized boolean putMeta(final MetaDataWrapper meta) {
+		return getStorage().put(meta);
 	}
 
 	/**
@@ -322,57 +512,172 @@ class MetaDataManager implements Closeable {
 	 * @return The removed meta data or <tt>null</tt> if nothing got removed.
 	 * @see MetaDataStorage#remove(MetaDataWrapper)
 	 */
-	public MetaDataWrapper removeMeta(final MetaDataWrapper meta) {
-		return storage.remove(meta);
+	public synchronized MetaDataWrapper removeMeta(final MetaDataWrapper meta) {
+		return getStorage().remove(meta);
+	}
+
+	/**
+	 * Writes the current state of the storage as new snapshot to the meta data
+	 * file and clears the journal afterwards. <br />
+	 * The snapshot is written to a temporary file first, which then gets
+	 * atomically moved onto the meta data file. Thus a crash during compaction
+	 * leaves either the old snapshot with the complete journal or the new
+	 * snapshot (with the journal, which replays idempotently). Like the
+	 * journal's records, the new snapshot is forced to the disk before the
+	 * journal gets cleared.
+	 * 
+	 * @throws IOException
+	 *             If writing the snapshot fails.
+	 */
+	public synchronized void compact() throws IOException {
+		LOG.debug(String.format(
+				"Compacting %d journal records into the meta data file",
+				journal.size()));
+		final Path tmpPath = Paths.get(repoPath, tmpLabel + metaDataFileName);
+		if (format == MetaDataFormat.BINARY) {
+			final Json repo = metaDataFile.getJsonObject(repositoryKey);
+			BinaryMetaDataFile.write(tmpPath, repo.getString(versionKey),
+					repo.getDate(timestampKey), getStorage().getAll());
+		} else {
+			writeTempMetaFile();
+		}
+		force(tmpPath);
+		Files.move(tmpPath,
+				Paths.get(repoPath, metaDataFileName),
+				StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		journal.clear();
+		snapshotOutdated = false;
+		writeTextIndex();
 	}
 
-	public void writeTempMetaFile() throws IOException {
-		final FileWriter fw = new FileWriter(
-				Paths.get(repoPath, tmpLabel + metaDataFileName).toFile());
-		putStorageToJson();
+	/**
+	 * Persists the storage's text index for the freshly compacted meta data
+	 * file. Since the index is rebuilt if missing, a failure is not fatal.
+	 */
+	private void writeTextIndex() {
+		final Path indexPath = Paths.get(repoPath, textIndexFileName);
 		try {
-			fw.write(metaDataFile.toJson());
-			fw.flush();
+			getStorage().getTextIndex().write(indexPath,
+					Paths.get(repoPath, metaDataFileName));
+		} catch (IOException ex) {
+			LOG.warn("Could not persist the text index: " + ex.getMessage());
+			try {
+				Files.deleteIfExists(indexPath);
+			} catch (IOException ignored) {
+				// an outdated index gets ignored on load anyway
+			}
+		}
+	}
+
+	/**
+	 * Writes the JSON meta data file. The data sets are streamed from the
+	 * storage, the file is the same as if it was written with
+	 * {@link Json#toJson()} though.
+	 */
+	private void writeTempMetaFile() throws IOException {
+		final JsonWriter out = new JsonWriter(FileChannel.open(
+				Paths.get(repoPath, tmpLabel + metaDataFileName),
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.WRITE), Charset.defaultCharset());
+		try {
+			out.beginObject();
+			for (final Object key : metaDataFile.getMap().keySet()) {
+				if (!repositoryKey.equals(key)) {
+					out.entry(metaDataFile, (String) key);
+					continue;
+				}
+				final Json repo = metaDataFile.getJsonObject(repositoryKey);
+				out.name(repositoryKey);
+				out.beginObject();
+				for (final Object repoKey : repo.getMap().keySet()) {
+					if (datasetsKey.equals(repoKey)) {
+						out.name(datasetsKey);
+						writeDatasets(out);
+					} else {
+						out.entry(repo, (String) repoKey);
+					}
+				}
+				out.endObject();
+			}
+			out.endObject();
 		} catch (IOException ex) {
 			LOG.error("An i/o error occured: ", ex);
 			throw ex;
 		} finally {
-			fw.close();
-			releaseLock();
+			out.close();
 		}
+	}
 
-		// System.gc();//is this necessary?
+	private void writeDatasets(final JsonWriter out) throws IOException {
+		// Json#dateToISO8601 creates a new format per date
+		final DateFormat dateFormat = new SimpleDateFormat(
+				"yyyy-MM-dd'T'HH:mm:ss");
+		out.beginArray();
+		for (final MetaDataWrapper data : getStorage().getAll()) {
+			out.beginObject();
+			for (final String key : data.getDescription() != null ? DATASET_KEYS
+					: DATASET_KEYS_NO_DESCRIPTION) {
+				out.name(key);
+				switch (key) {
+				case idKey:
+					out.value(data.getId());
+					break;
+				case nameKey:
+					out.value(data.getName());
+					break;
+				case filecountKey:
+					out.value(data.getNumberOfFiles());
+					break;
+				case sizeKey:
+					out.value(data.getSize());
+					break;
+				case timestampKey:
+					out.value(dateFormat.format(data.getTimestamp()));
+					break;
+				default:
+					out.value(data.getDescription());
+				}
+			}
+			out.endObject();
+		}
+		out.endArray();
 	}
-	
+
 	/**
-	 * Converts a given collection of json objects into their metadata objects
-	 * and returns them as a metadata array. <b>NOTE: This method permits null
-	 * or empty collections as input and will return in those collections return
-	 * a new metadata array which is <i>empty</i></b>
-	 * 
-	 * @param collection
-	 *            The collection of json objects to convert.
-	 * @return Either an array of {@link MetaDataWrapper} objects which got
-	 *         converted from their JSON equivalents or an empty
-	 *         <tt>MetaDataWrapper</tt> array if either <tt>collection</tt> was
-	 *         <code>null</code>or empty.
-	 */
-	private MetaDataWrapper[] convertCollectionToMeta(
-			final Collection<Json> collection) {
-		if (collection == null || collection.isEmpty()) {
-			return new MetaDataWrapper[0];
-		} // assert collection is neither null nor empty
-		final MetaDataWrapper[] out = new MetaDataWrapper[collection.size()];
-		int i = 0;
-		for (final Json json : collection) {
-			// could throw InexistentKeyException but json *should* be well
-			// formed
-			out[i++] = extractMetaData(json);
+	 * Forces the content of the given file to the disk.
+	 */
+	private static void force(final Path file) throws IOException {
+		final FileChannel channel = FileChannel.open(file,
+				StandardOpenOption.WRITE);
+		try {
+			channel.force(true);
+		} finally {
+			channel.close();
 		}
-		return out;
 	}
 
-	private Json createJsonMetaEntry(final MetaDataWrapper data) {
+	/**
+	 * Returns the order of a data set's entries in the JSON meta data file,
+	 * which is the order of the {@link Json} object created by
+	 * {@link #createJsonMetaEntry(MetaDataWrapper)}.
+	 */
+	private static String[] datasetKeys(final boolean description) {
+		final Json template = createJsonMetaEntry(new MetaDataWrapper("id", "name",
+				description ? "" : null, 0, 0, new Date(0)));
+		final Set<?> keys = template.getMap().keySet();
+		return keys.toArray(new String[keys.size()]);
+	}
+
+	private boolean isCompactionDue() {
+		final int size = storage != null ? storage.size()
+				: snapshot.size();
+		final int threshold = Math.max(MIN_COMPACTION_RECORDS,
+				size / COMPACTION_RATIO);
+		return journal.size() >= threshold;
+	}
+	
+	private static Json createJsonMetaEntry(final MetaDataWrapper data) {
 		final Json json = new Json();
 		json.addEntry(idKey, data.getId());
 		json.addEntry(nameKey, data.getName());
@@ -386,9 +691,14 @@ class MetaDataManager implements Closeable {
 	}
 
 	private Json createNewMetaDataFile() {
+		return createMetaDataFile(Version.VERSION, new Date());
+	}
+
+	private Json createMetaDataFile(final String version,
+			final Date timestamp) {
 		final Json repo = new Json();
-		repo.addEntry(versionKey, Version.VERSION);
-		repo.addEntry(timestampKey, new Date());
+		repo.addEntry(versionKey, version);
+		repo.addEntry(timestampKey, timestamp);
 		final Json[] emptyDatasets = new Json[0];
 		repo.addEntry(datasetsKey, emptyDatasets);
 		final Json out = new Json();
@@ -396,40 +706,150 @@ class MetaDataManager implements Closeable {
 		return out;
 	}
 
-	private MetaDataWrapper extractMetaData(final Json dataset) {
-		final String id = dataset.getString(idKey);
-		final String name = dataset.getString(nameKey);
+	/**
+	 * Reads the next data set of the given stream, without building a
+	 * {@link Json} object for it. Unknown entries are skipped.
+	 */
+	private MetaDataWrapper readDataset(final JsonStreamReader json)
+			throws IOException {
+		if (json.next() != JsonStreamReader.Token.START_OBJECT) {
+			throw new InvalidJsonException("Data set expected");
+		}
+		String id = null;
+		String name = null;
 		String description = "";
-		if (dataset.containsKey(descriptionKey)) {
-			description = dataset.getString(descriptionKey);
+		String numberOfFiles = null;
+		String size = null;
+		String timestamp = null;
+		while (json.next() == JsonStreamReader.Token.NAME) {
+			final String key = json.getText();
+			if (json.peek() == JsonStreamReader.Token.START_OBJECT
+					|| json.peek() == JsonStreamReader.Token.START_ARRAY) {
+				json.skipValue();
+				continue;
+			}
+			json.next();
+			switch (key) {
+			case idKey:
+				id = json.getText();
+				break;
+			case nameKey:
+				name = json.getText();
+				break;
+			case descriptionKey:
+				description = json.getText();
+				break;
+			case filecountKey:
+				numberOfFiles = json.getText();
+				break;
+			case sizeKey:
+				size = json.getText();
+				break;
+			case timestampKey:
+				timestamp = json.getText();
+				break;
+			default:
+				// e.g. the former filetype
+			}
+		}
+		if (id == null || name == null || numberOfFiles == null
+				|| size == null || timestamp == null) {
+			throw new InexistentKeyException("Incomplete data set: " + id);
+		}
+		return new MetaDataWrapper(id, name, description,
+				(int) Double.parseDouble(numberOfFiles),
+				(long) Double.parseDouble(size), Json.iso8601ToDate(timestamp));
+	}
+
+	/**
+	 * Returns the storage, loading it from the snapshot first if that has not
+	 * happened yet.
+	 */
+	private MetaDataStorage getStorage() {
+		if (storage == null) {
+			initStorage(MetaDataLoader.decode(snapshot), journalChanges);
+			snapshot = null;
+			journalChanges = null;
 		}
-		final int numberOfFiles = (int) dataset.getDouble(filecountKey);
-		final long size = (long) dataset.getDouble(sizeKey);
-		final Date timestamp = dataset.getDate(timestampKey);
-		return new MetaDataWrapper(id, name, description, numberOfFiles, size,
-				timestamp);
+		return storage;
 	}
 
-	private void initStorage(final MetaDataWrapper[] entries) {
+	private void initStorage(final MetaDataWrapper[] entries,
+			final Map<String, MetaDataWrapper> changes) {
 		if (storage != null) {
 			LOG.error("Cannot initialize storage twice");
 			throw new IllegalStateException("Cannot intialize storage twice!");
 		}
-		storage = new MetaDataStorage(entries);
-		LOG.debug("Initialized storage");
+		final TrigramIndex textIndex = TrigramIndex.read(
+				Paths.get(repoPath, textIndexFileName),
+				Paths.get(repoPath, metaDataFileName));
+		storage = new MetaDataStorage(entries, textIndex);
+		LOG.debug(textIndex != null ? "Initialized storage with persisted text index"
+				: "Initialized storage");
+		MetaDataJournal.apply(changes, storage);
+		LOG.debug(String.format("Replayed %d journal records",
+				journal.size()));
 		LOG.debug("Performing cleanup on storage");
-		try {
-			runCleanUp(new SimpleExistsCleanupStrategy() );
-		} catch (IOException e) {
-			LOG.error("Error while writing tmp metadata file: ", e);
-			throw new RuntimeException("Error while writing tmp metadata file: ", e);
-		}
+		runCleanUp(new SimpleExistsCleanupStrategy() );
 	}
 
-	private Json parseMetaDataFile(final String file) throws IOException {
-		final JsonParser parser = new JsonParser();
-		return parser.parseFile(
-				Paths.get(repoPath, metaDataFileName).toFile().getPath());
+	/**
+	 * Reads the JSON meta data file in a single pass. The data sets are
+	 * streamed one by one into the given list, all other entries end up in the
+	 * returned {@link Json} object, whose data sets are empty. <br />
+	 * This is used on a single processor only, otherwise the records are
+	 * decoded in parallel by the {@link MetaDataLoader}.
+	 */
+	private Json readMetaDataFile(final Path path,
+			final List<MetaDataWrapper> entries) throws IOException {
+		final JsonStreamReader json = new JsonStreamReader(new FileReader(
+				path.toFile()));
+		try {
+			if (json.next() != JsonStreamReader.Token.START_OBJECT) {
+				throw new InvalidJsonException("Meta data file expected");
+			}
+			final Json out = new Json();
+			while (json.next() == JsonStreamReader.Token.NAME) {
+				if (!repositoryKey.equals(json.getText())) {
+					json.skipValue();
+					continue;
+				}
+				if (json.next() != JsonStreamReader.Token.START_OBJECT) {
+					throw new InvalidJsonException("Repository expected");
+				}
+				final Json repo = new Json();
+				while (json.next() == JsonStreamReader.Token.NAME) {
+					final String key = json.getText();
+					switch (json.peek()) {
+					case START_ARRAY:
+						if (!datasetsKey.equals(key)) {
+							json.skipValue();
+							break;
+						}
+						json.next();
+						while (json.peek() != JsonStreamReader.Token.END_ARRAY) {
+							entries.add(readDataset(json));
+						}
+						json.next();
+						break;
+					case START_OBJECT:
+						repo.addEntry(key, json.readObject());
+						break;
+					default:
+						json.next();
+						repo.addEntry(key, json.getText());
+					}
+				}
+				repo.addEntry(datasetsKey, new Json[0]);
+				out.addEntry(repositoryKey, repo);
+			}
+			if (!out.containsKey(repositoryKey)) {
+				throw new InexistentKeyException(repositoryKey);
+			}
+			return out;
+		} finally {
+			json.close();
+		}
 	}
 
 	private boolean releaseLock() throws IOException {
@@ -443,17 +863,6 @@ class MetaDataManager implements Closeable {
 		return true;
 	}
 
-	private void putStorageToJson() {
-		final MetaDataWrapper[] datas = storage.getAll();
-		final Json[] entries = new Json[datas.length];
-		for (int i = 0; i < datas.length; i++) {
-			entries[i] = createJsonMetaEntry(datas[i]);
-		}
-		metaDataFile.getJsonObject(repositoryKey).removeEntry(datasetsKey);
-		metaDataFile.getJsonObject(repositoryKey).addEntry(datasetsKey,
-				entries);
-	}
-
 	private boolean tryLockMetaDataFile(int attempt) {
 		if (!safeMode) {
 			return true;
@@ -0,0 +1,46 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+/**
+ * A meta data file which is opened without decoding its records. The
+ * {@link MetaDataManager} answers single lookups from the snapshot directly
+ * and decodes all records only once the whole storage is needed.
+ */
+interface MetaDataSnapshot {
+
+	/**
+	 * Returns the number of records in this snapshot.
+	 *
+	 * @return The number of records.
+	 */
+	public int size();
+
+	/**
+	 * Decodes the record at the given position. This method may be invoked by
+	 * several threads at once.
+	 *
+	 * @param index
+	 *            The position of the record, between <tt>0</tt> and
+	 *            <tt>size()-1</tt>.
+	 * @return The decoded meta data.
+	 */
+	public MetaDataWrapper get(int index);
+
+	/**
+	 * Finds the record with the given id, decoding as little as possible.
+	 *
+	 * @param id
+	 *            The id to look for.
+	 * @return The meta data with the given id or <tt>null</tt> if there is
+	 *         none.
+	 */
+	public MetaDataWrapper find(String id);
+
+	/**
+	 * Decodes every record of this snapshot.
+	 *
+	 * @return All records.
+	 */
+	public MetaDataWrapper[] readAll();
+}
@@ -2,14 +2,17 @@ package ch.unibas.informatik.hs15.cs203.datarepository.processing;
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.Vector;
+import java.util.TreeSet;
 
 import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
 import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
@@ -19,7 +22,7 @@ import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
  * data.<br />
  * Further this class also is capable of handling queries with
  * {@link CriteriaWrapper} objects.<br />
- * 
+ *
  * <p>
  * The most commonly used methods of this class are:
  * <ul>
@@ -32,53 +35,125 @@ import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
  * </ul>
  * But there are more uses.
  * </p>
- * 
+ * <p>
+ * Besides the primary index by ID, the storage maintains an index by time
+ * stamp, one by name and a {@link TrigramIndex} for text snippets. Queries
+ * are planned on these indices, see
+ * {@link #get(CriteriaWrapper)}.
+ * </p>
+ * <p>
+ * The meta data itself is stored column by column in {@link MetaDataColumns}
+ * and the indices refer to its rows. Thus the conditions of a query are
+ * checked on primitive arrays and dictionary codes, and
+ * {@link MetaDataWrapper} objects are only created for the meta data
+ * returned. The IDs are kept as two <tt>long</tt>s, which are hashed by the
+ * {@link IdIndex} and compared numerically by the other indices, see
+ * {@link DatasetIds}.
+ * </p>
+ *
  * @author Loris
- * 
+ *
  */
 class MetaDataStorage {
 
-	private final TreeMap<String, MetaDataWrapper> idMap = new TreeMap<String, MetaDataWrapper>();
-	private final TreeMap<Date, Vector<String>> timeMap = new TreeMap<Date, Vector<String>>();
+	/**
+	 * The meta data, column by column.
+	 */
+	private final MetaDataColumns columns = new MetaDataColumns();
+
+	/**
+	 * The order of the rows of {@link #columns} by ID.
+	 */
+	private final Comparator<Integer> idOrder = new Comparator<Integer>() {
+		@Override
+		public int compare(final Integer o1, final Integer o2) {
+			return columns.compareIds(o1, o2);
+		}
+	};
+
+	/**
+	 * The ID index, pointing to the rows of {@link #columns}.
+	 */
+	private final IdIndex idMap = new IdIndex(columns);
+	/**
+	 * The time index, by milliseconds since the epoch. The rows per time stamp
+	 * are sorted by ID, thus ties are ordered by ID.
+	 */
+	private final TreeMap<Long, Rows> timeMap = new TreeMap<Long, Rows>();
+	/**
+	 * The name index, by the name's code in the dictionary of
+	 * {@link #columns}.
+	 */
+	private final HashMap<Integer, Rows> nameMap = new HashMap<Integer, Rows>();
+	/**
+	 * The text index.
+	 */
+	private final TrigramIndex textIndex;
 
 	/**
 	 * Creates an initially empty {@link MetaDataStorage}.
-	 * 
+	 *
 	 */
 	public MetaDataStorage() {
 		this(null);
 	}
 
 	public MetaDataStorage(final MetaDataWrapper[] entries) {
+		this(entries, null);
+	}
+
+	/**
+	 * Creates a {@link MetaDataStorage} with the given entries and an already
+	 * built text index for them, e.g. a persisted one.
+	 *
+	 * @param entries
+	 *            The entries to store.
+	 * @param textIndex
+	 *            The text index of exactly these entries or <tt>null</tt> to
+	 *            build it.
+	 */
+	public MetaDataStorage(final MetaDataWrapper[] entries,
+			final TrigramIndex textIndex) {
+		this.textIndex = textIndex != null ? textIndex : new TrigramIndex();
 		if (entries != null && entries.length > 0) {
-			initMap(entries);
+			initMap(entries, textIndex == null);
 		}
 	}
 
 	/**
 	 * Returns <tt>true</tt> if this storage does not contain any meta data
 	 * object.
-	 * 
+	 *
 	 * @return <tt>true</tt> if this storage does not contain any meta data
 	 *         object.
 	 */
 	public boolean isEmpty() {
-		return timeMap.isEmpty();
+		return idMap.size() == 0;
 	}
 
 	/**
 	 * Returns a list of meta data objects fulfilling all of the specified
-	 * criteria.<br />
-	 * This method is designed to use with a specific query for meta data
-	 * objects fulfilling a certain criteria. If the <tt>criteria</tt> asks for
-	 * every meta data object in this storage, it is recommended to use
-	 * {@link MetaDataStorage#getAll()} instead. Further if the criteria queries
-	 * for a certain ID, the appropriate method would be
-	 * {@link MetaDataStorage#get(String)}. For convince this method still
-	 * returns valid results for the above mentioned cases.<br />
+	 * criteria, ordered by their time stamp.<br />
+	 * If the criteria queries for a certain ID, the appropriate method would
+	 * be {@link MetaDataStorage#get(String)}. For convince this method still
+	 * returns valid results for this case.<br />
+	 * The query is planned on the most selective index available:
+	 * <ol>
+	 * <li>An exact name is looked up in the name index and only the data sets
+	 * with that name are checked.</li>
+	 * <li>A text of at least {@value TrigramIndex#N} characters is looked up
+	 * in the text index and only the data sets containing all of its trigrams
+	 * are checked.</li>
+	 * <li>Otherwise only the time range between <tt>after</tt> and
+	 * <tt>before</tt> of the time index is visited, which is the whole index
+	 * if neither is given.</li>
+	 * </ol>
+	 * The remaining conditions (e.g. the text) are checked on these candidates
+	 * only. Thus a range-limited query scales with the size of the range, not
+	 * with the size of the storage.<br />
 	 * <b>Note: The resulting list is not <tt>null</tt>-proof (therefore may
 	 * contains null entries).</b>
-	 * 
+	 *
 	 * @param criteria
 	 *            The conditions to fulfill.
 	 * @return A list of meta data objects fulfilling all of the specified
@@ -86,82 +161,159 @@ class MetaDataStorage {
 	 *         found.
 	 * @throws IllegalArgumentException
 	 *             If the given criteria is <tt>null</tt>.
-	 * @throws IllegalStateException
-	 *             If the storage is empty.
 	 */
 	public List<MetaDataWrapper> get(final CriteriaWrapper criteria) {
+		return get(criteria, null, null, false, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Returns a page of the meta data objects fulfilling all of the specified
+	 * criteria. This method is planned the same way as
+	 * {@link #get(CriteriaWrapper)}, but visits the time index only from the
+	 * given position on and stops as soon as the page is full. <br />
+	 * The position is given by the time stamp and ID of the last meta data of
+	 * the previous page, which is not part of the returned page.
+	 *
+	 * @param criteria
+	 *            The conditions to fulfill.
+	 * @param fromTime
+	 *            The time stamp to continue after or <tt>null</tt> to start
+	 *            at the beginning.
+	 * @param fromId
+	 *            The ID to continue after, if <tt>fromTime</tt> is set.
+	 * @param descending
+	 *            Whether the page is ordered by descending time stamp.
+	 * @param limit
+	 *            The maximal size of the page.
+	 * @return A page of meta data objects fulfilling all of the specified
+	 *         criteria.
+	 * @throws IllegalArgumentException
+	 *             If the given criteria is <tt>null</tt>.
+	 */
+	public List<MetaDataWrapper> get(final CriteriaWrapper criteria,
+			final Date fromTime, final String fromId, final boolean descending,
+			final int limit) {
 		if (criteria == null) {
 			throw new IllegalArgumentException("CriteriaWrapper is null");
 		}
+		final List<MetaDataWrapper> out = new ArrayList<MetaDataWrapper>();
 		if (isEmpty()) {
-			return new ArrayList<MetaDataWrapper>();
-		}
-		final Vector<MetaDataWrapper> out = new Vector<MetaDataWrapper>();
-		// ALL META DATA WANTED
-		final CriteriaWrapper allRef = CriteriaWrapper.all();
-		if (allRef.equals(criteria)) {
-			return Arrays.asList(getAll());
+			return out;
 		}
-		// SINGLE ID WANTED
-		if (criteria.getId() != null) {
-			out.add(get(criteria.getId()));
+		final Plan plan = plan(criteria);
+		if (plan == Plan.ID) {
+			// SINGLE ID WANTED
+			final MetaDataWrapper meta = get(criteria.getId());
+			if (fromTime == null
+					|| isBeyond(meta, fromTime, fromId, descending)) {
+				out.add(meta);
+			}
 			return out;
 		}
-		// COMBINATION OF CONDITIONS
-		final Vector<String> ids = new Vector<String>();
-		for(MetaDataWrapper meta : idMap.values() ){
-			if(criteria.matches(meta)){
-				ids.add(meta.getId());
+		final Filter filter = new Filter(criteria);
+		if (plan == Plan.NAME) {
+			// EXACT NAME: NAME INDEX
+			final Rows rows = nameMap.get(filter.name);
+			if (rows == null) {
+				return out;
+			}
+			for (int i = 0; i < rows.size; i++) {
+				addCandidate(out, rows.rows[i], filter, fromTime, fromId,
+						descending);
+			}
+		} else if (plan == Plan.TEXT) {
+			// TEXT SNIPPET: TEXT INDEX
+			for (final String id : textIndex.candidates(criteria.getText())) {
+				final int row = idMap.get(id);
+				if (row >= 0) {
+					addCandidate(out, row, filter, fromTime, fromId,
+							descending);
+				}
 			}
+		} else {
+			// TIME RANGE: TIME INDEX
+			scanTimeIndex(out, filter, fromTime, fromId, descending, limit);
+			return out;
+		}
+		Collections.sort(out, descending ? Collections
+				.reverseOrder(new MetaDataComparator())
+				: new MetaDataComparator());
+		return out.size() > limit ? new ArrayList<MetaDataWrapper>(out.subList(
+				0, limit)) : out;
+	}
+
+	/**
+	 * Returns the index the given query is planned on, see
+	 * {@link #get(CriteriaWrapper)}.
+	 *
+	 * @param criteria
+	 *            The conditions to fulfill.
+	 * @return The index to answer the query from.
+	 */
+	static Plan plan(final CriteriaWrapper criteria) {
+		if (criteria.getId() != null) {
+			return Plan.ID;
+		} else if (criteria.getName() != null) {
+			return Plan.NAME;
+		} else if (criteria.getText() != null
+				&& criteria.getText().length() >= TrigramIndex.N) {
+			return Plan.TEXT;
+		} else {
+			return Plan.TIME;
 		}
-		return getAll(ids);
 	}
 
 	/**
 	 * Returns the {@link MetaDataWrapper} with specified ID. If no meta data
 	 * with such an ID was found, <tt>null</tt> is returned.
-	 * 
+	 *
 	 * @param id
 	 *            The ID of the meta data to get.
 	 * @return The found meta data with specified ID or <tt>null</tt> if none
 	 *         exists with such an ID.
-	 * @see TreeMap#get(Object)
-	 * @throws IllegalStateException
-	 *             If the storage is empty.
 	 */
 	public MetaDataWrapper get(final String id) {
 		if(isEmpty()){
 			return null;
 		}
-		return idMap.get(id);
+		final int row = idMap.get(id);
+		return row >= 0 ? columns.get(row) : null;
 	}
 
 	/**
-	 * Returns all stored {@link MetaDataWrapper} objects in a single array.
-	 * 
+	 * Returns all stored {@link MetaDataWrapper} objects in a single array,
+	 * ordered by their ID.
+	 *
 	 * @return All stored meta data objects in a single array.
-	 * @throws IllegalStateException
-	 *             If the storage is empty.
 	 */
 	public MetaDataWrapper[] getAll() {
 		if (isEmpty()) {
 			return new MetaDataWrapper[0];
 		}
-		return idMap.values().toArray(new MetaDataWrapper[0]);
+		final Integer[] rows = sortedRows();
+		final MetaDataWrapper[] out = new MetaDataWrapper[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			out[i] = columns.get(rows[i]);
+		}
+		return out;
 	}
 
 	/**
 	 * Returns all IDs known to this {@link MetaDataStorage}. <br />
 	 * It is granted, that to every single entry of the returning list, the IDs,
 	 * a meta data entry in this storage exists.
-	 * 
+	 *
 	 * @return All known IDs.
 	 */
 	public Set<String> getAllIDs() {
 		if (isEmpty()) {
 			return new HashSet<String>();
 		}
-		return idMap.keySet();
+		final Set<String> out = new TreeSet<String>();
+		for (final int row : idMap.rows()) {
+			out.add(columns.getId(row));
+		}
+		return out;
 	}
 
 	/**
@@ -173,7 +325,7 @@ class MetaDataStorage {
 	 * <tt>meta</tt>'s ID must be new to the storage.<br />
 	 * <b>Note: If you want to replace a meta data then use the appropriate
 	 * method</b><br />
-	 * 
+	 *
 	 * @param meta
 	 *            The meta data to put. This meta data must not have been put
 	 *            previously or be <tt>null</tt>
@@ -187,17 +339,20 @@ class MetaDataStorage {
 		if (meta == null) {
 			throw new IllegalArgumentException("Cannot put meta data null.");
 		}
-		final boolean idRes = putId(meta);
-		boolean timeRes = false;
-		if (idRes) {
-			timeRes = putTime(meta);
+		if (idMap.get(meta.getId()) >= 0) {
+			return false;
 		}
-		return idRes && timeRes;
+		final int row = columns.add(meta);
+		idMap.add(row);
+		rowsOf(timeMap, columns.getTimestamp(row)).insert(row);
+		rowsOf(nameMap, columns.getName(row)).insert(row);
+		textIndex.add(meta);
+		return true;
 	}
 
 	/**
 	 * Removes the specified {@link MetaDataWrapper} object from this storage.
-	 * 
+	 *
 	 * @param meta
 	 *            The meta data object to remove.
 	 * @return The removed meta data or <tt>null</tt> if none got removed.
@@ -206,18 +361,23 @@ class MetaDataStorage {
 	 */
 	public MetaDataWrapper remove(final MetaDataWrapper meta) {
 		validateNotEmpty("remove");
-		if (removeTime(meta)) {
-			return removeID(meta);
-		} else {
-			throw new IllegalStateException(
-					"Could not entirely remove meta data with id: "
+		final int row = idMap.remove(meta.getId());
+		if (row < 0) {
+			throw new IllegalArgumentException(
+					"Cannot remove inexistent meta data with id: "
 							+ meta.getId());
 		}
+		final MetaDataWrapper removed = columns.get(row);
+		removeRow(timeMap, columns.getTimestamp(row), row);
+		removeRow(nameMap, columns.getName(row), row);
+		textIndex.remove(removed);
+		columns.remove(row);
+		return removed;
 	}
 
 	/**
 	 * Returns the size of this storage.
-	 * 
+	 *
 	 * @return The size of this storage a.k.a. the number of meta data objects
 	 *         stored.
 	 */
@@ -225,158 +385,226 @@ class MetaDataStorage {
 		return idMap.size();
 	}
 
-	private List<String> findAfter(final Date after) {
-		final Vector<String> out = new Vector<String>();
-		final Collection<Vector<String>> idLists = timeMap.tailMap(after, true)
-				.values();
-		for (final Vector<String> ids : idLists) {
-			out.addAll(ids);
-		}
-		return out;
+	/**
+	 * Returns the text index of this storage, e.g. to persist it.
+	 *
+	 * @return The text index.
+	 */
+	public TrigramIndex getTextIndex() {
+		return textIndex;
 	}
 
-	private List<String> findBefore(final Date before) {
-		final Vector<String> out = new Vector<String>();
-		final Collection<Vector<String>> idLists = timeMap
-				.headMap(before, true).values();
-		for (final Vector<String> ids : idLists) {
-			out.addAll(ids);
+	/**
+	 * Adds the meta data of the given row to the unsorted result, if it
+	 * fulfills the filter and comes after the given position.
+	 */
+	private void addCandidate(final List<MetaDataWrapper> out, final int row,
+			final Filter filter, final Date fromTime, final String fromId,
+			final boolean descending) {
+		if (filter.matches(row)
+				&& isBeyond(row, fromTime, fromId, descending)) {
+			out.add(columns.get(row));
 		}
-		return out;
 	}
 
-	private List<String> findDescriptionContains(final String snippet) {
-		final Vector<String> out = new Vector<String>();
-		final Iterator<String> idIt = idMap.keySet().iterator();
-		while (idIt.hasNext()) {
-			final String currID = idIt.next();
-			final String currDesc = idMap.get(currID).getDescription();
-			if (currDesc.contains(snippet)) {
-				out.add(currID);
-			}
+	/**
+	 * Visits the time index in the direction of the traversal, from the given
+	 * position on, and adds the meta data fulfilling the filter until the
+	 * page is full.
+	 */
+	private void scanTimeIndex(final List<MetaDataWrapper> out,
+			final Filter filter, final Date fromTime, final String fromId,
+			final boolean descending, final int limit) {
+		NavigableMap<Long, Rows> range = findRange(filter.criteria, fromTime,
+				descending);
+		if (descending) {
+			range = range.descendingMap();
 		}
-		return out;
-	}
-
-	private List<String> findForName(final String name) {
-		final Vector<String> out = new Vector<String>();
-		final Iterator<String> idIt = idMap.keySet().iterator();
-		while (idIt.hasNext()) {
-			final String currID = idIt.next();
-			final String currName = idMap.get(currID).getName();
-			if (currName.equals(name)) {
-				out.add(currID);
+		for (final Map.Entry<Long, Rows> bucket : range.entrySet()) {
+			final Rows rows = bucket.getValue();
+			int from = 0;
+			int to = rows.size;
+			if (fromTime != null
+					&& bucket.getKey().longValue() == fromTime.getTime()) {
+				if (descending) {
+					to = rows.search(fromId, false);
+				} else {
+					from = rows.search(fromId, true);
+				}
+			}
+			for (int i = 0; i < to - from; i++) {
+				final int row = rows.rows[descending ? to - 1 - i : from + i];
+				if (filter.matches(row)) {
+					out.add(columns.get(row));
+					if (out.size() >= limit) {
+						return;
+					}
+				}
 			}
 		}
-		return out;
 	}
 
-	private List<String> findNameContains(final String snippet) {
-		final Vector<String> out = new Vector<String>();
-		final Iterator<String> idIt = idMap.keySet().iterator();
-		while (idIt.hasNext()) {
-			final String currID = idIt.next();
-			final String currName = idMap.get(currID).getName();
-			if (currName.contains(snippet)) {
-				out.add(currID);
+	/**
+	 * Returns the part of the time index strictly between the criteria's
+	 * bounds, further limited to the time stamps from <tt>fromTime</tt> on
+	 * (inclusive) in the direction of the traversal.
+	 *
+	 * @param criteria
+	 *            The criteria with the exclusive bounds <tt>after</tt> and
+	 *            <tt>before</tt>, both optional.
+	 * @param fromTime
+	 *            The time stamp to continue at or <tt>null</tt> for none.
+	 * @param descending
+	 *            Whether the range is traversed by descending time stamp.
+	 * @return A view of the time index within the bounds.
+	 */
+	private NavigableMap<Long, Rows> findRange(
+			final CriteriaWrapper criteria, final Date fromTime,
+			final boolean descending) {
+		Date low = criteria.getAfter();
+		boolean lowInclusive = false;
+		Date high = criteria.getBefore();
+		boolean highInclusive = false;
+		if (fromTime != null && !descending
+				&& (low == null || fromTime.after(low))) {
+			low = fromTime;
+			lowInclusive = true;
+		} else if (fromTime != null && descending
+				&& (high == null || fromTime.before(high))) {
+			high = fromTime;
+			highInclusive = true;
+		}
+		if (low != null && high != null) {
+			final int cmp = low.compareTo(high);
+			if (cmp > 0 || (cmp == 0 && !(lowInclusive && highInclusive))) {
+				return new TreeMap<Long, Rows>();
 			}
+			return timeMap.subMap(low.getTime(), lowInclusive,
+					high.getTime(), highInclusive);
+		} else if (low != null) {
+			return timeMap.tailMap(low.getTime(), lowInclusive);
+		} else if (high != null) {
+			return timeMap.headMap(high.getTime(), highInclusive);
+		} else {
+			return timeMap;
 		}
-		return out;
 	}
 
-	private List<String> findTextContains(final String text) {
-		final List<String> names = findNameContains(text);
-		final List<String> desc = findDescriptionContains(text);
-		names.addAll(desc);
-		return names;
+	/**
+	 * Returns <tt>true</tt> if the given meta data comes after the given
+	 * position in the order of traversal.
+	 */
+	private static boolean isBeyond(final MetaDataWrapper meta,
+			final Date fromTime, final String fromId, final boolean descending) {
+		if (fromTime == null) {
+			return true;
+		}
+		if (meta == null) {
+			return false;
+		}
+		int cmp = meta.getTimestamp().compareTo(fromTime);
+		if (cmp == 0) {
+			cmp = meta.getId().compareTo(fromId);
+		}
+		return descending ? cmp < 0 : cmp > 0;
 	}
 
 	/**
-	 * Currently returning list contains null entries when an non-existent id is
-	 * given.
-	 * 
-	 * @param ids
-	 * @return
+	 * Returns <tt>true</tt> if the meta data of the given row comes after the
+	 * given position in the order of traversal.
 	 */
-	private List<MetaDataWrapper> getAll(final List<String> ids) {
-		final Vector<MetaDataWrapper> out = new Vector<MetaDataWrapper>();
-		if (ids != null && ids.size() > 0) {
-			for (final String id : ids) {
-				out.add(idMap.get(id));
-			}
+	private boolean isBeyond(final int row, final Date fromTime,
+			final String fromId, final boolean descending) {
+		if (fromTime == null) {
+			return true;
 		}
-		return out;
+		final long time = columns.getTimestamp(row);
+		int cmp = time < fromTime.getTime() ? -1
+				: time > fromTime.getTime() ? 1 : 0;
+		if (cmp == 0) {
+			cmp = columns.compareId(row, fromId);
+		}
+		return descending ? cmp < 0 : cmp > 0;
 	}
 
-	private void initMap(final MetaDataWrapper[] entries) {
-		for (final MetaDataWrapper m : entries) {
-			final boolean s = put(m);
-			if (!s) {
-				throw new Error("Duplicate ID while initMap: " + m.getId());
+	/**
+	 * Bulk-builds the indices of an empty storage: The rows are sorted by ID
+	 * and by time stamp (see {@link MetaDataLoader#sort}) and the other
+	 * indices are built from these sorted runs: Every bucket of rows gets
+	 * filled in order by appending, instead of inserting every single row at
+	 * its position.
+	 */
+	private void initMap(final MetaDataWrapper[] entries,
+			final boolean indexText) {
+		final Integer[] rows = new Integer[entries.length];
+		columns.ensureCapacity(entries.length);
+		idMap.ensureCapacity(entries.length);
+		for (int i = 0; i < entries.length; i++) {
+			if (idMap.get(entries[i].getId()) >= 0) {
+				throw new Error("Duplicate ID while initMap: "
+						+ entries[i].getId());
+			}
+			rows[i] = columns.add(entries[i]);
+			idMap.add(rows[i]);
+			if (indexText) {
+				textIndex.add(entries[i]);
 			}
 		}
-	}
+		for (final int row : MetaDataLoader.sort(rows, idOrder)) {
+			// the IDs arrive sorted, thus appending keeps the rows sorted
+			rowsOf(nameMap, columns.getName(row)).append(row);
+		}
 
-	private boolean putId(final MetaDataWrapper meta) {
-		if (!idMap.containsKey(meta.getId())) {
-			idMap.put(meta.getId(), meta);
-			return true;
-		} else {
-			return false;
+		final Integer[] byTime = MetaDataLoader.sort(rows,
+				new Comparator<Integer>() {
+					@Override
+					public int compare(final Integer o1, final Integer o2) {
+						final long t1 = columns.getTimestamp(o1);
+						final long t2 = columns.getTimestamp(o2);
+						return t1 < t2 ? -1 : t1 > t2 ? 1 : columns.compareIds(o1,
+							o2);
+					}
+				});
+		Rows bucket = null;
+		long time = 0;
+		for (final int row : byTime) {
+			if (bucket == null || columns.getTimestamp(row) != time) {
+				time = columns.getTimestamp(row);
+				bucket = new Rows();
+				// ascending keys, thus always the rightmost leaf of the tree
+				timeMap.put(time, bucket);
+			}
+			bucket.append(row);
 		}
 	}
 
-	private MetaDataWrapper removeID(final MetaDataWrapper meta) {
-		if (!idMap.containsKey(meta.getId())) {
-			throw new IllegalArgumentException(
-					"Cannot remove inexistent meta data with id: "
-							+ meta.getId());
-		} else {
-			return idMap.remove(meta.getId());
+	/**
+	 * Returns the rows of all meta data, sorted by ID.
+	 */
+	private Integer[] sortedRows() {
+		final int[] rows = idMap.rows();
+		final Integer[] out = new Integer[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			out[i] = rows[i];
 		}
+		return MetaDataLoader.sort(out, idOrder);
 	}
 
-	private boolean putTime(final MetaDataWrapper meta) {
-		final Date d = meta.getTimestamp();
-		if (!timeMap.containsKey(d)) {
-			final Vector<String> v = new Vector<String>();
-			v.add(meta.getId());
-			timeMap.put(d, v);
-			return true;
-		} else {
-			final Vector<String> v = timeMap.get(d);
-			if (v != null && !v.contains(meta.getId())) {
-				v.add(meta.getId());
-				return true;
-			}
-			return false;
+	private <K> Rows rowsOf(final Map<K, Rows> index, final K key) {
+		Rows rows = index.get(key);
+		if (rows == null) {
+			rows = new Rows();
+			index.put(key, rows);
 		}
+		return rows;
 	}
 
-	private boolean removeTime(final MetaDataWrapper meta) {
-		final Date d = meta.getTimestamp();
-		if (!timeMap.containsKey(d)) {
-			// likely already removed
-			return true;
-		} else {
-			Vector<String> ids = timeMap.get(d);
-			if (ids != null) {
-				if (ids.contains(meta.getId())) {
-					if (ids.removeElement(meta.getId())) {
-						// GOT REMOVED
-						return true;
-					} else {
-						// got NOT removed, was NO ELEMENT, throw an error?
-						return false;
-					}
-				} else {
-					// likely already removed
-					return true;
-				}
-			} else {
-				// likely already removed
-				return true;
-			}
+	private <K> void removeRow(final Map<K, Rows> index, final K key,
+			final int row) {
+		final Rows rows = index.get(key);
+		if (rows != null && rows.remove(row) && rows.size == 0) {
+			// no empty entries, the time index gets iterated
+			index.remove(key);
 		}
 	}
 
@@ -386,7 +614,7 @@ class MetaDataStorage {
 					"Cannot perform this operation on empty storage.");
 		}
 	}
-	
+
 	private void validateNotEmpty(String methodName){
 		if(methodName == null){
 			validateNotEmpty();
@@ -397,4 +625,151 @@ class MetaDataStorage {
 		}
 	}
 
+	/**
+	 * The index a query is answered from.
+	 */
+	static enum Plan {
+		/**
+		 * The ID index, for a single ID.
+		 */
+		ID,
+		/**
+		 * The name index, for an exact name.
+		 */
+		NAME,
+		/**
+		 * The text index, for a text of at least {@value TrigramIndex#N}
+		 * characters.
+		 */
+		TEXT,
+		/**
+		 * The time index, limited to the range of the query.
+		 */
+		TIME
+	}
+
+	/**
+	 * The rows of an index entry, sorted by their ID.
+	 */
+	private final class Rows {
+
+		private int[] rows = new int[1];
+
+		private int size = 0;
+
+		/**
+		 * Appends a row whose ID is greater than all the others.
+		 */
+		void append(final int row) {
+			if (size == rows.length) {
+				rows = Arrays.copyOf(rows, size * 2);
+			}
+			rows[size++] = row;
+		}
+
+		void insert(final int row) {
+			int index = 0;
+			int high = size;
+			while (index < high) {
+				final int mid = (index + high) >>> 1;
+				if (columns.compareIds(rows[mid], row) < 0) {
+					index = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			append(row);
+			System.arraycopy(rows, index, rows, index + 1, size - 1 - index);
+			rows[index] = row;
+		}
+
+		boolean remove(final int row) {
+			for (int i = 0; i < size; i++) {
+				if (rows[i] == row) {
+					System.arraycopy(rows, i + 1, rows, i, size - 1 - i);
+					size--;
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * Returns the index of the first row whose ID is greater than the
+		 * given one, or greater or equal if not <tt>after</tt>.
+		 */
+		int search(final String id, final boolean after) {
+			int low = 0;
+			int high = size;
+			while (low < high) {
+				final int mid = (low + high) >>> 1;
+				final int cmp = columns.compareId(rows[mid], id);
+				if (cmp < 0 || (after && cmp == 0)) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			return low;
+		}
+	}
+
+	/**
+	 * The conditions of a {@link CriteriaWrapper}, checked on the rows of
+	 * {@link #columns}: Time stamps are compared as <tt>long</tt> and names as
+	 * dictionary codes. Whether a name or description contains the text is
+	 * checked only once per distinct string.
+	 */
+	private final class Filter {
+
+		private final CriteriaWrapper criteria;
+		private final boolean hasAfter;
+		private final long after;
+		private final boolean hasBefore;
+		private final long before;
+		/**
+		 * The code of the name, <tt>-1</tt> for an unknown name.
+		 */
+		private final int name;
+		private final String text;
+		/**
+		 * Whether the string of a code contains the text: <tt>0</tt> if not yet
+		 * checked, <tt>1</tt> if it does, <tt>2</tt> if it does not.
+		 */
+		private byte[] contained = null;
+
+		Filter(final CriteriaWrapper criteria) {
+			this.criteria = criteria;
+			hasAfter = criteria.getAfter() != null;
+			after = hasAfter ? criteria.getAfter().getTime() : 0;
+			hasBefore = criteria.getBefore() != null;
+			before = hasBefore ? criteria.getBefore().getTime() : 0;
+			name = criteria.getName() != null ? columns.getStrings().code(
+					criteria.getName()) : -1;
+			text = criteria.getText();
+		}
+
+		boolean matches(final int row) {
+			final long time = columns.getTimestamp(row);
+			if ((hasAfter && time <= after) || (hasBefore && time >= before)) {
+				return false;
+			}
+			if (criteria.getName() != null && columns.getName(row) != name) {
+				return false;
+			}
+			return text == null || contains(columns.getName(row))
+					|| contains(columns.getDescription(row));
+		}
+
+		private boolean contains(final int code) {
+			if (contained == null) {
+				contained = new byte[columns.getStrings().capacity()];
+			}
+			if (contained[code] == 0) {
+				contained[code] = (byte) (columns.getStrings().get(code)
+						.contains(text) ? 1 : 2);
+			}
+			return contained[code] == 1;
+		}
+	}
 }
@@ -0,0 +1,36 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.Criteria;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.DataRepository;
+
+/**
+ * A {@link DataRepository} which is able to return the meta data page by page
+ * instead of as one list. <br />
+ * Since the api classes must not be changed, this interface extends the
+ * {@link DataRepository}. Every {@link DataRepository} created by the
+ * {@link Factory} implements it.
+ */
+public interface PagedDataRepository extends DataRepository {
+
+	/**
+	 * Returns a {@link MetaDataCursor} over the meta data matching the given
+	 * criteria, ordered by time stamp.
+	 * 
+	 * @param searchCriteria
+	 *            The criteria to match, same as in
+	 *            {@link DataRepository#getMetaData(Criteria)}.
+	 * @param pageSize
+	 *            The number of meta data fetched at once. Must be positive.
+	 * @param resumeToken
+	 *            A token returned by {@link MetaDataCursor#getResumeToken()}
+	 *            of a previous cursor with the same criteria and order, to
+	 *            continue after it. <tt>null</tt> to start at the beginning.
+	 * @param order
+	 *            The order of the meta data.
+	 * @return An open cursor, which must be closed.
+	 * @throws IllegalArgumentException
+	 *             If one of the arguments is invalid.
+	 */
+	public MetaDataCursor getMetaData(Criteria searchCriteria, int pageSize,
+			String resumeToken, MetaDataCursor.Order order);
+}
@@ -0,0 +1,120 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.MetaData;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+/**
+ * The {@link MetaDataCursor} on a {@link MetaDataManager}. It holds a
+ * reference to the manager until it is closed and fetches one page after the
+ * other from the storage's indices. <br />
+ * A resume token is the time stamp (epoch milliseconds) and the ID of the
+ * last returned meta data, separated by a colon.
+ */
+class PagedMetaDataCursor implements MetaDataCursor {
+
+	private static final char TOKEN_SEPARATOR = ':';
+
+	private MetaDataManager mdm;
+	private final CriteriaWrapper criteria;
+	private final int pageSize;
+	private final boolean descending;
+
+	private Date lastTime = null;
+	private String lastId = null;
+
+	private Iterator<MetaDataWrapper> page = null;
+	/**
+	 * Whether the last fetched page was the last one.
+	 */
+	private boolean exhausted = false;
+
+	/**
+	 * Creates a new cursor. The cursor takes over the given manager reference
+	 * and closes it on {@link #close()}.
+	 */
+	PagedMetaDataCursor(final MetaDataManager mdm,
+			final CriteriaWrapper criteria, final int pageSize,
+			final String resumeToken, final Order order) {
+		this.mdm = mdm;
+		this.criteria = criteria;
+		this.pageSize = pageSize;
+		this.descending = order == Order.DESCENDING;
+		if (resumeToken != null) {
+			parseToken(resumeToken);
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (page == null || !page.hasNext()) {
+			if (exhausted || mdm == null) {
+				return false;
+			}
+			fetch();
+		}
+		return true;
+	}
+
+	@Override
+	public MetaData next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final MetaDataWrapper meta = page.next();
+		lastTime = meta.getTimestamp();
+		lastId = meta.getId();
+		return meta.getWrappedObject();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException(
+				"Use DataRepository.delete to remove data sets");
+	}
+
+	@Override
+	public String getResumeToken() {
+		if (lastTime == null) {
+			return null;
+		}
+		return Long.toString(lastTime.getTime()) + TOKEN_SEPARATOR + lastId;
+	}
+
+	@Override
+	public void close() {
+		if (mdm != null) {
+			try {
+				mdm.close();
+			} finally {
+				mdm = null;
+			}
+		}
+	}
+
+	private void fetch() {
+		final List<MetaDataWrapper> metas = mdm.getMatchingMeta(criteria,
+				lastTime, lastId, descending, pageSize);
+		// the storage returns null for an unknown id
+		metas.remove(null);
+		exhausted = metas.size() < pageSize || criteria.getId() != null;
+		page = metas.iterator();
+	}
+
+	private void parseToken(final String token) {
+		final int separator = token.indexOf(TOKEN_SEPARATOR);
+		try {
+			lastTime = new Date(Long.parseLong(token.substring(0, separator)));
+			lastId = token.substring(separator + 1);
+		} catch (NumberFormatException | IndexOutOfBoundsException ex) {
+			close();
+			throw new IllegalArgumentException("Invalid resume token: "
+					+ token);
+		}
+	}
+}
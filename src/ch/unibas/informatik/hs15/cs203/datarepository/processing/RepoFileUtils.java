@@ -1,13 +1,12 @@
 package ch.unibas.informatik.hs15.cs203.datarepository.processing;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import util.logging.Logger;
 import ch.unibas.informatik.hs15.cs203.datarepository.api.ProgressListener;
@@ -22,6 +21,12 @@ class RepoFileUtils {
 	
 	private static final Logger LOG = Logger.getLogger(RepoFileUtils.class);
 
+	/**
+	 * The number of bytes transferred between two progress updates (and
+	 * cancel checks) while copying a file.
+	 */
+	static final long CHUNK_SIZE = 8 * 1024 * 1024;
+
 	/**
 	 * Utilizes renameTo for maximum efficiency
 	 */
@@ -33,7 +38,8 @@ class RepoFileUtils {
 
 	/**
 	 * Example usage: If you want to copy /mydata/ to /target/mydata, then
-	 * source would be /mydata/ and target /target/
+	 * source would be /mydata/ and target /target/<br />
+	 * Directories are copied in parallel by the {@link TreeCopier}.
 	 * 
 	 * @param originalSize
 	 *            Size of the orginial File. Doesn't get changed while
@@ -45,45 +51,47 @@ class RepoFileUtils {
 	 */
 	static boolean copyRecursively(Path source, Path target, ProgressListener pl,
 			long alreadyProcessedBytes, long originalSize) {
-		Path combinedPath = Paths.get(target.toString(), source.getFileName()
-				.toString());
-
 		if (source.toFile().isFile()) {
-			return copy(source, combinedPath, pl, alreadyProcessedBytes, originalSize);
+			return copy(source, Paths.get(target.toString(), source
+					.getFileName().toString()), pl, alreadyProcessedBytes,
+					originalSize);
 		}
+		return copyRecursively(FileManifest.scan(source), target, pl,
+				alreadyProcessedBytes, originalSize);
+	}
 
-		// copy a directory
-		if(!copy(source, combinedPath, pl, alreadyProcessedBytes, originalSize)){
-			return false;
+	/**
+	 * Same as {@link #copyRecursively(Path, Path, ProgressListener, long, long)}
+	 * , but follows an already collected manifest of the source instead of
+	 * walking it again.
+	 * 
+	 * @param manifest
+	 *            The manifest of the file or directory to copy.
+	 * @return False if a cancel has been requested
+	 */
+	static boolean copyRecursively(FileManifest manifest, Path target,
+			ProgressListener pl, long alreadyProcessedBytes, long originalSize) {
+		Path combinedPath = Paths.get(target.toString(), manifest.getRoot()
+				.getFileName().toString());
+		if (combinedPath.toFile().exists()) {
+			throw new IllegalArgumentException(
+					"The file you want to copy to already exists");
 		}
-
-		for (File subfile : source.toFile().listFiles()) {
-			Path subfilePath = Paths.get(combinedPath.toString(),
-					subfile.getName());
-			if (subfile.isFile()) {
-				if(!copy(subfile.toPath(), subfilePath, pl, alreadyProcessedBytes,
-						originalSize)){
-					return false;
-				}
-				alreadyProcessedBytes += subfile.length();
-				continue;
-			}
-			if(!copyRecursively(subfile.toPath(), combinedPath, pl,
-					alreadyProcessedBytes, originalSize)){
-				return false;
-			}
-			alreadyProcessedBytes += RepoFileUtils.getFileSize(subfile);
+		final CopyProgress progress = new CopyProgress(pl,
+				alreadyProcessedBytes, originalSize);
+		if (!manifest.isDirectory()) {
+			return transfer(manifest.getRoot(), combinedPath, progress);
 		}
-		return true;
+		return TreeCopier.copy(manifest, combinedPath, progress);
 	}
 
 	/**
 	 * Copies source to target. If source is a directory, just calls mkdirs Else
-	 * buffers with an array of 1024 Bytes and calls the progressListener
+	 * transfers the file, see {@link #transfer(Path, Path, CopyProgress)}.
 	 * 
 	 * @param source
 	 * @param target
-	 * @return 
+	 * @return False if a cancel has been requested
 	 */
 	static boolean copy(Path source, Path target,
 			ProgressListener progressListener, long alreadyProcessed,
@@ -96,90 +104,73 @@ class RepoFileUtils {
 			target.toFile().mkdirs();
 			return true;
 		}
-		InputStream inputStream = null;
-		OutputStream outputStream = null;
-		try {
-			inputStream = new FileInputStream(source.toFile());
-			outputStream = new FileOutputStream(target.toFile());
+		return transfer(source, target, new CopyProgress(progressListener,
+				alreadyProcessed, totalSize));
+	}
 
-			byte[] buffer = new byte[1000000];
-			int size = 0;
-			while ((size = inputStream.read(buffer)) != -1) {
-				if(progressListener.hasCancelBeenRequested()){
-					//Here you cannot debug hasCancelbeenrequested because once you know about it being requested you're not allowed to call the method anymore...
-					LOG.warn("Cancel while copying \n Source: "+source.toString()+" Target: "+target.toString());
-					progressListener.canceled();
-					outputStream.close();
-					inputStream.close();
+	/**
+	 * Transfers the file in chunks of {@link #CHUNK_SIZE} bytes from channel
+	 * to channel and reports the progress after each chunk. <br />
+	 * The transfer is done by {@link FileChannel#transferTo(long, long,
+	 * java.nio.channels.WritableByteChannel)}, which lets the operating system
+	 * copy the bytes (e.g. with <tt>sendfile</tt>) without passing them
+	 * through the Java heap. A cancel is checked before the copy starts, thus
+	 * also for empty files, and after each chunk.
+	 * 
+	 * @param source
+	 *            The regular file to copy.
+	 * @param target
+	 *            The path of the copy, which must not exist.
+	 * @param progress
+	 *            The progress of the whole copy operation.
+	 * @return False if a cancel has been requested
+	 */
+	static boolean transfer(Path source, Path target, CopyProgress progress) {
+		// also for empty files, which never enter the loop
+		if (progress.isCanceled()) {
+			LOG.warn("Cancel before copying {0} -> {1}", source, target);
+			return false;
+		}
+		FileChannel in = null;
+		FileChannel out = null;
+		try {
+			in = FileChannel.open(source, StandardOpenOption.READ);
+			out = FileChannel.open(target, StandardOpenOption.CREATE_NEW,
+					StandardOpenOption.WRITE);
+			final long size = in.size();
+			long position = 0;
+			while (position < size) {
+				if (position > 0 && progress.isCanceled()) {
+					LOG.warn("Cancel while copying {0} -> {1}", source, target);
 					return false;
 				}
-				outputStream.write(buffer, 0, size);
-				alreadyProcessed += size;
-				progressListener.progress(alreadyProcessed, totalSize);
+				final long transferred = in.transferTo(position,
+						Math.min(CHUNK_SIZE, size - position), out);
+				if (transferred <= 0) {
+					// the source got truncated meanwhile
+					break;
+				}
+				position += transferred;
+				progress.advance(transferred);
 			}
 			return true;
 		} catch (IOException ex) {
-			// ex.printStackTrace();
+			LOG.error("Error while copying {0}", ex, source);
 			throw new IllegalArgumentException("Error while moving file");
 		} finally {
-			try {
-				inputStream.close();
-				outputStream.close();
-			} catch (Exception e) {
-				// silently ignored
-			}
+			closeQuietly(in);
+			closeQuietly(out);
 		}
 	}
 
-	/**
-	 * Traverses the directory to give total size. If the file is a simple file,
-	 * returns length
-	 * 
-	 * @return file size in bytes
-	 */
-	static long getFileSize(File directory) {
-		if (directory.isFile()) {
-			return directory.length();
-		}
-		long length = 0;
-		for (File file : directory.listFiles()) {
-			if (file.isFile()) {
-				length += file.length();
-				continue;
-			}
-			// length+=directory.length();
-			length += getFileSize(file);
-		}
-		return length;
-	}
-
-	/**
-	 * If the file is a directory: Iterates recursively over the given dir and
-	 * counts number of files and dirs inside the file; If the file is a file:
-	 * Return 1
-	 * 
-	 * @param file
-	 * @return 1 if it's a file, else no. of folders and files inside given
-	 *         directory
-	 */
-	static int getFileCount(File file) {
-		if (file.isFile()) {
-			return 1;
-		}
-		int count = 1;
-		File[] subfiles = file.listFiles();
-
-		if (subfiles != null) {
-			for (int i = 0; i < subfiles.length; i++) {
-				File newfile = subfiles[i];
-				if (newfile.isFile()) {
-					count++;
-					continue;
-				}
-				count += getFileCount(newfile);
+	private static void closeQuietly(Closeable closeable) {
+		try {
+			if (closeable != null) {
+				closeable.close();
 			}
+		} catch (IOException e) {
+			// silently ignored
 		}
-		return count;
 	}
 
 	public static void deleteRecursively(Path source) {
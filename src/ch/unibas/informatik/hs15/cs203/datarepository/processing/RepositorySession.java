@@ -0,0 +1,31 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.Closeable;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.api.DataRepository;
+
+/**
+ * A {@link RepositorySession} is a {@link DataRepository} which keeps the
+ * repository open until it gets closed. <br />
+ * A {@link DataRepository} created by {@link Factory#create(java.io.File)}
+ * loads and releases the repository's meta data for every single operation.
+ * A session instead loads the meta data once and keeps it in memory (and the
+ * repository locked) for its whole lifetime. Mutations are still persisted
+ * immediately, thus a session is suited for long running applications which
+ * perform many operations, like a server.
+ * <p>
+ * <b>Note: A session must be closed before terminating the application.</b>
+ * </p>
+ * @see Factory#open(java.io.File)
+ */
+public interface RepositorySession extends PagedDataRepository, Closeable {
+
+	/**
+	 * Closes this session and releases the repository.
+	 * 
+	 * @throws IllegalArgumentException
+	 *             If the meta data could not be written.
+	 */
+	@Override
+	public void close() throws IllegalArgumentException;
+}
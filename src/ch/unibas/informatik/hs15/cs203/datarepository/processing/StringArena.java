@@ -0,0 +1,152 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link StringArena} stores strings outside of the Java heap, UTF-8
+ * encoded in direct {@link ByteBuffer}s. A string is referred to by its
+ * <i>address</i>, a <tt>long</tt> made of the chunk and the offset within the
+ * chunk, and is only decoded again by {@link #get(long)}. <br />
+ * Thus a large number of strings neither occupies the heap nor has to be
+ * traced by the garbage collector.
+ * <p>
+ * The arena only grows: Freed strings are counted as garbage (see
+ * {@link #getGarbage()}) and reclaimed by copying the live strings into a new
+ * arena, see {@link #copy(StringArena, long)}.
+ * </p>
+ * <p>
+ * <b>Note: Direct buffers are limited by the JVM option
+ * <tt>-XX:MaxDirectMemorySize</tt>, which defaults to the maximal heap
+ * size.</b>
+ * </p>
+ */
+class StringArena {
+
+	private static final int MIN_CHUNK_SIZE = 1 << 16;
+
+	private static final int MAX_CHUNK_SIZE = 1 << 24;
+
+	private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+	private ByteBuffer current = null;
+
+	private long allocated = 0;
+
+	private long garbage = 0;
+
+	/**
+	 * Stores the given string.
+	 *
+	 * @param value
+	 *            The string to store.
+	 * @return The address of the string.
+	 */
+	public long add(final String value) {
+		final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		final ByteBuffer target = reserve(bytes.length);
+		final long out = address(target);
+		target.putInt(bytes.length);
+		target.put(bytes);
+		return out;
+	}
+
+	/**
+	 * Stores the string at the given address of another arena, without
+	 * decoding it.
+	 *
+	 * @param source
+	 *            The arena to copy from.
+	 * @param address
+	 *            The address of the string in the source arena.
+	 * @return The address of the copy in this arena.
+	 */
+	public long copy(final StringArena source, final long address) {
+		final ByteBuffer chunk = source.chunk(address);
+		final int offset = (int) address;
+		final int length = chunk.getInt(offset);
+		final ByteBuffer view = chunk.duplicate();
+		view.position(offset + 4);
+		view.limit(offset + 4 + length);
+		final ByteBuffer target = reserve(length);
+		final long out = address(target);
+		target.putInt(length);
+		target.put(view);
+		return out;
+	}
+
+	/**
+	 * Decodes the string at the given address.
+	 *
+	 * @param address
+	 *            The address of the string.
+	 * @return The string.
+	 */
+	public String get(final long address) {
+		final ByteBuffer chunk = chunk(address);
+		final int offset = (int) address;
+		final byte[] bytes = new byte[chunk.getInt(offset)];
+		final ByteBuffer view = chunk.duplicate();
+		view.position(offset + 4);
+		view.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Marks the string at the given address as garbage. The space is only
+	 * reclaimed by copying the arena.
+	 *
+	 * @param address
+	 *            The address of the string.
+	 */
+	public void free(final long address) {
+		garbage += 4 + chunk(address).getInt((int) address);
+	}
+
+	/**
+	 * Returns the number of bytes in use, including garbage.
+	 *
+	 * @return The number of bytes in use.
+	 */
+	public long getAllocated() {
+		return allocated;
+	}
+
+	/**
+	 * Returns the number of bytes of freed strings.
+	 *
+	 * @return The number of bytes of garbage.
+	 */
+	public long getGarbage() {
+		return garbage;
+	}
+
+	/**
+	 * Returns the chunk with room for a string of the given length, positioned
+	 * at the free space.
+	 */
+	private ByteBuffer reserve(final int length) {
+		final int needed = 4 + length;
+		if (current == null || current.remaining() < needed) {
+			int size = current == null ? MIN_CHUNK_SIZE : Math.min(
+					current.capacity() * 2, MAX_CHUNK_SIZE);
+			while (size < needed) {
+				size *= 2;
+			}
+			current = ByteBuffer.allocateDirect(size);
+			chunks.add(current);
+		}
+		allocated += needed;
+		return current;
+	}
+
+	private long address(final ByteBuffer chunk) {
+		return ((long) (chunks.size() - 1) << 32) | chunk.position();
+	}
+
+	private ByteBuffer chunk(final long address) {
+		return chunks.get((int) (address >>> 32));
+	}
+}
@@ -0,0 +1,294 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.Arrays;
+
+/**
+ * The {@link StringDictionary} stores every distinct string once and refers to
+ * it by a dense <tt>int</tt> code. The codes of strings which are no longer
+ * referenced are reused. <br />
+ * Since the codes are dense, per-string results (e.g. whether a string
+ * contains a snippet) can be cached in an array indexed by code, see
+ * {@link #capacity()}.
+ * <p>
+ * If the system property {@value #OFF_HEAP_PROPERTY_KEY} is <tt>true</tt>, the
+ * strings are kept off the heap in a {@link StringArena} and only decoded by
+ * {@link #get(int)}. The lookup by string uses an open addressing table of
+ * codes, thus no string is kept on the heap in that case.
+ * </p>
+ */
+class StringDictionary {
+
+	/**
+	 * The system property key to keep the strings off the heap. The value is:
+	 * {@value}
+	 */
+	public static final String OFF_HEAP_PROPERTY_KEY = "datarepository.metadata.off-heap-strings";
+
+	/**
+	 * Marks a slot of {@link #table} whose code was removed.
+	 */
+	private static final int REMOVED = -1;
+
+	/**
+	 * The number of bytes of garbage in the {@link #arena} before it gets
+	 * compacted.
+	 */
+	private static final long MIN_GARBAGE = 1 << 20;
+
+	/**
+	 * The strings by code, <tt>null</tt> if they are kept in {@link #arena}.
+	 */
+	private String[] values;
+
+	/**
+	 * The strings off the heap or <tt>null</tt> if they are kept in
+	 * {@link #values}.
+	 */
+	private StringArena arena;
+
+	/**
+	 * The address of each code's string in {@link #arena}.
+	 */
+	private long[] addresses;
+
+	private int[] hashes = new int[64];
+
+	/**
+	 * The number of references per code, <tt>0</tt> for a free code.
+	 */
+	private int[] references = new int[64];
+
+	/**
+	 * The open addressing table with linear probing: Each slot holds a code
+	 * plus one, <tt>0</tt> if empty or {@link #REMOVED}.
+	 */
+	private int[] table = new int[128];
+
+	/**
+	 * The number of slots of {@link #table} which are not empty.
+	 */
+	private int occupied = 0;
+
+	/**
+	 * The codes which were used before, but are free now.
+	 */
+	private int[] free = new int[16];
+
+	private int freeCount = 0;
+
+	/**
+	 * The number of codes ever used.
+	 */
+	private int used = 0;
+
+	/**
+	 * Creates a dictionary which keeps the strings off the heap if requested
+	 * by the system property {@value #OFF_HEAP_PROPERTY_KEY}.
+	 */
+	public StringDictionary() {
+		this(Boolean.getBoolean(OFF_HEAP_PROPERTY_KEY));
+	}
+
+	/**
+	 * Creates a dictionary.
+	 *
+	 * @param offHeap
+	 *            Whether to keep the strings off the heap.
+	 */
+	public StringDictionary(final boolean offHeap) {
+		if (offHeap) {
+			arena = new StringArena();
+			addresses = new long[64];
+		} else {
+			values = new String[64];
+		}
+	}
+
+	/**
+	 * Adds a reference to the given string, adding the string if it is new.
+	 *
+	 * @param value
+	 *            The string to refer to.
+	 * @return The code of the string.
+	 */
+	public int add(final String value) {
+		final int hash = value.hashCode();
+		final int known = code(value, hash);
+		if (known >= 0) {
+			references[known]++;
+			return known;
+		}
+		final int code;
+		if (freeCount > 0) {
+			code = free[--freeCount];
+		} else {
+			if (used == references.length) {
+				grow(used * 2);
+			}
+			code = used++;
+		}
+		if (arena != null) {
+			addresses[code] = arena.add(value);
+		} else {
+			values[code] = value;
+		}
+		hashes[code] = hash;
+		// not yet referenced, thus skipped if the table gets rebuilt
+		insert(code);
+		references[code] = 1;
+		return code;
+	}
+
+	/**
+	 * Removes a reference to the string with the given code. The string is
+	 * removed along with its last reference.
+	 *
+	 * @param code
+	 *            The code of the string.
+	 */
+	public void release(final int code) {
+		if (--references[code] > 0) {
+			return;
+		}
+		final int mask = table.length - 1;
+		int slot = slot(hashes[code], mask);
+		while (table[slot] != code + 1) {
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = REMOVED;
+		if (arena != null) {
+			arena.free(addresses[code]);
+			if (arena.getGarbage() > Math.max(MIN_GARBAGE,
+					arena.getAllocated() / 2)) {
+				compactArena();
+			}
+		} else {
+			values[code] = null;
+		}
+		if (freeCount == free.length) {
+			free = Arrays.copyOf(free, freeCount * 2);
+		}
+		free[freeCount++] = code;
+	}
+
+	/**
+	 * Returns the code of the given string.
+	 *
+	 * @param value
+	 *            The string to look up.
+	 * @return The code of the string or <tt>-1</tt> if it is not stored.
+	 */
+	public int code(final String value) {
+		return code(value, value.hashCode());
+	}
+
+	/**
+	 * Returns the string with the given code, which is decoded if it is kept
+	 * off the heap.
+	 *
+	 * @param code
+	 *            The code of the string.
+	 * @return The string.
+	 */
+	public String get(final int code) {
+		return arena != null ? arena.get(addresses[code]) : values[code];
+	}
+
+	/**
+	 * Returns an upper bound of the codes in use.
+	 *
+	 * @return The number of codes ever used.
+	 */
+	public int capacity() {
+		return used;
+	}
+
+	private int code(final String value, final int hash) {
+		final int mask = table.length - 1;
+		for (int slot = slot(hash, mask);; slot = (slot + 1) & mask) {
+			final int entry = table[slot];
+			if (entry == 0) {
+				return -1;
+			}
+			if (entry != REMOVED && hashes[entry - 1] == hash
+					&& value.equals(get(entry - 1))) {
+				return entry - 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns the first slot to probe for the given hash, spreading the high
+	 * bits to the low ones.
+	 */
+	private static int slot(final int hash, final int mask) {
+		return (hash ^ (hash >>> 16)) & mask;
+	}
+
+	private void insert(final int code) {
+		if ((occupied + 1) * 2 > table.length) {
+			rehash();
+		}
+		final int mask = table.length - 1;
+		int slot = slot(hashes[code], mask);
+		while (table[slot] > 0) {
+			slot = (slot + 1) & mask;
+		}
+		if (table[slot] == 0) {
+			occupied++;
+		}
+		table[slot] = code + 1;
+	}
+
+	/**
+	 * Rebuilds the table without removed slots, growing it if needed.
+	 */
+	private void rehash() {
+		int live = 0;
+		for (int code = 0; code < used; code++) {
+			if (references[code] > 0) {
+				live++;
+			}
+		}
+		int size = 128;
+		while (size < (live + 1) * 4) {
+			size *= 2;
+		}
+		table = new int[size];
+		occupied = 0;
+		final int mask = size - 1;
+		for (int code = 0; code < used; code++) {
+			if (references[code] > 0) {
+				int slot = slot(hashes[code], mask);
+				while (table[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				table[slot] = code + 1;
+				occupied++;
+			}
+		}
+	}
+
+	/**
+	 * Copies the strings in use into a new arena, dropping the garbage.
+	 */
+	private void compactArena() {
+		final StringArena compacted = new StringArena();
+		for (int code = 0; code < used; code++) {
+			if (references[code] > 0) {
+				addresses[code] = compacted.copy(arena, addresses[code]);
+			}
+		}
+		arena = compacted;
+	}
+
+	private void grow(final int capacity) {
+		if (arena != null) {
+			addresses = Arrays.copyOf(addresses, capacity);
+		} else {
+			values = Arrays.copyOf(values, capacity);
+		}
+		hashes = Arrays.copyOf(hashes, capacity);
+		references = Arrays.copyOf(references, capacity);
+	}
+}
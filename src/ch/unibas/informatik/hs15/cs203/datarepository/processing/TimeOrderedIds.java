@@ -0,0 +1,94 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The {@link TimeOrderedIds} generate time-ordered UUIDs, laid out like
+ * version 7 UUIDs: The most significant 48 bits are the milliseconds since the
+ * epoch, followed by the version (<tt>7</tt>), a 12 bit sequence, the variant
+ * and 62 random bits. <br />
+ * Since the IDs are canonical (see {@link DatasetIds}), a new ID is greater
+ * than all the IDs generated before, thus new data sets are appended to the
+ * end of the ID order, e.g. of a binary meta data file.
+ * <p>
+ * The generation is lock-free: The most significant bits of the last ID are
+ * advanced by compare-and-set and the random bits are drawn from the thread's
+ * own random generator. Within the same millisecond the sequence is
+ * incremented, and once it is exhausted the next millisecond is borrowed,
+ * thus the IDs of a process are strictly increasing.
+ * </p>
+ * <p>
+ * <b>Note: The random bits are not cryptographically strong. The IDs are
+ * unique, but predictable.</b>
+ * </p>
+ */
+final class TimeOrderedIds {
+
+	/**
+	 * The system property key to generate time-ordered IDs instead of random
+	 * ones, see {@link MetaDataManager#generateRandomUUID()}. The value is:
+	 * {@value}
+	 */
+	public static final String PROPERTY_KEY = "datarepository.ids.time-ordered";
+
+	private static final long VERSION = 0x7000L;
+
+	private static final long SEQUENCE_MASK = 0xFFFL;
+
+	private static final long VARIANT = 0x8000000000000000L;
+
+	private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+	/**
+	 * The most significant bits of the last ID.
+	 */
+	private static final AtomicLong last = new AtomicLong();
+
+	private TimeOrderedIds() {
+	}
+
+	/**
+	 * Returns a new time-ordered ID.
+	 *
+	 * @return The ID in canonical form.
+	 */
+	public static String next() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		final long millis = System.currentTimeMillis();
+		// the sequence of a new millisecond starts at a random value in its
+		// lower half to leave room for increments
+		final int start = random.nextInt(0x800);
+		long previous;
+		long high;
+		do {
+			previous = last.get();
+			high = advance(previous, millis, start);
+		} while (!last.compareAndSet(previous, high));
+		return DatasetIds.toString(high, VARIANT
+				| (random.nextLong() & RANDOM_MASK));
+	}
+
+	/**
+	 * Returns the most significant bits of the ID following the given one.
+	 *
+	 * @param previous
+	 *            The most significant bits of the last ID.
+	 * @param millis
+	 *            The current time in milliseconds since the epoch.
+	 * @param start
+	 *            The sequence to start a new millisecond with.
+	 * @return The most significant bits of the next ID.
+	 */
+	static long advance(final long previous, final long millis,
+			final int start) {
+		final long now = millis << 16;
+		if (now > (previous & ~0xFFFFL)) {
+			return now | VERSION | start;
+		} else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+			return previous + 1;
+		} else {
+			return (previous & ~0xFFFFL) + 0x10000L | VERSION;
+		}
+	}
+}
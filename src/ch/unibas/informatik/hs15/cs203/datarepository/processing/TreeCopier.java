@@ -0,0 +1,106 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import util.logging.Logger;
+
+/**
+ * The {@link TreeCopier} copies a directory tree in parallel, following the
+ * tree's {@link FileManifest}. <br />
+ * First the directory skeleton is created in the target. Then the files are
+ * copied concurrently by a fork/join pool, which balances many small files as
+ * well as a few large ones across its workers by work stealing.
+ */
+class TreeCopier {
+
+	private static final Logger LOG = Logger.getLogger(TreeCopier.class);
+
+	/**
+	 * The number of files copied concurrently. Copying is I/O bound, thus this
+	 * is not limited to the number of processors.
+	 */
+	static final int PARALLELISM = Math.max(4, Runtime.getRuntime()
+			.availableProcessors());
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(PARALLELISM);
+
+	/**
+	 * Copies the directory of the given manifest to <tt>target</tt>, which
+	 * must not exist yet.
+	 * 
+	 * @param manifest
+	 *            The manifest of the directory to copy.
+	 * @param target
+	 *            The path of the copy.
+	 * @param progress
+	 *            The progress of the copy operation.
+	 * @return False if a cancel has been requested
+	 * @throws IllegalArgumentException
+	 *             If the copying fails.
+	 */
+	static boolean copy(final FileManifest manifest, final Path target,
+			final CopyProgress progress) {
+		try {
+			for (final Path dir : manifest.getDirectories()) {
+				Files.createDirectories(target.resolve(dir.toString()));
+			}
+		} catch (IOException ex) {
+			LOG.error("Error while creating directories of " + target, ex);
+			throw new IllegalArgumentException("Error while moving file");
+		}
+		final List<Path[]> files = new ArrayList<Path[]>(manifest.getFiles()
+				.size());
+		for (final FileManifest.Entry file : manifest.getFiles()) {
+			final String relative = file.getPath().toString();
+			files.add(new Path[] { manifest.getRoot().resolve(relative),
+					target.resolve(relative) });
+		}
+		LOG.debug(String.format("Copying %d files with %d threads",
+				files.size(), PARALLELISM));
+		POOL.invoke(new CopyAction(files, 0, files.size(), progress));
+		return !progress.wasCanceled();
+	}
+
+	/**
+	 * Copies a range of the collected files, splitting it in halves until a
+	 * single file remains.
+	 */
+	private static class CopyAction extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final List<Path[]> files;
+		private final int from;
+		private final int to;
+		private final CopyProgress progress;
+
+		CopyAction(final List<Path[]> files, final int from, final int to,
+				final CopyProgress progress) {
+			this.files = files;
+			this.from = from;
+			this.to = to;
+			this.progress = progress;
+		}
+
+		@Override
+		protected void compute() {
+			if (progress.wasCanceled()) {
+				return;
+			}
+			if (to - from == 1) {
+				final Path[] file = files.get(from);
+				RepoFileUtils.transfer(file[0], file[1], progress);
+			} else if (to - from > 1) {
+				final int middle = (from + to) >>> 1;
+				invokeAll(new CopyAction(files, from, middle, progress),
+						new CopyAction(files, middle, to, progress));
+			}
+		}
+	}
+}
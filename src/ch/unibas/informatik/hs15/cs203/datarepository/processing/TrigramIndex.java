@@ -0,0 +1,255 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+import util.logging.Logger;
+
+/**
+ * The {@link TrigramIndex} is an inverted index of the trigrams (substrings of
+ * three characters) in the names and descriptions of meta data. <br />
+ * Every text contained in a name or description contains all of its own
+ * trigrams, thus the IDs sharing all trigrams of a text are a superset of the
+ * IDs whose name or description contains the text. The candidates returned by
+ * {@link #candidates(String)} still have to be checked with
+ * {@link String#contains(CharSequence)}, but only these.
+ * <p>
+ * The index can be persisted next to the meta data file. The persisted index
+ * is bound to the meta data file it was written for (by the file's size and
+ * last modification time) and gets ignored as soon as the meta data file
+ * changes.
+ * </p>
+ * <p>
+ * The postings hold ID strings rather than the numeric IDs of
+ * {@link DatasetIds}; a query converts its candidates to rows through the ID
+ * index of the {@link MetaDataStorage}.
+ * </p>
+ */
+class TrigramIndex {
+
+	private static final Logger LOG = Logger.getLogger(TrigramIndex.class);
+
+	/**
+	 * The magic number of the index file, the ASCII characters <tt>DRTI</tt>.
+	 */
+	private static final int MAGIC = 0x44525449;
+
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The length of a gram.
+	 */
+	static final int N = 3;
+
+	/**
+	 * The IDs per trigram. A trigram is encoded as its three UTF-16 chars,
+	 * each 16 bits wide.
+	 */
+	private final HashMap<Long, Set<String>> postings = new HashMap<Long, Set<String>>();
+
+	/**
+	 * Reads the index persisted for the given meta data file.
+	 *
+	 * @param file
+	 *            The index file.
+	 * @param metaDataFile
+	 *            The meta data file the index has to belong to.
+	 * @return The read index or <tt>null</tt> if there is none, it does not
+	 *         belong to the current meta data file or it could not be read.
+	 */
+	public static TrigramIndex read(final Path file, final Path metaDataFile) {
+		if (!Files.exists(file, LinkOption.NOFOLLOW_LINKS)
+				|| !Files.exists(metaDataFile, LinkOption.NOFOLLOW_LINKS)) {
+			return null;
+		}
+		try {
+			final DataInputStream in = new DataInputStream(
+					new BufferedInputStream(Files.newInputStream(file)));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION
+						|| in.readLong() != Files.size(metaDataFile)
+						|| in.readLong() != Files.getLastModifiedTime(
+								metaDataFile).toMillis()) {
+					LOG.debug("Ignoring outdated trigram index");
+					return null;
+				}
+				final String[] ids = new String[in.readInt()];
+				for (int i = 0; i < ids.length; i++) {
+					ids[i] = in.readUTF();
+				}
+				final TrigramIndex index = new TrigramIndex();
+				final int grams = in.readInt();
+				for (int i = 0; i < grams; i++) {
+					final long gram = in.readLong();
+					final Set<String> posting = new HashSet<String>();
+					final int size = in.readInt();
+					for (int j = 0; j < size; j++) {
+						posting.add(ids[in.readInt()]);
+					}
+					index.postings.put(gram, posting);
+				}
+				return index;
+			} finally {
+				in.close();
+			}
+		} catch (final IOException | RuntimeException ex) {
+			LOG.warn("Could not read trigram index, rebuilding it: "
+					+ ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Adds the trigrams of the given meta data's name and description.
+	 *
+	 * @param meta
+	 *            The meta data to index.
+	 */
+	public void add(final MetaDataWrapper meta) {
+		for (final Long gram : trigramsOf(meta)) {
+			Set<String> ids = postings.get(gram);
+			if (ids == null) {
+				ids = new HashSet<String>();
+				postings.put(gram, ids);
+			}
+			ids.add(meta.getId());
+		}
+	}
+
+	/**
+	 * Removes the trigrams of the given meta data's name and description.
+	 *
+	 * @param meta
+	 *            The meta data to remove from the index.
+	 */
+	public void remove(final MetaDataWrapper meta) {
+		for (final Long gram : trigramsOf(meta)) {
+			final Set<String> ids = postings.get(gram);
+			if (ids != null && ids.remove(meta.getId()) && ids.isEmpty()) {
+				postings.remove(gram);
+			}
+		}
+	}
+
+	/**
+	 * Returns the IDs of the meta data whose name or description contains
+	 * every trigram of the given text. <br />
+	 * <b>Note: The result is a superset of the actual matches and must be
+	 * checked with the exact condition.</b>
+	 *
+	 * @param text
+	 *            The text to look for.
+	 * @return The candidate IDs or <tt>null</tt> if the text is shorter than a
+	 *         trigram and the index cannot narrow the candidates.
+	 */
+	public Set<String> candidates(final String text) {
+		if (text.length() < N) {
+			return null;
+		}
+		final Set<Long> grams = new HashSet<Long>();
+		addTrigrams(text, grams);
+		// start with the rarest trigram, intersect with the others
+		Set<String> smallest = null;
+		for (final Long gram : grams) {
+			final Set<String> ids = postings.get(gram);
+			if (ids == null) {
+				return new HashSet<String>();
+			}
+			if (smallest == null || ids.size() < smallest.size()) {
+				smallest = ids;
+			}
+		}
+		final Set<String> out = new HashSet<String>();
+		for (final String id : smallest) {
+			boolean all = true;
+			for (final Long gram : grams) {
+				if (!postings.get(gram).contains(id)) {
+					all = false;
+					break;
+				}
+			}
+			if (all) {
+				out.add(id);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Persists this index for the given meta data file.
+	 *
+	 * @param file
+	 *            The index file to write.
+	 * @param metaDataFile
+	 *            The meta data file this index belongs to.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void write(final Path file, final Path metaDataFile)
+			throws IOException {
+		final Map<String, Integer> ordinals = new HashMap<String, Integer>();
+		for (final Set<String> ids : postings.values()) {
+			for (final String id : ids) {
+				if (!ordinals.containsKey(id)) {
+					ordinals.put(id, ordinals.size());
+				}
+			}
+		}
+		final String[] ids = new String[ordinals.size()];
+		for (final Map.Entry<String, Integer> entry : ordinals.entrySet()) {
+			ids[entry.getValue()] = entry.getKey();
+		}
+		final DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(file)));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(FORMAT_VERSION);
+			out.writeLong(Files.size(metaDataFile));
+			out.writeLong(Files.getLastModifiedTime(metaDataFile).toMillis());
+			out.writeInt(ids.length);
+			for (final String id : ids) {
+				out.writeUTF(id);
+			}
+			out.writeInt(postings.size());
+			for (final Map.Entry<Long, Set<String>> posting : postings
+					.entrySet()) {
+				out.writeLong(posting.getKey());
+				out.writeInt(posting.getValue().size());
+				for (final String id : posting.getValue()) {
+					out.writeInt(ordinals.get(id));
+				}
+			}
+			out.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private static Set<Long> trigramsOf(final MetaDataWrapper meta) {
+		final Set<Long> grams = new HashSet<Long>();
+		addTrigrams(meta.getName(), grams);
+		addTrigrams(meta.getDescription(), grams);
+		return grams;
+	}
+
+	private static void addTrigrams(final String str, final Set<Long> grams) {
+		if (str == null) {
+			return;
+		}
+		for (int i = 0; i + N <= str.length(); i++) {
+			grams.add(((long) str.charAt(i) << 32)
+					| ((long) str.charAt(i + 1) << 16) | str.charAt(i + 2));
+		}
+	}
+}
@@ -1,11 +1,12 @@
 package util.jsontools;
 
+import java.io.IOException;
+import java.io.StringWriter;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
 /**
  * This class represents a JSON object. It enables to access the values by fieldname and is familiar with the most commonly used Json types. This class doesn't suppert encapsulated arrays, yet it is possible to achive a similar result with Json Arrays.
@@ -22,6 +23,20 @@ public class Json {
 	 */
 	private static final float resizeFactor = 0.2f;
 	private Map data;
+	/**
+	 * A value which is written without quotes, i.e. a number. The type is decided once when the value is added, thus
+	 * the {@link JsonWriter} does not have to inspect every value.
+	 */
+	static final class Literal {
+		final String text;
+		Literal(String text) {
+			this.text = text;
+		}
+		@Override
+		public String toString() {
+			return text;
+		}
+	}
 	/**
 	 * Initializes the Object in order to be ready to store content.
 	 */
@@ -34,7 +49,7 @@ public class Json {
 	 * @param value the value of the entry
 	 */
 	public void addEntry(String key, String value) {
-		data.put(key, value);
+		data.put(key, value != null && isNumeric(value) ? new Literal(value) : value);
 	}
 	/**
 	 * Add a entry to the Json Object.
@@ -42,7 +57,7 @@ public class Json {
 	 * @param value the value of the entry
 	 */
 	public void addEntry(String key, double value) {
-		data.put(key, Double.toString(value));
+		addEntry(key, Double.toString(value));
 	}
 	/**
 	 * Add a entry to the Json Object.
@@ -66,7 +81,8 @@ public class Json {
 	 * @param value the value of the entry
 	 */
 	public void addEntry(String key, Date value) {
-		addEntry(key, dateToISO8601(value));
+		// a date is never numeric
+		data.put(key, dateToISO8601(value));
 	}
 /**
  * Get the content of an entry with the given key.
@@ -74,7 +90,8 @@ public class Json {
  * @return the entry with the given key ore null if the key wasn't found.
  */
 	public Object getEntry(String key) {
-		return data.get(key);
+		final Object value = data.get(key);
+		return value instanceof Literal ? ((Literal) value).text : value;
 	}
 /**
  * remove an entry with a given key from the json.
@@ -89,7 +106,7 @@ public class Json {
  * @return true if it exists
  */
 	public boolean containsEntry(String key) {
-		return data.get(key) instanceof String;
+		return text(key) != null;
 	}
 /**
  * checks if a key exists
@@ -113,7 +130,7 @@ public class Json {
  * @return integer of th value 
  */
 	public int getInt(String key) {
-		String value = (String) data.get(key);
+		String value = text(key);
 		if (value == null) {
 			throw new InexistentKeyException();
 		} else {
@@ -126,7 +143,7 @@ public class Json {
  * @return the double wit the value
  */
 	public double getDouble(String key) {
-		String value = (String) data.get(key);
+		String value = text(key);
 		if (value == null) {
 			throw new InexistentKeyException();
 		} else {
@@ -139,7 +156,7 @@ public class Json {
  * @return the String with the value
  */
 	public String getString(String key) {
-		String value = (String) data.get(key);
+		String value = text(key);
 		if (value == null) {
 			throw new InexistentKeyException();
 		} else {
@@ -178,7 +195,7 @@ public class Json {
  * @return the date
  */
 	public Date getDate(String key) {
-		return iso8601ToDate((String) data.get(key));
+		return iso8601ToDate(text(key));
 	}
 /**
  * convert a ISO8601 formated date to a {@link Date} object
@@ -212,88 +229,71 @@ public class Json {
  * @return JSON formated String
  */
 	public String toJson() {
-		String json = "{\n";
-		for (Iterator i = data.keySet().iterator(); i.hasNext();) {
-			String key = (String) i.next();
-			Object value = data.get(key);
-			json += entryToJson(key, value);
-			if (i.hasNext()) {
-				json += ",\n";
-			}
+		final StringWriter out = new StringWriter();
+		final JsonWriter writer = new JsonWriter(out);
+		try {
+			writer.write(this);
+			writer.flush();
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot happen with a StringWriter", e);
 		}
-		json += "\n}";
-		return json;
+		return out.toString();
 	}
 /**
- * convert a json entry into a json formated String
+ * get the text of a String or number entry.
  * @param key key of the entry
- * @param value value of the entry
- * @return JSON formated String representing the entry
+ * @return the text or null if there is no such entry.
  */
-	private String entryToJson(String key, Object value) {
-		String json = "\"" + key + "\" : ";
-		if (value instanceof String) {
-			json = json.concat(stringEntryToJson((String) value));
-			// json+=stringEntryToJson((String)value);
-		} else {
-			if (value instanceof Json) {
-				json = json.concat(objectEntryToJson(value));
-				// json+=objectEntryToJson(value);
-			} else {
-				if (value instanceof Json[]) {
-					json = json.concat(setEntryToJson((Json[]) value));
-					// json+=setEntryToJson((Json [])value);
-				} else {
-					// if(value instanceof Date){
-					// json+=dateToISO8601((Date)value);
-					// System.out.println("Here");
-					// }else{
-					System.out.println("corrupted");
-					// }
-				}
-			}
-
+	private String text(String key) {
+		final Object value = data.get(key);
+		if (value instanceof Literal) {
+			return ((Literal) value).text;
 		}
-		return json;
+		return value instanceof String ? (String) value : null;
 	}
 /**
- * convert a set to a JSOn String
- * @param value Set to be converted
- * @return JSON formated String
+ * check if a value is written as number, that is <tt>^\d+(\.)?\d*((E|e)-?\d\d?\d?)?$</tt>.
+ * @param value the value
+ * @return true if the value is written without quotes
  */
-	private String setEntryToJson(Json[] value) {
-		String jsonString = "[";
-		for (int count = 0; count < value.length; count++) {
-			jsonString = jsonString.concat("\n")
-					.concat(objectEntryToJson(value[count]));
-			// jsonString+="\n"+objectEntryToJson(value[count]);
-			if (count < value.length - 1) {
-				jsonString = jsonString.concat(",");
-				// jsonString+=",";
+	static boolean isNumeric(String value) {
+		final int length = value.length();
+		int i = 0;
+		while (i < length && isDigit(value.charAt(i))) {
+			i++;
+		}
+		if (i == 0) {
+			return false;
+		}
+		if (i < length && value.charAt(i) == '.') {
+			i++;
+		}
+		while (i < length && isDigit(value.charAt(i))) {
+			i++;
+		}
+		if (i == length) {
+			return true;
+		}
+		if (value.charAt(i) != 'E' && value.charAt(i) != 'e') {
+			return false;
+		}
+		i++;
+		if (i < length && value.charAt(i) == '-') {
+			i++;
+		}
+		final int exponent = length - i;
+		if (exponent < 1 || exponent > 3) {
+			return false;
+		}
+		while (i < length) {
+			if (!isDigit(value.charAt(i++))) {
+				return false;
 			}
 		}
-		jsonString += "\n]";
-		return jsonString;
-	}
-/**
- * convert an Object Entry to a json String
- * @param value object to be converted
- * @return JSON formated String
- */
-	private String objectEntryToJson(Object value) {
-		return ((Json) value).toJson();
+		return true;
 	}
-/**
- * convert a String entry to a json String
- * @param value the String
- * @return the json formated String
- */
-	private String stringEntryToJson(String value) {
-		if (value.matches("^\\d+(\\.)?\\d*((E|e)-?\\d\\d?\\d?)?$")) {// "^\\d+(\\.)?\\d*$"
-			return value;
-		} else {
-			return "\"" + jsonEscape(value) + "\"";
-		}
+	private static boolean isDigit(char c) {
+		return c >= '0' && c <= '9';
 	}
 /**
  * escape JSOn control sequences 
@@ -306,7 +306,8 @@ public class Json {
 		return input;
 	}
 /**
- * get the hashmap containing the data and structure of the Json object
+ * get the hashmap containing the data and structure of the Json object. Numbers are not stored as {@link String}, use
+ * the getters to access the values.
  * @return
  */
 	public HashMap getMap() {
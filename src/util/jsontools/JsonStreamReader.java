@@ -0,0 +1,376 @@
+package util.jsontools;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+/**
+ * This class is a streaming pull parser for JSON formated text. Instead of building a whole {@link Json} object first,
+ * it reports the text as a sequence of {@link Token}s, one per invocation of {@link #next()}. Thus large arrays can be
+ * processed entry by entry, e.g. with {@link #readObject()} for each entry.
+ * <p>
+ * The text is read exactly once through a small buffer, the parser never creates substrings of the input.
+ * Strings are unescaped the same way as {@link JsonParser} does: Only <tt>\"</tt> is an escape sequence (see
+ * {@link Json#jsonEscape(String)}), any other backslash is part of the string.
+ * Numbers and other unquoted values (e.g. <tt>true</tt>) are reported as {@link Token#LITERAL} with their text.
+ * </p>
+ */
+public class JsonStreamReader implements Closeable {
+	/**
+	 * The tokens reported by {@link JsonStreamReader#next()}.
+	 */
+	public static enum Token {
+		START_OBJECT, END_OBJECT, START_ARRAY, END_ARRAY,
+		/**
+		 * The name of an object's field, see {@link JsonStreamReader#getText()}.
+		 */
+		NAME,
+		/**
+		 * A quoted value, see {@link JsonStreamReader#getText()}.
+		 */
+		STRING,
+		/**
+		 * An unquoted value like a number, see {@link JsonStreamReader#getText()}.
+		 */
+		LITERAL,
+		/**
+		 * The end of the text.
+		 */
+		END_DOCUMENT
+	}
+	private static final int BUFFER_SIZE = 8192;
+	/**
+	 * Marks a nesting level as object.
+	 */
+	private static final byte IN_OBJECT = 1;
+	/**
+	 * Marks a nesting level as array.
+	 */
+	private static final byte IN_ARRAY = 2;
+	/**
+	 * The source to read from, <tt>null</tt> if the whole text is in the buffer.
+	 */
+	private final Reader reader;
+	private char[] buffer;
+	private int pos = 0;
+	private int limit = 0;
+	/**
+	 * The number of chars read before the buffer's content, for error messages.
+	 */
+	private long offset = 0;
+	/**
+	 * The position of the last token read, for error messages.
+	 */
+	private long tokenStart = 0;
+	/**
+	 * The kind of each open nesting level.
+	 */
+	private byte[] stack = new byte[16];
+	private int depth = 0;
+	/**
+	 * Whether the next token of the current level is its first one.
+	 */
+	private boolean first = true;
+	/**
+	 * Whether the next token is a value, i.e. a name was read just now.
+	 */
+	private boolean afterName = false;
+	private Token peeked = null;
+	private final StringBuilder text = new StringBuilder();
+/**
+ * Initializes the {@code JsonStreamReader} with the given source. The reader is buffered internally.
+ * @param reader The source of the JSON formated text.
+ */
+	public JsonStreamReader(Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+/**
+ * Initializes the {@code JsonStreamReader} with the given UTF-8 encoded text, e.g. a mapped file.
+ * @param bytes The JSON formated text, from its position to its limit.
+ */
+	public JsonStreamReader(ByteBuffer bytes) {
+		final CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+		this.reader = null;
+		this.buffer = chars.array();
+		this.pos = chars.arrayOffset() + chars.position();
+		this.limit = chars.arrayOffset() + chars.limit();
+	}
+/**
+ * Returns the next token without consuming it.
+ * @return The next token.
+ * @throws IOException If the source could not be read.
+ */
+	public Token peek() throws IOException {
+		if (peeked == null) {
+			peeked = advance();
+		}
+		return peeked;
+	}
+/**
+ * Reads the next token.
+ * @return The next token, {@link Token#END_DOCUMENT} at the end of the text.
+ * @throws IOException If the source could not be read.
+ * @throws InvalidJsonException If the text is not well formed.
+ */
+	public Token next() throws IOException {
+		final Token out = peek();
+		peeked = null;
+		return out;
+	}
+/**
+ * Get the text of the last token, which is the name for {@link Token#NAME}, the unescaped content for
+ * {@link Token#STRING} and the value as is for {@link Token#LITERAL}.
+ * @return The text of the last token.
+ */
+	public String getText() {
+		return text.toString();
+	}
+/**
+ * Skips the next value, including everything nested in it.
+ * @throws IOException If the source could not be read.
+ */
+	public void skipValue() throws IOException {
+		int nested = 0;
+		do {
+			final Token token = next();
+			if (token == Token.START_OBJECT || token == Token.START_ARRAY) {
+				nested++;
+			} else if (token == Token.END_OBJECT || token == Token.END_ARRAY) {
+				nested--;
+			} else if (token == Token.END_DOCUMENT) {
+				throw error("Unexpected end");
+			}
+		} while (nested > 0);
+	}
+/**
+ * Reads the next value, which has to be an object, into a {@link Json} object.
+ * Like {@link JsonParser}, arrays may only contain objects.
+ * @return The object read.
+ * @throws IOException If the source could not be read.
+ * @throws InvalidJsonException If the next value is not an object.
+ */
+	public Json readObject() throws IOException {
+		if (next() != Token.START_OBJECT) {
+			throw tokenError("Object expected");
+		}
+		return readObjectBody();
+	}
+/**
+ * Reads the rest of an object.
+ */
+	private Json readObjectBody() throws IOException {
+		final Json out = new Json();
+		while (next() == Token.NAME) {
+			final String name = getText();
+			switch (next()) {
+			case STRING:
+			case LITERAL:
+				out.addEntry(name, getText());
+				break;
+			case START_OBJECT:
+				out.addEntry(name, readObjectBody());
+				break;
+			case START_ARRAY:
+				out.addEntry(name, readSet());
+				break;
+			default:
+				throw tokenError("Value expected");
+			}
+		}
+		return out;
+	}
+/**
+ * Reads the rest of an array of objects.
+ */
+	private Json[] readSet() throws IOException {
+		final ArrayList<Json> out = new ArrayList<Json>();
+		while (peek() != Token.END_ARRAY) {
+			if (peek() != Token.START_OBJECT) {
+				throw tokenError("Only arrays of objects are supported");
+			}
+			out.add(readObject());
+		}
+		next();
+		return out.toArray(new Json[out.size()]);
+	}
+/**
+ * Closes the underlying reader, if any.
+ */
+	@Override
+	public void close() throws IOException {
+		if (reader != null) {
+			reader.close();
+		}
+	}
+/**
+ * Reads the next token from the text.
+ */
+	private Token advance() throws IOException {
+		int c = skipWhitespace();
+		if (depth == 0) {
+			if (c == -1) {
+				if (!first) {
+					return Token.END_DOCUMENT;
+				}
+				throw error("Empty document");
+			}
+			if (!first) {
+				throw error("Unexpected content after the document");
+			}
+		} else if (c == -1) {
+			throw error("Unexpected end");
+		}
+		final byte level = depth > 0 ? stack[depth - 1] : 0;
+		if (afterName) {
+			afterName = false;
+			return value(c);
+		}
+		if ((c == '}' && level == IN_OBJECT) || (c == ']' && level == IN_ARRAY)) {
+			tokenStart = offset + pos;
+			pos++;
+			depth--;
+			first = false;
+			return c == '}' ? Token.END_OBJECT : Token.END_ARRAY;
+		}
+		if (!first && depth > 0) {
+			if (c != ',') {
+				throw error("',' expected");
+			}
+			pos++;
+			c = skipWhitespace();
+		}
+		if (level == IN_OBJECT) {
+			if (c != '"') {
+				throw error("Name expected");
+			}
+			tokenStart = offset + pos;
+			pos++;
+			readString();
+			if (skipWhitespace() != ':') {
+				throw error("':' expected");
+			}
+			pos++;
+			afterName = true;
+			return Token.NAME;
+		}
+		return value(c);
+	}
+/**
+ * Reads the value starting with the given char.
+ */
+	private Token value(int c) throws IOException {
+		tokenStart = offset + pos;
+		if (c == '{' || c == '[') {
+			pos++;
+			if (depth == stack.length) {
+				final byte[] grown = new byte[depth * 2];
+				System.arraycopy(stack, 0, grown, 0, depth);
+				stack = grown;
+			}
+			stack[depth++] = c == '{' ? IN_OBJECT : IN_ARRAY;
+			first = true;
+			return c == '{' ? Token.START_OBJECT : Token.START_ARRAY;
+		}
+		first = false;
+		if (c == '"') {
+			pos++;
+			readString();
+			return Token.STRING;
+		}
+		text.setLength(0);
+		while (c != -1 && c != ',' && c != '}' && c != ']' && !isWhitespace(c)) {
+			text.append((char) c);
+			pos++;
+			c = fill() ? buffer[pos] : -1;
+		}
+		if (text.length() == 0) {
+			throw error("Value expected");
+		}
+		return Token.LITERAL;
+	}
+/**
+ * Reads a string after its opening quote into {@link #text}.
+ */
+	private void readString() throws IOException {
+		text.setLength(0);
+		while (true) {
+			if (!fill()) {
+				throw error("Unterminated string");
+			}
+			// copy everything up to the next quote or backslash at once
+			int end = pos;
+			while (end < limit && buffer[end] != '"' && buffer[end] != '\\') {
+				end++;
+			}
+			text.append(buffer, pos, end - pos);
+			pos = end;
+			if (pos == limit) {
+				continue;
+			}
+			final char c = buffer[pos++];
+			if (c == '"') {
+				return;
+			}
+			// a backslash, which only escapes quotes
+			if (fill() && buffer[pos] == '"') {
+				text.append('"');
+				pos++;
+			} else {
+				text.append('\\');
+			}
+		}
+	}
+/**
+ * Skips whitespace and returns the next char without consuming it, -1 at the end.
+ */
+	private int skipWhitespace() throws IOException {
+		while (fill()) {
+			final char c = buffer[pos];
+			if (!isWhitespace(c)) {
+				return c;
+			}
+			pos++;
+		}
+		return -1;
+	}
+	private static boolean isWhitespace(int c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+/**
+ * Ensures there is at least one char left in the buffer.
+ * @return false at the end of the text.
+ */
+	private boolean fill() throws IOException {
+		if (pos < limit) {
+			return true;
+		}
+		if (reader == null) {
+			return false;
+		}
+		offset += limit;
+		pos = 0;
+		limit = 0;
+		int n;
+		while ((n = reader.read(buffer, 0, buffer.length)) == 0) {
+			// read until something arrives or the end is reached
+		}
+		if (n < 0) {
+			return false;
+		}
+		limit = n;
+		return true;
+	}
+	private InvalidJsonException error(String msg) {
+		return new InvalidJsonException(msg + " at position " + (offset + pos));
+	}
+/**
+ * Creates the error for an unexpected token, at the position where the token starts.
+ */
+	private InvalidJsonException tokenError(String msg) {
+		return new InvalidJsonException(msg + " at position " + tokenStart);
+	}
+}
@@ -0,0 +1,383 @@
+package util.jsontools;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+/**
+ * This class is a lazy alternative to {@link Json}. The JSON formated text is parsed once into a compact index of
+ * its structure, the <i>tape</i>, which only holds offsets into the text. Values are created only when they are
+ * asked for, thus looking up a few values of a large document does not create any object for the rest of it.
+ * <p>
+ * Every value of the document is a <i>node</i>, addressed by an <tt>int</tt>. The document itself is the node
+ * {@link #root()}. The nodes of an object are its names and values in alternating order, those of an array its
+ * entries. Like {@link JsonParser}, only <tt>\"</tt> is an escape sequence within strings.
+ * </p>
+ * <pre>
+ * {@code
+ * JsonTape tape = JsonTape.read(reader);
+ * int repository = tape.get(tape.root(), "repository");
+ * for (int dataset : tape.elements(tape.get(repository, "datasets"))) {
+ * 	if (tape.textEquals(tape.get(dataset, "id"), id)) {
+ * 		return tape.getString(tape.get(dataset, "name"));
+ * 	}
+ * }
+ * }
+ * </pre>
+ */
+public class JsonTape {
+	private static final int OBJECT = 1;
+	private static final int ARRAY = 2;
+	private static final int STRING = 3;
+	private static final int LITERAL = 4;
+	/**
+	 * The number of ints per node on the tape: The kind, followed by start and end offset in the text for strings
+	 * and literals, or the number of children and the node behind the last descendant for objects and arrays.
+	 */
+	private static final int NODE_SIZE = 3;
+	private final char[] text;
+	private final int length;
+	private int[] tape = new int[NODE_SIZE * 64];
+	private int nodes = 0;
+	private int pos = 0;
+/**
+ * Parses the given text.
+ * @param text The JSON formated text.
+ * @param length The number of chars of the text.
+ * @throws InvalidJsonException If the text is not well formed.
+ */
+	private JsonTape(char[] text, int length) {
+		this.text = text;
+		this.length = length;
+		skipWhitespace();
+		parseValue();
+		skipWhitespace();
+		if (pos != length) {
+			throw error("Unexpected content after the document");
+		}
+		tape = Arrays.copyOf(tape, nodes * NODE_SIZE);
+	}
+/**
+ * Parses the text read from the given reader, which gets closed.
+ * @param reader The reader to read from.
+ * @return The parsed document.
+ * @throws IOException If there is a Problem while reading.
+ * @throws InvalidJsonException If the text is not well formed.
+ */
+	public static JsonTape read(Reader reader) throws IOException {
+		char[] text = new char[8192];
+		int length = 0;
+		try {
+			int n;
+			while ((n = reader.read(text, length, text.length - length)) >= 0) {
+				length += n;
+				if (length == text.length) {
+					text = Arrays.copyOf(text, text.length * 2);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+		return new JsonTape(text, length);
+	}
+/**
+ * Parses the given UTF-8 encoded text.
+ * @param bytes The JSON formated text, from its position to its limit.
+ * @return The parsed document.
+ * @throws InvalidJsonException If the text is not well formed.
+ */
+	public static JsonTape read(ByteBuffer bytes) {
+		final CharBuffer chars = StandardCharsets.UTF_8.decode(bytes);
+		final char[] text = Arrays.copyOfRange(chars.array(), chars.arrayOffset() + chars.position(),
+				chars.arrayOffset() + chars.limit());
+		return new JsonTape(text, text.length);
+	}
+/**
+ * Parses the given text.
+ * @param json The JSON formated text.
+ * @return The parsed document.
+ * @throws InvalidJsonException If the text is not well formed.
+ */
+	public static JsonTape read(String json) {
+		return new JsonTape(json.toCharArray(), json.length());
+	}
+/**
+ * Get the node of the document itself.
+ * @return the root node
+ */
+	public int root() {
+		return 0;
+	}
+/**
+ * check if a node is an object
+ * @param node the node
+ * @return true if it is an object
+ */
+	public boolean isObject(int node) {
+		return tape[node * NODE_SIZE] == OBJECT;
+	}
+/**
+ * check if a node is an array
+ * @param node the node
+ * @return true if it is an array
+ */
+	public boolean isArray(int node) {
+		return tape[node * NODE_SIZE] == ARRAY;
+	}
+/**
+ * Get the value with the given key of an object. Only the names of the object are compared, nothing gets created.
+ * @param object the object node
+ * @param key the key of the entry wanted
+ * @return the value node or -1 if the object has no such entry.
+ */
+	public int get(int object, String key) {
+		checkKind(object, OBJECT);
+		final int end = tape[object * NODE_SIZE + 2];
+		int node = object + 1;
+		while (node < end) {
+			if (textEquals(node, key)) {
+				return node + 1;
+			}
+			node = following(node + 1);
+		}
+		return -1;
+	}
+/**
+ * Get the names of an object's entries.
+ * @param object the object node
+ * @return the names in the order of the text
+ */
+	public String[] keys(int object) {
+		checkKind(object, OBJECT);
+		final String[] out = new String[tape[object * NODE_SIZE + 1]];
+		int node = object + 1;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = getString(node);
+			node = following(node + 1);
+		}
+		return out;
+	}
+/**
+ * Get the entries of an array.
+ * @param array the array node
+ * @return the nodes of the entries
+ */
+	public int[] elements(int array) {
+		checkKind(array, ARRAY);
+		final int[] out = new int[tape[array * NODE_SIZE + 1]];
+		int node = array + 1;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = node;
+			node = following(node);
+		}
+		return out;
+	}
+/**
+ * Get the text of a string or literal, i.e. number, node.
+ * @param node the node
+ * @return the unescaped text
+ */
+	public String getString(int node) {
+		final int start = tape[node * NODE_SIZE + 1];
+		final int end = tape[node * NODE_SIZE + 2];
+		if (tape[node * NODE_SIZE] == LITERAL) {
+			return new String(text, start, end - start);
+		}
+		checkKind(node, STRING);
+		final StringBuilder sb = new StringBuilder(end - start);
+		for (int i = start; i < end; i++) {
+			if (text[i] == '\\' && i + 1 < end && text[i + 1] == '"') {
+				i++;
+			}
+			sb.append(text[i]);
+		}
+		return sb.toString();
+	}
+/**
+ * Get the number of a string or literal node.
+ * @param node the node
+ * @return the number
+ */
+	public double getDouble(int node) {
+		return Double.parseDouble(getString(node));
+	}
+/**
+ * Get the date of a string node.
+ * @param node the node
+ * @return the date
+ */
+	public Date getDate(int node) {
+		return Json.iso8601ToDate(getString(node));
+	}
+/**
+ * Compares the text of a string or literal node with the given String, without creating the text.
+ * @param node the node
+ * @param value the String to compare with
+ * @return true if the unescaped text equals the given String
+ */
+	public boolean textEquals(int node, String value) {
+		final int kind = tape[node * NODE_SIZE];
+		if (kind != STRING && kind != LITERAL) {
+			return false;
+		}
+		final int end = tape[node * NODE_SIZE + 2];
+		int i = tape[node * NODE_SIZE + 1];
+		final int n = value.length();
+		for (int k = 0; k < n; k++, i++) {
+			if (i >= end) {
+				return false;
+			}
+			if (kind == STRING && text[i] == '\\' && i + 1 < end && text[i + 1] == '"') {
+				i++;
+			}
+			if (text[i] != value.charAt(k)) {
+				return false;
+			}
+		}
+		return i == end;
+	}
+/**
+ * Creates a {@link Json} object with the whole content of an object node.
+ * @param object the object node
+ * @return the materialized object
+ */
+	public Json toJson(int object) {
+		checkKind(object, OBJECT);
+		final Json out = new Json();
+		final int end = tape[object * NODE_SIZE + 2];
+		int node = object + 1;
+		while (node < end) {
+			final String name = getString(node);
+			final int value = node + 1;
+			switch (tape[value * NODE_SIZE]) {
+			case OBJECT:
+				out.addEntry(name, toJson(value));
+				break;
+			case ARRAY:
+				final int[] elements = elements(value);
+				final Json[] set = new Json[elements.length];
+				for (int i = 0; i < elements.length; i++) {
+					set[i] = toJson(elements[i]);
+				}
+				out.addEntry(name, set);
+				break;
+			default:
+				out.addEntry(name, getString(value));
+			}
+			node = following(value);
+		}
+		return out;
+	}
+/**
+ * Get the node behind the given one and all its descendants.
+ */
+	private int following(int node) {
+		final int kind = tape[node * NODE_SIZE];
+		return kind == OBJECT || kind == ARRAY ? tape[node * NODE_SIZE + 2] : node + 1;
+	}
+	private void checkKind(int node, int kind) {
+		if (tape[node * NODE_SIZE] != kind) {
+			throw new IllegalArgumentException("Node " + node + " is not " + (kind == OBJECT ? "an object"
+					: kind == ARRAY ? "an array" : "a string"));
+		}
+	}
+	private int add(int kind, int a, int b) {
+		if (nodes * NODE_SIZE == tape.length) {
+			tape = Arrays.copyOf(tape, tape.length * 2);
+		}
+		final int node = nodes++;
+		tape[node * NODE_SIZE] = kind;
+		tape[node * NODE_SIZE + 1] = a;
+		tape[node * NODE_SIZE + 2] = b;
+		return node;
+	}
+	private void parseValue() {
+		if (pos == length) {
+			throw error("Value expected");
+		}
+		final char c = text[pos];
+		if (c == '{' || c == '[') {
+			parseContainer(c == '{');
+		} else if (c == '"') {
+			parseString();
+		} else {
+			final int start = pos;
+			while (pos < length && !isDelimiter(text[pos])) {
+				pos++;
+			}
+			if (pos == start) {
+				throw error("Value expected");
+			}
+			add(LITERAL, start, pos);
+		}
+	}
+	private void parseContainer(boolean object) {
+		final int node = add(object ? OBJECT : ARRAY, 0, 0);
+		final char close = object ? '}' : ']';
+		pos++;
+		skipWhitespace();
+		int count = 0;
+		if (pos < length && text[pos] == close) {
+			pos++;
+		} else {
+			while (true) {
+				skipWhitespace();
+				if (object) {
+					if (pos == length || text[pos] != '"') {
+						throw error("Name expected");
+					}
+					parseString();
+					skipWhitespace();
+					if (pos == length || text[pos] != ':') {
+						throw error("':' expected");
+					}
+					pos++;
+					skipWhitespace();
+				}
+				parseValue();
+				count++;
+				skipWhitespace();
+				if (pos < length && text[pos] == ',') {
+					pos++;
+				} else if (pos < length && text[pos] == close) {
+					pos++;
+					break;
+				} else {
+					throw error("',' or '" + close + "' expected");
+				}
+			}
+		}
+		tape[node * NODE_SIZE + 1] = count;
+		tape[node * NODE_SIZE + 2] = nodes;
+	}
+	private void parseString() {
+		final int start = ++pos;
+		while (pos < length && text[pos] != '"') {
+			if (text[pos] == '\\' && pos + 1 < length && text[pos + 1] == '"') {
+				pos++;
+			}
+			pos++;
+		}
+		if (pos == length) {
+			throw error("Unterminated string");
+		}
+		add(STRING, start, pos++);
+	}
+	private void skipWhitespace() {
+		while (pos < length && isWhitespace(text[pos])) {
+			pos++;
+		}
+	}
+	private static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+	private static boolean isDelimiter(char c) {
+		return c == ',' || c == '}' || c == ']' || isWhitespace(c);
+	}
+	private InvalidJsonException error(String msg) {
+		return new InvalidJsonException(msg + " at position " + pos);
+	}
+}
@@ -0,0 +1,312 @@
+package util.jsontools;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Map;
+/**
+ * This class writes JSON formated text directly to a {@link Writer} or a {@link WritableByteChannel}, in exactly the
+ * layout of {@link Json#toJson()}. The text is collected in a buffer which is reused until the writer is closed, no
+ * intermediate Strings are created.
+ * <p>
+ * Besides whole {@link Json} objects (see {@link #write(Json)}) the text can be written piece by piece, thus large
+ * arrays do not have to be held in memory as {@link Json} objects:
+ * <pre>
+ * {@code
+ * writer.beginObject();
+ * writer.name("datasets");
+ * writer.beginArray();
+ * for (...) {
+ * 	writer.beginObject();
+ * 	writer.name("id");
+ * 	writer.value(id);
+ * 	writer.endObject();
+ * }
+ * writer.endArray();
+ * writer.endObject();
+ * }
+ * </pre>
+ * </p>
+ */
+public class JsonWriter implements Closeable, Flushable {
+	private static final int BUFFER_SIZE = 8192;
+	private final Writer writer;
+	private final WritableByteChannel channel;
+	private final CharsetEncoder encoder;
+	private final ByteBuffer bytes;
+	private final char[] buffer = new char[BUFFER_SIZE];
+	private int pos = 0;
+	/**
+	 * Whether the current object or array got an entry already, one flag per nesting level.
+	 */
+	private boolean[] nonEmpty = new boolean[16];
+	/**
+	 * Whether a nesting level is an object or an array.
+	 */
+	private boolean[] objects = new boolean[16];
+	private int depth = 0;
+/**
+ * Initializes the {@code JsonWriter} writing to the given writer.
+ * @param writer The writer to write to.
+ */
+	public JsonWriter(Writer writer) {
+		this.writer = writer;
+		this.channel = null;
+		this.encoder = null;
+		this.bytes = null;
+	}
+/**
+ * Initializes the {@code JsonWriter} writing to the given channel.
+ * @param channel The channel to write to.
+ * @param charset The charset to encode the text with.
+ */
+	public JsonWriter(WritableByteChannel channel, Charset charset) {
+		this.writer = null;
+		this.channel = channel;
+		// like a Writer, replace what cannot be encoded
+		this.encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.bytes = ByteBuffer.allocate(BUFFER_SIZE * 2);
+	}
+/**
+ * Writes the given object with all its content.
+ * @param json The object to write.
+ * @throws IOException If writing failed.
+ */
+	public void write(Json json) throws IOException {
+		beginObject();
+		final Map<?, ?> map = json.getMap();
+		for (Map.Entry<?, ?> entry : map.entrySet()) {
+			name((String) entry.getKey());
+			writeValue(entry.getValue());
+		}
+		endObject();
+	}
+/**
+ * Writes the entry with the given key of the given object, i.e. its name and its value.
+ * @param json The object containing the entry.
+ * @param key The key of the entry.
+ * @throws IOException If writing failed.
+ */
+	public void entry(Json json, String key) throws IOException {
+		name(key);
+		writeValue(json.getMap().get(key));
+	}
+/**
+ * Starts an object, as value or as entry of an array.
+ * @throws IOException If writing failed.
+ */
+	public void beginObject() throws IOException {
+		element();
+		append('{');
+		append('\n');
+		push(true);
+	}
+/**
+ * Ends the current object.
+ * @throws IOException If writing failed.
+ */
+	public void endObject() throws IOException {
+		depth--;
+		append('\n');
+		append('}');
+	}
+/**
+ * Starts an array. Like {@link Json}, arrays may only contain objects.
+ * @throws IOException If writing failed.
+ */
+	public void beginArray() throws IOException {
+		append('[');
+		push(false);
+	}
+/**
+ * Ends the current array.
+ * @throws IOException If writing failed.
+ */
+	public void endArray() throws IOException {
+		depth--;
+		append('\n');
+		append(']');
+	}
+/**
+ * Writes the name of the next entry of the current object.
+ * @param name The name.
+ * @throws IOException If writing failed.
+ */
+	public void name(String name) throws IOException {
+		if (nonEmpty[depth - 1]) {
+			append(',');
+			append('\n');
+		}
+		nonEmpty[depth - 1] = true;
+		append('"');
+		append(name);
+		append("\" : ");
+	}
+/**
+ * Writes a String value, which is written without quotes if it looks like a number, like {@link Json#toJson()}
+ * does.
+ * @param value The value.
+ * @throws IOException If writing failed.
+ */
+	public void value(String value) throws IOException {
+		if (Json.isNumeric(value)) {
+			append(value);
+		} else {
+			quoted(value);
+		}
+	}
+/**
+ * Writes a number value.
+ * @param value The value.
+ * @throws IOException If writing failed.
+ */
+	public void value(double value) throws IOException {
+		value(Double.toString(value));
+	}
+/**
+ * Writes the buffered text to the underlying writer or channel and flushes it.
+ * @throws IOException If writing failed.
+ */
+	@Override
+	public void flush() throws IOException {
+		drain(true);
+		if (writer != null) {
+			writer.flush();
+		}
+	}
+/**
+ * Flushes and closes the underlying writer or channel.
+ * @throws IOException If writing failed.
+ */
+	@Override
+	public void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			if (writer != null) {
+				writer.close();
+			} else {
+				channel.close();
+			}
+		}
+	}
+	private void writeValue(Object value) throws IOException {
+		if (value instanceof Json.Literal) {
+			append(((Json.Literal) value).text);
+		} else if (value instanceof String) {
+			quoted((String) value);
+		} else if (value instanceof Json) {
+			write((Json) value);
+		} else if (value instanceof Json[]) {
+			beginArray();
+			for (Json json : (Json[]) value) {
+				write(json);
+			}
+			endArray();
+		} else {
+			throw new IllegalStateException("Cannot write value " + value);
+		}
+	}
+	private void quoted(String value) throws IOException {
+		append('"');
+		// the escaping of Json#jsonEscape
+		int start = 0;
+		int quote;
+		while ((quote = value.indexOf('"', start)) >= 0) {
+			append(value, start, quote);
+			append('\\');
+			append('"');
+			start = quote + 1;
+		}
+		append(value, start, value.length());
+		append('"');
+	}
+/**
+ * Writes the separator in front of an object within an array.
+ */
+	private void element() throws IOException {
+		if (depth > 0 && !objects[depth - 1]) {
+			if (nonEmpty[depth - 1]) {
+				append(',');
+			}
+			nonEmpty[depth - 1] = true;
+			append('\n');
+		}
+	}
+	private void push(boolean object) {
+		if (depth == nonEmpty.length) {
+			final boolean[] grownNonEmpty = new boolean[depth * 2];
+			System.arraycopy(nonEmpty, 0, grownNonEmpty, 0, depth);
+			nonEmpty = grownNonEmpty;
+			final boolean[] grownObjects = new boolean[depth * 2];
+			System.arraycopy(objects, 0, grownObjects, 0, depth);
+			objects = grownObjects;
+		}
+		objects[depth] = object;
+		nonEmpty[depth] = false;
+		depth++;
+	}
+	private void append(char c) throws IOException {
+		if (pos == buffer.length) {
+			drain(false);
+		}
+		buffer[pos++] = c;
+	}
+	private void append(String s) throws IOException {
+		append(s, 0, s.length());
+	}
+	private void append(String s, int start, int end) throws IOException {
+		while (start < end) {
+			if (pos == buffer.length) {
+				drain(false);
+			}
+			final int n = Math.min(end - start, buffer.length - pos);
+			s.getChars(start, start + n, buffer, pos);
+			pos += n;
+			start += n;
+		}
+	}
+/**
+ * Writes the buffer's content to the underlying writer or channel.
+ * @param endOfInput Whether no more text follows for now, thus no char may be kept back.
+ */
+	private void drain(boolean endOfInput) throws IOException {
+		if (writer != null) {
+			writer.write(buffer, 0, pos);
+			pos = 0;
+			return;
+		}
+		final CharBuffer chars = CharBuffer.wrap(buffer, 0, pos);
+		while (true) {
+			final CoderResult result = encoder.encode(chars, bytes, endOfInput);
+			if (result.isError()) {
+				result.throwException();
+			}
+			bytes.flip();
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			bytes.clear();
+			if (!result.isOverflow()) {
+				break;
+			}
+		}
+		if (endOfInput) {
+			encoder.reset();
+		}
+		// keep a split surrogate pair for the next round
+		final int rest = chars.remaining();
+		System.arraycopy(buffer, chars.position(), buffer, 0, rest);
+		pos = rest;
+	}
+}
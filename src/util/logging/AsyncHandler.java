@@ -0,0 +1,357 @@
+package util.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * The {@link AsyncHandler} forwards logs to another {@link Handler}, the
+ * <i>target</i>, on a background thread. <br />
+ * Thus formatting and writing a log does not happen on the thread which logs,
+ * which only stores the {@link LogRecord} into a pre-allocated ring buffer.
+ * Storing a log does not lock: Logging threads claim a slot of the buffer with
+ * an atomic counter and the single background thread drains the slots in the
+ * order they were claimed.
+ * <p>
+ * If the buffer is full, the {@link OverflowPolicy} decides whether the log is
+ * dropped or the logging thread waits for a free slot. Dropped logs are
+ * counted, see {@link #getDroppedCount()}.
+ * </p>
+ * <p>
+ * In a configuration file (see {@link ConfigurationManager}) the target is the
+ * reference of a previously defined handler:
+ *
+ * <pre>
+ * {@code
+ * {
+ * 	"ref":"async",
+ * 	"name":"util.logging.AsyncHandler",
+ * 	"target":"console",
+ * 	"capacity":1024,
+ * 	"policy":"DROP"
+ * }
+ * }
+ * </pre>
+ *
+ * Without a target the handler forwards to a new
+ * {@link StandardConsoleHandler}.
+ * </p>
+ * <p>
+ * <b>Note: The target is closed along with this handler. Logs stored before
+ * {@link #close()} or {@link #flush()} are written before these methods
+ * return.</b>
+ * </p>
+ */
+public class AsyncHandler extends Handler {
+
+	/**
+	 * What to do with a log if the buffer is full.
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * The log is dropped and counted.
+		 */
+		DROP,
+		/**
+		 * The logging thread waits until the log can be stored.
+		 */
+		BLOCK
+	}
+
+	public static final int DEFAULT_CAPACITY = 1024;
+
+	public static final OverflowPolicy DEFAULT_POLICY = OverflowPolicy.BLOCK;
+
+	/**
+	 * The maximal time in nanoseconds the drain thread sleeps without checking
+	 * for new logs.
+	 */
+	private static final long IDLE_NANOS = 10 * 1000 * 1000;
+
+	/**
+	 * The time in nanoseconds a blocked logging thread waits before trying
+	 * again.
+	 */
+	private static final long BLOCK_NANOS = 100 * 1000;
+
+	private Handler target = null;
+
+	private OverflowPolicy policy = DEFAULT_POLICY;
+
+	private LogRecord[] slots;
+
+	/**
+	 * The sequence number stored in each slot, the slot is readable if it
+	 * equals the sequence number the drain thread waits for.
+	 */
+	private AtomicLongArray published;
+
+	private int mask;
+
+	/**
+	 * The next sequence number to claim by a logging thread.
+	 */
+	private final AtomicLong claimed = new AtomicLong();
+
+	/**
+	 * The next sequence number to drain, only written by the drain thread.
+	 */
+	private volatile long drained = 0;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private volatile boolean idle = false;
+
+	private volatile boolean closed = false;
+
+	private Thread drainer = null;
+
+	/**
+	 * Creates a new {@link AsyncHandler} with default settings. Logs are
+	 * forwarded to a {@link StandardConsoleHandler} unless
+	 * {@link #configure(Handler, int, OverflowPolicy)} is invoked before the
+	 * first log.
+	 */
+	public AsyncHandler() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new {@link AsyncHandler} forwarding to the given handler.
+	 *
+	 * @param target
+	 *            The handler to forward logs to.
+	 * @param capacity
+	 *            The number of logs the buffer can hold, rounded up to the
+	 *            next power of two.
+	 * @param policy
+	 *            What to do if the buffer is full.
+	 */
+	public AsyncHandler(final Handler target, final int capacity,
+			final OverflowPolicy policy) {
+		configure(target, capacity, policy);
+	}
+
+	/**
+	 * Configures this handler. This is only possible before the first log was
+	 * published.
+	 *
+	 * @param target
+	 *            The handler to forward logs to, <tt>null</tt> for a new
+	 *            {@link StandardConsoleHandler}.
+	 * @param capacity
+	 *            The number of logs the buffer can hold, rounded up to the
+	 *            next power of two.
+	 * @param policy
+	 *            What to do if the buffer is full, <tt>null</tt> for
+	 *            {@link #DEFAULT_POLICY}.
+	 * @throws IllegalArgumentException
+	 *             If the capacity is not positive.
+	 * @throws IllegalStateException
+	 *             If logs were published already.
+	 */
+	public synchronized void configure(final Handler target,
+			final int capacity, final OverflowPolicy policy) {
+		if (capacity <= 0 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("Invalid capacity: " + capacity);
+		}
+		if (drainer != null) {
+			throw new IllegalStateException(
+					"Cannot configure an AsyncHandler which is already in use");
+		}
+		this.target = target;
+		this.policy = policy != null ? policy : DEFAULT_POLICY;
+		allocate(capacity);
+	}
+
+	/**
+	 * Returns the handler logs are forwarded to.
+	 *
+	 * @return The target handler or <tt>null</tt> if none was set and nothing
+	 *         got logged yet.
+	 */
+	public Handler getTarget() {
+		return target;
+	}
+
+	public OverflowPolicy getPolicy() {
+		return policy;
+	}
+
+	public int getCapacity() {
+		return slots.length;
+	}
+
+	/**
+	 * Returns the number of logs which were dropped since the buffer was full.
+	 *
+	 * @return The number of dropped logs.
+	 */
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	/**
+	 * Returns the number of logs which are stored but not yet forwarded.
+	 *
+	 * @return The number of pending logs.
+	 */
+	public long getPendingCount() {
+		return claimed.get() - drained;
+	}
+
+	@Override
+	public void publish(final LogRecord record) {
+		if (record == null || closed || !isLoggable(record)) {
+			return;
+		}
+		if (drainer == null) {
+			start();
+		}
+		// the caller is only known on this thread
+		record.getSourceClassName();
+		final int capacity = slots.length;
+		long seq;
+		while (true) {
+			seq = claimed.get();
+			if (seq - drained >= capacity) {
+				if (policy == OverflowPolicy.DROP) {
+					dropped.incrementAndGet();
+					return;
+				}
+				if (closed) {
+					return;
+				}
+				LockSupport.unpark(drainer);
+				LockSupport.parkNanos(BLOCK_NANOS);
+				continue;
+			}
+			if (claimed.compareAndSet(seq, seq + 1)) {
+				break;
+			}
+		}
+		final int index = (int) (seq & mask);
+		slots[index] = record;
+		// publishes the slot to the drain thread
+		published.set(index, seq);
+		if (idle) {
+			LockSupport.unpark(drainer);
+		}
+	}
+
+	/**
+	 * Waits until all logs stored so far are forwarded and flushes the target.
+	 */
+	@Override
+	public void flush() {
+		awaitDrained(claimed.get());
+		if (target != null) {
+			target.flush();
+		}
+	}
+
+	/**
+	 * Forwards the remaining logs, stops the drain thread and closes the
+	 * target.
+	 */
+	@Override
+	public void close() throws SecurityException {
+		final Thread thread;
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			thread = drainer;
+		}
+		if (thread != null) {
+			LockSupport.unpark(thread);
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		if (target != null) {
+			target.close();
+		}
+	}
+
+	private void allocate(final int capacity) {
+		int size = 1;
+		while (size < capacity) {
+			size <<= 1;
+		}
+		slots = new LogRecord[size];
+		published = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			published.set(i, -1);
+		}
+		mask = size - 1;
+	}
+
+	private synchronized void start() {
+		if (drainer != null) {
+			return;
+		}
+		if (target == null) {
+			target = new StandardConsoleHandler(Level.ALL);
+		}
+		final Thread thread = new Thread(new Drain(), "async-log");
+		thread.setDaemon(true);
+		thread.start();
+		drainer = thread;
+	}
+
+	private void awaitDrained(final long seq) {
+		final Thread thread = drainer;
+		while (thread != null && thread.isAlive() && drained < seq) {
+			LockSupport.unpark(thread);
+			LockSupport.parkNanos(BLOCK_NANOS);
+		}
+	}
+
+	/**
+	 * Forwards the stored logs to the target until the handler is closed and
+	 * the buffer is empty.
+	 */
+	private class Drain implements Runnable {
+
+		@Override
+		public void run() {
+			long seq = drained;
+			while (true) {
+				final int index = (int) (seq & mask);
+				if (published.get(index) == seq) {
+					final LogRecord record = slots[index];
+					slots[index] = null;
+					forward(record);
+					// only now the slot is free and the log written
+					drained = ++seq;
+					continue;
+				}
+				if (closed && claimed.get() == seq) {
+					return;
+				}
+				idle = true;
+				// a log might have been stored before idle was set
+				if (published.get(index) != seq) {
+					LockSupport.parkNanos(IDLE_NANOS);
+				}
+				idle = false;
+			}
+		}
+
+		private void forward(final LogRecord record) {
+			try {
+				target.publish(record);
+			} catch (RuntimeException e) {
+				reportError("Could not forward log", e, ErrorManager.WRITE_FAILURE);
+			}
+		}
+	}
+}
@@ -123,6 +123,23 @@ import util.jsontools.JsonParser;
  * <td>The reference string to a previous defined handler.</td>
  * <td>mandatory</td>
  * </tr>
+ * <tr>
+ * <td>target</td>
+ * <td>Only for an {@link AsyncHandler}: The reference string to a previous
+ * defined handler, which the logs are forwarded to.</td>
+ * <td>optional</td>
+ * </tr>
+ * <tr>
+ * <td>capacity</td>
+ * <td>Only for an {@link AsyncHandler}: The number of logs it can hold.</td>
+ * <td>optional</td>
+ * </tr>
+ * <tr>
+ * <td>policy</td>
+ * <td>Only for an {@link AsyncHandler}: Either <tt>DROP</tt> or
+ * <tt>BLOCK</tt>, see {@link AsyncHandler.OverflowPolicy}.</td>
+ * <td>optional</td>
+ * </tr>
  * </table>
  * </p>
  * <p>
@@ -170,6 +187,9 @@ public class ConfigurationManager {
 	private static final String LEVEL_KEY = "level";
 	private static final String LOGGERS_KEY = "loggers";
 	private static final String HANDLER_KEY = "handler";
+	private static final String TARGET_KEY = "target";
+	private static final String CAPACITY_KEY = "capacity";
+	private static final String POLICY_KEY = "policy";
 
 	private static Level defaultLevel = null;
 	private static boolean loggingDisabled;
@@ -388,6 +408,7 @@ public class ConfigurationManager {
 		if(loggingDisabled){
 			handler.setLevel(Level.OFF);
 		}
+		Logger.invalidateLevels();
 	}
 
 	/**
@@ -511,6 +532,7 @@ public class ConfigurationManager {
 		LOGGER.debug("Disabled all registered handlers");
 		defaultHandler.setLevel(Level.OFF);
 		LOGGER.debug("Disabled default handler");
+		Logger.invalidateLevels();
 	}
 
 	private String getDefaultConfigDesc() {
@@ -544,12 +566,40 @@ public class ConfigurationManager {
 					h.setLevel(lvl);
 				}
 			}
+			if (h instanceof AsyncHandler) {
+				configureAsyncHandler((AsyncHandler) h, handlerObj);
+			}
 			return h;
 		}
 		LOGGER.debug(String.format("Could not instantiate handler %s", name));
 		return null;
 	}
 
+	private void configureAsyncHandler(final AsyncHandler h,
+			final Json handlerObj) {
+		Handler target = null;
+		if (handlerObj.containsEntry(TARGET_KEY)) {
+			target = refHandlerMap.get(handlerObj.getString(TARGET_KEY));
+			if (target == null) {
+				throw new IllegalArgumentException(String.format(
+						"Unknown target handler %s, it has to be defined before",
+						handlerObj.getString(TARGET_KEY)));
+			}
+		}
+		final int capacity = handlerObj.containsEntry(CAPACITY_KEY) ? (int) handlerObj
+				.getDouble(CAPACITY_KEY) : AsyncHandler.DEFAULT_CAPACITY;
+		final AsyncHandler.OverflowPolicy policy = handlerObj
+				.containsEntry(POLICY_KEY) ? AsyncHandler.OverflowPolicy
+				.valueOf(handlerObj.getString(POLICY_KEY).toUpperCase())
+				: AsyncHandler.DEFAULT_POLICY;
+		h.configure(target, capacity, policy);
+		LOGGER.debug(String.format(
+				"Configured async handler with target %s, capacity %d and policy %s",
+				handlerObj.containsEntry(TARGET_KEY) ? handlerObj
+						.getString(TARGET_KEY) : "console", h.getCapacity(),
+				policy));
+	}
+
 	private void parseHandlers(final Json config) {
 		LOGGER.debug("Parsing handler json objects");
 		for (final Json hndlr : config.getSet(HANDLERS_KEY)) {
@@ -3,6 +3,7 @@
  */
 package util.logging;
 
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Filter;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
@@ -35,6 +36,18 @@ import java.util.logging.LogRecord;
  * Additionally {@link java.util.logging.Logger}s can log on {@link LevelX#DEBUG} log
  * level, a level between {@link Level#CONFIG} and {@link Level#FINE}.
  * </p>
+ * <p>
+ * Messages which are expensive to create should be logged with parameters,
+ * e.g. {@code debug("Copying file: {0}", source)}, or with a
+ * {@link MessageSupplier}. These methods return right away if the level is
+ * disabled, without creating the message. Parameters are filled in by the
+ * handler's formatter (see
+ * {@link java.util.logging.Formatter#formatMessage(LogRecord)}), which might
+ * happen on another thread, see {@link AsyncHandler}. <br />
+ * Whether a level is enabled is cached. The cache is invalidated by all
+ * methods of this class which change the level or the handlers, and by the
+ * {@link ConfigurationManager} whenever it changes the level of a handler.
+ * </p>
  * 
  * @see java.util.logging.Logger
  * @see Level
@@ -46,6 +59,25 @@ public final class Logger{
 	
 	private final java.util.logging.Logger logger;
 
+	/**
+	 * Incremented whenever the level or the handlers of a logger or the level
+	 * of a handler change, which invalidates the cached threshold of all
+	 * loggers.
+	 */
+	private static final AtomicInteger generation = new AtomicInteger();
+
+	/**
+	 * The smallest level value which is logged by this logger and at least
+	 * one of its handlers.
+	 */
+	private volatile int threshold = Level.OFF.intValue();
+
+	/**
+	 * The {@link #generation} the {@link #threshold} was computed for,
+	 * <tt>-1</tt> if it was not computed yet.
+	 */
+	private volatile int thresholdGeneration = -1;
+
 	private static final LoggerManager manager = LoggerManager.getManager();
 
 	/**
@@ -104,6 +136,7 @@ public final class Logger{
 	 */
 	public void addHandler(final Handler handler) {
 		this.logger.addHandler(handler);
+		invalidateLevels();
 	}
 
 	/**
@@ -128,6 +161,26 @@ public final class Logger{
 		log(LevelX.DEBUG, msg);
 	}
 
+	/**
+	 * Logs a message with message level debug and the given parameters. The
+	 * message is not created at all if debug is disabled.
+	 * @see #log(Level, String, Object...)
+	 * @param fmt The message to log, with parameter placeholders like <tt>{0}</tt>.
+	 * @param args The parameters of the message.
+	 */
+	public void debug(final String fmt, final Object... args) {
+		log(LevelX.DEBUG, fmt, args);
+	}
+
+	/**
+	 * Logs the message of the given supplier with message level debug. The
+	 * supplier is not invoked if debug is disabled.
+	 * @param msg The supplier of the message to log.
+	 */
+	public void debug(final MessageSupplier msg) {
+		log(LevelX.DEBUG, msg);
+	}
+
 	/**
 	 * Logs a message with message level error.
 	 * If this logger has a level error or higher enabled, the message will be forwarded
@@ -151,6 +204,19 @@ public final class Logger{
 		log(LevelX.ERROR, msg, thrown);
 	}
 
+	/**
+	 * Logs a message with message level error, the given throwable and the
+	 * given parameters. The message is not created at all if error is disabled.
+	 * @see #log(Level, Throwable, String, Object...)
+	 * @param fmt The message to log, with parameter placeholders like <tt>{0}</tt>.
+	 * @param thrown The throwable to give some details
+	 * @param args The parameters of the message.
+	 */
+	public void error(final String fmt, final Throwable thrown,
+			final Object... args) {
+		log(LevelX.ERROR, thrown, fmt, args);
+	}
+
 	/**
 	 * Returns the currently active filter for this logger.
 	 * This may be <code>null</code> if no filter has set yet.
@@ -191,6 +257,51 @@ public final class Logger{
 
 	}
 
+	/**
+	 * Logs a message with message level info and the given parameters. The
+	 * message is not created at all if info is disabled.
+	 * @see #log(Level, String, Object...)
+	 * @param fmt The message to log, with parameter placeholders like <tt>{0}</tt>.
+	 * @param args The parameters of the message.
+	 */
+	public void info(final String fmt, final Object... args) {
+		log(Level.INFO, fmt, args);
+	}
+
+	/**
+	 * Logs the message of the given supplier with message level info. The
+	 * supplier is not invoked if info is disabled.
+	 * @param msg The supplier of the message to log.
+	 */
+	public void info(final MessageSupplier msg) {
+		log(Level.INFO, msg);
+	}
+
+	/**
+	 * Returns whether messages of the given level are logged, i.e. this logger
+	 * and at least one of its handlers have the level enabled. <br />
+	 * The result is cached, thus this method is cheap enough to guard the
+	 * creation of log messages.
+	 * @param level The level to check.
+	 * @return <code>true</code> if messages of the given level are logged.
+	 */
+	public boolean isLoggable(final Level level) {
+		if (thresholdGeneration != generation.get()) {
+			updateThreshold();
+		}
+		final int t = threshold;
+		return t != Level.OFF.intValue() && level.intValue() >= t;
+	}
+
+	/**
+	 * Returns whether debug messages are logged.
+	 * @see #isLoggable(Level)
+	 * @return <code>true</code> if debug messages are logged.
+	 */
+	public boolean isDebugEnabled() {
+		return isLoggable(LevelX.DEBUG);
+	}
+
 	/**
 	 * Logs a message with specified level.
 	 * If this logger has the specified level (or higher) enabled, the message will be forwarded
@@ -216,6 +327,57 @@ public final class Logger{
 		this.logger.log(level, msg, thrown);
 	}
 
+	/**
+	 * Logs a message with specified level and parameters.
+	 * If this logger has the specified level (or higher) enabled, the message and its
+	 * parameters will be forwarded to all its registered handlers, whose formatters
+	 * replace the placeholders <tt>{0}</tt>, <tt>{1}</tt>, ... by the parameters,
+	 * see {@link java.text.MessageFormat}.<br />
+	 * Otherwise this method returns without any allocation except for the
+	 * parameter array.
+	 * @see java.util.logging.Logger#log(Level, String, Object[])
+	 * @param level The level of the log
+	 * @param fmt The message to log, with parameter placeholders.
+	 * @param args The parameters of the message.
+	 */
+	public void log(final Level level, final String fmt, final Object... args) {
+		if (isLoggable(level)) {
+			this.logger.log(level, fmt, args);
+		}
+	}
+
+	/**
+	 * Logs a message with specified level, associated throwable and
+	 * parameters, like {@link #log(Level, String, Object...)}.
+	 * @param level The level of the log
+	 * @param thrown The throwable associated with this log.
+	 * @param fmt The message to log, with parameter placeholders.
+	 * @param args The parameters of the message.
+	 */
+	public void log(final Level level, final Throwable thrown,
+			final String fmt, final Object... args) {
+		if (isLoggable(level)) {
+			final LogRecord record = new LogRecord(level, fmt);
+			record.setLoggerName(logger.getName());
+			record.setParameters(args);
+			record.setThrown(thrown);
+			this.logger.log(record);
+		}
+	}
+
+	/**
+	 * Logs the message of the given supplier with specified level.
+	 * The supplier is only invoked if this logger has the specified level
+	 * (or higher) enabled.
+	 * @param level The level of the log
+	 * @param msg The supplier of the message to log.
+	 */
+	public void log(final Level level, final MessageSupplier msg) {
+		if (isLoggable(level)) {
+			this.logger.log(level, msg.get());
+		}
+	}
+
 	/**
 	 * Logs a specified {@link LogRecord}.
 	 * @see java.util.logging.Logger#log(LogRecord)
@@ -234,6 +396,7 @@ public final class Logger{
 	 */
 	public void removeHandler(final Handler handler) {
 		logger.removeHandler(handler);
+		invalidateLevels();
 	}
 
 	public void setFilter(final Filter filter) {
@@ -242,6 +405,7 @@ public final class Logger{
 
 	public void setLevel(final Level level) {
 		logger.setLevel(level);
+		invalidateLevels();
 	}
 
 	/**
@@ -265,6 +429,17 @@ public final class Logger{
 	public void warn(final String msg, final Throwable thrown) {
 		log(LevelX.WARN, msg, thrown);
 	}
+
+	/**
+	 * Logs a message with message level warn and the given parameters. The
+	 * message is not created at all if warn is disabled.
+	 * @see #log(Level, String, Object...)
+	 * @param fmt The message to log, with parameter placeholders like <tt>{0}</tt>.
+	 * @param args The parameters of the message.
+	 */
+	public void warn(final String fmt, final Object... args) {
+		log(LevelX.WARN, fmt, args);
+	}
 	
 	/**
 	 * Resets this loggers handler list.
@@ -275,5 +450,35 @@ public final class Logger{
 		for (final Handler handler : logger.getHandlers()) {
 			logger.removeHandler(handler);
 		}
+		invalidateLevels();
+	}
+
+	/**
+	 * Invalidates the cached levels of all loggers, e.g. since the level of a
+	 * handler changed.
+	 */
+	static void invalidateLevels() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Computes the {@link #threshold}: The level of this logger (or the
+	 * inherited one), but at least the smallest level of its handlers.
+	 */
+	private void updateThreshold() {
+		final int gen = generation.get();
+		int handlerLevel = Level.OFF.intValue();
+		for (final Handler handler : logger.getHandlers()) {
+			handlerLevel = Math.min(handlerLevel, handler.getLevel().intValue());
+		}
+		Level level = null;
+		for (java.util.logging.Logger l = logger; l != null && level == null; l = l
+				.getParent()) {
+			level = l.getLevel();
+		}
+		final int loggerLevel = level != null ? level.intValue() : Level.INFO
+				.intValue();
+		threshold = Math.max(loggerLevel, handlerLevel);
+		thresholdGeneration = gen;
 	}
 }
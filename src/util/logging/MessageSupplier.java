@@ -0,0 +1,17 @@
+package util.logging;
+
+/**
+ * A {@link MessageSupplier} creates a log message on demand. <br />
+ * It is used for messages which are expensive to create, since
+ * {@link Logger#debug(MessageSupplier)} and its siblings only invoke
+ * {@link #get()} if the message is logged at all.
+ */
+public interface MessageSupplier {
+
+	/**
+	 * Creates the message to log.
+	 *
+	 * @return The message.
+	 */
+	String get();
+}
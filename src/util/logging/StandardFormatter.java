@@ -56,7 +56,9 @@ public class StandardFormatter extends Formatter {
 	 * The described time format is in {@link SimpleDateFormat}-notation.<br>
 	 * The LEVEL stands for the record's level.<br>
 	 * name stands for the name of the logger which created the record.<br>
-	 * The placeholder msg will be replaced by the record's message and NL
+	 * The placeholder msg will be replaced by the record's message, with its
+	 * parameters filled in (see
+	 * {@link Logger#log(java.util.logging.Level, String, Object...)}) and NL
 	 * stands for a new line.
 	 * </p>
 	 * 
@@ -82,7 +84,7 @@ public class StandardFormatter extends Formatter {
 			sb.append(">");
 			sb.append(" ");
 		}
-		sb.append(record.getMessage());
+		sb.append(formatMessage(record));
 		sb.append("\n");
 		final Throwable thrown = record.getThrown();
 		if (thrown != null) {
@@ -43,7 +43,7 @@ class VerboseHandler extends StreamHandler {
 			sb.append(String.format("[%s]", nameStr));
 			sb.append(String.format("[%s]", lvlStr));
 			sb.append(" ");
-			sb.append(record.getMessage());
+			sb.append(formatMessage(record));
 			sb.append("\n");
 			final Throwable thrown = record.getThrown();
 			if (thrown != null) {
@@ -0,0 +1,30 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.api;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+/**
+ * Runs the API tests against repositories in the binary meta data format.
+ */
+@RunWith(Suite.class)
+@SuiteClasses({AddTest.class, CancelTest.class, DeleteTest.class, ExportTest.class,
+    ListTest.class, ReplaceTest.class, SessionTest.class})
+public class BinaryFormatTest
+{
+  private static final String FORMAT_PROPERTY_KEY = "datarepository.metadata.format";
+
+  @BeforeClass
+  public static void setUpFormat()
+  {
+    System.setProperty(FORMAT_PROPERTY_KEY, "binary");
+  }
+
+  @AfterClass
+  public static void tearDownFormat()
+  {
+    System.clearProperty(FORMAT_PROPERTY_KEY);
+  }
+}
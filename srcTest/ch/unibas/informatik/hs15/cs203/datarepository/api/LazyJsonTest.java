@@ -0,0 +1,31 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.api;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.runner.RunWith;
+import org.junit.runners.Suite;
+import org.junit.runners.Suite.SuiteClasses;
+
+/**
+ * Runs the API tests against repositories whose JSON meta data files are
+ * opened lazily.
+ */
+@RunWith(Suite.class)
+@SuiteClasses({AddTest.class, CancelTest.class, DeleteTest.class, ExportTest.class,
+    ListTest.class, ReplaceTest.class, SessionTest.class})
+public class LazyJsonTest
+{
+  private static final String LAZY_JSON_PROPERTY_KEY = "datarepository.metadata.lazy-json";
+
+  @BeforeClass
+  public static void setUpLazyJson()
+  {
+    System.setProperty(LAZY_JSON_PROPERTY_KEY, "true");
+  }
+
+  @AfterClass
+  public static void tearDownLazyJson()
+  {
+    System.clearProperty(LAZY_JSON_PROPERTY_KEY);
+  }
+}
@@ -3,10 +3,15 @@ package ch.unibas.informatik.hs15.cs203.datarepository.api;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.MetaDataCursor;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.PagedDataRepository;
+
 public class ListTest extends APITestCase
 {
   @Test
@@ -108,4 +113,74 @@ public class ListTest extends APITestCase
     }
 
   }
+
+  @Test
+  public void testListPagedAndResumed()
+  {
+    createDataSet("hello.txt", "abc", ":hello world!");
+    createDataSet("hi.txt", "second hello.txt example", ":hi world!");
+    createDataSet("hi2.txt", "third hello.txt example", ":hi test!");
+    List<MetaData> expected = dataRepository.getMetaData(Criteria.all());
+    PagedDataRepository pagedRepository = (PagedDataRepository) dataRepository;
+
+    List<MetaData> metaDataList = new ArrayList<MetaData>();
+    String token;
+    MetaDataCursor cursor = pagedRepository.getMetaData(Criteria.all(), 2, null, MetaDataCursor.Order.ASCENDING);
+    try
+    {
+      metaDataList.add(cursor.next());
+      metaDataList.add(cursor.next());
+      token = cursor.getResumeToken();
+    } finally
+    {
+      cursor.close();
+    }
+    cursor = pagedRepository.getMetaData(Criteria.all(), 2, token, MetaDataCursor.Order.ASCENDING);
+    try
+    {
+      while (cursor.hasNext())
+      {
+        metaDataList.add(cursor.next());
+      }
+    } finally
+    {
+      cursor.close();
+    }
+
+    assertEquals(expected.size(), metaDataList.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertMetaData(expected.get(i), metaDataList.get(i));
+    }
+  }
+
+  @Test
+  public void testListPagedDescending()
+  {
+    createDataSet("hello.txt", "abc", ":hello world!");
+    createDataSet("hi.txt", "second hello.txt example", ":hi world!");
+    createDataSet("hi2.txt", "third hello.txt example", ":hi test!");
+    List<MetaData> expected = dataRepository.getMetaData(new Criteria(null, "hello", null, null));
+    Collections.reverse(expected);
+
+    List<MetaData> metaDataList = new ArrayList<MetaData>();
+    MetaDataCursor cursor = ((PagedDataRepository) dataRepository).getMetaData(
+            new Criteria(null, "hello", null, null), 1, null, MetaDataCursor.Order.DESCENDING);
+    try
+    {
+      while (cursor.hasNext())
+      {
+        metaDataList.add(cursor.next());
+      }
+    } finally
+    {
+      cursor.close();
+    }
+
+    assertEquals(3, metaDataList.size());
+    for (int i = 0; i < expected.size(); i++)
+    {
+      assertMetaData(expected.get(i), metaDataList.get(i));
+    }
+  }
 }
@@ -0,0 +1,52 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.api;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.Factory;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.RepositorySession;
+
+public class SessionTest extends APITestCase
+{
+  @Test
+  public void testSessionSharesDataWithRepository()
+  {
+    DataSet dataSet = createDataSet("hi.txt", "short example", ":hello test!");
+    RepositorySession session = Factory.open(repository);
+    try
+    {
+      List<MetaData> metaData = session.getMetaData(Criteria.all());
+      assertEquals(1, metaData.size());
+      assertMetaData(dataSet.getMetaData(), metaData.get(0));
+
+      createDataSet("hi2.txt", "short example2", ":hello test2!");
+      assertDataSetNamesSorted(session.getMetaData(Criteria.all()), "hi.txt", "hi2.txt");
+
+      session.delete(Criteria.forId(dataSet.getMetaData().getId()));
+      assertDataSetNames(dataRepository.getMetaData(Criteria.all()), "hi2.txt");
+    } finally
+    {
+      session.close();
+    }
+  }
+
+  @Test
+  public void testSessionPersistsOnClose()
+  {
+    RepositorySession session = Factory.open(repository);
+    try
+    {
+      createDataSet("hi.txt", "short example", ":hello test!");
+      createDataSet("hi2.txt", "short example2", ":hello test2!");
+    } finally
+    {
+      session.close();
+    }
+    session.close();
+
+    assertDataSetNamesSorted(Factory.create(repository).getMetaData(Criteria.all()), "hi.txt", "hi2.txt");
+  }
+}
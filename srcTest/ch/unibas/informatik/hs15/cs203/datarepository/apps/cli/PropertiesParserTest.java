@@ -1,6 +1,8 @@
 package ch.unibas.informatik.hs15.cs203.datarepository.apps.cli;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.nio.file.Path;
@@ -71,4 +73,87 @@ public class PropertiesParserTest {
 		}
 	}
 	
+	@Test
+	public void testWatchIncoming(){
+		assertTrue(PropertiesParser.parse(createRegularProps()).isWatchIncoming());
+		Properties props = createRegularProps();
+		props.setProperty(PropertiesParser.WATCH_INCOMING_KEY, "false");
+		assertFalse(PropertiesParser.parse(props).isWatchIncoming());
+		props.setProperty(PropertiesParser.WATCH_INCOMING_KEY, " TRUE ");
+		assertTrue(PropertiesParser.parse(props).isWatchIncoming());
+	}
+	
+	@Test
+	public void testInvalidWatchIncoming(){
+		assertInvalid(PropertiesParser.WATCH_INCOMING_KEY, "yes");
+		assertInvalid(PropertiesParser.WATCH_INCOMING_KEY, "");
+	}
+	
+	@Test
+	public void testLogSettings(){
+		Properties props = createRegularProps();
+		props.setProperty(PropertiesParser.LOG_FLUSH_INTERVAL_KEY, "0");
+		props.setProperty(PropertiesParser.LOG_MAX_SIZE_KEY, "2048");
+		props.setProperty(PropertiesParser.LOG_ROTATION_INTERVAL_KEY, "24");
+		DatasetPortConfiguration config = PropertiesParser.parse(props);
+		assertEquals(0, config.getLogFlushInterval());
+		assertEquals(2048, config.getLogMaxSize());
+		assertEquals(24, config.getLogRotationInterval());
+	}
+
+	@Test
+	public void testInvalidLogSettings(){
+		for(String key : new String[]{PropertiesParser.LOG_FLUSH_INTERVAL_KEY,
+				PropertiesParser.LOG_MAX_SIZE_KEY, PropertiesParser.LOG_ROTATION_INTERVAL_KEY}){
+			assertInvalid(key, "ten");
+			assertInvalid(key, "");
+			assertInvalid(key, "-1");
+		}
+	}
+
+	@Test
+	public void testIngestionSettings(){
+		Properties props = createRegularProps();
+		props.setProperty(PropertiesParser.WORKER_COUNT_KEY, "4");
+		props.setProperty(PropertiesParser.QUEUE_SIZE_KEY, "1");
+		DatasetPortConfiguration config = PropertiesParser.parse(props);
+		assertEquals(4, config.getWorkerCount());
+		assertEquals(1, config.getQueueSize());
+	}
+
+	@Test
+	public void testInvalidIngestionSettings(){
+		for(String key : new String[]{PropertiesParser.WORKER_COUNT_KEY, PropertiesParser.QUEUE_SIZE_KEY}){
+			assertInvalid(key, "four");
+			assertInvalid(key, "0");
+			assertInvalid(key, "-2");
+		}
+	}
+
+	@Test
+	public void testOverviewPageSize(){
+		assertEquals(1000, PropertiesParser.parse(createRegularProps()).getOverviewPageSize());
+		Properties props = createRegularProps();
+		props.setProperty(PropertiesParser.HTML_PAGE_SIZE_KEY, "25");
+		assertEquals(25, PropertiesParser.parse(props).getOverviewPageSize());
+	}
+
+	@Test
+	public void testInvalidOverviewPageSize(){
+		assertInvalid(PropertiesParser.HTML_PAGE_SIZE_KEY, "many");
+		assertInvalid(PropertiesParser.HTML_PAGE_SIZE_KEY, "0");
+		assertInvalid(PropertiesParser.HTML_PAGE_SIZE_KEY, "-10");
+	}
+
+	private void assertInvalid(String key, String value){
+		Properties props = createRegularProps();
+		props.setProperty(key, value);
+		try{
+			PropertiesParser.parse(props);
+			fail("ParseException expected for " + key + "=" + value);
+		}catch(PropertiesParser.ParseException e){
+			
+		}
+	}
+	
 }
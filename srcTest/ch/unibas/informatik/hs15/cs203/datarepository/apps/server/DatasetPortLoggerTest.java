@@ -0,0 +1,244 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+
+public class DatasetPortLoggerTest {
+
+	private Path directory;
+
+	private Path file;
+
+	private DatasetPortLogger logger;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("server-log");
+		file = directory.resolve("server.log");
+		logger = new DatasetPortLogger(directory, file);
+	}
+
+	@After
+	public void tearDown() {
+		logger.close();
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testFlushInterval() throws Exception {
+		logger.open(0, 0, 0);
+		logger.info("first");
+		// flushed without closing
+		long deadline = System.currentTimeMillis() + 10000;
+		while (readLines(file).isEmpty() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		List<String> lines = readLines(file);
+		assertEquals(1, lines.size());
+		assertTrue(lines.get(0), lines.get(0).endsWith(DatasetPortLogger.INFO_LVL + " first"));
+	}
+
+	@Test
+	public void testDrainOnClose() throws Exception {
+		logger.open(60000, 0, 0);
+		for (int i = 0; i < 20000; i++) {
+			logger.info("line " + i);
+		}
+		logger.close();
+		assertLines(readLines(file), 20000);
+	}
+
+	@Test
+	public void testDrainOnCloseWhenInterrupted() throws Exception {
+		logger.open(60000, 0, 0);
+		for (int i = 0; i < 20000; i++) {
+			logger.info("line " + i);
+		}
+		Thread.currentThread().interrupt();
+		try {
+			logger.close();
+			assertTrue(Thread.currentThread().isInterrupted());
+		} finally {
+			Thread.interrupted();
+		}
+		assertLines(readLines(file), 20000);
+	}
+
+	@Test
+	public void testSynchronousAfterClose() throws Exception {
+		logger.open(60000, 0, 0);
+		logger.info("line 0");
+		logger.close();
+		logger.info("line 1");
+		assertLines(readLines(file), 2);
+	}
+
+	@Test
+	public void testRotation() throws Exception {
+		logger.open(0, 1024, 0);
+		for (int i = 0; i < 500; i++) {
+			logger.info("line " + i);
+		}
+		logger.close();
+		List<String> lines = new ArrayList<String>();
+		int archives = 0;
+		DirectoryStream<Path> entries = Files.newDirectoryStream(directory);
+		try {
+			for (Path entry : entries) {
+				String name = entry.getFileName().toString();
+				assertFalse(name, name.endsWith(".tmp"));
+				if (name.endsWith(".gz")) {
+					archives++;
+					lines.addAll(readArchive(entry));
+				}
+			}
+		} finally {
+			entries.close();
+		}
+		if (Files.exists(file)) {
+			lines.addAll(readLines(file));
+		}
+		assertTrue(String.valueOf(archives), archives > 1);
+		Collections.sort(lines, new java.util.Comparator<String>() {
+			@Override
+			public int compare(String o1, String o2) {
+				return Integer.compare(number(o1), number(o2));
+			}
+		});
+		assertLines(lines, 500);
+	}
+
+	@Test
+	public void testRotationCountsBytes() throws Exception {
+		StringBuilder umlauts = new StringBuilder();
+		for (int i = 0; i < 100; i++) {
+			umlauts.append('\u00E4');
+		}
+		logger.open(0, 1024, 0);
+		for (int i = 0; i < 50; i++) {
+			logger.info(umlauts + " line " + i);
+		}
+		logger.close();
+		int archives = 0;
+		DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.gz");
+		try {
+			for (Path entry : entries) {
+				archives++;
+				long size = 0;
+				List<String> lines = readArchive(entry);
+				for (String line : lines) {
+					size += line.getBytes(StandardCharsets.UTF_8).length
+							+ System.lineSeparator().length();
+				}
+				// rotated by the line exceeding the limit
+				long last = lines.get(lines.size() - 1).getBytes(StandardCharsets.UTF_8).length
+						+ System.lineSeparator().length();
+				assertTrue(size + " bytes", size >= 1024);
+				assertTrue(size + " bytes", size - last < 1024);
+			}
+		} finally {
+			entries.close();
+		}
+		assertTrue(String.valueOf(archives), archives > 1);
+	}
+
+	@Test
+	public void testRotationAfterRestart() throws Exception {
+		logger.info("line 0");
+		long old = System.currentTimeMillis() - 2 * 3600 * 1000;
+		Files.setLastModifiedTime(file, FileTime.fromMillis(old));
+		logger.open(0, 0, 3600 * 1000);
+		logger.info("line 1");
+		logger.close();
+		// the old log got rotated before continuing
+		assertLines(readLines(file), 1, 1);
+		DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*.gz");
+		try {
+			int archives = 0;
+			for (Path entry : entries) {
+				archives++;
+				assertLines(readArchive(entry), 0, 1);
+			}
+			assertEquals(1, archives);
+		} finally {
+			entries.close();
+		}
+	}
+
+	@Test
+	public void testContinueYoungLog() throws Exception {
+		logger.info("line 0");
+		logger.open(0, 0, 3600 * 1000);
+		logger.info("line 1");
+		logger.close();
+		assertLines(readLines(file), 2);
+	}
+
+	@Test
+	public void testUtf8Length() throws Exception {
+		for (String str : new String[] { "", "line", "\u00E4", "\u20AC 1",
+				"\uD83D\uDE00", "a\uD83Db" }) {
+			assertEquals(str, str.getBytes(StandardCharsets.UTF_8).length,
+					DatasetPortLogger.utf8Length(str));
+		}
+	}
+
+	private static void assertLines(List<String> lines, int first, int count) {
+		assertEquals(count, lines.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals("line " + (first + i),
+					lines.get(i).substring(lines.get(i).indexOf("line ")));
+		}
+	}
+
+	private static void assertLines(List<String> lines, int count) {
+		assertEquals(count, lines.size());
+		for (int i = 0; i < count; i++) {
+			assertEquals("line " + i, lines.get(i).substring(lines.get(i).indexOf("line ")));
+		}
+	}
+
+	private static int number(String line) {
+		return Integer.parseInt(line.substring(line.indexOf("line ") + 5));
+	}
+
+	private static List<String> readLines(Path path) throws IOException {
+		return Files.exists(path) ? Files.readAllLines(path, StandardCharsets.UTF_8)
+				: new ArrayList<String>();
+	}
+
+	private static List<String> readArchive(Path path) throws IOException {
+		List<String> out = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(
+				Files.newInputStream(path)), StandardCharsets.UTF_8));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				out.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		return out;
+	}
+}
@@ -0,0 +1,100 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+
+public class IncomingWatcherTest {
+
+	private static final long LONG_TIMEOUT = 60000;
+
+	private Path incoming;
+
+	private IncomingWatcher watcher;
+
+	@Before
+	public void setUp() throws IOException {
+		incoming = Files.createTempDirectory("incoming");
+	}
+
+	@After
+	public void tearDown() {
+		if (watcher != null) {
+			watcher.close();
+		}
+		Utils.delete(incoming.toFile());
+	}
+
+	@Test
+	public void testEntriesOnStartupWithoutWaiting() throws Exception {
+		Path entry = Files.createFile(incoming.resolve("a.txt"));
+		for (boolean watch : new boolean[] { true, false }) {
+			watcher = new IncomingWatcher(incoming, watch);
+			long start = System.currentTimeMillis();
+			assertEquals(Arrays.asList(entry), watcher.next(LONG_TIMEOUT));
+			assertTrue(System.currentTimeMillis() - start < LONG_TIMEOUT / 2);
+			watcher.close();
+		}
+	}
+
+	@Test
+	public void testReturnedEntriesWaitForTimeout() throws Exception {
+		Path entry = Files.createFile(incoming.resolve("a.txt"));
+		watcher = new IncomingWatcher(incoming, true);
+		assertEquals(Arrays.asList(entry), watcher.next(LONG_TIMEOUT));
+		long start = System.currentTimeMillis();
+		// still pending, thus re-verified after the timeout
+		assertEquals(Arrays.asList(entry), watcher.next(300));
+		assertTrue(System.currentTimeMillis() - start >= 300);
+	}
+
+	@Test
+	public void testDone() throws Exception {
+		Path entry = Files.createFile(incoming.resolve("a.txt"));
+		watcher = new IncomingWatcher(incoming, true);
+		watcher.done(entry);
+		assertEquals(Collections.emptyList(), watcher.next(100));
+	}
+
+	@Test
+	public void testDefer() throws Exception {
+		Path entry = Files.createFile(incoming.resolve("a.txt"));
+		watcher = new IncomingWatcher(incoming, true);
+		assertEquals(Arrays.asList(entry), watcher.next(LONG_TIMEOUT));
+		long due = System.currentTimeMillis() + 300;
+		watcher.defer(entry, due);
+		List<Path> next = watcher.next(LONG_TIMEOUT);
+		assertTrue(System.currentTimeMillis() >= due);
+		assertTrue(System.currentTimeMillis() < due + LONG_TIMEOUT / 2);
+		assertEquals(Arrays.asList(entry), next);
+	}
+
+	@Test
+	public void testNewEntryInPollingMode() throws Exception {
+		watcher = new IncomingWatcher(incoming, false);
+		assertEquals(Collections.emptyList(), watcher.next(50));
+		Path entry = Files.createFile(incoming.resolve("a.txt"));
+		assertEquals(Arrays.asList(entry), watcher.next(50));
+	}
+
+	@Test
+	public void testDeletedEntry() throws Exception {
+		File entry = Files.createFile(incoming.resolve("a.txt")).toFile();
+		watcher = new IncomingWatcher(incoming, false);
+		assertTrue(entry.delete());
+		assertEquals(Collections.emptyList(), watcher.next(50));
+	}
+}
@@ -0,0 +1,149 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+
+public class IncrementalLastModifiedCompletenessDetectionTest {
+
+	private static final long QUIET = 10000;
+
+	private Path incoming;
+
+	private IncrementalLastModifiedCompletenessDetection detection;
+
+	private long now;
+
+	@Before
+	public void setUp() throws IOException {
+		incoming = Files.createTempDirectory("incoming");
+		detection = create(10);
+		now = System.currentTimeMillis();
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(incoming.toFile());
+	}
+
+	@Test
+	public void testOldTree() throws IOException {
+		Path data = tree();
+		assertTrue(detection.verifyCompletness(data));
+		assertEquals(-1, detection.getRecheckTime(data));
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		Path file = file(incoming.resolve("single.txt"), now - 2000);
+		assertFalse(detection.verifyCompletness(file));
+		assertEquals(now - 2000 + QUIET + 1, detection.getRecheckTime(file));
+		touch(file, now - 1000);
+		assertFalse(detection.verifyCompletness(file));
+		assertEquals(now - 1000 + QUIET + 1, detection.getRecheckTime(file));
+	}
+
+	@Test
+	public void testHotFile() throws IOException {
+		Path data = tree();
+		touch(data.resolve("data/1.dat"), now - 3000);
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(now - 3000 + QUIET + 1, detection.getRecheckTime(data));
+		// a hot file is checked again, although its directory did not change
+		touch(data.resolve("data/1.dat"), now - 1000);
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(now - 1000 + QUIET + 1, detection.getRecheckTime(data));
+	}
+
+	@Test
+	public void testAddedFiles() throws IOException {
+		Path data = tree();
+		touch(data.resolve("greetings.txt"), now - 5000);
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(now - 5000 + QUIET + 1, detection.getRecheckTime(data));
+		// the changed directories are listed again
+		file(data.resolve("data/3.dat"), now - 4000);
+		touch(data.resolve("data"), now - 4000);
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(now - 4000 + QUIET + 1, detection.getRecheckTime(data));
+		Files.createDirectories(data.resolve("more/nested"));
+		file(data.resolve("more/nested/4.dat"), now - 3000);
+		touch(data.resolve("more/nested"), now - 60000);
+		touch(data.resolve("more"), now - 60000);
+		touch(data, now - 50000);
+		// the directory's time is old but differs from the remembered one
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(now - 3000 + QUIET + 1, detection.getRecheckTime(data));
+	}
+
+	@Test
+	public void testRemovedTree() throws IOException {
+		Path data = tree();
+		touch(data.resolve("greetings.txt"), now - 1000);
+		assertFalse(detection.verifyCompletness(data));
+		Utils.delete(data.resolve("data").toFile());
+		touch(data, now - 60000);
+		assertFalse(detection.verifyCompletness(data));
+		Utils.delete(data.toFile());
+		assertFalse(detection.verifyCompletness(data));
+		assertEquals(-1, detection.getRecheckTime(data));
+	}
+
+	@Test
+	public void testBecomesComplete() throws IOException, InterruptedException {
+		detection = create(1);
+		Path data = tree();
+		touch(data.resolve("data/2.dat"), System.currentTimeMillis());
+		assertFalse(detection.verifyCompletness(data));
+		long recheck = detection.getRecheckTime(data);
+		assertTrue(recheck > System.currentTimeMillis());
+		Thread.sleep(recheck - System.currentTimeMillis() + 10);
+		assertTrue(detection.verifyCompletness(data));
+		assertEquals(-1, detection.getRecheckTime(data));
+	}
+
+	/**
+	 * Creates a tree whose files and directories were all modified a minute
+	 * ago.
+	 */
+	private Path tree() throws IOException {
+		Path data = incoming.resolve("my-data");
+		Files.createDirectories(data.resolve("data"));
+		file(data.resolve("greetings.txt"), now - 60000);
+		file(data.resolve("data/1.dat"), now - 60000);
+		file(data.resolve("data/2.dat"), now - 60000);
+		touch(data.resolve("data"), now - 60000);
+		touch(data, now - 60000);
+		return data;
+	}
+
+	private static Path file(Path path, long modified) throws IOException {
+		Files.write(path, path.getFileName().toString().getBytes("UTF-8"));
+		return touch(path, modified);
+	}
+
+	private static Path touch(Path path, long modified) throws IOException {
+		return Files.setLastModifiedTime(path, FileTime.fromMillis(modified));
+	}
+
+	private static IncrementalLastModifiedCompletenessDetection create(int seconds) {
+		IncrementalLastModifiedCompletenessDetection detection = new IncrementalLastModifiedCompletenessDetection();
+		Properties properties = new Properties();
+		properties.setProperty("completeness-detection.quiet-period-in-seconds",
+				Integer.toString(seconds));
+		detection.initializeDetection(properties);
+		return detection;
+	}
+}
@@ -0,0 +1,196 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.CompletenessDetection.CompletenessException;
+
+public class MarkerFileCompletenessDetectionTest {
+
+	private static final String PREFIX = "finished-";
+
+	private Path incoming;
+
+	private MarkerFileCompletenessDetection detection;
+
+	@Before
+	public void setUp() throws IOException {
+		incoming = Files.createTempDirectory("incoming");
+		detection = new MarkerFileCompletenessDetection();
+		Properties properties = new Properties();
+		properties.setProperty("completeness-detection.prefix", PREFIX);
+		detection.initializeDetection(properties);
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(incoming.toFile());
+	}
+
+	@Test(expected = RuntimeException.class)
+	public void testMissingPrefix() {
+		new MarkerFileCompletenessDetection().initializeDetection(new Properties());
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		Path data = create("data.txt");
+		assertFalse(detection.verifyCompletness(data));
+		Path marker = create(PREFIX + "data.txt");
+		assertFalse(detection.verifyCompletness(marker));
+		assertTrue(detection.verifyCompletness(data));
+		assertFalse(Files.exists(marker));
+	}
+
+	@Test
+	public void testSingleOrphanedMarker() throws IOException {
+		Path marker = create(PREFIX + "data.txt");
+		try {
+			detection.verifyCompletness(marker);
+			fail();
+		} catch (CompletenessException ex) {
+			assertTrue(Files.exists(marker));
+		}
+	}
+
+	@Test
+	public void testBatch() throws IOException {
+		Path data = create("data.txt");
+		Path folder = Files.createDirectory(incoming.resolve("folder"));
+		Path pending = create("pending.txt");
+		Path marker = create(PREFIX + "data.txt");
+		Path folderMarker = create(PREFIX + "folder");
+		Path orphaned = create(PREFIX + "gone.txt");
+		Path prefixOnly = create(PREFIX);
+		Map<Path, CompletenessException> errors = new HashMap<Path, CompletenessException>();
+		List<Path> complete = detection.verifyCompleteness(list(), errors);
+		assertEquals(new HashSet<Path>(Arrays.asList(data, folder)),
+				new HashSet<Path>(complete));
+		assertEquals(new HashSet<Path>(Arrays.asList(orphaned, prefixOnly)),
+				errors.keySet());
+		assertTrue(Files.exists(pending));
+		// the markers are kept until the files get added
+		assertTrue(Files.exists(marker));
+		assertTrue(Files.exists(folderMarker));
+		errors.clear();
+		assertEquals(new HashSet<Path>(complete),
+				new HashSet<Path>(detection.verifyCompleteness(list(), errors)));
+		detection.consume(data);
+		detection.consume(folder);
+		assertFalse(Files.exists(marker));
+		assertFalse(Files.exists(folderMarker));
+		errors.clear();
+		assertEquals(Collections.<Path> emptyList(),
+				detection.verifyCompleteness(list(), errors));
+		assertEquals(2, errors.size());
+	}
+
+	@Test
+	public void testConsumeWithoutMarker() throws IOException {
+		Path data = create("data.txt");
+		try {
+			detection.consume(data);
+			fail();
+		} catch (CompletenessException ex) {
+			assertTrue(Files.exists(data));
+		}
+	}
+
+	@Test
+	public void testBatchErrorsPerFile() throws IOException {
+		Path data = create("data.txt");
+		create(PREFIX + "data.txt");
+		Path relative = Paths.get("relative.txt");
+		Map<Path, CompletenessException> errors = new HashMap<Path, CompletenessException>();
+		List<Path> files = list();
+		files.add(0, relative);
+		// a single failing file does not abort the check of the others
+		assertEquals(Arrays.asList(data), detection.verifyCompleteness(files, errors));
+		assertEquals(Collections.singleton(relative), errors.keySet());
+	}
+
+	@Test
+	public void testBatchOnlyUsesGivenFiles() throws IOException {
+		Path data = create("data.txt");
+		Path marker = create(PREFIX + "data.txt");
+		Map<Path, CompletenessException> errors = new HashMap<Path, CompletenessException>();
+		// a marker which is not part of the snapshot is not looked up
+		assertEquals(Collections.<Path> emptyList(),
+				detection.verifyCompleteness(Arrays.asList(data), errors));
+		assertTrue(Files.exists(marker));
+		// neither is the file marked by a marker of the snapshot
+		assertEquals(Collections.<Path> emptyList(),
+				detection.verifyCompleteness(Arrays.asList(marker), errors));
+		assertEquals(Collections.singleton(marker), errors.keySet());
+	}
+
+	@Test
+	public void testBatchLikeSingle() throws IOException {
+		String[] names = { "a.txt", "b.txt", "c", PREFIX + "a.txt", PREFIX + "c",
+				PREFIX + "x.txt", PREFIX, PREFIX + PREFIX + "a.txt" };
+		for (String name : names) {
+			create(name);
+		}
+		List<Path> files = list();
+		Map<Path, CompletenessException> errors = new HashMap<Path, CompletenessException>();
+		Set<Path> batch = new HashSet<Path>(detection.verifyCompleteness(files, errors));
+
+		Utils.delete(incoming.toFile());
+		Files.createDirectory(incoming);
+		for (String name : names) {
+			create(name);
+		}
+		Set<Path> single = new HashSet<Path>();
+		Set<Path> failed = new HashSet<Path>();
+		for (Path file : files) {
+			try {
+				if (Files.exists(file) && detection.verifyCompletness(file)) {
+					single.add(file);
+				}
+			} catch (CompletenessException ex) {
+				failed.add(file);
+			}
+		}
+		assertEquals(single, batch);
+		assertEquals(failed, errors.keySet());
+	}
+
+	private Path create(String name) throws IOException {
+		return Files.write(incoming.resolve(name), name.getBytes("UTF-8"));
+	}
+
+	private List<Path> list() throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		DirectoryStream<Path> children = Files.newDirectoryStream(incoming);
+		try {
+			for (Path child : children) {
+				files.add(child);
+			}
+		} finally {
+			children.close();
+		}
+		return files;
+	}
+}
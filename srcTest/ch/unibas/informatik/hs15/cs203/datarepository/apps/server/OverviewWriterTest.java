@@ -0,0 +1,218 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.apps.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.MetaData;
+
+public class OverviewWriterTest {
+
+	private static final FileTime OLD = FileTime.fromMillis(1000000000000L);
+
+	private Path directory;
+
+	private Path overview;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("overview");
+		overview = directory.resolve("table.html");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testSinglePage() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 2));
+		assertTrue(writer.add(metas(2, 3)));
+		String page = read(overview);
+		assertRows(page, 0, 3);
+		assertFalse(page, page.contains("Page 1"));
+		assertEquals(Arrays.asList(overview), pages());
+	}
+
+	@Test
+	public void testAddToLastPage() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 5));
+		Path second = directory.resolve("table-2.html");
+		Files.setLastModifiedTime(overview, OLD);
+		assertTrue(writer.add(metas(5, 6)));
+		// only the last page is rewritten
+		assertEquals(OLD, Files.getLastModifiedTime(overview));
+		assertRows(read(second), 3, 6);
+		assertFalse(read(second).contains("Next"));
+	}
+
+	@Test
+	public void testAddPastPageBoundary() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 6));
+		Path second = directory.resolve("table-2.html");
+		Path third = directory.resolve("table-3.html");
+		String first = read(overview);
+		Files.setLastModifiedTime(overview, OLD);
+		Files.setLastModifiedTime(second, OLD);
+		assertTrue(writer.add(metas(6, 7)));
+		// the first page is untouched, the former last page links the new one
+		assertEquals(OLD, Files.getLastModifiedTime(overview));
+		assertEquals(first, read(overview));
+		assertTrue(Files.getLastModifiedTime(second).compareTo(OLD) > 0);
+		String page = read(second);
+		assertRows(page, 3, 6);
+		assertTrue(page, page.contains("<a href=\"table-3.html\">Next</a>"));
+		page = read(third);
+		assertRows(page, 6, 7);
+		assertTrue(page, page.contains("<a href=\"table-2.html\">Previous</a>"));
+		assertFalse(page, page.contains("Next"));
+		assertEquals(Arrays.asList(overview, second, third), pages());
+	}
+
+	@Test
+	public void testFirstPageOverflows() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 3));
+		assertFalse(read(overview).contains("Next"));
+		assertTrue(writer.add(metas(3, 4)));
+		String page = read(overview);
+		assertRows(page, 0, 3);
+		assertTrue(page, page.contains("<a href=\"table-2.html\">Next</a>"));
+		assertRows(read(directory.resolve("table-2.html")), 3, 4);
+	}
+
+	@Test
+	public void testAddToFormerPage() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		// not complete yet
+		assertFalse(writer.add(metas(0, 1)));
+		writer.createHtmlFile(metas(1, 5));
+		assertFalse(writer.add(metas(0, 1)));
+		writer.createHtmlFile(metas(0, 5));
+		assertRows(read(overview), 0, 3);
+		assertRows(read(directory.resolve("table-2.html")), 3, 5);
+	}
+
+	@Test
+	public void testShrinkingOverview() throws IOException {
+		OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 10));
+		writer.createHtmlFile(metas(0, 4));
+		assertEquals(Arrays.asList(overview, directory.resolve("table-2.html")), pages());
+	}
+
+	@Test
+	public void testReadersSeeCompletePages() throws Exception {
+		final OverviewWriter writer = new OverviewWriter(overview, 3);
+		writer.createHtmlFile(metas(0, 0));
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final List<String> partial = new ArrayList<String>();
+		Thread reader = new Thread() {
+			@Override
+			public void run() {
+				while (!done.get()) {
+					for (int page = 1; page <= 50; page++) {
+						Path path = page == 1 ? overview : directory.resolve("table-"
+								+ page + ".html");
+						try {
+							String content = read(path);
+							if (!content.endsWith("</html>")) {
+								partial.add(content);
+							}
+						} catch (NoSuchFileException ex) {
+							// not written yet
+						} catch (IOException ex) {
+							partial.add(ex.toString());
+						}
+					}
+				}
+			}
+		};
+		reader.start();
+		try {
+			for (int i = 0; i < 100; i++) {
+				assertTrue(writer.add(metas(i, i + 1)));
+			}
+		} finally {
+			done.set(true);
+			reader.join();
+		}
+		assertEquals(new ArrayList<String>(), partial);
+		assertEquals(34, pages().size());
+	}
+
+	private static List<MetaData> metas(int from, int to) {
+		List<MetaData> out = new ArrayList<MetaData>();
+		for (int i = from; i < to; i++) {
+			out.add(new MetaData(String.format("id-%03d", i), "name-" + i, "", 1, i,
+					new Date(1000L * i)));
+		}
+		return out;
+	}
+
+	/**
+	 * Asserts that the page holds exactly the rows of the given meta data.
+	 */
+	private static void assertRows(String page, int from, int to) {
+		int rows = 0;
+		for (int i = page.indexOf("<td>id-"); i >= 0; i = page.indexOf("<td>id-", i + 1)) {
+			assertEquals(page, String.format("<td>id-%03d", from + rows),
+					page.substring(i, i + 10));
+			rows++;
+		}
+		assertEquals(page, to - from, rows);
+	}
+
+	private List<Path> pages() throws IOException {
+		List<Path> out = new ArrayList<Path>();
+		DirectoryStream<Path> entries = Files.newDirectoryStream(directory);
+		try {
+			for (Path entry : entries) {
+				out.add(entry);
+			}
+		} finally {
+			entries.close();
+		}
+		Collections.sort(out, new Comparator<Path>() {
+			@Override
+			public int compare(Path o1, Path o2) {
+				return Integer.compare(number(o1), number(o2));
+			}
+		});
+		return out;
+	}
+
+	private static int number(Path page) {
+		String name = page.getFileName().toString();
+		return name.equals("table.html") ? 1 : Integer.parseInt(name.substring(6,
+				name.length() - 5));
+	}
+
+	private static String read(Path path) throws IOException {
+		return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,130 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+public class BinaryMetaDataFileTest {
+
+	private static final MetaDataWrapper[] ENTRIES = {
+			new MetaDataWrapper("0a000000-0000-4000-8000-000000000001", "first", "", 1, 10, new Date(1000)),
+			new MetaDataWrapper("My data set", "second", "described", 2, 20, new Date(2000)),
+			new MetaDataWrapper("f0000000-0000-4000-8000-000000000002", "third", "", 3, 30, new Date(3000)),
+			new MetaDataWrapper("f0000000-0000-4000-8000-00000000000A", "fourth", "", 4, 40, new Date(4000)) };
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = Files.createTempFile("metadata", ".bin");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Test
+	public void testMixedIds() throws IOException {
+		BinaryMetaDataFile.write(file, "1.0", new Date(5000), ENTRIES);
+		assertFile(BinaryMetaDataFile.open(file));
+	}
+
+	@Test
+	public void testVersion1() throws IOException {
+		writeVersion1(file, "1.0", new Date(5000), sorted());
+		assertFile(BinaryMetaDataFile.open(file));
+	}
+
+	@Test(expected = IOException.class)
+	public void testUnsupportedVersion() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(BinaryMetaDataFile.MAGIC);
+		out.writeInt(3);
+		out.write(new byte[32]);
+		Files.write(file, bytes.toByteArray());
+		BinaryMetaDataFile.open(file);
+	}
+
+	private static void assertFile(BinaryMetaDataFile binary) {
+		assertEquals("1.0", binary.getVersion());
+		assertEquals(new Date(5000), binary.getTimestamp());
+		assertEquals(ENTRIES.length, binary.size());
+		assertArrayEquals(sorted(), binary.readAll());
+		for (MetaDataWrapper entry : ENTRIES) {
+			assertEquals(entry, binary.find(entry.getId()));
+		}
+		assertNull(binary.find("0a000000-0000-4000-8000-000000000000"));
+		assertNull(binary.find("My data"));
+		assertNull(binary.find("f0000000-0000-4000-8000-00000000000a"));
+	}
+
+	/**
+	 * The entries in the order of their IDs.
+	 */
+	private static MetaDataWrapper[] sorted() {
+		return new MetaDataWrapper[] { ENTRIES[0], ENTRIES[1], ENTRIES[2], ENTRIES[3] };
+	}
+
+	/**
+	 * Writes a file of version 1, whose records refer to the ID as string.
+	 */
+	private static void writeVersion1(Path file, String version, Date timestamp, MetaDataWrapper[] sorted)
+			throws IOException {
+		ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+		DataOutputStream strings = new DataOutputStream(stringBytes);
+		int versionRef = string(strings, version);
+		int recordLength = 8 + 8 + 4 + 4 + 4 + 4;
+		long recordsOffset = 40 + 4L * sorted.length;
+		long stringsOffset = recordsOffset + (4L + recordLength) * sorted.length;
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(records);
+		for (MetaDataWrapper meta : sorted) {
+			out.writeInt(recordLength);
+			out.writeLong(meta.getTimestamp().getTime());
+			out.writeLong(meta.getSize());
+			out.writeInt(meta.getNumberOfFiles());
+			out.writeInt(string(strings, meta.getId()));
+			out.writeInt(string(strings, meta.getName()));
+			out.writeInt(string(strings, meta.getDescription()));
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.writeInt(BinaryMetaDataFile.MAGIC);
+		header.writeInt(1);
+		header.writeLong(timestamp.getTime());
+		header.writeInt(sorted.length);
+		header.writeInt(versionRef);
+		header.writeLong(recordsOffset);
+		header.writeLong(stringsOffset);
+		for (int i = 0; i < sorted.length; i++) {
+			header.writeInt(i * (4 + recordLength));
+		}
+		records.writeTo(bytes);
+		stringBytes.writeTo(bytes);
+		Files.write(file, bytes.toByteArray());
+	}
+
+	private static int string(DataOutputStream strings, String value) throws IOException {
+		int ref = strings.size();
+		byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+		strings.writeInt(encoded.length);
+		strings.write(encoded);
+		return ref;
+	}
+}
@@ -0,0 +1,63 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class DatasetIdsTest {
+
+	@Test
+	public void testRoundTrip() {
+		for (String id : ids()) {
+			assertTrue(id, DatasetIds.isCanonical(id));
+			assertEquals(id, DatasetIds.toString(DatasetIds.high(id), DatasetIds.low(id)));
+		}
+	}
+
+	@Test
+	public void testOrderOfStrings() {
+		List<String> ids = ids();
+		for (int i = 0; i < ids.size(); i++) {
+			for (int j = 0; j < ids.size(); j++) {
+				String a = ids.get(i);
+				String b = ids.get(j);
+				assertEquals(a + " " + b, Integer.signum(a.compareTo(b)), DatasetIds.compare(
+						DatasetIds.high(a), DatasetIds.low(a), DatasetIds.high(b), DatasetIds.low(b)));
+			}
+		}
+	}
+
+	@Test
+	public void testNotCanonical() {
+		assertFalse(DatasetIds.isCanonical(""));
+		assertFalse(DatasetIds.isCanonical("my-data-set"));
+		assertFalse(DatasetIds.isCanonical("0123456789abcdef0123456789abcdef0123"));
+		assertFalse(DatasetIds.isCanonical("01234567-89ab-cdef-0123-456789abcdeF"));
+		assertFalse(DatasetIds.isCanonical("01234567-89ab-cdef-0123-456789abcdef0"));
+		assertFalse(DatasetIds.isCanonical("01234567-89ab-cdef-0123-456789abcdeg"));
+		assertTrue(DatasetIds.isCanonical("01234567-89ab-cdef-0123-456789abcdef"));
+	}
+
+	private static List<String> ids() {
+		List<String> out = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			out.add(UUID.randomUUID().toString());
+		}
+		// the sign bits of both halves and equal halves
+		out.add("00000000-0000-0000-0000-000000000000");
+		out.add("ffffffff-ffff-ffff-ffff-ffffffffffff");
+		out.add("7fffffff-ffff-ffff-7fff-ffffffffffff");
+		out.add("80000000-0000-0000-8000-000000000000");
+		out.add("7fffffff-ffff-ffff-8000-000000000000");
+		out.add("80000000-0000-0000-7fff-ffffffffffff");
+		out.add("80000000-0000-0000-0000-000000000000");
+		out.add("00000000-0000-0000-8000-000000000000");
+		return out;
+	}
+}
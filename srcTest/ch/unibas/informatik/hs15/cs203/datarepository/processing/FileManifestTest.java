@@ -0,0 +1,157 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+
+public class FileManifestTest {
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("manifest");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testSingleFile() throws IOException {
+		Path file = Files.write(directory.resolve("data.txt"), new byte[42]);
+		FileManifest manifest = FileManifest.scan(file);
+		assertFalse(manifest.isDirectory());
+		assertEquals(getFileCount(file.toFile()), manifest.getFileCount());
+		assertEquals(getFileSize(file.toFile()), manifest.getSize());
+		assertEquals(1, manifest.getFiles().size());
+		assertEquals("", manifest.getFiles().get(0).getPath().toString());
+	}
+
+	@Test
+	public void testEmptyDirectory() throws IOException {
+		Path root = Files.createDirectory(directory.resolve("empty"));
+		FileManifest manifest = FileManifest.scan(root);
+		assertTrue(manifest.isDirectory());
+		assertEquals(getFileCount(root.toFile()), manifest.getFileCount());
+		assertEquals(0, manifest.getSize());
+	}
+
+	@Test
+	public void testLikeRecursiveWalk() throws IOException {
+		Random random = new Random(9);
+		for (int round = 0; round < 20; round++) {
+			Path root = directory.resolve("tree" + round);
+			Files.createDirectory(root);
+			List<Path> dirs = new ArrayList<Path>();
+			dirs.add(root);
+			int entries = random.nextInt(60);
+			for (int i = 0; i < entries; i++) {
+				Path parent = dirs.get(random.nextInt(dirs.size()));
+				if (random.nextInt(4) == 0) {
+					dirs.add(Files.createDirectory(parent.resolve("dir" + i)));
+				} else {
+					Files.write(parent.resolve("file" + i),
+							new byte[random.nextInt(3000)]);
+				}
+			}
+			FileManifest manifest = FileManifest.scan(root);
+			assertEquals(getFileCount(root.toFile()), manifest.getFileCount());
+			assertEquals(getFileSize(root.toFile()), manifest.getSize());
+			assertEquals(dirs.size(), manifest.getDirectories().size());
+			assertEquals(entries + 1, manifest.getFileCount());
+			long size = 0;
+			for (FileManifest.Entry file : manifest.getFiles()) {
+				assertEquals(Files.size(root.resolve(file.getPath().toString())),
+						file.getSize());
+				size += file.getSize();
+			}
+			assertEquals(manifest.getSize(), size);
+		}
+	}
+
+	@Test
+	public void testDirectoriesInOrder() throws IOException {
+		Path root = directory.resolve("root");
+		Files.createDirectories(root.resolve("a/b/c"));
+		Files.createDirectories(root.resolve("a/d"));
+		Files.createDirectories(root.resolve("e"));
+		FileManifest manifest = FileManifest.scan(root);
+		List<Path> dirs = manifest.getDirectories();
+		assertEquals(new HashSet<Path>(paths("", "a", "a/b", "a/b/c", "a/d", "e")),
+				new HashSet<Path>(dirs));
+		// every directory comes before its sub directories
+		for (int i = 0; i < dirs.size(); i++) {
+			Path parent = dirs.get(i).getParent();
+			if (parent != null) {
+				assertTrue(dirs.toString(), dirs.subList(0, i).contains(parent));
+			}
+		}
+		assertEquals(Paths.get(""), dirs.get(0));
+	}
+
+	@Test
+	public void testMissing() {
+		try {
+			FileManifest.scan(directory.resolve("missing"));
+			fail();
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+	}
+
+	private static List<Path> paths(String... paths) {
+		List<Path> out = new ArrayList<Path>();
+		for (String path : paths) {
+			out.add(Paths.get(path));
+		}
+		return out;
+	}
+
+	/**
+	 * The total size, as computed by a recursive walk before the manifest.
+	 */
+	private static long getFileSize(File directory) {
+		if (directory.isFile()) {
+			return directory.length();
+		}
+		long length = 0;
+		for (File file : directory.listFiles()) {
+			length += getFileSize(file);
+		}
+		return length;
+	}
+
+	/**
+	 * The number of files and directories, as counted by a recursive walk
+	 * before the manifest.
+	 */
+	private static int getFileCount(File file) {
+		if (file.isFile()) {
+			return 1;
+		}
+		int count = 1;
+		for (File child : file.listFiles()) {
+			count += getFileCount(child);
+		}
+		return count;
+	}
+}
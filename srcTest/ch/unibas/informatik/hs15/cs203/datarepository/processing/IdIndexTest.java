@@ -0,0 +1,147 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+public class IdIndexTest {
+
+	/**
+	 * The initial length of the index's table.
+	 */
+	private static final int TABLE_LENGTH = 128;
+
+	private final MetaDataColumns columns = new MetaDataColumns();
+
+	private final IdIndex index = new IdIndex(columns);
+
+	private final Map<String, Integer> expected = new HashMap<String, Integer>();
+
+	@Test
+	public void testRemoveUnderCollisions() {
+		Random random = new Random(42);
+		// a cluster of IDs sharing two home slots, wrapping around the end of the table
+		List<String> ids = new ArrayList<String>();
+		ids.addAll(collidingIds(TABLE_LENGTH - 2, 12));
+		ids.addAll(collidingIds(TABLE_LENGTH - 1, 12));
+		ids.addAll(collidingIds(0, 8));
+		for (String id : ids) {
+			add(id);
+		}
+		assertIndex();
+		for (int round = 0; round < 20; round++) {
+			Collections.shuffle(ids, random);
+			List<String> removed = ids.subList(0, 1 + random.nextInt(ids.size() - 1));
+			for (String id : removed) {
+				remove(id);
+				assertIndex();
+			}
+			for (String id : removed) {
+				add(id);
+			}
+			assertIndex();
+		}
+	}
+
+	@Test
+	public void testRandomOperations() {
+		Random random = new Random(7);
+		List<String> ids = new ArrayList<String>();
+		for (int i = 0; i < 2000; i++) {
+			if (!ids.isEmpty() && random.nextInt(3) == 0) {
+				remove(ids.remove(random.nextInt(ids.size())));
+			} else {
+				String id = random.nextInt(10) == 0 ? "other-" + i : UUID.randomUUID().toString();
+				ids.add(id);
+				add(id);
+			}
+		}
+		assertIndex();
+		assertEquals(-1, index.remove(UUID.randomUUID().toString()));
+		assertEquals(-1, index.remove("unknown"));
+	}
+
+	@Test
+	public void testMixedIds() {
+		String canonical = "01234567-89ab-cdef-0123-456789abcdef";
+		// not canonical, but equal when compared case-insensitively
+		String upper = canonical.toUpperCase();
+		String other = "my data set";
+		add(canonical);
+		add(upper);
+		add(other);
+		assertIndex();
+		assertEquals(upper, columns.getId(index.get(upper)));
+		remove(canonical);
+		assertIndex();
+		assertEquals(-1, index.get(canonical));
+		assertEquals(upper, columns.getId(index.get(upper)));
+		add(canonical);
+		assertIndex();
+
+		// the rows compare like their strings, whatever kind of ID they hold
+		String[] ids = { canonical, upper, other };
+		for (String a : ids) {
+			for (String b : ids) {
+				assertEquals(a + " " + b, Integer.signum(a.compareTo(b)),
+						Integer.signum(columns.compareIds(index.get(a), index.get(b))));
+				assertEquals(a + " " + b, Integer.signum(a.compareTo(b)),
+						Integer.signum(columns.compareId(index.get(a), b)));
+			}
+		}
+	}
+
+	private void add(String id) {
+		int row = columns.add(new MetaDataWrapper(id, "name", "", 1, 1, new Date(0)));
+		index.add(row);
+		expected.put(id, row);
+	}
+
+	private void remove(String id) {
+		int row = expected.remove(id);
+		assertEquals(row, index.remove(id));
+		columns.remove(row);
+	}
+
+	private void assertIndex() {
+		assertEquals(expected.size(), index.size());
+		for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+			assertEquals(entry.getKey(), entry.getValue().intValue(), index.get(entry.getKey()));
+		}
+		int[] rows = index.rows();
+		Arrays.sort(rows);
+		int[] expectedRows = new int[expected.size()];
+		int i = 0;
+		for (int row : expected.values()) {
+			expectedRows[i++] = row;
+		}
+		Arrays.sort(expectedRows);
+		assertEquals(Arrays.toString(expectedRows), Arrays.toString(rows));
+	}
+
+	/**
+	 * Creates random canonical IDs whose home slot in the initial table is the given one.
+	 */
+	private static List<String> collidingIds(int slot, int count) {
+		List<String> out = new ArrayList<String>();
+		while (out.size() < count) {
+			String id = UUID.randomUUID().toString();
+			if ((DatasetIds.hash(DatasetIds.high(id), DatasetIds.low(id)) & (TABLE_LENGTH - 1)) == slot) {
+				out.add(id);
+			}
+		}
+		return out;
+	}
+}
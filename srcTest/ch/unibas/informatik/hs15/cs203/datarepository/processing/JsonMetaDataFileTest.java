@@ -0,0 +1,117 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+import util.jsontools.InexistentKeyException;
+import util.jsontools.Json;
+
+public class JsonMetaDataFileTest {
+
+	private static final String TIMESTAMP = "2015-11-20T10:15:30+0100";
+
+	private Path file;
+
+	@After
+	public void tearDown() throws IOException {
+		if (file != null) {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test
+	public void testRecords() throws IOException {
+		JsonMetaDataFile json = open(record("a", "first.txt", "\"description\": \"one\", ")
+				+ ", " + record("b", "second.txt", ""));
+		assertEquals(2, json.size());
+		MetaDataWrapper first = json.get(0);
+		assertEquals("a", first.getId());
+		assertEquals("first.txt", first.getName());
+		assertEquals("one", first.getDescription());
+		assertEquals(3, first.getNumberOfFiles());
+		assertEquals(1234L, first.getSize());
+		assertEquals(Json.iso8601ToDate(TIMESTAMP), first.getTimestamp());
+		// a missing description is empty
+		assertEquals("", json.get(1).getDescription());
+		assertEquals(2, json.readAll().length);
+		assertEquals("b", json.readAll()[1].getId());
+	}
+
+	@Test
+	public void testFind() throws IOException {
+		JsonMetaDataFile json = open(record("a", "first.txt", "") + ", {}, "
+				+ record("say \\\"b\\\"", "second.txt", "") + ", "
+				+ record("c", "third.txt", ""));
+		assertEquals("first.txt", json.find("a").getName());
+		assertEquals("second.txt", json.find("say \"b\"").getName());
+		assertEquals("third.txt", json.find("c").getName());
+		assertNull(json.find("say \\\"b\\\""));
+		assertNull(json.find("d"));
+		assertNull(json.find(""));
+	}
+
+	@Test
+	public void testIncompleteRecord() throws IOException {
+		JsonMetaDataFile json = open(record("a", "first.txt", "") + ", {\"id\": \"b\", \"name\": \"x\"}");
+		assertEquals("a", json.get(0).getId());
+		try {
+			json.get(1);
+			fail("InexistentKeyException expected");
+		} catch (InexistentKeyException e) {
+			// expected
+		}
+		try {
+			json.readAll();
+			fail("InexistentKeyException expected");
+		} catch (InexistentKeyException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRepository() throws IOException {
+		JsonMetaDataFile json = open(record("a", "first.txt", ""));
+		Json repository = json.getRepository();
+		assertEquals("1.0", repository.getString(MetaDataManager.versionKey));
+		assertEquals(0, repository.getSet(MetaDataManager.datasetsKey).length);
+	}
+
+	@Test
+	public void testEmptyRepository() throws IOException {
+		file = Files.createTempFile("metadata", ".json");
+		Files.write(file, "{\"repository\": {\"version\": \"1.0\"}}".getBytes(StandardCharsets.UTF_8));
+		JsonMetaDataFile json = JsonMetaDataFile.open(file);
+		assertEquals(0, json.size());
+		assertNull(json.find("a"));
+	}
+
+	@Test(expected = InexistentKeyException.class)
+	public void testNoRepository() throws IOException {
+		file = Files.createTempFile("metadata", ".json");
+		Files.write(file, "{\"other\": {}}".getBytes(StandardCharsets.UTF_8));
+		JsonMetaDataFile.open(file);
+	}
+
+	private JsonMetaDataFile open(String records) throws IOException {
+		file = Files.createTempFile("metadata", ".json");
+		String json = "{\"repository\": {\"version\": \"1.0\", \"timestamp\": \"" + TIMESTAMP
+				+ "\", \"datasets\": [" + records + "]}}";
+		Files.write(file, json.getBytes(StandardCharsets.UTF_8));
+		return JsonMetaDataFile.open(file);
+	}
+
+	private static String record(String id, String name, String description) {
+		return "{\"id\": \"" + id + "\", \"name\": \"" + name + "\", " + description
+				+ "\"filecount\": 3, \"size\": 1234, \"timestamp\": \"" + TIMESTAMP + "\"}";
+	}
+}
@@ -0,0 +1,196 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+public class MetaDataJournalTest {
+
+	private static final MetaDataWrapper FIRST = new MetaDataWrapper(
+			"0a000000-0000-4000-8000-000000000001", "first", "", 1, 10, new Date(1000));
+
+	private static final MetaDataWrapper SECOND = new MetaDataWrapper(
+			"My data set", "second", "described \u00E4", 2, 20, new Date(2000));
+
+	private static final MetaDataWrapper THIRD = new MetaDataWrapper(
+			"f0000000-0000-4000-8000-000000000003", "third", "", 3, 30, new Date(3000));
+
+	private Path directory;
+
+	private Path path;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("journal");
+		path = directory.resolve(".metadata.journal");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testMissingFile() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		assertTrue(journal.load().isEmpty());
+		assertEquals(0, journal.size());
+		assertFalse(Files.exists(path));
+	}
+
+	@Test
+	public void testReplay() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		journal.appendAdd(FIRST);
+		journal.appendAdd(SECOND);
+		journal.appendRemove(FIRST);
+		journal.appendAdd(THIRD);
+		assertEquals(4, journal.size());
+		journal.close();
+
+		MetaDataJournal reopened = new MetaDataJournal(path);
+		Map<String, MetaDataWrapper> changes = reopened.load();
+		assertEquals(4, reopened.size());
+		assertEquals(Arrays.asList(FIRST.getId(), SECOND.getId(), THIRD.getId()),
+				Arrays.asList(changes.keySet().toArray()));
+		assertNull(changes.get(FIRST.getId()));
+		assertEquals(SECOND, changes.get(SECOND.getId()));
+		assertEquals(THIRD, changes.get(THIRD.getId()));
+	}
+
+	@Test
+	public void testApply() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		MetaDataWrapper renamed = new MetaDataWrapper(SECOND.getId(), "renamed",
+				"", 5, 50, new Date(5000));
+		journal.appendRemove(FIRST);
+		journal.appendAdd(renamed);
+		journal.appendRemove(THIRD);
+		journal.close();
+
+		MetaDataStorage storage = new MetaDataStorage(
+				new MetaDataWrapper[] { FIRST, SECOND });
+		MetaDataJournal.apply(new MetaDataJournal(path).load(), storage);
+		assertEquals(1, storage.size());
+		assertNull(storage.get(FIRST.getId()));
+		assertEquals(renamed, storage.get(SECOND.getId()));
+		// replaying again results in the very same state
+		MetaDataJournal.apply(new MetaDataJournal(path).load(), storage);
+		assertEquals(1, storage.size());
+		assertEquals(renamed, storage.get(SECOND.getId()));
+	}
+
+	@Test
+	public void testTornTail() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		journal.appendAdd(FIRST);
+		journal.appendAdd(SECOND);
+		journal.close();
+		long valid = Files.size(path);
+		journal.appendAdd(THIRD);
+		journal.close();
+		truncate(Files.size(path) - 3);
+
+		MetaDataJournal reopened = new MetaDataJournal(path);
+		Map<String, MetaDataWrapper> changes = reopened.load();
+		assertEquals(2, reopened.size());
+		assertEquals(2, changes.size());
+		assertEquals(SECOND, changes.get(SECOND.getId()));
+		assertFalse(changes.containsKey(THIRD.getId()));
+		// the torn record got cut off, thus appending continues cleanly
+		assertEquals(valid, Files.size(path));
+		reopened.appendRemove(FIRST);
+		reopened.close();
+		changes = new MetaDataJournal(path).load();
+		assertEquals(2, changes.size());
+		assertNull(changes.get(FIRST.getId()));
+		assertEquals(SECOND, changes.get(SECOND.getId()));
+	}
+
+	@Test
+	public void testUnknownRecord() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		journal.appendAdd(FIRST);
+		journal.close();
+		long valid = Files.size(path);
+		Files.write(path, new byte[] { 'X', 1, 2, 3 }, StandardOpenOption.APPEND);
+
+		MetaDataJournal reopened = new MetaDataJournal(path);
+		Map<String, MetaDataWrapper> changes = reopened.load();
+		assertEquals(1, reopened.size());
+		assertEquals(FIRST, changes.get(FIRST.getId()));
+		assertEquals(valid, Files.size(path));
+	}
+
+	@Test
+	public void testClear() throws IOException {
+		MetaDataJournal journal = new MetaDataJournal(path);
+		journal.appendAdd(FIRST);
+		journal.clear();
+		assertEquals(0, journal.size());
+		assertFalse(Files.exists(path));
+		journal.appendAdd(SECOND);
+		journal.close();
+		Map<String, MetaDataWrapper> changes = new MetaDataJournal(path).load();
+		assertEquals(Arrays.asList(SECOND.getId()),
+				Arrays.asList(changes.keySet().toArray()));
+	}
+
+	@Test
+	public void testCompactClearsJournal() throws IOException {
+		// the snapshot is written in the platform's charset
+		MetaDataWrapper second = new MetaDataWrapper("My data set", "second",
+				"described", 2, 20, new Date(2000));
+		// meta data without a data set folder is cleaned up on opening
+		for (MetaDataWrapper meta : new MetaDataWrapper[] { FIRST, second, THIRD }) {
+			Files.createDirectory(directory.resolve(meta.getId()));
+		}
+		MetaDataManager mdm = MetaDataManager.getMetaDataManager(directory.toString());
+		try {
+			mdm.add(FIRST);
+			mdm.add(second);
+			mdm.remove(FIRST);
+			assertTrue(Files.size(path) > 0);
+			mdm.compact();
+			assertFalse(Files.exists(path));
+			mdm.add(THIRD);
+			assertTrue(Files.exists(path));
+		} finally {
+			mdm.close();
+		}
+		mdm = MetaDataManager.getMetaDataManager(directory.toString());
+		try {
+			assertNull(mdm.getMeta(FIRST.getId()));
+			assertEquals(second, mdm.getMeta(second.getId()));
+			assertEquals(THIRD, mdm.getMeta(THIRD.getId()));
+		} finally {
+			mdm.close();
+		}
+	}
+
+	private void truncate(long length) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE);
+		try {
+			channel.truncate(length);
+		} finally {
+			channel.close();
+		}
+	}
+}
@@ -0,0 +1,97 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+public class MetaDataLoaderTest {
+
+	/**
+	 * More than two chunks of 4096 entries, not a multiple of them.
+	 */
+	private static final int COUNT = 3 * 4096 + 17;
+
+	private static final Comparator<MetaDataWrapper> BY_SIZE = new Comparator<MetaDataWrapper>() {
+		@Override
+		public int compare(MetaDataWrapper o1, MetaDataWrapper o2) {
+			return Long.compare(o1.getSize(), o2.getSize());
+		}
+	};
+
+	@Test
+	public void testSort() {
+		MetaDataWrapper[] entries = entries(COUNT);
+		MetaDataWrapper[] expected = Arrays.copyOf(entries, entries.length);
+		Arrays.sort(expected, BY_SIZE);
+		assertSameOrder(expected, MetaDataLoader.sort(entries, BY_SIZE));
+		assertSameOrder(expected, MetaDataLoader.parallelSort(entries, BY_SIZE));
+		// the input is left as is
+		assertSameOrder(entries(COUNT), entries);
+	}
+
+	@Test
+	public void testSortSmall() {
+		for (int count : new int[] { 0, 1, 2, 4095, 4096, 4097 }) {
+			MetaDataWrapper[] entries = entries(count);
+			MetaDataWrapper[] expected = Arrays.copyOf(entries, entries.length);
+			Arrays.sort(expected, BY_SIZE);
+			assertSameOrder(expected, MetaDataLoader.sort(entries, BY_SIZE));
+			assertSameOrder(expected, MetaDataLoader.parallelSort(entries, BY_SIZE));
+		}
+	}
+
+	@Test
+	public void testDecode() {
+		final MetaDataWrapper[] entries = entries(COUNT);
+		MetaDataSnapshot snapshot = new MetaDataSnapshot() {
+			@Override
+			public int size() {
+				return entries.length;
+			}
+
+			@Override
+			public MetaDataWrapper get(int index) {
+				return entries[index];
+			}
+
+			@Override
+			public MetaDataWrapper find(String id) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public MetaDataWrapper[] readAll() {
+				return Arrays.copyOf(entries, entries.length);
+			}
+		};
+		assertArrayEquals(entries, MetaDataLoader.decode(snapshot));
+		assertSameOrder(entries, MetaDataLoader.parallelDecode(snapshot));
+	}
+
+	/**
+	 * Entries with many equal sizes, thus the sort has to be stable to keep the order of the IDs.
+	 */
+	private static MetaDataWrapper[] entries(int count) {
+		Random random = new Random(count);
+		MetaDataWrapper[] out = new MetaDataWrapper[count];
+		for (int i = 0; i < count; i++) {
+			out[i] = new MetaDataWrapper("id-" + i, "name", "", 1, random.nextInt(100), new Date(0));
+		}
+		return out;
+	}
+
+	private static void assertSameOrder(MetaDataWrapper[] expected, MetaDataWrapper[] actual) {
+		assertEquals(expected.length, actual.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertEquals(expected[i].getId(), actual[i].getId());
+		}
+	}
+}
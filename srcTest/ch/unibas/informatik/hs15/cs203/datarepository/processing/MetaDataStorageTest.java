@@ -0,0 +1,187 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+import ch.unibas.informatik.hs15.cs203.datarepository.processing.MetaDataStorage.Plan;
+
+public class MetaDataStorageTest {
+
+	private static final String[] NAMES = { "alpha", "beta", "gamma", "alphabet" };
+
+	private static final String[] WORDS = { "red", "green", "blue", "raw", "data",
+			"set", "measured", "reduced" };
+
+	private static final String[] TEXTS = { "a", "re", "ed", "red", "blue",
+			"alpha", "ta s", "green raw", "missing" };
+
+	@Test
+	public void testPlan() {
+		assertEquals(Plan.ID, MetaDataStorage.plan(CriteriaWrapper.forId("id")));
+		assertEquals(Plan.NAME, MetaDataStorage.plan(new CriteriaWrapper("alpha",
+				null, null, null)));
+		assertEquals(Plan.NAME, MetaDataStorage.plan(new CriteriaWrapper("alpha",
+				"red", new Date(0), new Date(1000))));
+		assertEquals(Plan.TEXT, MetaDataStorage.plan(new CriteriaWrapper(null,
+				"red", null, null)));
+		assertEquals(Plan.TEXT, MetaDataStorage.plan(new CriteriaWrapper(null,
+				"red", new Date(0), new Date(1000))));
+		// too short for the text index
+		assertEquals(Plan.TIME, MetaDataStorage.plan(new CriteriaWrapper(null,
+				"re", null, null)));
+		assertEquals(Plan.TIME, MetaDataStorage.plan(new CriteriaWrapper(null,
+				"re", new Date(0), null)));
+		assertEquals(Plan.TIME, MetaDataStorage.plan(new CriteriaWrapper(null,
+				null, new Date(0), new Date(1000))));
+		assertEquals(Plan.TIME, MetaDataStorage.plan(CriteriaWrapper.all()));
+	}
+
+	@Test
+	public void testLikeFullScan() {
+		Random random = new Random(203);
+		for (int round = 0; round < 10; round++) {
+			MetaDataStorage storage = storage(random, 50 + random.nextInt(250));
+			for (int i = 0; i < 200; i++) {
+				CriteriaWrapper criteria = criteria(random);
+				assertEquals(criteria.toString(), scan(storage, criteria),
+						storage.get(criteria));
+			}
+			for (MetaDataWrapper meta : storage.getAll()) {
+				assertEquals(Collections.singletonList(meta),
+						storage.get(CriteriaWrapper.forId(meta.getId())));
+			}
+		}
+	}
+
+	@Test
+	public void testPagesLikeFullScan() {
+		Random random = new Random(15);
+		for (int round = 0; round < 10; round++) {
+			MetaDataStorage storage = storage(random, 50 + random.nextInt(250));
+			for (int i = 0; i < 50; i++) {
+				CriteriaWrapper criteria = criteria(random);
+				List<MetaDataWrapper> expected = scan(storage, criteria);
+				int limit = 1 + random.nextInt(20);
+				assertEquals(criteria.toString(), expected,
+						pages(storage, criteria, false, limit));
+				Collections.reverse(expected);
+				assertEquals(criteria.toString(), expected,
+						pages(storage, criteria, true, limit));
+			}
+		}
+	}
+
+	/**
+	 * Creates a storage of random meta data, partially bulk-built and
+	 * partially modified one by one.
+	 */
+	private static MetaDataStorage storage(Random random, int size) {
+		List<MetaDataWrapper> entries = new ArrayList<MetaDataWrapper>();
+		for (int i = 0; i < size; i++) {
+			entries.add(meta(random, i));
+		}
+		int bulk = random.nextInt(size);
+		MetaDataStorage storage = new MetaDataStorage(entries.subList(0, bulk)
+				.toArray(new MetaDataWrapper[bulk]));
+		for (MetaDataWrapper meta : entries.subList(bulk, size)) {
+			storage.put(meta);
+		}
+		for (int i = 0; i < size / 10; i++) {
+			MetaDataWrapper[] all = storage.getAll();
+			MetaDataWrapper meta = all[random.nextInt(all.length)];
+			if (random.nextBoolean()) {
+				storage.remove(meta);
+			} else {
+				// replaced by a changed version
+				storage.remove(meta);
+				storage.put(new MetaDataWrapper(meta.getId(),
+						NAMES[random.nextInt(NAMES.length)], text(random), 1, 1,
+						timestamp(random)));
+			}
+		}
+		return storage;
+	}
+
+	private static MetaDataWrapper meta(Random random, int i) {
+		// canonical UUIDs as well as custom IDs
+		String id = random.nextBoolean() ? UUID.randomUUID().toString() : "set-" + i;
+		return new MetaDataWrapper(id, NAMES[random.nextInt(NAMES.length)],
+				text(random), 1 + random.nextInt(10), 1 + random.nextInt(1000),
+				timestamp(random));
+	}
+
+	private static String text(Random random) {
+		StringBuilder text = new StringBuilder();
+		int words = random.nextInt(4);
+		for (int i = 0; i < words; i++) {
+			if (i > 0) {
+				text.append(' ');
+			}
+			text.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Returns one of a few time stamps, thus many meta data share theirs.
+	 */
+	private static Date timestamp(Random random) {
+		return new Date(1000L * random.nextInt(40));
+	}
+
+	private static CriteriaWrapper criteria(Random random) {
+		String name = random.nextInt(3) == 0 ? NAMES[random.nextInt(NAMES.length)]
+				: null;
+		String text = random.nextBoolean() ? TEXTS[random.nextInt(TEXTS.length)]
+				: null;
+		Date after = random.nextBoolean() ? new Date(1000L * random.nextInt(40)
+				+ 500 * random.nextInt(2)) : null;
+		Date before = random.nextBoolean() ? new Date(1000L * random.nextInt(40)
+				+ 500 * random.nextInt(2)) : null;
+		return new CriteriaWrapper(name, text, after, before);
+	}
+
+	/**
+	 * Checks every meta data against the criteria, like the storage did
+	 * before it was indexed.
+	 */
+	private static List<MetaDataWrapper> scan(MetaDataStorage storage,
+			CriteriaWrapper criteria) {
+		List<MetaDataWrapper> out = new ArrayList<MetaDataWrapper>();
+		for (MetaDataWrapper meta : storage.getAll()) {
+			if (criteria.matches(meta)) {
+				out.add(meta);
+			}
+		}
+		Collections.sort(out, new MetaDataComparator());
+		return out;
+	}
+
+	private static List<MetaDataWrapper> pages(MetaDataStorage storage,
+			CriteriaWrapper criteria, boolean descending, int limit) {
+		List<MetaDataWrapper> out = new ArrayList<MetaDataWrapper>();
+		Date fromTime = null;
+		String fromId = null;
+		while (true) {
+			List<MetaDataWrapper> page = storage.get(criteria, fromTime, fromId,
+					descending, limit);
+			out.addAll(page);
+			if (page.size() < limit) {
+				return out;
+			}
+			MetaDataWrapper last = page.get(page.size() - 1);
+			fromTime = last.getTimestamp();
+			fromId = last.getId();
+		}
+	}
+}
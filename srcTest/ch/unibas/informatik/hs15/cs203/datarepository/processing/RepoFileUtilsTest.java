@@ -0,0 +1,106 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.ProgressListener;
+
+public class RepoFileUtilsTest {
+
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("transfer");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testEmptyFile() throws IOException {
+		Path source = Files.createFile(directory.resolve("empty.txt"));
+		Path target = directory.resolve("copy.txt");
+		CancelingListener listener = new CancelingListener(Long.MAX_VALUE);
+		assertTrue(RepoFileUtils.transfer(source, target, new CopyProgress(listener, 0, 0)));
+		assertEquals(0, Files.size(target));
+		assertFalse(listener.canceled);
+	}
+
+	@Test
+	public void testCancelEmptyFile() throws IOException {
+		Path source = Files.createFile(directory.resolve("empty.txt"));
+		Path target = directory.resolve("copy.txt");
+		CancelingListener listener = new CancelingListener(0);
+		assertFalse(RepoFileUtils.transfer(source, target, new CopyProgress(listener, 0, 0)));
+		assertFalse(Files.exists(target));
+		assertTrue(listener.canceled);
+	}
+
+	@Test
+	public void testCancelBetweenChunks() throws IOException {
+		Path source = directory.resolve("large.bin");
+		long size = RepoFileUtils.CHUNK_SIZE * 2 + 1;
+		Files.write(source, new byte[(int) size]);
+		Path target = directory.resolve("copy.bin");
+		// cancel once the first chunk is reported
+		CancelingListener listener = new CancelingListener(1);
+		assertFalse(RepoFileUtils.transfer(source, target, new CopyProgress(listener, 0, size)));
+		assertTrue(listener.canceled);
+		assertEquals(RepoFileUtils.CHUNK_SIZE, listener.processed);
+	}
+
+	/**
+	 * Requests a cancel after the given number of progress reports.
+	 */
+	private static class CancelingListener implements ProgressListener {
+
+		private final long reports;
+
+		private long count = 0;
+
+		private long processed = 0;
+
+		private boolean canceled = false;
+
+		private CancelingListener(long reports) {
+			this.reports = reports;
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void progress(long numberOfBytes, long totalNumberOfBytes) {
+			count++;
+			processed = numberOfBytes;
+		}
+
+		@Override
+		public boolean hasCancelBeenRequested() {
+			return count >= reports;
+		}
+
+		@Override
+		public void canceled() {
+			canceled = true;
+		}
+
+		@Override
+		public void finish() {
+		}
+	}
+}
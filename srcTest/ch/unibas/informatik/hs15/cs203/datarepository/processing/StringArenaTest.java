@@ -0,0 +1,55 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class StringArenaTest {
+
+	@Test
+	public void testAddAndGet() {
+		StringArena arena = new StringArena();
+		String large = large(100000);
+		long empty = arena.add("");
+		long unicode = arena.add("\u00E4\u00F6\u00FC \uD83D\uDE00");
+		long big = arena.add(large);
+		long last = arena.add("last");
+		assertEquals("", arena.get(empty));
+		assertEquals("\u00E4\u00F6\u00FC \uD83D\uDE00", arena.get(unicode));
+		assertEquals(large, arena.get(big));
+		assertEquals("last", arena.get(last));
+		assertEquals(4 + 4 + 11 + 4 + 100000 + 4 + 4, arena.getAllocated());
+	}
+
+	@Test
+	public void testCopy() {
+		StringArena arena = new StringArena();
+		long[] addresses = new long[1000];
+		for (int i = 0; i < addresses.length; i++) {
+			// spread over several chunks
+			addresses[i] = arena.add(i + large(i * 10));
+		}
+		for (int i = 0; i < addresses.length; i += 2) {
+			arena.free(addresses[i]);
+		}
+		assertEquals(arena.getAllocated() / 2, arena.getGarbage(), arena.getAllocated() / 50);
+
+		StringArena copy = new StringArena();
+		long expected = 0;
+		for (int i = 1; i < addresses.length; i += 2) {
+			long address = copy.copy(arena, addresses[i]);
+			assertEquals(i + large(i * 10), copy.get(address));
+			expected += 4 + (i + large(i * 10)).length();
+		}
+		assertEquals(expected, copy.getAllocated());
+		assertEquals(0, copy.getGarbage());
+	}
+
+	private static String large(int length) {
+		StringBuilder out = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			out.append((char) ('a' + i % 26));
+		}
+		return out.toString();
+	}
+}
@@ -0,0 +1,184 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class StringDictionaryTest {
+
+	private static final boolean[] MODES = { false, true };
+
+	@Test
+	public void testReferences() {
+		for (boolean offHeap : MODES) {
+			StringDictionary strings = new StringDictionary(offHeap);
+			int code = strings.add("name");
+			assertEquals(code, strings.add("name"));
+			assertEquals(code, strings.code("name"));
+			strings.release(code);
+			assertEquals("name", strings.get(code));
+			assertEquals(code, strings.code("name"));
+			strings.release(code);
+			assertEquals(-1, strings.code("name"));
+			// the free code is reused
+			assertEquals(code, strings.add("other"));
+			assertEquals("other", strings.get(code));
+			assertEquals(1, strings.capacity());
+		}
+	}
+
+	@Test
+	public void testEqualHashes() {
+		for (boolean offHeap : MODES) {
+			StringDictionary strings = new StringDictionary(offHeap);
+			// "Aa" and "BB" have the same hash code
+			int aa = strings.add("Aa");
+			int bb = strings.add("BB");
+			strings.release(aa);
+			assertEquals(bb, strings.code("BB"));
+			assertEquals(-1, strings.code("Aa"));
+			assertEquals(aa, strings.add("Aa"));
+			assertEquals(bb, strings.code("BB"));
+		}
+	}
+
+	@Test
+	public void testReAddAcrossRehash() {
+		for (boolean offHeap : MODES) {
+			Model model = new Model(new StringDictionary(offHeap));
+			for (int i = 0; i < 1000; i++) {
+				model.add("value " + i);
+			}
+			// leaves removed slots behind
+			for (int i = 0; i < 1000; i += 2) {
+				model.release("value " + i);
+			}
+			model.assertConsistent();
+			// the table gets rebuilt and grows while the released strings come back
+			for (int i = 0; i < 3000; i++) {
+				model.add("value " + i);
+			}
+			model.assertConsistent();
+			// the released codes were reused
+			assertEquals(3000, model.strings.capacity());
+		}
+	}
+
+	@Test
+	public void testRandomOperations() {
+		for (boolean offHeap : MODES) {
+			Model model = new Model(new StringDictionary(offHeap));
+			Random random = new Random(11);
+			int maxLive = 0;
+			for (int i = 0; i < 20000; i++) {
+				String value = "value " + random.nextInt(500);
+				if (random.nextInt(5) < 2 && model.references.containsKey(value)) {
+					model.release(value);
+				} else {
+					model.add(value);
+				}
+				maxLive = Math.max(maxLive, model.references.size());
+				if (i % 1000 == 0) {
+					model.assertConsistent();
+				}
+			}
+			model.assertConsistent();
+			assertTrue(model.strings.capacity() <= maxLive);
+		}
+	}
+
+	@Test
+	public void testCompactArena() {
+		Model model = new Model(new StringDictionary(true));
+		StringBuilder padding = new StringBuilder();
+		for (int i = 0; i < 1000; i++) {
+			padding.append(i % 2 == 0 ? 'x' : '\u00E4');
+		}
+		// about 4.5 MB, thus releasing two thirds exceeds the garbage threshold
+		for (int i = 0; i < 3000; i++) {
+			model.add(i + " " + padding);
+		}
+		for (int i = 0; i < 3000; i++) {
+			if (i % 3 != 0) {
+				model.release(i + " " + padding);
+			}
+			if (i % 500 == 0) {
+				model.assertConsistent();
+			}
+		}
+		model.assertConsistent();
+		for (int i = 0; i < 3000; i++) {
+			model.add(i + " " + padding);
+		}
+		model.assertConsistent();
+	}
+
+	@Test
+	public void testSystemProperty() {
+		System.setProperty(StringDictionary.OFF_HEAP_PROPERTY_KEY, "true");
+		try {
+			Model model = new Model(new StringDictionary());
+			model.add("name");
+			model.assertConsistent();
+		} finally {
+			System.clearProperty(StringDictionary.OFF_HEAP_PROPERTY_KEY);
+		}
+	}
+
+	/**
+	 * A dictionary along with the expected codes and references.
+	 */
+	private static class Model {
+
+		private final StringDictionary strings;
+
+		private final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+		private final Map<String, Integer> references = new HashMap<String, Integer>();
+
+		private Model(StringDictionary strings) {
+			this.strings = strings;
+		}
+
+		private void add(String value) {
+			int code = strings.add(value);
+			Integer known = codes.get(value);
+			if (known != null) {
+				assertEquals(value, known.intValue(), code);
+			}
+			codes.put(value, code);
+			Integer count = references.get(value);
+			references.put(value, count == null ? 1 : count + 1);
+		}
+
+		private void release(String value) {
+			strings.release(codes.get(value));
+			int count = references.get(value) - 1;
+			if (count == 0) {
+				references.remove(value);
+				codes.remove(value);
+			} else {
+				references.put(value, count);
+			}
+		}
+
+		private void assertConsistent() {
+			List<Integer> used = new ArrayList<Integer>();
+			for (Map.Entry<String, Integer> entry : codes.entrySet()) {
+				int code = entry.getValue();
+				assertEquals(entry.getKey(), code, strings.code(entry.getKey()));
+				assertEquals(entry.getKey(), strings.get(code));
+				assertTrue(code < strings.capacity());
+				assertTrue("code " + code + " used twice", !used.contains(code));
+				used.add(code);
+			}
+		}
+	}
+}
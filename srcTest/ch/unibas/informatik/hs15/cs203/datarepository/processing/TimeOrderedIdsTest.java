@@ -0,0 +1,108 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+
+public class TimeOrderedIdsTest {
+
+	@Test
+	public void testIncreasing() {
+		String previous = TimeOrderedIds.next();
+		for (int i = 0; i < 100000; i++) {
+			String id = TimeOrderedIds.next();
+			assertTrue(previous + " " + id, previous.compareTo(id) < 0);
+			assertTrue(DatasetIds.compare(DatasetIds.high(previous), DatasetIds.low(previous),
+					DatasetIds.high(id), DatasetIds.low(id)) < 0);
+			previous = id;
+		}
+	}
+
+	@Test
+	public void testUniqueAcrossThreads() throws InterruptedException {
+		final int count = 50000;
+		final List<List<String>> results = new ArrayList<List<String>>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final List<String> ids = new ArrayList<String>(count);
+			results.add(ids);
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						ids.add(TimeOrderedIds.next());
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		Set<String> all = new HashSet<String>();
+		for (List<String> ids : results) {
+			assertEquals(count, ids.size());
+			for (int i = 1; i < ids.size(); i++) {
+				assertTrue(ids.get(i - 1).compareTo(ids.get(i)) < 0);
+			}
+			all.addAll(ids);
+		}
+		assertEquals(4 * count, all.size());
+	}
+
+	@Test
+	public void testLayout() {
+		long before = System.currentTimeMillis();
+		String id = TimeOrderedIds.next();
+		long after = System.currentTimeMillis();
+		assertTrue(DatasetIds.isCanonical(id));
+		UUID uuid = UUID.fromString(id);
+		assertEquals(7, uuid.version());
+		assertEquals(2, uuid.variant());
+		long millis = DatasetIds.high(id) >>> 16;
+		// a millisecond might have been borrowed by earlier tests
+		assertTrue(millis >= before);
+		assertTrue(millis <= after + 1000);
+	}
+
+	@Test
+	public void testAdvance() {
+		long millis = 1447000000000L;
+		// a new millisecond
+		long high = TimeOrderedIds.advance(0, millis, 5);
+		assertEquals(millis, high >>> 16);
+		assertEquals(0x7005L, high & 0xFFFFL);
+		// the same millisecond and a clock stepping back
+		assertEquals(high + 1, TimeOrderedIds.advance(high, millis, 9));
+		assertEquals(high + 1, TimeOrderedIds.advance(high, millis - 10, 9));
+		// a later millisecond starts a new sequence
+		assertEquals((millis + 1) << 16 | 0x7009L, TimeOrderedIds.advance(high, millis + 1, 9));
+	}
+
+	@Test
+	public void testSequenceRollover() {
+		long millis = 1447000000000L;
+		long high = TimeOrderedIds.advance(0, millis, 0x7FF);
+		for (int i = 0x7FF; i < 0xFFF; i++) {
+			long next = TimeOrderedIds.advance(high, millis, 0);
+			assertEquals(millis, next >>> 16);
+			assertTrue(next > high);
+			high = next;
+		}
+		assertEquals(0x7FFFL, high & 0xFFFFL);
+		// the sequence is exhausted, thus the next millisecond is borrowed
+		long next = TimeOrderedIds.advance(high, millis, 0x123);
+		assertEquals(millis + 1, next >>> 16);
+		assertEquals(0x7000L, next & 0xFFFFL);
+		assertTrue(DatasetIds.toString(high, 0).compareTo(DatasetIds.toString(next, 0)) < 0);
+	}
+}
@@ -0,0 +1,202 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.api.ProgressListener;
+
+public class TreeCopierTest {
+
+	private Path directory;
+
+	private Path source;
+
+	private Path target;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("tree");
+		source = Files.createDirectory(directory.resolve("source"));
+		target = directory.resolve("target");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testCopy() throws IOException {
+		long size = tree(10, 3);
+		FileManifest manifest = FileManifest.scan(source);
+		RecordingListener listener = new RecordingListener(Integer.MAX_VALUE);
+		assertTrue(TreeCopier.copy(manifest, target, new CopyProgress(listener, 0, size)));
+		for (Path dir : manifest.getDirectories()) {
+			assertTrue(dir.toString(), Files.isDirectory(target.resolve(dir.toString())));
+		}
+		for (FileManifest.Entry file : manifest.getFiles()) {
+			String relative = file.getPath().toString();
+			assertArrayEquals(relative, Files.readAllBytes(source.resolve(relative)),
+					Files.readAllBytes(target.resolve(relative)));
+		}
+		assertEquals(size, listener.last());
+		assertFalse(listener.canceled.get() > 0);
+	}
+
+	@Test
+	public void testSkeletonFirst() throws IOException {
+		long size = tree(5, 3);
+		Files.createDirectories(source.resolve("empty/nested"));
+		final FileManifest manifest = FileManifest.scan(source);
+		final List<Path> missing = new ArrayList<Path>();
+		RecordingListener listener = new RecordingListener(Integer.MAX_VALUE) {
+			@Override
+			public void progress(long numberOfBytes, long totalNumberOfBytes) {
+				if (reports.isEmpty()) {
+					// every directory exists before the first file is copied
+					for (Path dir : manifest.getDirectories()) {
+						if (!Files.isDirectory(target.resolve(dir.toString()))) {
+							missing.add(dir);
+						}
+					}
+				}
+				super.progress(numberOfBytes, totalNumberOfBytes);
+			}
+		};
+		assertTrue(TreeCopier.copy(manifest, target, new CopyProgress(listener, 0, size)));
+		assertEquals(new ArrayList<Path>(), missing);
+		assertTrue(Files.isDirectory(target.resolve("empty/nested")));
+	}
+
+	@Test
+	public void testCancelMidTree() throws IOException {
+		long size = tree(50, 4);
+		FileManifest manifest = FileManifest.scan(source);
+		RecordingListener listener = new RecordingListener(10);
+		assertFalse(TreeCopier.copy(manifest, target, new CopyProgress(listener, 0, size)));
+		assertEquals(1, listener.canceled.get());
+		// no progress gets reported after the cancel
+		assertEquals(listener.reportsBeforeCancel, listener.reports.size());
+		int copied = 0;
+		for (FileManifest.Entry file : manifest.getFiles()) {
+			if (Files.exists(target.resolve(file.getPath().toString()))) {
+				copied++;
+			}
+		}
+		assertTrue(String.valueOf(copied), copied < manifest.getFiles().size());
+		assertTrue(listener.last() < size);
+	}
+
+	@Test
+	public void testAggregatedProgress() throws IOException {
+		long size = tree(200, 5);
+		long before = 12345;
+		FileManifest manifest = FileManifest.scan(source);
+		RecordingListener listener = new RecordingListener(Integer.MAX_VALUE);
+		assertTrue(TreeCopier.copy(manifest, target, new CopyProgress(listener, before,
+				before + size)));
+		// the reports of concurrent copies never interleave or go backwards
+		assertEquals(0, listener.overlaps.get());
+		long previous = before;
+		for (long[] report : listener.reports) {
+			assertTrue(report[0] > previous);
+			assertEquals(before + size, report[1]);
+			previous = report[0];
+		}
+		assertEquals(before + size, listener.last());
+	}
+
+	/**
+	 * Creates a tree of the given number of files of varying size, spread over
+	 * nested directories.
+	 *
+	 * @return The total size of the files.
+	 */
+	private long tree(int files, int depth) throws IOException {
+		long size = 0;
+		for (int i = 0; i < files; i++) {
+			Path dir = source;
+			for (int d = 0; d < i % depth; d++) {
+				dir = dir.resolve("dir" + d + "-" + (i % 3));
+			}
+			Files.createDirectories(dir);
+			byte[] content = new byte[(i * 997) % 5000 + 1];
+			for (int b = 0; b < content.length; b++) {
+				content[b] = (byte) (i + b);
+			}
+			Files.write(dir.resolve("file" + i + ".dat"), content);
+			size += content.length;
+		}
+		return size;
+	}
+
+	/**
+	 * Records the reports and requests a cancel after the given number of
+	 * them.
+	 */
+	private static class RecordingListener implements ProgressListener {
+
+		protected final List<long[]> reports = new ArrayList<long[]>();
+
+		private final int cancelAfter;
+
+		private final AtomicInteger inside = new AtomicInteger();
+
+		private final AtomicInteger overlaps = new AtomicInteger();
+
+		private final AtomicInteger canceled = new AtomicInteger();
+
+		private int reportsBeforeCancel = -1;
+
+		private RecordingListener(int cancelAfter) {
+			this.cancelAfter = cancelAfter;
+		}
+
+		@Override
+		public void start() {
+		}
+
+		@Override
+		public void progress(long numberOfBytes, long totalNumberOfBytes) {
+			if (inside.incrementAndGet() > 1) {
+				overlaps.incrementAndGet();
+			}
+			reports.add(new long[] { numberOfBytes, totalNumberOfBytes });
+			Thread.yield();
+			inside.decrementAndGet();
+		}
+
+		@Override
+		public boolean hasCancelBeenRequested() {
+			return reports.size() >= cancelAfter;
+		}
+
+		@Override
+		public void canceled() {
+			canceled.incrementAndGet();
+			reportsBeforeCancel = reports.size();
+		}
+
+		@Override
+		public void finish() {
+		}
+
+		private long last() {
+			return reports.isEmpty() ? 0 : reports.get(reports.size() - 1)[0];
+		}
+	}
+}
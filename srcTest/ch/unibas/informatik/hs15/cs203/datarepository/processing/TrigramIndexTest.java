@@ -0,0 +1,199 @@
+package ch.unibas.informatik.hs15.cs203.datarepository.processing;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ch.unibas.informatik.hs15.cs203.datarepository.Utils;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.CriteriaWrapper;
+import ch.unibas.informatik.hs15.cs203.datarepository.common.MetaDataWrapper;
+
+public class TrigramIndexTest {
+
+	private static final MetaDataWrapper RED = new MetaDataWrapper("red-id",
+			"red", "measured red data", 1, 10, new Date(1000));
+
+	private static final MetaDataWrapper GREEN = new MetaDataWrapper(
+			"0a000000-0000-4000-8000-000000000002", "green", "reduced", 2, 20,
+			new Date(2000));
+
+	private static final MetaDataWrapper BLUE = new MetaDataWrapper("blue-id",
+			"blue", "", 3, 30, new Date(3000));
+
+	private Path directory;
+
+	private Path metaDataFile;
+
+	private Path indexFile;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("trigrams");
+		metaDataFile = Files.write(directory.resolve(".metadata"),
+				"[]".getBytes("UTF-8"));
+		indexFile = directory.resolve(".metadata.trigrams");
+	}
+
+	@After
+	public void tearDown() {
+		Utils.delete(directory.toFile());
+	}
+
+	@Test
+	public void testCandidates() {
+		TrigramIndex index = index(RED, GREEN, BLUE);
+		assertEquals(ids(RED, GREEN), index.candidates("red"));
+		assertEquals(ids(RED), index.candidates("red data"));
+		assertEquals(ids(GREEN), index.candidates("duced"));
+		assertEquals(ids(BLUE), index.candidates("blue"));
+		assertEquals(ids(), index.candidates("yellow"));
+		// a superset: all of its trigrams occur, though not as one text
+		assertEquals(ids(RED), index.candidates("ured d"));
+		index.remove(RED);
+		assertEquals(ids(GREEN), index.candidates("red"));
+		assertEquals(ids(), index.candidates("data"));
+	}
+
+	@Test
+	public void testShortText() {
+		TrigramIndex index = index(RED, GREEN, BLUE);
+		// shorter than a trigram, nothing to narrow by
+		assertNull(index.candidates("r"));
+		assertNull(index.candidates("re"));
+		// thus the storage checks all meta data in the time range
+		MetaDataStorage storage = new MetaDataStorage(new MetaDataWrapper[] {
+				RED, GREEN, BLUE });
+		assertEquals(Arrays.asList(RED, GREEN),
+				storage.get(new CriteriaWrapper(null, "re", null, null)));
+		assertEquals(Arrays.asList(GREEN), storage.get(new CriteriaWrapper(
+				null, "re", new Date(1000), null)));
+		assertEquals(Arrays.asList(GREEN, BLUE),
+				storage.get(new CriteriaWrapper(null, "u", new Date(1000), null)));
+	}
+
+	@Test
+	public void testPersist() throws IOException {
+		TrigramIndex index = index(RED, GREEN, BLUE);
+		index.write(indexFile, metaDataFile);
+		TrigramIndex read = TrigramIndex.read(indexFile, metaDataFile);
+		assertNotNull(read);
+		for (String text : new String[] { "red", "red data", "duced", "blue",
+				"yellow", "een" }) {
+			assertEquals(text, index.candidates(text), read.candidates(text));
+		}
+		// the read index is maintained like a built one
+		read.add(new MetaDataWrapper("yellow-id", "yellow", "", 1, 1,
+				new Date(4000)));
+		assertEquals(Collections.singleton("yellow-id"), read.candidates("yellow"));
+	}
+
+	@Test
+	public void testMissing() throws IOException {
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+		index(RED).write(indexFile, metaDataFile);
+		Files.delete(metaDataFile);
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+	}
+
+	@Test
+	public void testStaleSize() throws IOException {
+		index(RED).write(indexFile, metaDataFile);
+		FileTime modified = Files.getLastModifiedTime(metaDataFile);
+		Files.write(metaDataFile, " ".getBytes("UTF-8"),
+				StandardOpenOption.APPEND);
+		Files.setLastModifiedTime(metaDataFile, modified);
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+	}
+
+	@Test
+	public void testStaleModificationTime() throws IOException {
+		index(RED).write(indexFile, metaDataFile);
+		FileTime modified = Files.getLastModifiedTime(metaDataFile);
+		Files.setLastModifiedTime(metaDataFile,
+				FileTime.fromMillis(modified.toMillis() - 1000));
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+		Files.setLastModifiedTime(metaDataFile, modified);
+		assertNotNull(TrigramIndex.read(indexFile, metaDataFile));
+	}
+
+	@Test
+	public void testCorrupt() throws IOException {
+		index(RED, GREEN).write(indexFile, metaDataFile);
+		byte[] bytes = Files.readAllBytes(indexFile);
+		Files.write(indexFile, Arrays.copyOf(bytes, bytes.length - 2));
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+		bytes[0] = 'X';
+		Files.write(indexFile, bytes);
+		assertNull(TrigramIndex.read(indexFile, metaDataFile));
+	}
+
+	@Test
+	public void testManagerReloadsIndex() throws IOException {
+		for (MetaDataWrapper meta : new MetaDataWrapper[] { RED, GREEN, BLUE }) {
+			Files.createDirectory(directory.resolve(meta.getId()));
+		}
+		Files.delete(metaDataFile);
+		CriteriaWrapper red = new CriteriaWrapper(null, "red", null, null);
+		MetaDataManager mdm = MetaDataManager.getMetaDataManager(directory
+				.toString());
+		try {
+			mdm.add(RED);
+			mdm.add(GREEN);
+			mdm.add(BLUE);
+			mdm.compact();
+		} finally {
+			mdm.close();
+		}
+		assertTrue(Files.exists(indexFile));
+		// an index persisted for the current snapshot is trusted as is
+		new TrigramIndex().write(indexFile, metaDataFile);
+		assertEquals(Collections.<MetaDataWrapper> emptyList(), matching(red));
+		// but rebuilt as soon as the snapshot changed
+		Files.setLastModifiedTime(metaDataFile, FileTime.fromMillis(Files
+				.getLastModifiedTime(metaDataFile).toMillis() - 1000));
+		assertEquals(Arrays.asList(RED, GREEN), matching(red));
+	}
+
+	private List<MetaDataWrapper> matching(CriteriaWrapper criteria) {
+		MetaDataManager mdm = MetaDataManager.getMetaDataManager(directory
+				.toString());
+		try {
+			return mdm.getMatchingMeta(criteria);
+		} finally {
+			mdm.close();
+		}
+	}
+
+	private static TrigramIndex index(MetaDataWrapper... entries) {
+		TrigramIndex index = new TrigramIndex();
+		for (MetaDataWrapper meta : entries) {
+			index.add(meta);
+		}
+		return index;
+	}
+
+	private static Set<String> ids(MetaDataWrapper... entries) {
+		Set<String> ids = new HashSet<String>();
+		for (MetaDataWrapper meta : entries) {
+			ids.add(meta.getId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,197 @@
+package util.jsontools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import util.jsontools.JsonStreamReader.Token;
+
+public class JsonStreamReaderTest {
+
+	@Test
+	public void testTokens() throws IOException {
+		JsonStreamReader json = new JsonStreamReader(new StringReader(
+				"{\"a\" : 1.5e-3, \"b\": {\"c\": \"x\"}, \"d\": [ ], \"e\": [{}, {\"f\": true}]}"));
+		assertToken(json, Token.START_OBJECT, null);
+		assertToken(json, Token.NAME, "a");
+		assertToken(json, Token.LITERAL, "1.5e-3");
+		assertToken(json, Token.NAME, "b");
+		assertToken(json, Token.START_OBJECT, null);
+		assertToken(json, Token.NAME, "c");
+		assertToken(json, Token.STRING, "x");
+		assertToken(json, Token.END_OBJECT, null);
+		assertToken(json, Token.NAME, "d");
+		assertToken(json, Token.START_ARRAY, null);
+		assertToken(json, Token.END_ARRAY, null);
+		assertToken(json, Token.NAME, "e");
+		assertEquals(Token.START_ARRAY, json.peek());
+		assertEquals(Token.START_ARRAY, json.next());
+		json.skipValue();
+		assertToken(json, Token.START_OBJECT, null);
+		assertToken(json, Token.NAME, "f");
+		assertToken(json, Token.LITERAL, "true");
+		assertToken(json, Token.END_OBJECT, null);
+		assertToken(json, Token.END_ARRAY, null);
+		assertToken(json, Token.END_OBJECT, null);
+		assertToken(json, Token.END_DOCUMENT, null);
+		json.close();
+	}
+
+	@Test
+	public void testEscapes() throws IOException {
+		// only \" is an escape sequence, other backslashes are kept
+		JsonStreamReader json = new JsonStreamReader(new StringReader(
+				"{\"say \\\"hi\\\"\": \"C:\\\\dir\\n \\\"quoted\\\"\", \"end\": \"\\\"\"}"));
+		json.next();
+		assertToken(json, Token.NAME, "say \"hi\"");
+		assertToken(json, Token.STRING, "C:\\\\dir\\n \"quoted\"");
+		assertToken(json, Token.NAME, "end");
+		assertToken(json, Token.STRING, "\"");
+		json.close();
+	}
+
+	@Test
+	public void testBufferBoundaries() throws IOException {
+		// a value spanning the 8192 char buffer with escapes at every position around the boundary
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < 20000; i++) {
+			value.append(i % 3 == 0 ? "\\\"" : "x");
+		}
+		String text = "{\"value\": \"" + value + "\", \"number\": 12345678}";
+		String expected = value.toString().replace("\\\"", "\"");
+		for (int chunk : new int[] { 8192, 7, 1 }) {
+			Json json = new JsonParser().parse(new ChunkedReader(text, chunk));
+			assertEquals(expected, json.getString("value"));
+			assertEquals(12345678, json.getInt("number"));
+		}
+		Json json = new JsonStreamReader(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8))).readObject();
+		assertEquals(expected, json.getString("value"));
+	}
+
+	@Test
+	public void testLiteralAtBufferBoundary() throws IOException {
+		StringBuilder text = new StringBuilder("{\"padding\": \"");
+		while (text.length() < 8192 - 16) {
+			text.append('p');
+		}
+		text.append("\", \"n\": 123456789012}");
+		assertTrue(text.length() > 8192);
+		Json json = new JsonParser().parse(new StringReader(text.toString()));
+		assertEquals("123456789012", json.getString("n"));
+	}
+
+	@Test
+	public void testEmptyArray() {
+		Json json = new JsonParser().parseJson("{\"datasets\": [], \"other\": [\n\t]}");
+		assertEquals(0, json.getSet("datasets").length);
+		assertEquals(0, json.getSet("other").length);
+	}
+
+	@Test
+	public void testNestedObjects() {
+		Json json = new JsonParser().parseJson(
+				"{\"repository\": {\"version\": 1, \"datasets\": [{\"id\": \"a\", \"inner\": {\"x\": \"y\"}}]}}");
+		Json repository = json.getJsonObject("repository");
+		assertEquals(1, repository.getInt("version"));
+		Json dataset = repository.getSet("datasets")[0];
+		assertEquals("a", dataset.getString("id"));
+		assertEquals("y", dataset.getJsonObject("inner").getString("x"));
+	}
+
+	@Test
+	public void testErrorPositions() {
+		assertError("{\"a\" 1}", "':' expected at position 5");
+		assertError("{\"a\": 1,}", "Name expected at position 8");
+		assertError("{\"a\": [{},]}", "Value expected at position 10");
+		assertError("{\"a\": 1 \"b\": 2}", "',' expected at position 8");
+		assertError("{\"a\": \"open", "Unterminated string at position 11");
+		assertError("{\"a\": 1", "Unexpected end at position 7");
+		assertError("  ", "Empty document at position 2");
+		assertError("[1]", "Object expected at position 0");
+		assertError("{\"a\": [1]}", "Only arrays of objects are supported at position 7");
+		assertError("{\"a\": }", "Value expected at position 6");
+	}
+
+	@Test
+	public void testErrorPositionAfterBufferBoundary() throws IOException {
+		StringBuilder text = new StringBuilder("{\"padding\": \"");
+		while (text.length() < 10000) {
+			text.append('p');
+		}
+		text.append("\" \"n\": 1}");
+		try {
+			new JsonParser().parse(new ChunkedReader(text.toString(), 1000));
+			fail("InvalidJsonException expected");
+		} catch (InvalidJsonException ex) {
+			assertEquals("',' expected at position " + text.indexOf("\"n\""), ex.getMessage());
+		}
+	}
+
+	@Test
+	public void testContentAfterDocument() throws IOException {
+		JsonStreamReader json = new JsonStreamReader(new StringReader("{} {}"));
+		json.readObject();
+		try {
+			json.next();
+			fail("InvalidJsonException expected");
+		} catch (InvalidJsonException ex) {
+			assertEquals("Unexpected content after the document at position 3", ex.getMessage());
+		}
+	}
+
+	private static void assertToken(JsonStreamReader json, Token token, String text) throws IOException {
+		assertEquals(token, json.next());
+		if (text != null) {
+			assertEquals(text, json.getText());
+		}
+	}
+
+	private static void assertError(String text, String message) {
+		try {
+			new JsonParser().parseJson(text);
+			fail("InvalidJsonException expected for " + text);
+		} catch (InvalidJsonException ex) {
+			assertEquals(message, ex.getMessage());
+		}
+	}
+
+	/**
+	 * Returns at most the given number of chars per read.
+	 */
+	private static class ChunkedReader extends Reader {
+
+		private final String text;
+
+		private final int chunk;
+
+		private int pos = 0;
+
+		private ChunkedReader(String text, int chunk) {
+			this.text = text;
+			this.chunk = chunk;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) {
+			if (pos == text.length()) {
+				return -1;
+			}
+			int n = Math.min(Math.min(len, chunk), text.length() - pos);
+			text.getChars(pos, pos + n, cbuf, off);
+			pos += n;
+			return n;
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}
@@ -0,0 +1,114 @@
+package util.jsontools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+public class JsonTapeTest {
+
+	private static final String DOCUMENT = "{\"repository\": {\"version\": \"1.0\", "
+			+ "\"datasets\": [{\"id\": \"a\", \"size\": 12}, {}, {\"id\": \"b\"}], "
+			+ "\"empty\": [], \"inner\": {\"x\": \"y\"}}, \"count\": 3}";
+
+	@Test
+	public void testNavigation() {
+		JsonTape tape = JsonTape.read(DOCUMENT);
+		assertTrue(tape.isObject(tape.root()));
+		assertArrayEquals(new String[] { "repository", "count" }, tape.keys(tape.root()));
+
+		int repository = tape.get(tape.root(), "repository");
+		assertTrue(tape.isObject(repository));
+		assertArrayEquals(new String[] { "version", "datasets", "empty", "inner" }, tape.keys(repository));
+		assertEquals("1.0", tape.getString(tape.get(repository, "version")));
+		assertEquals(-1, tape.get(repository, "inexistent"));
+
+		int datasets = tape.get(repository, "datasets");
+		assertTrue(tape.isArray(datasets));
+		int[] elements = tape.elements(datasets);
+		assertEquals(3, elements.length);
+		assertEquals("a", tape.getString(tape.get(elements[0], "id")));
+		assertEquals(12.0, tape.getDouble(tape.get(elements[0], "size")), 0.0);
+		assertEquals(0, tape.keys(elements[1]).length);
+		assertEquals("b", tape.getString(tape.get(elements[2], "id")));
+
+		// the siblings behind nested containers are found
+		assertEquals(0, tape.elements(tape.get(repository, "empty")).length);
+		assertEquals("y", tape.getString(tape.get(tape.get(repository, "inner"), "x")));
+		assertEquals("3", tape.getString(tape.get(tape.root(), "count")));
+	}
+
+	@Test
+	public void testEscapedQuote() {
+		JsonTape tape = JsonTape.read("{\"say \\\"hi\\\"\": \"a \\\"b\\\" c\", \"path\": \"c:\\\\dir\"}");
+		int value = tape.get(tape.root(), "say \"hi\"");
+		assertEquals("a \"b\" c", tape.getString(value));
+		assertTrue(tape.textEquals(value, "a \"b\" c"));
+		assertFalse(tape.textEquals(value, "a \\\"b\\\" c"));
+		assertFalse(tape.textEquals(value, "a \"b\""));
+		assertFalse(tape.textEquals(value, "a \"b\" c "));
+		// only \" is an escape sequence
+		assertEquals("c:\\\\dir", tape.getString(tape.get(tape.root(), "path")));
+	}
+
+	@Test
+	public void testTextEqualsOnContainer() {
+		JsonTape tape = JsonTape.read("{\"a\": {}}");
+		assertFalse(tape.textEquals(tape.get(tape.root(), "a"), ""));
+	}
+
+	@Test
+	public void testToJson() {
+		JsonTape tape = JsonTape.read(DOCUMENT);
+		Json repository = tape.toJson(tape.get(tape.root(), "repository"));
+		assertEquals(new JsonParser().parseJson(DOCUMENT).getJsonObject("repository").toJson(), repository.toJson());
+	}
+
+	@Test
+	public void testReadSources() throws IOException {
+		StringBuilder sb = new StringBuilder("{\"long\": \"");
+		for (int i = 0; i < 20000; i++) {
+			sb.append((char) ('a' + i % 26));
+		}
+		String json = sb.append("\"}").toString();
+		String expected = json.substring(10, json.length() - 2);
+		JsonTape tape = JsonTape.read(new StringReader(json));
+		assertEquals(expected, tape.getString(tape.get(tape.root(), "long")));
+		tape = JsonTape.read(ByteBuffer.wrap(json.getBytes(StandardCharsets.UTF_8)));
+		assertEquals(expected, tape.getString(tape.get(tape.root(), "long")));
+	}
+
+	@Test
+	public void testMalformed() {
+		assertInvalid("{\"a\": 1");
+		assertInvalid("{\"a\" 1}");
+		assertInvalid("{a: 1}");
+		assertInvalid("{\"a\": \"b}");
+		assertInvalid("{\"a\": 1,}");
+		assertInvalid("{} {}");
+		assertInvalid("");
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testWrongKind() {
+		JsonTape tape = JsonTape.read("{\"a\": []}");
+		tape.get(tape.get(tape.root(), "a"), "b");
+	}
+
+	private static void assertInvalid(String json) {
+		try {
+			JsonTape.read(json);
+			fail("InvalidJsonException expected for: " + json);
+		} catch (InvalidJsonException e) {
+			assertTrue(e.getMessage(), e.getMessage().contains("at position"));
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package util.jsontools;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+public class JsonWriterTest {
+
+	@Test
+	public void testSameAsFormerToJson() {
+		Json json = sample(3);
+		assertEquals(formerToJson(json), json.toJson());
+	}
+
+	@Test
+	public void testEmpty() {
+		Json json = new Json();
+		json.addEntry("datasets", new Json[0]);
+		json.addEntry("inner", new Json());
+		assertEquals(formerToJson(json), json.toJson());
+	}
+
+	@Test
+	public void testWriter() throws IOException {
+		Json json = sample(500);
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.write(json);
+		writer.close();
+		assertEquals(formerToJson(json), out.toString());
+	}
+
+	@Test
+	public void testChannel() throws IOException {
+		// more than one buffer, with surrogate pairs crossing its boundaries
+		Json json = sample(500);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JsonWriter writer = new JsonWriter(Channels.newChannel(out), StandardCharsets.UTF_8);
+		writer.write(json);
+		writer.close();
+		assertArrayEquals(formerToJson(json).getBytes(StandardCharsets.UTF_8), out.toByteArray());
+	}
+
+	@Test
+	public void testStreamed() throws IOException {
+		Json json = sample(2);
+		StringWriter out = new StringWriter();
+		JsonWriter writer = new JsonWriter(out);
+		writer.beginObject();
+		writer.entry(json, "version");
+		writer.name("datasets");
+		writer.beginArray();
+		for (Json dataset : json.getSet("datasets")) {
+			writer.write(dataset);
+		}
+		writer.endArray();
+		writer.endObject();
+		writer.close();
+		Json[] datasets = json.getSet("datasets");
+		assertEquals("{\n\"version\" : 1.0,\n\"datasets\" : [\n" + formerToJson(datasets[0]) + ",\n"
+				+ formerToJson(datasets[1]) + "\n]\n}", out.toString());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Json json = sample(10);
+		Json parsed = new JsonParser().parseJson(json.toJson());
+		assertEquals(json.toJson(), parsed.toJson());
+		Json first = parsed.getSet("datasets")[0];
+		assertEquals("say \"0\"", first.getString("description"));
+		assertEquals(0.0, first.getDouble("size"), 0.0);
+	}
+
+	private static Json sample(int count) {
+		Json json = new Json();
+		json.addEntry("version", "1.0");
+		json.addEntry("timestamp", new Date(1447000000000L));
+		Json[] datasets = new Json[count];
+		for (int i = 0; i < count; i++) {
+			Json dataset = new Json();
+			dataset.addEntry("id", "id-" + i);
+			dataset.addEntry("name", "\uD83D\uDE00 data set " + i + " \u00E4\u00F6\u00FC");
+			dataset.addEntry("description", "say \"" + i + "\"");
+			dataset.addEntry("size", i);
+			dataset.addEntry("filecount", String.valueOf(i * 7));
+			dataset.addEntry("ratio", "1.5e-10");
+			dataset.addEntry("version", "1.0.1");
+			dataset.addEntry("timestamp", new Date(1447000000000L + i));
+			datasets[i] = dataset;
+		}
+		json.addEntry("datasets", datasets);
+		Json inner = new Json();
+		inner.addEntry("key", "value");
+		json.addEntry("inner", inner);
+		return json;
+	}
+
+	/**
+	 * The former {@link Json#toJson()}, which built the text by concatenation.
+	 */
+	private static String formerToJson(Json json) {
+		String out = "{\n";
+		for (Iterator<?> i = json.getMap().keySet().iterator(); i.hasNext();) {
+			String key = (String) i.next();
+			Object value = json.getEntry(key);
+			out += "\"" + key + "\" : ";
+			if (value instanceof String) {
+				String text = (String) value;
+				if (text.matches("^\\d+(\\.)?\\d*((E|e)-?\\d\\d?\\d?)?$")) {
+					out += text;
+				} else {
+					out += "\"" + Json.jsonEscape(text) + "\"";
+				}
+			} else if (value instanceof Json) {
+				out += formerToJson((Json) value);
+			} else {
+				Json[] set = (Json[]) value;
+				out += "[";
+				for (int n = 0; n < set.length; n++) {
+					out += "\n" + formerToJson(set[n]);
+					if (n < set.length - 1) {
+						out += ",";
+					}
+				}
+				out += "\n]";
+			}
+			if (i.hasNext()) {
+				out += ",\n";
+			}
+		}
+		return out + "\n}";
+	}
+}
@@ -0,0 +1,258 @@
+package util.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Test;
+
+import util.logging.AsyncHandler.OverflowPolicy;
+
+public class AsyncHandlerTest {
+
+	@Test
+	public void testForwardsInOrder() {
+		RecordingHandler target = new RecordingHandler(false);
+		AsyncHandler handler = new AsyncHandler(target, 8, OverflowPolicy.BLOCK);
+		for (int i = 0; i < 1000; i++) {
+			handler.publish(record(i));
+		}
+		handler.flush();
+		assertEquals(1000, target.messages().size());
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(Integer.toString(i), target.messages().get(i));
+		}
+		assertEquals(0, handler.getPendingCount());
+		assertEquals(0, handler.getDroppedCount());
+		assertTrue(target.flushed);
+		handler.close();
+	}
+
+	@Test
+	public void testDrop() throws InterruptedException {
+		RecordingHandler target = new RecordingHandler(true);
+		AsyncHandler handler = new AsyncHandler(target, 4, OverflowPolicy.DROP);
+		// the drain thread blocks in the target with the first log, which
+		// keeps its slot until written
+		handler.publish(record(0));
+		assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < 4; i++) {
+			handler.publish(record(i));
+		}
+		assertEquals(4, handler.getPendingCount());
+		for (int i = 4; i < 8; i++) {
+			handler.publish(record(i));
+		}
+		assertEquals(4, handler.getDroppedCount());
+		target.release.countDown();
+		handler.flush();
+		assertEquals(list(0, 1, 2, 3), target.messages());
+		// free slots are used again
+		handler.publish(record(8));
+		handler.flush();
+		assertEquals(list(0, 1, 2, 3, 8), target.messages());
+		assertEquals(4, handler.getDroppedCount());
+		handler.close();
+	}
+
+	@Test
+	public void testBlock() throws InterruptedException {
+		RecordingHandler target = new RecordingHandler(true);
+		final AsyncHandler handler = new AsyncHandler(target, 4, OverflowPolicy.BLOCK);
+		handler.publish(record(0));
+		assertTrue(target.entered.await(5, TimeUnit.SECONDS));
+		for (int i = 1; i < 4; i++) {
+			handler.publish(record(i));
+		}
+		Thread blocked = new Thread() {
+			@Override
+			public void run() {
+				handler.publish(record(4));
+			}
+		};
+		blocked.start();
+		blocked.join(200);
+		assertTrue(blocked.isAlive());
+		assertEquals(0, handler.getDroppedCount());
+		target.release.countDown();
+		blocked.join(5000);
+		assertFalse(blocked.isAlive());
+		handler.flush();
+		assertEquals(list(0, 1, 2, 3, 4), target.messages());
+		assertEquals(0, handler.getDroppedCount());
+		handler.close();
+	}
+
+	@Test
+	public void testFlushWaitsForSlowTarget() {
+		RecordingHandler target = new RecordingHandler(false) {
+			@Override
+			public void publish(LogRecord record) {
+				try {
+					Thread.sleep(200);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				super.publish(record);
+			}
+		};
+		AsyncHandler handler = new AsyncHandler(target, 8, OverflowPolicy.BLOCK);
+		handler.publish(record(0));
+		handler.flush();
+		assertEquals(list(0), target.messages());
+		assertEquals(1, target.flushedAfter);
+		handler.publish(record(1));
+		handler.close();
+		assertEquals(list(0, 1), target.messages());
+	}
+
+	@Test
+	public void testConcurrentThreads() throws InterruptedException {
+		RecordingHandler target = new RecordingHandler(false);
+		final AsyncHandler handler = new AsyncHandler(target, 16, OverflowPolicy.BLOCK);
+		final int count = 10000;
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int t = 0; t < 4; t++) {
+			final int thread = t;
+			threads.add(new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < count; i++) {
+						handler.publish(record(thread * count + i));
+					}
+				}
+			});
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		handler.close();
+		List<String> messages = target.messages();
+		assertEquals(4 * count, messages.size());
+		// the logs of each thread keep their order
+		int[] next = new int[4];
+		for (String message : messages) {
+			int value = Integer.parseInt(message);
+			assertEquals(next[value / count]++, value % count);
+		}
+		assertEquals(0, handler.getDroppedCount());
+		assertTrue(target.closed);
+	}
+
+	@Test
+	public void testClose() {
+		RecordingHandler target = new RecordingHandler(false);
+		AsyncHandler handler = new AsyncHandler(target, 2, OverflowPolicy.BLOCK);
+		for (int i = 0; i < 10; i++) {
+			handler.publish(record(i));
+		}
+		handler.close();
+		assertEquals(10, target.messages().size());
+		assertTrue(target.closed);
+		// logs after closing are ignored
+		handler.publish(record(10));
+		handler.flush();
+		assertEquals(10, target.messages().size());
+	}
+
+	@Test
+	public void testConfigure() {
+		AsyncHandler handler = new AsyncHandler(new RecordingHandler(false), 5, null);
+		assertEquals(8, handler.getCapacity());
+		assertEquals(AsyncHandler.DEFAULT_POLICY, handler.getPolicy());
+		try {
+			handler.configure(null, 0, OverflowPolicy.DROP);
+			fail();
+		} catch (IllegalArgumentException ex) {
+			// expected
+		}
+		handler.publish(record(0));
+		try {
+			handler.configure(null, 4, OverflowPolicy.DROP);
+			fail();
+		} catch (IllegalStateException ex) {
+			// expected
+		}
+		handler.close();
+	}
+
+	private static LogRecord record(int i) {
+		return new LogRecord(Level.INFO, Integer.toString(i));
+	}
+
+	private static List<String> list(int... values) {
+		List<String> out = new ArrayList<String>();
+		for (int value : values) {
+			out.add(Integer.toString(value));
+		}
+		return out;
+	}
+
+	/**
+	 * Records the messages of the forwarded logs and optionally blocks on the
+	 * first one until released.
+	 */
+	private static class RecordingHandler extends Handler {
+
+		private final List<String> messages = new ArrayList<String>();
+
+		private final CountDownLatch entered = new CountDownLatch(1);
+
+		private final CountDownLatch release;
+
+		private volatile boolean flushed = false;
+
+		/**
+		 * The number of logs written when the handler was flushed last.
+		 */
+		private volatile int flushedAfter = -1;
+
+		private volatile boolean closed = false;
+
+		private RecordingHandler(boolean block) {
+			release = new CountDownLatch(block ? 1 : 0);
+		}
+
+		@Override
+		public void publish(LogRecord record) {
+			entered.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (messages) {
+				messages.add(record.getMessage());
+			}
+		}
+
+		private List<String> messages() {
+			synchronized (messages) {
+				return new ArrayList<String>(messages);
+			}
+		}
+
+		@Override
+		public void flush() {
+			flushedAfter = messages().size();
+			flushed = true;
+		}
+
+		@Override
+		public void close() {
+			closed = true;
+		}
+	}
+}
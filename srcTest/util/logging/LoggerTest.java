@@ -0,0 +1,163 @@
+package util.logging;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class LoggerTest {
+
+	private static int loggers = 0;
+
+	private Logger logger;
+
+	private RecordingHandler handler;
+
+	@Before
+	public void setUp() {
+		logger = Logger.getLogger(LoggerTest.class.getName() + "." + loggers++);
+		logger.resetHandlers();
+		handler = new RecordingHandler(Level.ALL);
+		logger.addHandler(handler);
+		logger.setLevel(Level.INFO);
+	}
+
+	@Test
+	public void testSetLevel() {
+		assertTrue(logger.isLoggable(Level.INFO));
+		assertFalse(logger.isDebugEnabled());
+		logger.setLevel(LevelX.DEBUG);
+		assertTrue(logger.isDebugEnabled());
+		assertFalse(logger.isLoggable(Level.FINE));
+		logger.setLevel(Level.SEVERE);
+		assertFalse(logger.isLoggable(Level.INFO));
+		assertTrue(logger.isLoggable(Level.SEVERE));
+		logger.setLevel(Level.OFF);
+		assertFalse(logger.isLoggable(Level.SEVERE));
+	}
+
+	@Test
+	public void testHandlers() {
+		assertTrue(logger.isLoggable(Level.INFO));
+		logger.resetHandlers();
+		// nobody would see the message
+		assertFalse(logger.isLoggable(Level.SEVERE));
+		RecordingHandler warnings = new RecordingHandler(Level.WARNING);
+		logger.addHandler(warnings);
+		assertFalse(logger.isLoggable(Level.INFO));
+		assertTrue(logger.isLoggable(Level.WARNING));
+		logger.addHandler(handler);
+		assertTrue(logger.isLoggable(Level.INFO));
+		logger.removeHandler(handler);
+		assertFalse(logger.isLoggable(Level.INFO));
+	}
+
+	@Test
+	public void testConfigurationManager() {
+		assertTrue(logger.isLoggable(Level.INFO));
+		handler.setLevel(Level.SEVERE);
+		// still cached, the level of the handler was changed behind its back
+		assertTrue(logger.isLoggable(Level.INFO));
+		// the configuration manager invalidates the cache whenever it
+		// changes handlers
+		ConfigurationManager.getConfigManager().registerHandler(
+				LoggerTest.class.getName() + ".handler", new RecordingHandler(Level.ALL));
+		assertFalse(logger.isLoggable(Level.INFO));
+		assertTrue(logger.isLoggable(Level.SEVERE));
+	}
+
+	@Test
+	public void testDisabledNotEvaluated() {
+		CountingSupplier supplier = new CountingSupplier();
+		CountingParameter parameter = new CountingParameter();
+		logger.debug(supplier);
+		logger.debug("Debug {0}", parameter);
+		logger.log(Level.FINE, new IllegalStateException(), "Fine {0}", parameter);
+		logger.setLevel(Level.SEVERE);
+		logger.info(supplier);
+		logger.info("Info {0}", parameter);
+		logger.warn("Warn {0}", parameter);
+		logger.setLevel(Level.OFF);
+		logger.error("Error {0}", new IllegalStateException(), parameter);
+		assertEquals(0, supplier.calls);
+		assertEquals(0, parameter.calls);
+		assertTrue(handler.records.isEmpty());
+	}
+
+	@Test
+	public void testEnabled() {
+		CountingSupplier supplier = new CountingSupplier();
+		CountingParameter parameter = new CountingParameter();
+		logger.info(supplier);
+		logger.info("Info {0}", parameter);
+		IllegalStateException thrown = new IllegalStateException();
+		logger.error("Error {0}", thrown, parameter);
+		assertEquals(1, supplier.calls);
+		// the parameters are left to the formatter
+		assertEquals(0, parameter.calls);
+		assertEquals(3, handler.records.size());
+		assertEquals("supplied", handler.records.get(0).getMessage());
+		LogRecord info = handler.records.get(1);
+		assertEquals("Info {0}", info.getMessage());
+		assertArrayEquals(new Object[] { parameter }, info.getParameters());
+		LogRecord error = handler.records.get(2);
+		assertEquals(LevelX.ERROR, error.getLevel());
+		assertEquals(logger.getName(), error.getLoggerName());
+		assertSame(thrown, error.getThrown());
+		assertArrayEquals(new Object[] { parameter }, error.getParameters());
+	}
+
+	private static class CountingSupplier implements MessageSupplier {
+
+		private int calls = 0;
+
+		@Override
+		public String get() {
+			calls++;
+			return "supplied";
+		}
+	}
+
+	private static class CountingParameter {
+
+		private int calls = 0;
+
+		@Override
+		public String toString() {
+			calls++;
+			return "parameter";
+		}
+	}
+
+	private static class RecordingHandler extends Handler {
+
+		private final List<LogRecord> records = new ArrayList<LogRecord>();
+
+		private RecordingHandler(Level level) {
+			setLevel(level);
+		}
+
+		@Override
+		public void publish(LogRecord record) {
+			records.add(record);
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
+}